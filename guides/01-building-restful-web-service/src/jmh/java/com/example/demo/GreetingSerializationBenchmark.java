@@ -0,0 +1,86 @@
+package com.example.demo;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestResponseBodyMethodProcessor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares answering {@code /greeting} the way it used to be, with {@code String.format} and the
+ * MVC {@code @ResponseBody} handling through Jackson, with the {@link DirectJson} path.
+ * Both run the return value handler MVC would pick against the same request and response.
+ * Run with {@code -prof gc} to see the bytes allocated per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class GreetingSerializationBenchmark {
+
+    private static final String template = "Hello, %s!";
+
+    @Param({"World", "Zo\u00eb \"the benchmark\" O'Connor"})
+    private String name;
+
+    private long id;
+
+    private HandlerMethodReturnValueHandler jacksonHandler;
+    private MethodParameter jacksonReturnType;
+    private HandlerMethodReturnValueHandler directHandler;
+    private MethodParameter directReturnType;
+
+    private MockHttpServletResponse response;
+    private ServletWebRequest webRequest;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        // Without a Boot context the handlers would log every response at DEBUG
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(null, LogLevel.INFO);
+
+        jacksonHandler = new RequestResponseBodyMethodProcessor(List.of(new MappingJackson2HttpMessageConverter()));
+        jacksonReturnType = new MethodParameter(GreetingSerializationBenchmark.class.getDeclaredMethod("jacksonGreeting"), -1);
+        directHandler = new DirectJsonReturnValueHandler();
+        directReturnType = new MethodParameter(DemoApplication.class.getMethod("greeting", String.class), -1);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/greeting");
+        request.addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        response = new MockHttpServletResponse();
+        webRequest = new ServletWebRequest(request, response);
+    }
+
+    @Benchmark
+    public void jackson() throws Exception {
+        response.setCommitted(false);
+        response.reset();
+        Greeting greeting = new Greeting(++id, String.format(template, name));
+        jacksonHandler.handleReturnValue(greeting, jacksonReturnType, new ModelAndViewContainer(), webRequest);
+    }
+
+    @Benchmark
+    public void direct() throws Exception {
+        response.setCommitted(false);
+        response.reset();
+        Greeting greeting = new Greeting(++id, DemoApplication.greet(name));
+        directHandler.handleReturnValue(greeting, directReturnType, new ModelAndViewContainer(), webRequest);
+    }
+
+    @ResponseBody
+    private Greeting jacksonGreeting() {
+        return null;
+    }
+}
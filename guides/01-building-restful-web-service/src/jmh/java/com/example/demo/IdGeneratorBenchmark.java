@@ -0,0 +1,52 @@
+package com.example.demo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single shared counter greetings used to take their ids from with per-thread
+ * blocks, from 1 to 64 threads calling at once. Scores are ids per microsecond across all threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    @Param({"ordered", "striped"})
+    private String mode;
+
+    private IdGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = new IdGeneratorConfiguration().idGenerator(mode, 1024);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long threads01() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long threads04() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long threads16() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long threads64() {
+        return generator.nextId();
+    }
+}
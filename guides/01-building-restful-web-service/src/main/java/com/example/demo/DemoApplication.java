@@ -6,19 +6,27 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.concurrent.atomic.AtomicLong;
-
 @RestController
 @SpringBootApplication
 public class DemoApplication {
 
-    private static final String template = "Hello, %s!";
-    private final AtomicLong counter = new AtomicLong();
+    private final IdGenerator idGenerator;
+
+    public DemoApplication(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
 
+    @DirectJson
     @GetMapping("/greeting")
     public Greeting greeting(@RequestParam(value = "name", defaultValue = "World") String name){
-        return new Greeting(counter.incrementAndGet(), String.format(template,name
-        ));
+        return new Greeting(idGenerator.nextId(), greet(name));
+    }
+
+    /**
+     * Same as {@code String.format("Hello, %s!", name)} without parsing the format on every call.
+     */
+    static String greet(String name) {
+        return "Hello, " + name + "!";
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,17 @@
+package com.example.demo;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler method returning a {@link Greeting} whose response body is written by
+ * {@link GreetingJsonWriter} instead of Jackson.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DirectJson {
+}
@@ -0,0 +1,30 @@
+package com.example.demo;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class DirectJsonConfiguration {
+
+    /**
+     * Puts the {@link DirectJsonReturnValueHandler} ahead of the built-in handlers, which would
+     * otherwise claim every {@code @ResponseBody} method first.
+     */
+    @Bean
+    public SmartInitializingSingleton directJsonReturnValueHandlerRegistrar(RequestMappingHandlerAdapter adapter) {
+        return () -> {
+            List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>();
+            handlers.add(new DirectJsonReturnValueHandler());
+            handlers.addAll(adapter.getReturnValueHandlers());
+            adapter.setReturnValueHandlers(handlers);
+        };
+    }
+}
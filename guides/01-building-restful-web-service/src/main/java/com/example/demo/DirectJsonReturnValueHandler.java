@@ -0,0 +1,33 @@
+package com.example.demo;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Writes the {@link Greeting} returned by {@link DirectJson} handler methods with
+ * {@link GreetingJsonWriter}, bypassing content negotiation and the Jackson message converter.
+ */
+public class DirectJsonReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+    private final GreetingJsonWriter writer = new GreetingJsonWriter();
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return returnType.hasMethodAnnotation(DirectJson.class)
+                && Greeting.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType,
+                                  ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+        mavContainer.setRequestHandled(true);
+        HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        writer.write((Greeting) returnValue, response.getOutputStream());
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfiguration {
+
+    /**
+     * {@code greeting.id-generator=ordered} (the default) hands out ids in request order from a single
+     * counter, {@code striped} from per-thread blocks of {@code greeting.id-block-size}.
+     */
+    @Bean
+    public IdGenerator idGenerator(@Value("${greeting.id-generator:ordered}") String mode,
+                                   @Value("${greeting.id-block-size:1024}") int blockSize) {
+        switch (mode) {
+            case "striped":
+                return new StripedIdGenerator(blockSize);
+            case "ordered":
+                return new OrderedIdGenerator();
+            default:
+                throw new IllegalArgumentException("Unknown greeting.id-generator: " + mode);
+        }
+    }
+}
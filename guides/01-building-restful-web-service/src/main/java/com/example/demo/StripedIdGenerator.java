@@ -0,0 +1,41 @@
+package com.example.demo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out ids from blocks each thread reserves for itself, so the shared counter is only
+ * touched once per block instead of once per id.
+ * <p>
+ * Ids are unique and increase within a thread, but threads interleave: a later id may be smaller
+ * than an earlier one handed to another thread, and the unused rest of a block is skipped when
+ * its thread dies. Use {@link OrderedIdGenerator} where that matters.
+ */
+public class StripedIdGenerator implements IdGenerator {
+
+    private final AtomicLong reserved = new AtomicLong();
+    private final int blockSize;
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+    public StripedIdGenerator(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public long nextId() {
+        Block block = blocks.get();
+        if (block.next == block.end) {
+            block.next = reserved.getAndAdd(blockSize) + 1;
+            block.end = block.next + blockSize;
+        }
+        return block.next++;
+    }
+
+    private static final class Block {
+
+        private long next;
+        private long end;
+    }
+}
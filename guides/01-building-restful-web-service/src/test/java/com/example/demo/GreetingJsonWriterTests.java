@@ -0,0 +1,51 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GreetingJsonWriterTests {
+
+    private final GreetingJsonWriter writer = new GreetingJsonWriter();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"World", "", "\"quoted\" \\ back", "tab\tnew\nline\u0001\u001f", "Zo\u00eb", "\u65e5\u672c\u8a9e", "emoji \ud83d\ude00"})
+    void writesSameJsonAsJackson(String name) throws Exception {
+        Greeting greeting = new Greeting(Long.MAX_VALUE - name.length(), DemoApplication.greet(name));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(greeting, out);
+
+        assertThat(out.toByteArray()).isEqualTo(objectMapper.writeValueAsBytes(greeting));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 7, -42, Long.MIN_VALUE})
+    void writesAnyId(long id) throws Exception {
+        Greeting greeting = new Greeting(id, "Hello, World!");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(greeting, out);
+
+        assertThat(out.toByteArray()).isEqualTo(objectMapper.writeValueAsBytes(greeting));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1000, 100_000})
+    void growsBufferForLongNames(int length) throws Exception {
+        Greeting greeting = new Greeting(1, "x".repeat(length));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(greeting, out);
+        writer.write(new Greeting(2, "short"), out);
+
+        assertThat(out.toString()).isEqualTo(objectMapper.writeValueAsString(greeting)
+                + objectMapper.writeValueAsString(new Greeting(2, "short")));
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.demo;
+
+import com.sun.tools.attach.VirtualMachine;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts the greeting service on Tomcat and on Netty in turn, each in its own JVM, and drives
+ * {@code /greeting} at increasing concurrency. For every level it prints the throughput, the
+ * p50/p99 latency and the server's heap usage, which is read over JMX from the server process.
+ * <p>
+ * Run with {@code ./gradlew loadTest}, optionally with
+ * {@code -PloadTestArgs="--concurrency=1,16,64,256 --duration=10 --warmup=5 --heap=256m"}.
+ */
+public class GreetingLoadGenerator {
+
+    private static final String[][] VARIANTS = {{"servlet", "default"}, {"reactive", "reactive"}};
+
+    /**
+     * Longer than any request should take, so a stuck one is counted as an error rather than
+     * stalling its worker past the end of the phase.
+     */
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    private final int[] concurrencyLevels;
+    private final Duration duration;
+    private final Duration warmup;
+    private final String heap;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    GreetingLoadGenerator(int[] concurrencyLevels, Duration duration, Duration warmup, String heap) {
+        this.concurrencyLevels = concurrencyLevels;
+        this.duration = duration;
+        this.warmup = warmup;
+        this.heap = heap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] concurrency = {1, 16, 64, 256};
+        Duration duration = Duration.ofSeconds(10);
+        Duration warmup = Duration.ofSeconds(5);
+        String heap = "256m";
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--concurrency=")) {
+                concurrency = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if (arg.startsWith("--duration=")) {
+                duration = Duration.ofSeconds(Long.parseLong(value));
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Duration.ofSeconds(Long.parseLong(value));
+            } else if (arg.startsWith("--heap=")) {
+                heap = value;
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+        new GreetingLoadGenerator(concurrency, duration, warmup, heap).run();
+    }
+
+    void run() throws Exception {
+        System.out.printf("%-9s %11s %10s %8s %8s %13s %13s%n",
+                "variant", "concurrency", "req/s", "p50 ms", "p99 ms", "heap peak MB", "heap live MB");
+        for (String[] variant : VARIANTS) {
+            try (Server server = Server.start(variant[1], heap)) {
+                drive(server, Math.max(Arrays.stream(concurrencyLevels).max().orElse(1), 1), warmup);
+                for (int concurrency : concurrencyLevels) {
+                    server.memory.gc();
+                    HeapSampler sampler = new HeapSampler(server.memory);
+                    sampler.start();
+                    Result result = drive(server, concurrency, duration);
+                    sampler.interrupt();
+                    sampler.join();
+                    server.memory.gc();
+                    System.out.printf("%-9s %11d %10.0f %8.2f %8.2f %13.1f %13.1f%n",
+                            variant[0], concurrency, result.throughput(duration), result.percentile(50),
+                            result.percentile(99), sampler.peak / 1048576.0,
+                            server.memory.getHeapMemoryUsage().getUsed() / 1048576.0);
+                }
+            }
+        }
+    }
+
+    private Result drive(Server server, int concurrency, Duration duration) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(server.uri("/greeting?name=load"))
+                .timeout(REQUEST_TIMEOUT)
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        Result result = new Result();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = new Thread(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response;
+                        try {
+                            response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        } catch (IOException e) {
+                            // A reset or a timeout fails this request, not the rest of the worker's run
+                            result.errors.incrementAndGet();
+                            continue;
+                        }
+                        if (response.statusCode() != 200) {
+                            result.errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    result.add(Arrays.copyOf(latencies, count));
+                    done.countDown();
+                }
+            }, "load-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+        if (result.errors.get() > 0) {
+            System.out.printf("  %d requests failed%n", result.errors.get());
+        }
+        return result;
+    }
+
+    private static final class Result {
+
+        private final List<long[]> latencies = new ArrayList<>();
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void add(long[] workerLatencies) {
+            latencies.add(workerLatencies);
+        }
+
+        synchronized double throughput(Duration duration) {
+            return latencies.stream().mapToLong(l -> l.length).sum() / (duration.toNanos() / 1e9);
+        }
+
+        synchronized double percentile(int percentile) {
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            if (all.length == 0) {
+                return Double.NaN;
+            }
+            return all[(int) Math.ceil(percentile / 100.0 * all.length) - 1] / 1e6;
+        }
+    }
+
+    /**
+     * Samples the server's used heap, whose peak is what a deployment has to size for.
+     */
+    private static final class HeapSampler extends Thread {
+
+        private final MemoryMXBean memory;
+        private volatile long peak;
+
+        HeapSampler(MemoryMXBean memory) {
+            super("heap-sampler");
+            this.memory = memory;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isInterrupted()) {
+                    MemoryUsage usage = memory.getHeapMemoryUsage();
+                    peak = Math.max(peak, usage.getUsed());
+                    Thread.sleep(50);
+                }
+            } catch (InterruptedException e) {
+                // done
+            } catch (RuntimeException e) {
+                // server gone
+            }
+        }
+    }
+
+    /**
+     * The service running in a child JVM with the same class path, so its heap is its own.
+     */
+    private static final class Server implements AutoCloseable {
+
+        private final Process process;
+        private final int port;
+        private final JMXConnector jmx;
+        private final MemoryMXBean memory;
+
+        private Server(Process process, int port, JMXConnector jmx, MemoryMXBean memory) {
+            this.process = process;
+            this.port = port;
+            this.jmx = jmx;
+            this.memory = memory;
+        }
+
+        static Server start(String profile, String heap) throws Exception {
+            int port;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            Process process = new ProcessBuilder(
+                    System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                    "-Xms" + heap, "-Xmx" + heap,
+                    "-cp", System.getProperty("java.class.path"),
+                    DemoApplication.class.getName(),
+                    "--server.port=" + port,
+                    "--spring.profiles.active=" + profile,
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.root=WARN")
+                    .inheritIO()
+                    .start();
+            try {
+                awaitStartup(port);
+                VirtualMachine vm = VirtualMachine.attach(String.valueOf(process.pid()));
+                String address;
+                try {
+                    address = vm.startLocalManagementAgent();
+                } finally {
+                    vm.detach();
+                }
+                JMXConnector jmx = JMXConnectorFactory.connect(new JMXServiceURL(address));
+                MBeanServerConnection connection = jmx.getMBeanServerConnection();
+                MemoryMXBean memory = ManagementFactory.newPlatformMXBeanProxy(connection,
+                        ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class);
+                return new Server(process, port, jmx, memory);
+            } catch (Exception e) {
+                process.destroy();
+                throw e;
+            }
+        }
+
+        private static void awaitStartup(int port) throws InterruptedException {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/greeting")).build();
+            long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+            while (System.nanoTime() < deadline) {
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    // not listening yet
+                }
+                Thread.sleep(200);
+            }
+            throw new IllegalStateException("Server did not start on port " + port);
+        }
+
+        URI uri(String path) {
+            return URI.create("http://localhost:" + port + path);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                jmx.close();
+            } finally {
+                process.destroy();
+                try {
+                    process.waitFor();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.DispatcherHandler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveGreetingTests {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void runsOnWebFlux() {
+        assertThat(context.getBeanNamesForType(DispatcherHandler.class)).isNotEmpty();
+        assertThat(((ReactiveWebServerApplicationContext) context).getWebServer()).isInstanceOf(NettyWebServer.class);
+    }
+
+    @Test
+    void greetingKeepsTheContract() {
+        long first = greet("World").id;
+        GreetingBody second = greet("Netty");
+        assertThat(second.content).isEqualTo("Hello, Netty!");
+        assertThat(second.id).isEqualTo(first + 1);
+    }
+
+    private GreetingBody greet(String name) {
+        return webTestClient.get().uri("/greeting?name={name}", name)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(GreetingBody.class)
+                .returnResult().getResponseBody();
+    }
+
+    static class GreetingBody {
+        public long id;
+        public String content;
+    }
+}
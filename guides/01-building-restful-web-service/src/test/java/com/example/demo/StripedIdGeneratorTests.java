@@ -0,0 +1,61 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedIdGeneratorTests {
+
+    @Test
+    void handsOutConsecutiveIdsWithinABlock() {
+        StripedIdGenerator generator = new StripedIdGenerator(4);
+
+        assertThat(new long[]{generator.nextId(), generator.nextId(), generator.nextId(),
+                generator.nextId(), generator.nextId()}).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreadsAndIncreasingWithinEach() throws Exception {
+        StripedIdGenerator generator = new StripedIdGenerator(16);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[10_000];
+                    for (int n = 0; n < ids.length; n++) {
+                        ids[n] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> all = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                for (int n = 0; n < ids.length; n++) {
+                    assertThat(all.add(ids[n])).isTrue();
+                    if (n > 0) {
+                        assertThat(ids[n]).isGreaterThan(ids[n - 1]);
+                    }
+                }
+            }
+            assertThat(all).hasSize(80_000).allMatch(id -> id > 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsEmptyBlocks() {
+        assertThatThrownBy(() -> new StripedIdGenerator(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.helpers.NOPAppender;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of formatting the reported time. {@code report} is the reporting path of
+ * {@link ScheduledTasks} with the log line turned off, {@code reportLogged} the same with the line
+ * logged to an appender that drops it. Run with {@code -prof gc}: the {@link ClockFormatter} paths
+ * allocate once a second, which shows as 0 B/op, while a logged line still costs its logging event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClockFormatterBenchmark {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final SimpleDateFormat dataFormat = new SimpleDateFormat("HH:mm:ss");
+    private final ClockFormatter clockFormatter = new ClockFormatter();
+    private final ScheduledTasks scheduledTasks = new ScheduledTasks(clockFormatter);
+
+    @Benchmark
+    public String simpleDateFormat() {
+        return dataFormat.format(new Date());
+    }
+
+    @Benchmark
+    public String dateTimeFormatter() {
+        return FORMATTER.format(LocalTime.now());
+    }
+
+    @Benchmark
+    public String clockFormatter() {
+        return clockFormatter.now();
+    }
+
+    @Benchmark
+    public void report(LoggingOff loggingOff) {
+        scheduledTasks.reportCurrentTime();
+    }
+
+    @Benchmark
+    public void reportLogged(LoggingOn loggingOn) {
+        scheduledTasks.reportCurrentTime();
+    }
+
+    @State(Scope.Benchmark)
+    public static class LoggingOff {
+
+        @Setup
+        public void setUp() {
+            LoggingSystem.get(getClass().getClassLoader()).setLogLevel(ScheduledTasks.class.getName(), LogLevel.WARN);
+        }
+    }
+
+    /**
+     * Logs the reports to an appender that drops them, so the cost is that of the logger alone.
+     */
+    @State(Scope.Benchmark)
+    public static class LoggingOn {
+
+        @Setup
+        public void setUp() {
+            Logger logger = (Logger) LoggerFactory.getLogger(ScheduledTasks.class);
+            NOPAppender<ILoggingEvent> appender = new NOPAppender<>();
+            appender.setContext(logger.getLoggerContext());
+            appender.start();
+            logger.setLevel(Level.INFO);
+            logger.setAdditive(false);
+            logger.addAppender(appender);
+        }
+    }
+}
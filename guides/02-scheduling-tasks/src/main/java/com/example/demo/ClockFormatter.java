@@ -0,0 +1,62 @@
+package com.example.demo;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Formats the time of day as {@code HH:mm:ss}, safe to share between threads.
+ * <p>
+ * The text of the current second is cached, so every call within the same second returns the
+ * same string and allocates nothing; only the first call of a second formats.
+ */
+public class ClockFormatter {
+
+    private final Clock clock;
+    private volatile Second cached = new Second(Long.MIN_VALUE, null);
+
+    public ClockFormatter() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public ClockFormatter(Clock clock) {
+        this.clock = clock;
+    }
+
+    public String now() {
+        return format(clock.millis());
+    }
+
+    public String format(long epochMillis) {
+        long epochSecond = Math.floorDiv(epochMillis, 1000);
+        Second second = cached;
+        if (second.epochSecond != epochSecond) {
+            second = new Second(epochSecond, render(epochSecond, clock.getZone()));
+            cached = second;
+        }
+        return second.text;
+    }
+
+    private static String render(long epochSecond, ZoneId zone) {
+        int offset = zone.getRules().getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+        int secondOfDay = (int) Math.floorMod(epochSecond + offset, 86400L);
+        int hours = secondOfDay / 3600;
+        int minutes = secondOfDay / 60 % 60;
+        int seconds = secondOfDay % 60;
+        return new String(new char[]{
+                (char) ('0' + hours / 10), (char) ('0' + hours % 10), ':',
+                (char) ('0' + minutes / 10), (char) ('0' + minutes % 10), ':',
+                (char) ('0' + seconds / 10), (char) ('0' + seconds % 10)});
+    }
+
+    private static final class Second {
+
+        private final long epochSecond;
+        private final String text;
+
+        Second(long epochSecond, String text) {
+            this.epochSecond = epochSecond;
+            this.text = text;
+        }
+    }
+}
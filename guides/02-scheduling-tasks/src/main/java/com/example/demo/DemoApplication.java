@@ -2,12 +2,18 @@ package com.example.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableScheduling
 @SpringBootApplication
 public class DemoApplication {
 
+    @Bean
+    public ClockFormatter clockFormatter() {
+        return new ClockFormatter();
+    }
+
     public static void main(String[] args) {
         SpringApplication.run(DemoApplication.class, args);
     }
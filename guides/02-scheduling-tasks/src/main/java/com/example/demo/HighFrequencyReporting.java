@@ -0,0 +1,41 @@
+package com.example.demo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+
+/**
+ * Runs {@code scheduling.report.tasks} reporters in total, all at {@code scheduling.report.rate},
+ * to put the scheduler and the reporting path under load.
+ */
+@Configuration
+@Profile("high-frequency")
+public class HighFrequencyReporting implements SchedulingConfigurer {
+
+    private final ScheduledTasks scheduledTasks;
+    private final int tasks;
+    private final long rate;
+
+    public HighFrequencyReporting(ScheduledTasks scheduledTasks,
+                                  @Value("${scheduling.report.tasks}") int tasks,
+                                  @Value("${scheduling.report.rate}") long rate) {
+        this.scheduledTasks = scheduledTasks;
+        this.tasks = tasks;
+        this.rate = rate;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        // The @Scheduled method is the first reporter
+        for (int i = 1; i < tasks; i++) {
+            try {
+                taskRegistrar.addFixedRateTask(new ScheduledMethodRunnable(scheduledTasks, "reportCurrentTime"), rate);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -5,21 +5,22 @@ import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
 @Component
 public class ScheduledTasks {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledTasks.class);
 
-    private static final SimpleDateFormat dataFormat = new SimpleDateFormat("HH:mm:ss");
+    private final ClockFormatter clockFormatter;
+
+    public ScheduledTasks(ClockFormatter clockFormatter) {
+        this.clockFormatter = clockFormatter;
+    }
 
     /**
-     * Executes the task every 5000 milliseconds
+     * Executes the task every 5000 milliseconds, or every {@code scheduling.report.rate}
      */
-    @Scheduled(fixedRate = 5000)
+    @Scheduled(fixedRateString = "${scheduling.report.rate:5000}")
     public void reportCurrentTime(){
-        LOGGER.info("The time is now {}", dataFormat.format(new Date()));
+        LOGGER.info("The time is now {}", clockFormatter.now());
     }
 }
@@ -0,0 +1,64 @@
+package com.example.demo.scheduling;
+
+/**
+ * The lease a cluster-locked task runs under, available to the task while it runs.
+ */
+public final class ClusterLease {
+
+    private static final ThreadLocal<ClusterLease> current = new ThreadLocal<>();
+
+    private final long fencingToken;
+    private final int shard;
+    private final int shards;
+    private volatile boolean valid = true;
+
+    ClusterLease(long fencingToken, int shard, int shards) {
+        this.fencingToken = fencingToken;
+        this.shard = shard;
+        this.shards = shards;
+    }
+
+    /**
+     * @return the lease of the task running on this thread, or {@code null}
+     */
+    public static ClusterLease current() {
+        return current.get();
+    }
+
+    static void set(ClusterLease lease) {
+        if (lease == null) {
+            current.remove();
+        } else {
+            current.set(lease);
+        }
+    }
+
+    /**
+     * To be passed along with every write the task makes, see {@link LockProvider.Lease#getFencingToken()}.
+     */
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    /**
+     * The part of the work this run is responsible for, from 0 to {@link #getShards()} - 1.
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * @return {@code false} once the lease could not be renewed; the task should stop then
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+}
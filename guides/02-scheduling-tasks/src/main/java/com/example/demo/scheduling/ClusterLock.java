@@ -0,0 +1,35 @@
+package com.example.demo.scheduling;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tunes how a {@code @Scheduled} method is locked across the cluster when
+ * {@code scheduling.lock.enabled} is set. Methods without it are locked with the defaults.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ClusterLock {
+
+    /**
+     * Name of the lease, defaults to the task name.
+     */
+    String name() default "";
+
+    /**
+     * Milliseconds the lease is kept after a run started, so that nodes whose schedules fire a
+     * little later skip the fire rather than run it again. Defaults to 90% of the time to the next
+     * fire, or to {@code scheduling.lock.minimum-hold} if there is none.
+     */
+    long lockAtLeastFor() default -1;
+
+    /**
+     * Number of shards the work of every fire is split into, each locked on its own and spread
+     * over the live nodes. The task finds its shard in {@link ClusterLease#current()}.
+     */
+    int shards() default 1;
+}
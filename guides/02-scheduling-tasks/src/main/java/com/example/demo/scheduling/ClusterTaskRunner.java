@@ -0,0 +1,162 @@
+package com.example.demo.scheduling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a fire of a task only on the node that gets its lease from the {@link LockProvider},
+ * renewing the lease while the task runs. Sharded tasks take a lease per shard, and every node
+ * takes no more than its share of the shards, so the work spreads over the live nodes.
+ */
+public class ClusterTaskRunner implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterTaskRunner.class);
+
+    private final LockProvider lockProvider;
+    private final String nodeId;
+    private final Duration leaseTime;
+    private final Duration heartbeat;
+    private final long minimumHold;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Renews leases and sends heartbeats, apart from the scheduler threads that may be busy
+     * running the very task whose lease needs renewing.
+     */
+    private final ScheduledExecutorService renewals;
+
+    public ClusterTaskRunner(LockProvider lockProvider, SchedulingProperties.Lock properties,
+                             Clock clock, MeterRegistry meterRegistry) {
+        this.lockProvider = lockProvider;
+        this.nodeId = properties.getNodeId();
+        this.leaseTime = properties.getLeaseTime();
+        this.heartbeat = properties.getHeartbeat();
+        this.minimumHold = properties.getMinimumHold().toMillis();
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("lease-renewal-");
+        threadFactory.setDaemon(true);
+        this.renewals = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        lockProvider.heartbeat();
+        renewals.scheduleWithFixedDelay(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param interval milliseconds from this fire to the next, 0 if not known
+     */
+    void run(String name, ClusterLock clusterLock, long interval, Runnable task) {
+        String lockName = clusterLock != null && !clusterLock.name().isEmpty() ? clusterLock.name() : name;
+        long lockAtLeastFor = clusterLock != null && clusterLock.lockAtLeastFor() >= 0
+                ? clusterLock.lockAtLeastFor() : interval > 0 ? interval * 9 / 10 : minimumHold;
+        int shards = clusterLock != null ? Math.max(1, clusterLock.shards()) : 1;
+
+        int ran = 0;
+        if (shards == 1) {
+            ran = runLocked(name, lockName, 0, 1, lockAtLeastFor, task) ? 1 : 0;
+        } else {
+            // Nodes start at different shards, so they rarely race for the same ones
+            int nodes = lockProvider.liveNodes(heartbeat.multipliedBy(3));
+            int share = (shards + nodes - 1) / nodes;
+            int first = Math.floorMod(nodeId.hashCode(), shards);
+            for (int i = 0; i < shards && ran < share; i++) {
+                int shard = (first + i) % shards;
+                if (runLocked(name, lockName + "#" + shard, shard, shards, lockAtLeastFor, task)) {
+                    ran++;
+                }
+            }
+        }
+        if (ran == 0) {
+            meterRegistry.counter("scheduling.lock.skipped", "task", name).increment();
+            LOGGER.debug("Skipped {}, it runs on another node", name);
+        }
+    }
+
+    private boolean runLocked(String name, String lockName, int shard, int shards, long lockAtLeastFor,
+                              Runnable task) {
+        long start = System.nanoTime();
+        Optional<LockProvider.Lease> acquired = lockProvider.tryAcquire(lockName, leaseTime);
+        Timer.builder("scheduling.lock.acquire")
+                .tag("task", name)
+                .tag("outcome", acquired.isPresent() ? "acquired" : "held")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (acquired.isEmpty()) {
+            return false;
+        }
+        LockProvider.Lease lease = acquired.get();
+        long lockedAt = clock.millis();
+        ClusterLease clusterLease = new ClusterLease(lease.getFencingToken(), shard, shards);
+        long renewEvery = leaseTime.toMillis() / 3;
+        ScheduledFuture<?> renewal = renewals.scheduleAtFixedRate(() -> renew(name, lockName, lease, clusterLease),
+                renewEvery, renewEvery, TimeUnit.MILLISECONDS);
+        ClusterLease.set(clusterLease);
+        try {
+            task.run();
+        } finally {
+            ClusterLease.set(null);
+            renewal.cancel(false);
+            if (clusterLease.isValid()) {
+                lease.release(lockedAt + lockAtLeastFor);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renews {@code lease}, invalidating {@code clusterLease} if that fails. A renewal that throws
+     * counts as failed too: it must not escape, as that would silently cancel every later renewal
+     * while the task carries on with a lease that is about to expire.
+     */
+    private void renew(String name, String lockName, LockProvider.Lease lease, ClusterLease clusterLease) {
+        if (!clusterLease.isValid()) {
+            return;
+        }
+        boolean renewed;
+        RuntimeException failure = null;
+        try {
+            renewed = lease.renew(leaseTime);
+        } catch (RuntimeException e) {
+            renewed = false;
+            failure = e;
+        }
+        if (!renewed) {
+            clusterLease.invalidate();
+            meterRegistry.counter("scheduling.lock.lost", "task", name).increment();
+            LOGGER.warn("Lost the lease of {} while running it, fencing token {}", lockName,
+                    lease.getFencingToken(), failure);
+        }
+    }
+
+    private void heartbeat() {
+        try {
+            lockProvider.heartbeat();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to send scheduler heartbeat", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        renewals.shutdownNow();
+        try {
+            lockProvider.leave();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to leave the scheduler cluster", e);
+        }
+    }
+}
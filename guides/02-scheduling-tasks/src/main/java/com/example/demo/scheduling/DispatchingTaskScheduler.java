@@ -0,0 +1,217 @@
+package com.example.demo.scheduling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link TaskScheduler} for {@code @Scheduled} methods that records lateness, duration and
+ * missed fires of every task, and in {@link SchedulingProperties.Mode#THREAD_PER_TASK} mode runs
+ * each fire on a thread of its own so the scheduler threads are never held up by a slow task.
+ * <p>
+ * Virtual threads are used when the JVM provides them, a cached pool of platform threads otherwise.
+ * Fixed delays are still measured from the end of the previous run.
+ */
+public class DispatchingTaskScheduler implements TaskScheduler, DisposableBean {
+
+    private final ThreadPoolTaskScheduler scheduler;
+    private final ExecutorService executor;
+    private final ClusterTaskRunner clusterTaskRunner;
+    private final SchedulingProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * How many times each task name was scheduled, so that every registration gets a name of its own.
+     */
+    private final Map<String, AtomicInteger> registrations = new ConcurrentHashMap<>();
+
+    public DispatchingTaskScheduler(ThreadPoolTaskScheduler scheduler, SchedulingProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this(scheduler, null, properties, meterRegistry);
+    }
+
+    /**
+     * @param clusterTaskRunner runs every fire under a cluster-wide lease, or {@code null}
+     */
+    public DispatchingTaskScheduler(ThreadPoolTaskScheduler scheduler, ClusterTaskRunner clusterTaskRunner,
+                                    SchedulingProperties properties, MeterRegistry meterRegistry) {
+        this.scheduler = scheduler;
+        this.executor = properties.getMode() == SchedulingProperties.Mode.THREAD_PER_TASK
+                ? newThreadPerTaskExecutor() : null;
+        this.clusterTaskRunner = clusterTaskRunner;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Clock getClock() {
+        return scheduler.getClock();
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+        MonitoredTask monitored = monitor(task);
+        monitored.trigger(trigger);
+        return scheduler.schedule(monitored::fire, triggerContext -> {
+            Date next = trigger.nextExecutionTime(triggerContext);
+            if (next != null) {
+                monitored.expect(next.getTime());
+            }
+            return next;
+        });
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Date startTime) {
+        MonitoredTask monitored = monitor(task);
+        monitored.expect(startTime.getTime());
+        return scheduler.schedule(monitored::fire, startTime);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Date startTime, long period) {
+        MonitoredTask monitored = monitor(task);
+        monitored.fixedRate(startTime.getTime(), period);
+        return scheduler.scheduleAtFixedRate(monitored::fire, startTime, period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+        return scheduleAtFixedRate(task, new Date(getClock().millis()), period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Date startTime, long delay) {
+        FixedDelay fixedDelay = new FixedDelay(monitor(task), delay);
+        fixedDelay.scheduleAt(startTime.getTime());
+        return fixedDelay;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay) {
+        return scheduleWithFixedDelay(task, new Date(getClock().millis()), delay);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        scheduler.destroy();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * The second and later registrations of a task are named {@code Class.method[2]} and so on,
+     * so that they take leases and publish metrics of their own. Every node registers its tasks
+     * in the same order, so the names match across the cluster.
+     */
+    private MonitoredTask monitor(Runnable task) {
+        String name = MonitoredTask.name(task);
+        int registration = registrations.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+        return new MonitoredTask(task, registration > 1 ? name + "[" + registration + "]" : name, executor,
+                clusterTaskRunner, properties, meterRegistry);
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // No virtual threads before Java 21
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("scheduled-");
+            threadFactory.setDaemon(true);
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+
+    /**
+     * Schedules the next fire of a task only once its run is over, which a run dispatched to
+     * another thread cannot leave to the {@link ThreadPoolTaskScheduler}.
+     */
+    private final class FixedDelay implements Runnable, ScheduledFuture<Object> {
+
+        private final MonitoredTask task;
+        private final long delay;
+        private final CountDownLatch cancelled = new CountDownLatch(1);
+        private volatile ScheduledFuture<?> next;
+
+        FixedDelay(MonitoredTask task, long delay) {
+            this.task = task;
+            this.delay = delay;
+            task.fixedDelay(delay);
+        }
+
+        synchronized void scheduleAt(long time) {
+            if (!isCancelled()) {
+                task.expect(time);
+                next = scheduler.schedule(this, new Date(time));
+            }
+        }
+
+        @Override
+        public void run() {
+            task.fire(() -> scheduleAt(getClock().millis() + delay));
+        }
+
+        @Override
+        public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+            if (isCancelled()) {
+                return false;
+            }
+            cancelled.countDown();
+            return next == null || next.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled.getCount() == 0;
+        }
+
+        @Override
+        public boolean isDone() {
+            return isCancelled();
+        }
+
+        @Override
+        public Object get() throws InterruptedException {
+            cancelled.await();
+            throw new CancellationException();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            if (cancelled.await(timeout, unit)) {
+                throw new CancellationException();
+            }
+            throw new TimeoutException();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            ScheduledFuture<?> current = next;
+            return current != null ? current.getDelay(unit) : 0;
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
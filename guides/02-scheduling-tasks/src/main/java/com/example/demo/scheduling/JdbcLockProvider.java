@@ -0,0 +1,111 @@
+package com.example.demo.scheduling;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps leases in the {@code SCHEDULER_LEASE} table, see {@code schema.sql}. A lease is taken
+ * by updating an expired row, or inserting it, so the database decides who wins.
+ * <p>
+ * Expiry is compared in epoch milliseconds of the nodes' clocks, which therefore need to be
+ * synchronized to well within the lease time.
+ */
+public class JdbcLockProvider implements LockProvider {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+    private final Clock clock;
+
+    public JdbcLockProvider(JdbcTemplate jdbcTemplate, String nodeId, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<Lease> tryAcquire(String name, Duration leaseTime) {
+        long now = clock.millis();
+        long lockedUntil = now + leaseTime.toMillis();
+        int updated = jdbcTemplate.update("UPDATE SCHEDULER_LEASE SET OWNER = ?, FENCING_TOKEN = FENCING_TOKEN + 1, "
+                + "LOCKED_UNTIL = ? WHERE NAME = ? AND LOCKED_UNTIL <= ?", nodeId, lockedUntil, name, now);
+        if (updated == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO SCHEDULER_LEASE (NAME, OWNER, FENCING_TOKEN, LOCKED_UNTIL) "
+                        + "VALUES (?, ?, 1, ?)", name, nodeId, lockedUntil);
+            } catch (DuplicateKeyException e) {
+                return Optional.empty();
+            }
+        }
+        List<Long> tokens = jdbcTemplate.queryForList("SELECT FENCING_TOKEN FROM SCHEDULER_LEASE "
+                + "WHERE NAME = ? AND OWNER = ? AND LOCKED_UNTIL = ?", Long.class, name, nodeId, lockedUntil);
+        if (tokens.isEmpty()) {
+            // Expired and taken over before we even got to read it
+            return Optional.empty();
+        }
+        return Optional.of(new JdbcLease(name, tokens.get(0)));
+    }
+
+    @Override
+    public void heartbeat() {
+        long now = clock.millis();
+        if (jdbcTemplate.update("UPDATE SCHEDULER_NODE SET LAST_SEEN = ? WHERE NODE_ID = ?", now, nodeId) == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO SCHEDULER_NODE (NODE_ID, LAST_SEEN) VALUES (?, ?)", nodeId, now);
+            } catch (DuplicateKeyException e) {
+                // inserted concurrently by this node, fine
+            }
+        }
+    }
+
+    @Override
+    public int liveNodes(Duration within) {
+        Integer nodes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SCHEDULER_NODE WHERE LAST_SEEN > ?",
+                Integer.class, clock.millis() - within.toMillis());
+        return Math.max(1, nodes == null ? 0 : nodes);
+    }
+
+    @Override
+    public void leave() {
+        jdbcTemplate.update("DELETE FROM SCHEDULER_NODE WHERE NODE_ID = ?", nodeId);
+    }
+
+    private final class JdbcLease implements Lease {
+
+        private final String name;
+        private final long fencingToken;
+
+        JdbcLease(String name, long fencingToken) {
+            this.name = name;
+            this.fencingToken = fencingToken;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getFencingToken() {
+            return fencingToken;
+        }
+
+        @Override
+        public boolean renew(Duration leaseTime) {
+            long now = clock.millis();
+            return jdbcTemplate.update("UPDATE SCHEDULER_LEASE SET LOCKED_UNTIL = ? "
+                            + "WHERE NAME = ? AND FENCING_TOKEN = ? AND LOCKED_UNTIL > ?",
+                    now + leaseTime.toMillis(), name, fencingToken, now) == 1;
+        }
+
+        @Override
+        public void release(long notBefore) {
+            jdbcTemplate.update("UPDATE SCHEDULER_LEASE SET LOCKED_UNTIL = ? WHERE NAME = ? AND FENCING_TOKEN = ?",
+                    Math.max(clock.millis(), notBefore), name, fencingToken);
+        }
+    }
+}
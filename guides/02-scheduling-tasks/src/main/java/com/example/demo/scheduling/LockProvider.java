@@ -0,0 +1,51 @@
+package com.example.demo.scheduling;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Hands out named leases that at most one node of a cluster holds at a time.
+ */
+public interface LockProvider {
+
+    /**
+     * @return the lease, or empty if another holder's lease has not expired yet
+     */
+    Optional<Lease> tryAcquire(String name, Duration leaseTime);
+
+    /**
+     * Tells the other nodes this one is alive.
+     */
+    void heartbeat();
+
+    /**
+     * @return the number of nodes that sent a heartbeat within {@code within}, at least 1
+     */
+    int liveNodes(Duration within);
+
+    /**
+     * Leaves the cluster, so the other nodes take over this node's share of the work right away.
+     */
+    void leave();
+
+    interface Lease {
+
+        String getName();
+
+        /**
+         * Grows with every acquisition of the same name, so a resource written under a lease can
+         * reject writes carrying a smaller token from a holder whose lease expired.
+         */
+        long getFencingToken();
+
+        /**
+         * @return {@code false} if the lease expired and may be held by someone else by now
+         */
+        boolean renew(Duration leaseTime);
+
+        /**
+         * Gives the lease up, but not before {@code notBefore} epoch milliseconds.
+         */
+        void release(long notBefore);
+    }
+}
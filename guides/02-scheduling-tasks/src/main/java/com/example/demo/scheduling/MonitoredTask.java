@@ -0,0 +1,228 @@
+package com.example.demo.scheduling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+import org.springframework.scheduling.support.TaskUtils;
+import org.springframework.util.ErrorHandler;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One scheduled task as seen by the {@link DispatchingTaskScheduler}: applies the task's
+ * concurrency cap and overlap policy to every fire and records how late it started, how long it
+ * ran and how many fires were dropped.
+ */
+class MonitoredTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MonitoredTask.class);
+
+    private static final ErrorHandler errorHandler = TaskUtils.getDefaultErrorHandler(true);
+
+    private final Runnable task;
+    private final String name;
+    private final Executor executor;
+    private final ClusterTaskRunner clusterTaskRunner;
+    private final ClusterLock clusterLock;
+    private final Overlap overlap;
+    private final int queueCapacity;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Timer lateness;
+    private final Timer duration;
+    private final Counter missed;
+
+    /**
+     * When the next fire is due, in epoch milliseconds.
+     */
+    private volatile long expected;
+    private long period;
+    private long fires;
+
+    /**
+     * Milliseconds between fires of a fixed rate or delay task, 0 for others.
+     */
+    private volatile long interval;
+
+    /**
+     * The trigger of a task scheduled with one, which tells the time to the next fire.
+     */
+    private volatile Trigger trigger;
+
+    /**
+     * @param name names the task in its metrics and is its lease name, see {@link #name(Runnable)}
+     */
+    MonitoredTask(Runnable task, String name, Executor executor, ClusterTaskRunner clusterTaskRunner,
+                  SchedulingProperties properties, MeterRegistry meterRegistry) {
+        this.task = task;
+        this.name = name;
+        this.executor = executor;
+        this.clusterTaskRunner = clusterTaskRunner;
+        this.clusterLock = annotation(task, ClusterLock.class);
+        TaskConcurrency concurrency = annotation(task, TaskConcurrency.class);
+        this.overlap = concurrency != null ? concurrency.overlap() : properties.getOverlap();
+        this.queueCapacity = concurrency != null ? concurrency.queueCapacity() : properties.getQueueCapacity();
+        int max = concurrency != null ? concurrency.max() : properties.getMaxConcurrency();
+        if (max < 1) {
+            throw new IllegalArgumentException("Task " + name + " must be allowed at least one concurrent run, not " + max);
+        }
+        this.permits = new Semaphore(max, true);
+        this.lateness = meterRegistry.timer("scheduling.task.lateness", "task", name);
+        this.duration = meterRegistry.timer("scheduling.task.duration", "task", name);
+        this.missed = meterRegistry.counter("scheduling.task.missed", "task", name);
+    }
+
+
+    void expect(long time) {
+        expected = time;
+    }
+
+    /**
+     * Fires are due whenever {@code trigger} says.
+     */
+    void trigger(Trigger trigger) {
+        this.trigger = trigger;
+    }
+
+    /**
+     * Fires are due every {@code period} milliseconds from {@code first} on.
+     */
+    void fixedRate(long first, long period) {
+        this.expected = first;
+        this.period = period;
+        this.interval = period;
+    }
+
+    /**
+     * Fires are due {@code delay} milliseconds after the previous run.
+     */
+    void fixedDelay(long delay) {
+        this.interval = delay;
+    }
+
+    void fire() {
+        fire(null);
+    }
+
+    /**
+     * Runs or dispatches the task for a fire that is due now.
+     *
+     * @param afterRun called once the run is over, or right away if the fire is dropped
+     */
+    void fire(Runnable afterRun) {
+        // Fixed rate fires never overlap on the scheduler thread, no need to synchronize
+        long expectedTime = period > 0 ? expected + fires++ * period : expected;
+        if (executor == null) {
+            run(expectedTime, afterRun);
+        } else if (overlap == Overlap.ALLOW) {
+            dispatch(() -> run(expectedTime, afterRun), afterRun);
+        } else if (permits.tryAcquire()) {
+            dispatch(() -> runAndRelease(expectedTime, afterRun), afterRun);
+        } else if (overlap == Overlap.QUEUE && queued.incrementAndGet() <= queueCapacity) {
+            dispatch(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    // shutting down, give up the fire rather than hold the thread
+                    queued.decrementAndGet();
+                    Thread.currentThread().interrupt();
+                    miss(afterRun);
+                    return;
+                }
+                queued.decrementAndGet();
+                runAndRelease(expectedTime, afterRun);
+            }, afterRun);
+        } else {
+            if (overlap == Overlap.QUEUE) {
+                queued.decrementAndGet();
+            }
+            miss(afterRun);
+        }
+    }
+
+    private void dispatch(Runnable run, Runnable afterRun) {
+        try {
+            executor.execute(run);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            miss(afterRun);
+        }
+    }
+
+    private void miss(Runnable afterRun) {
+        missed.increment();
+        LOGGER.debug("Skipped a fire of {}, it is still running", name);
+        if (afterRun != null) {
+            afterRun.run();
+        }
+    }
+
+    private void runAndRelease(long expectedTime, Runnable afterRun) {
+        try {
+            run(expectedTime, null);
+        } finally {
+            permits.release();
+            if (afterRun != null) {
+                afterRun.run();
+            }
+        }
+    }
+
+    private void run(long expectedTime, Runnable afterRun) {
+        lateness.record(Math.max(0, System.currentTimeMillis() - expectedTime), TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        try {
+            if (clusterTaskRunner != null) {
+                clusterTaskRunner.run(name, clusterLock, trigger != null ? untilNextFire(expectedTime) : interval,
+                        task);
+            } else {
+                task.run();
+            }
+        } catch (Throwable ex) {
+            errorHandler.handleError(ex);
+        } finally {
+            duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (afterRun != null) {
+                afterRun.run();
+            }
+        }
+    }
+
+    /**
+     * @return milliseconds from the fire due at {@code expectedTime} to the one after, 0 if none
+     */
+    private long untilNextFire(long expectedTime) {
+        Date fire = new Date(expectedTime);
+        Date next = trigger.nextExecutionTime(new SimpleTriggerContext(fire, fire, fire));
+        return next != null ? Math.max(0, next.getTime() - expectedTime) : 0;
+    }
+
+    private static <A extends Annotation> A annotation(Runnable task, Class<A> type) {
+        return task instanceof ScheduledMethodRunnable
+                ? ((ScheduledMethodRunnable) task).getMethod().getAnnotation(type) : null;
+    }
+
+    /**
+     * @return {@code Class.method} for a {@code @Scheduled} method, the class name of other tasks
+     */
+    static String name(Runnable task) {
+        if (task instanceof ScheduledMethodRunnable) {
+            Method method = ((ScheduledMethodRunnable) task).getMethod();
+            return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        }
+        return task.getClass().getName();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.scheduling;
+
+/**
+ * What happens to a fire of a task that already has as many runs in progress as it may have.
+ */
+public enum Overlap {
+
+    /**
+     * Drop the fire and count it as missed.
+     */
+    SKIP,
+
+    /**
+     * Start it as soon as a run finishes, as long as the queue has room.
+     */
+    QUEUE,
+
+    /**
+     * Start it anyway, ignoring the concurrency cap.
+     */
+    ALLOW
+}
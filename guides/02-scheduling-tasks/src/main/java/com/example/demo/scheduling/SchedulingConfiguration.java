@@ -0,0 +1,47 @@
+package com.example.demo.scheduling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.task.TaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(SchedulingProperties.class)
+public class SchedulingConfiguration {
+
+    /**
+     * Replaces the scheduler Spring Boot would configure; {@code spring.task.scheduling.*} still
+     * applies to the threads that keep time.
+     */
+    @Bean
+    public DispatchingTaskScheduler taskScheduler(TaskSchedulerBuilder builder, SchedulingProperties properties,
+                                                  ObjectProvider<ClusterTaskRunner> clusterTaskRunner,
+                                                  MeterRegistry meterRegistry) {
+        ThreadPoolTaskScheduler scheduler = builder.build();
+        scheduler.initialize();
+        return new DispatchingTaskScheduler(scheduler, clusterTaskRunner.getIfAvailable(), properties, meterRegistry);
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "scheduling.lock.enabled", havingValue = "true")
+    static class ClusterLockConfiguration {
+
+        @Bean
+        public JdbcLockProvider lockProvider(JdbcTemplate jdbcTemplate, SchedulingProperties properties) {
+            return new JdbcLockProvider(jdbcTemplate, properties.getLock().getNodeId(), Clock.systemUTC());
+        }
+
+        @Bean
+        public ClusterTaskRunner clusterTaskRunner(LockProvider lockProvider, SchedulingProperties properties,
+                                                   MeterRegistry meterRegistry) {
+            return new ClusterTaskRunner(lockProvider, properties.getLock(), Clock.systemUTC(), meterRegistry);
+        }
+    }
+}
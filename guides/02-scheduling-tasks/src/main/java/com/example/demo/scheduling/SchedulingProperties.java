@@ -0,0 +1,143 @@
+package com.example.demo.scheduling;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+@ConfigurationProperties("scheduling")
+public class SchedulingProperties {
+
+    private Mode mode = Mode.SHARED;
+
+    /**
+     * Runs of a task that may be in progress at once, unless the task has a {@link TaskConcurrency}.
+     */
+    private int maxConcurrency = 1;
+
+    private Overlap overlap = Overlap.SKIP;
+
+    private int queueCapacity = 16;
+
+    private final Lock lock = new Lock();
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Overlap getOverlap() {
+        return overlap;
+    }
+
+    public void setOverlap(Overlap overlap) {
+        this.overlap = overlap;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Lock getLock() {
+        return lock;
+    }
+
+    public enum Mode {
+
+        /**
+         * Tasks run on the threads of the scheduler itself, {@code spring.task.scheduling.pool.size}
+         * of them, so a slow task holds up the others.
+         */
+        SHARED,
+
+        /**
+         * Every fire runs on a thread of its own, a virtual thread where the JVM has them.
+         * The scheduler threads only keep time.
+         */
+        THREAD_PER_TASK
+    }
+
+    /**
+     * Running every fire on one node only, when several instances share a database.
+     */
+    public static class Lock {
+
+        private boolean enabled;
+
+        /**
+         * Identifies this instance in the lease and node tables.
+         */
+        private String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+        /**
+         * How long a lease lasts unless renewed; running tasks renew it every third of that.
+         */
+        private Duration leaseTime = Duration.ofSeconds(30);
+
+        /**
+         * How often this node tells the others it is alive, which decides the shares of sharded tasks.
+         */
+        private Duration heartbeat = Duration.ofSeconds(10);
+
+        /**
+         * How long the lease of a fire is kept after it started when the time to the next fire is
+         * not known, such as for one-off tasks. Should well exceed the clock skew between nodes.
+         */
+        private Duration minimumHold = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public Duration getLeaseTime() {
+            return leaseTime;
+        }
+
+        public void setLeaseTime(Duration leaseTime) {
+            this.leaseTime = leaseTime;
+        }
+
+        public Duration getHeartbeat() {
+            return heartbeat;
+        }
+
+        public void setHeartbeat(Duration heartbeat) {
+            this.heartbeat = heartbeat;
+        }
+
+        public Duration getMinimumHold() {
+            return minimumHold;
+        }
+
+        public void setMinimumHold(Duration minimumHold) {
+            this.minimumHold = minimumHold;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.scheduling;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Overrides the {@code scheduling.*} concurrency defaults for one {@code @Scheduled} method.
+ * Only takes effect with {@code scheduling.mode=thread-per-task}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface TaskConcurrency {
+
+    /**
+     * Runs of the task that may be in progress at once, at least 1.
+     */
+    int max() default 1;
+
+    Overlap overlap() default Overlap.SKIP;
+
+    /**
+     * Fires that may wait for a run to finish with {@link Overlap#QUEUE}, further ones are missed.
+     */
+    int queueCapacity() default 16;
+}
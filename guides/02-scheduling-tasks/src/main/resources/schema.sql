@@ -0,0 +1,13 @@
+-- Leases that let a task run on one node of the cluster at a time
+CREATE TABLE IF NOT EXISTS SCHEDULER_LEASE (
+    NAME VARCHAR(200) NOT NULL PRIMARY KEY,
+    OWNER VARCHAR(200) NOT NULL,
+    FENCING_TOKEN BIGINT NOT NULL,
+    LOCKED_UNTIL BIGINT NOT NULL
+);
+
+-- Nodes that recently ran the scheduler, to split sharded tasks between
+CREATE TABLE IF NOT EXISTS SCHEDULER_NODE (
+    NODE_ID VARCHAR(200) NOT NULL PRIMARY KEY,
+    LAST_SEEN BIGINT NOT NULL
+);
@@ -0,0 +1,66 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClockFormatterTests {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    @Test
+    void formatsTimeOfDayInTheClockZone() {
+        for (String zone : new String[]{"UTC", "Europe/Berlin", "Asia/Kolkata", "America/St_Johns"}) {
+            ClockFormatter formatter = new ClockFormatter(Clock.system(ZoneId.of(zone)));
+            for (long millis : new long[]{0, -1, 1_600_000_000_123L, 1_679_792_400_000L, 1_699_146_000_000L}) {
+                assertThat(formatter.format(millis)).as(zone + " " + millis)
+                        .isEqualTo(FORMAT.format(Instant.ofEpochMilli(millis).atZone(ZoneId.of(zone))));
+            }
+        }
+    }
+
+    @Test
+    void reusesTheTextWithinASecond() {
+        ClockFormatter formatter = new ClockFormatter(Clock.systemUTC());
+
+        String first = formatter.format(1_600_000_000_000L);
+
+        assertThat(formatter.format(1_600_000_000_999L)).isSameAs(first);
+        assertThat(formatter.format(1_600_000_001_000L)).isNotEqualTo(first);
+    }
+
+    @Test
+    void isSafeToShareBetweenThreads() throws Exception {
+        ClockFormatter formatter = new ClockFormatter(Clock.systemUTC());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int n = 0; n < 100_000; n++) {
+                        // Few distinct seconds, so threads keep replacing each other's cache entry
+                        long millis = 1_600_000_000_000L + ThreadLocalRandom.current().nextInt(4000);
+                        assertThat(formatter.format(millis))
+                                .isEqualTo(FORMAT.format(Instant.ofEpochMilli(millis).atZone(ZoneId.of("UTC"))));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
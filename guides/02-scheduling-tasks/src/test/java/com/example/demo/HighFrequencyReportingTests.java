@@ -0,0 +1,42 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(properties = {
+        "scheduling.lock.enabled=true",
+        "scheduling.report.tasks=4",
+        "scheduling.report.rate=200"
+})
+@ActiveProfiles("high-frequency")
+class HighFrequencyReportingTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void everyReporterTakesALeaseOfItsOwn() {
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(jdbcTemplate.queryForList("SELECT NAME FROM SCHEDULER_LEASE", String.class))
+                        .containsExactlyInAnyOrder("ScheduledTasks.reportCurrentTime",
+                                "ScheduledTasks.reportCurrentTime[2]",
+                                "ScheduledTasks.reportCurrentTime[3]",
+                                "ScheduledTasks.reportCurrentTime[4]"));
+
+        // One lock metric per reporter rather than all of them under one task
+        assertThat(meterRegistry.find("scheduling.lock.acquire").tag("outcome", "acquired").timers())
+                .hasSize(4);
+    }
+}
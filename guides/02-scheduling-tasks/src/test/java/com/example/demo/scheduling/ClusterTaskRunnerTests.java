@@ -0,0 +1,256 @@
+package com.example.demo.scheduling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs several scheduler "nodes" against one database, the way replicas of the service would.
+ */
+class ClusterTaskRunnerTests {
+
+    private static final int NODES = 3;
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .addScript("schema.sql")
+            .build();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<ClusterTaskRunner> runners = new ArrayList<>();
+
+    private final List<DispatchingTaskScheduler> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (DispatchingTaskScheduler node : nodes) {
+            node.destroy();
+        }
+        runners.forEach(ClusterTaskRunner::destroy);
+        database.shutdown();
+    }
+
+    /**
+     * Takes a few seconds of wall clock time. Run with {@code ./gradlew loadTest}.
+     */
+    @Tag("load")
+    @Test
+    void everyFireRunsOnOneNode() throws Exception {
+        Tasks tasks = new Tasks();
+        for (int i = 0; i < NODES; i++) {
+            // Replicas start at different times, so their schedules are out of phase
+            startNode("node-" + i).scheduleAtFixedRate(new ScheduledMethodRunnable(tasks, "report"), 200);
+            Thread.sleep(50);
+        }
+
+        Thread.sleep(2000);
+
+        assertThat(tasks.runs.get()).isBetween(9, 12);
+        assertThat(meterRegistry.find("scheduling.lock.skipped").counter().count()).isGreaterThan(15);
+        assertThat(meterRegistry.find("scheduling.lock.acquire").tag("outcome", "acquired").timer().count())
+                .isEqualTo(tasks.runs.get());
+    }
+
+    /**
+     * Takes a few seconds of wall clock time. Run with {@code ./gradlew loadTest}.
+     */
+    @Tag("load")
+    @Test
+    void shardsAreSpreadOverTheNodes() throws Exception {
+        Tasks tasks = new Tasks();
+        for (int i = 0; i < NODES; i++) {
+            startNode("node-" + i).scheduleAtFixedRate(new ScheduledMethodRunnable(tasks, "sharded"), 300);
+            Thread.sleep(50);
+        }
+
+        Thread.sleep(1500);
+
+        // Every fire processes each shard exactly once, whichever node got it
+        int fires = tasks.shardRuns.get(0).get();
+        assertThat(fires).isBetween(4, 6);
+        for (int shard = 0; shard < 6; shard++) {
+            assertThat(tasks.shardRuns.get(shard).get()).as("shard " + shard).isBetween(fires - 1, fires + 1);
+        }
+        assertThat(tasks.nodesPerShardRun.keySet()).hasSize(NODES);
+    }
+
+    /**
+     * Takes a few seconds of wall clock time. Run with {@code ./gradlew loadTest}.
+     */
+    @Tag("load")
+    @Test
+    void cronFiresRunOnOneNodeDespiteClockSkew() throws Exception {
+        Tasks tasks = new Tasks();
+        startNode("node-0", Clock.systemUTC()).schedule(new ScheduledMethodRunnable(tasks, "report"),
+                new CronTrigger("* * * * * *"));
+        // Its scheduler clock is behind, so it gets to every fire 200ms later, when the other node is done
+        startNode("node-1", Clock.systemUTC(), Clock.offset(Clock.systemUTC(), Duration.ofMillis(-200)))
+                .schedule(new ScheduledMethodRunnable(tasks, "report"), new CronTrigger("* * * * * *"));
+
+        Thread.sleep(3000);
+
+        assertThat(tasks.runs.get()).isBetween(2, 4);
+        assertThat(meterRegistry.find("scheduling.lock.skipped").counter().count()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void oneOffFiresAreHeldDespiteClockSkew() {
+        TestClock clock = new TestClock();
+        TestClock laggingClock = new TestClock();
+        laggingClock.advance(-100);
+        ClusterTaskRunner runner = startRunner("node-0", clock);
+        ClusterTaskRunner laggingRunner = startRunner("node-1", laggingClock);
+        AtomicInteger runs = new AtomicInteger();
+
+        runner.run("once", null, 0, runs::incrementAndGet);
+        // The lagging node gets to the same fire 100ms later, when its clock shows the time of the fire
+        clock.advance(100);
+        laggingClock.advance(100);
+        laggingRunner.run("once", null, 0, runs::incrementAndGet);
+
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(meterRegistry.find("scheduling.lock.skipped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void leaseIsInvalidOnceRenewalThrows() {
+        LockProvider.Lease lease = new LockProvider.Lease() {
+
+            @Override
+            public String getName() {
+                return "flaky";
+            }
+
+            @Override
+            public long getFencingToken() {
+                return 1;
+            }
+
+            @Override
+            public boolean renew(Duration leaseTime) {
+                throw new DataAccessResourceFailureException("database is down");
+            }
+
+            @Override
+            public void release(long notBefore) {
+            }
+        };
+        LockProvider lockProvider = new LockProvider() {
+
+            @Override
+            public Optional<Lease> tryAcquire(String name, Duration leaseTime) {
+                return Optional.of(lease);
+            }
+
+            @Override
+            public void heartbeat() {
+            }
+
+            @Override
+            public int liveNodes(Duration within) {
+                return 1;
+            }
+
+            @Override
+            public void leave() {
+            }
+        };
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.getLock().setLeaseTime(Duration.ofMillis(300));
+        ClusterTaskRunner runner = new ClusterTaskRunner(lockProvider, properties.getLock(), Clock.systemUTC(),
+                meterRegistry);
+        runners.add(runner);
+        AtomicBoolean valid = new AtomicBoolean(true);
+
+        runner.run("flaky", null, 0, () -> {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (ClusterLease.current().isValid() && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            valid.set(ClusterLease.current().isValid());
+        });
+
+        assertThat(valid).isFalse();
+        assertThat(meterRegistry.find("scheduling.lock.lost").counter().count()).isEqualTo(1);
+    }
+
+    private DispatchingTaskScheduler startNode(String nodeId) {
+        return startNode(nodeId, Clock.systemUTC());
+    }
+
+    private DispatchingTaskScheduler startNode(String nodeId, Clock clock) {
+        return startNode(nodeId, clock, clock);
+    }
+
+    private DispatchingTaskScheduler startNode(String nodeId, Clock clock, Clock schedulerClock) {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.getLock().setNodeId(nodeId);
+        properties.getLock().setLeaseTime(Duration.ofSeconds(5));
+        ClusterTaskRunner runner = startRunner(nodeId, clock, properties);
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix(nodeId + "-");
+        scheduler.setClock(schedulerClock);
+        scheduler.initialize();
+        DispatchingTaskScheduler node = new DispatchingTaskScheduler(scheduler, runner, properties, meterRegistry);
+        nodes.add(node);
+        return node;
+    }
+
+    private ClusterTaskRunner startRunner(String nodeId, Clock clock) {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.getLock().setNodeId(nodeId);
+        return startRunner(nodeId, clock, properties);
+    }
+
+    private ClusterTaskRunner startRunner(String nodeId, Clock clock, SchedulingProperties properties) {
+        JdbcLockProvider lockProvider = new JdbcLockProvider(new JdbcTemplate(database), nodeId, clock);
+        ClusterTaskRunner runner = new ClusterTaskRunner(lockProvider, properties.getLock(), clock, meterRegistry);
+        runners.add(runner);
+        return runner;
+    }
+
+    static class Tasks {
+
+        private final AtomicInteger runs = new AtomicInteger();
+        private final Map<Integer, AtomicInteger> shardRuns = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> nodesPerShardRun = new ConcurrentHashMap<>();
+
+        public void report() {
+            runs.incrementAndGet();
+        }
+
+        @ClusterLock(shards = 6)
+        public void sharded() {
+            ClusterLease lease = ClusterLease.current();
+            shardRuns.computeIfAbsent(lease.getShard(), shard -> new AtomicInteger()).incrementAndGet();
+            String node = Thread.currentThread().getName();
+            nodesPerShardRun.computeIfAbsent(node.substring(0, node.indexOf('-', 5)), n -> new AtomicInteger())
+                    .incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.scheduling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class DispatchingTaskSchedulerTests {
+
+    private static final int TASKS = 300;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DispatchingTaskScheduler taskScheduler;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        taskScheduler.destroy();
+    }
+
+    /**
+     * Takes a few seconds of wall clock time. Run with {@code ./gradlew loadTest}.
+     */
+    @Tag("load")
+    @Test
+    void latenessStaysFlatWithHundredsOfBlockingTasks() throws Exception {
+        taskScheduler = newTaskScheduler(SchedulingProperties.Mode.THREAD_PER_TASK, Overlap.SKIP);
+        AtomicInteger runs = new AtomicInteger();
+        for (int i = 0; i < TASKS; i++) {
+            taskScheduler.scheduleAtFixedRate(() -> {
+                sleep(50);
+                runs.incrementAndGet();
+            }, 200);
+        }
+
+        Thread.sleep(3000);
+
+        System.out.printf("thread-per-task: %d runs, lateness mean %.1f ms, max %.1f ms%n", runs.get(),
+                lateness().mean(TimeUnit.MILLISECONDS), lateness().max(TimeUnit.MILLISECONDS));
+        assertThat(runs.get()).isGreaterThanOrEqualTo(TASKS * 10);
+        assertThat(lateness().max(TimeUnit.MILLISECONDS)).isLessThan(150);
+        assertThat(meterRegistry.counter("scheduling.task.missed", "task", taskName()).count()).isZero();
+    }
+
+    /**
+     * Takes a few seconds of wall clock time. Run with {@code ./gradlew loadTest}.
+     */
+    @Tag("load")
+    @Test
+    void latenessGrowsWhenTasksShareTheSchedulerThread() throws Exception {
+        taskScheduler = newTaskScheduler(SchedulingProperties.Mode.SHARED, Overlap.SKIP);
+        for (int i = 0; i < TASKS; i++) {
+            taskScheduler.scheduleAtFixedRate(() -> sleep(50), 200);
+        }
+
+        Thread.sleep(3000);
+
+        System.out.printf("shared: %d runs, lateness mean %.1f ms, max %.1f ms%n", lateness().count(),
+                lateness().mean(TimeUnit.MILLISECONDS), lateness().max(TimeUnit.MILLISECONDS));
+        assertThat(lateness().max(TimeUnit.MILLISECONDS)).isGreaterThan(2000);
+    }
+
+    @Test
+    void skipsFiresWhileRunning() throws Exception {
+        taskScheduler = newTaskScheduler(SchedulingProperties.Mode.THREAD_PER_TASK, Overlap.SKIP);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        taskScheduler.scheduleAtFixedRate(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(120);
+            running.decrementAndGet();
+        }, 20);
+
+        await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> meterRegistry.find("scheduling.task.missed").counter().count() > 10);
+
+        assertThat(maxRunning.get()).isEqualTo(1);
+    }
+
+    @Test
+    void honoursTaskConcurrency() throws Exception {
+        taskScheduler = newTaskScheduler(SchedulingProperties.Mode.THREAD_PER_TASK, Overlap.SKIP);
+        Tasks tasks = new Tasks();
+        taskScheduler.scheduleAtFixedRate(new ScheduledMethodRunnable(tasks, "queued"), 20);
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> tasks.maxRunning.get() == 2);
+        Thread.sleep(300);
+
+        assertThat(tasks.maxRunning.get()).isEqualTo(2);
+        assertThat(meterRegistry.counter("scheduling.task.missed", "task", "Tasks.queued").count()).isGreaterThan(0);
+    }
+
+    @Test
+    void measuresFixedDelayFromTheEndOfTheRun() {
+        taskScheduler = newTaskScheduler(SchedulingProperties.Mode.THREAD_PER_TASK, Overlap.ALLOW);
+        AtomicInteger cancelledRuns = new AtomicInteger();
+        taskScheduler.scheduleWithFixedDelay(() -> {
+            sleep(100);
+            cancelledRuns.incrementAndGet();
+        }, 100).cancel(false);
+        List<long[]> runs = new CopyOnWriteArrayList<>();
+        taskScheduler.scheduleWithFixedDelay(() -> {
+            long start = System.nanoTime();
+            sleep(100);
+            runs.add(new long[]{start, System.nanoTime()});
+        }, 100);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> runs.size() >= 4);
+
+        // Overlapping runs would start 100 ms after the previous one started, not after it ended
+        for (int i = 1; i < runs.size(); i++) {
+            assertThat(TimeUnit.NANOSECONDS.toMillis(runs.get(i)[0] - runs.get(i - 1)[1]))
+                    .as("delay before run " + i).isGreaterThanOrEqualTo(90);
+        }
+        assertThat(cancelledRuns.get()).isLessThanOrEqualTo(1);
+    }
+
+    private DispatchingTaskScheduler newTaskScheduler(SchedulingProperties.Mode mode, Overlap overlap) {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.setMode(mode);
+        properties.setOverlap(overlap);
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        return new DispatchingTaskScheduler(scheduler, properties, meterRegistry);
+    }
+
+    private Timer lateness() {
+        return meterRegistry.timer("scheduling.task.lateness", "task", taskName());
+    }
+
+    private String taskName() {
+        return meterRegistry.find("scheduling.task.lateness").timer().getId().getTag("task");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class Tasks {
+
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        @TaskConcurrency(max = 2, overlap = Overlap.QUEUE, queueCapacity = 2)
+        public void queued() {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(200);
+            running.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.scheduling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcLockProviderTests {
+
+    private static final Duration LEASE = Duration.ofSeconds(30);
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .addScript("schema.sql")
+            .build();
+
+    private final TestClock clock = new TestClock();
+
+    private final JdbcLockProvider node1 = new JdbcLockProvider(new JdbcTemplate(database), "node-1", clock);
+
+    private final JdbcLockProvider node2 = new JdbcLockProvider(new JdbcTemplate(database), "node-2", clock);
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void onlyOneNodeHoldsALease() {
+        assertThat(node1.tryAcquire("task", LEASE)).isPresent();
+        assertThat(node2.tryAcquire("task", LEASE)).isEmpty();
+        assertThat(node1.tryAcquire("task", LEASE)).isEmpty();
+        assertThat(node2.tryAcquire("other", LEASE)).isPresent();
+    }
+
+    @Test
+    void releasedLeaseIsTakenWithAGreaterFencingToken() {
+        LockProvider.Lease first = node1.tryAcquire("task", LEASE).orElseThrow();
+        first.release(0);
+
+        LockProvider.Lease second = node2.tryAcquire("task", LEASE).orElseThrow();
+
+        assertThat(second.getFencingToken()).isGreaterThan(first.getFencingToken());
+    }
+
+    @Test
+    void releaseKeepsTheLeaseUntilNotBefore() {
+        node1.tryAcquire("task", LEASE).orElseThrow().release(clock.millis() + 1000);
+
+        assertThat(node2.tryAcquire("task", LEASE)).isEmpty();
+        clock.advance(1000);
+        assertThat(node2.tryAcquire("task", LEASE)).isPresent();
+    }
+
+    @Test
+    void renewalKeepsTheLeaseUntilItExpires() {
+        LockProvider.Lease lease = node1.tryAcquire("task", LEASE).orElseThrow();
+
+        clock.advance(20_000);
+        assertThat(lease.renew(LEASE)).isTrue();
+        clock.advance(20_000);
+        assertThat(node2.tryAcquire("task", LEASE)).isEmpty();
+
+        clock.advance(10_000);
+        LockProvider.Lease takenOver = node2.tryAcquire("task", LEASE).orElseThrow();
+        assertThat(lease.renew(LEASE)).isFalse();
+        assertThat(takenOver.getFencingToken()).isGreaterThan(lease.getFencingToken());
+
+        // The stale holder's release must not free the new holder's lease
+        lease.release(0);
+        assertThat(node1.tryAcquire("task", LEASE)).isEmpty();
+    }
+
+    @Test
+    void countsNodesWithRecentHeartbeats() {
+        node1.heartbeat();
+        node2.heartbeat();
+        assertThat(node1.liveNodes(Duration.ofSeconds(30))).isEqualTo(2);
+
+        clock.advance(20_000);
+        node2.heartbeat();
+        clock.advance(20_000);
+        assertThat(node1.liveNodes(Duration.ofSeconds(30))).isEqualTo(1);
+
+        node2.leave();
+        assertThat(node1.liveNodes(Duration.ofSeconds(30))).isEqualTo(1);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.scheduling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class MonitoredTaskTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+    private final AtomicBoolean interruptedAfterRun = new AtomicBoolean();
+
+    private final Executor executor = command -> {
+        Thread thread = new Thread(() -> {
+            command.run();
+            interruptedAfterRun.compareAndSet(false, Thread.currentThread().isInterrupted());
+        });
+        threads.add(thread);
+        thread.start();
+    };
+
+    @Test
+    void rejectsTasksThatMayNeverRun() {
+        assertThatThrownBy(() -> monitor(new Tasks(), "never"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Tasks.never");
+    }
+
+    @Test
+    void queuedFireGivesUpWhenInterrupted() throws Exception {
+        Tasks tasks = new Tasks();
+        MonitoredTask task = monitor(tasks, "queued");
+
+        task.fire();
+        assertThat(tasks.started.await(2, TimeUnit.SECONDS)).isTrue();
+        task.fire();
+        Thread waiting = threads.get(1);
+        await().atMost(2, TimeUnit.SECONDS).until(() -> waiting.getState() == Thread.State.WAITING);
+
+        waiting.interrupt();
+        waiting.join(2000);
+
+        assertThat(waiting.isAlive()).isFalse();
+        assertThat(interruptedAfterRun).isTrue();
+        assertThat(meterRegistry.counter("scheduling.task.missed", "task", "Tasks.queued").count()).isEqualTo(1);
+
+        tasks.release.countDown();
+        threads.get(0).join(2000);
+        assertThat(tasks.runs.get()).isEqualTo(1);
+    }
+
+    private MonitoredTask monitor(Tasks tasks, String method) throws NoSuchMethodException {
+        ScheduledMethodRunnable task = new ScheduledMethodRunnable(tasks, method);
+        return new MonitoredTask(task, MonitoredTask.name(task), executor, null, new SchedulingProperties(),
+                meterRegistry);
+    }
+
+    static class Tasks {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger runs = new AtomicInteger();
+
+        @TaskConcurrency(max = 1, overlap = Overlap.QUEUE)
+        public void queued() {
+            runs.incrementAndGet();
+            started.countDown();
+            while (true) {
+                try {
+                    release.await();
+                    return;
+                } catch (InterruptedException e) {
+                    // keep holding the permit
+                }
+            }
+        }
+
+        @TaskConcurrency(max = 0)
+        public void never() {
+        }
+    }
+}
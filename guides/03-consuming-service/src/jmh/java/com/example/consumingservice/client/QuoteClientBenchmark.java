@@ -0,0 +1,67 @@
+package com.example.consumingservice.client;
+
+import com.example.consumingservice.Quote;
+import com.example.consumingservice.StubQuoteServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches quotes from a local stub with 16 threads at once, through the {@code HttpURLConnection}
+ * a default {@code RestTemplateBuilder} uses and through the pooled client over HTTP/1.1 and h2c.
+ * After each trial it prints how many connections the server accepted for how many requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class QuoteClientBenchmark {
+
+    @Param({"simple", "pooled", "pooled-h2c"})
+    private String client;
+
+    private StubQuoteServer stub;
+    private ClientHttpRequestFactory requestFactory;
+    private RestTemplate restTemplate;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Without a Boot context RestTemplate would log every request at DEBUG
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(null, LogLevel.INFO);
+
+        QuoteClientProperties properties = new QuoteClientProperties();
+        properties.setPooled(!client.equals("simple"));
+        properties.setVersion(client.equals("pooled-h2c")
+                ? QuoteClientProperties.HttpVersion.H2C : QuoteClientProperties.HttpVersion.HTTP_1_1);
+        stub = StubQuoteServer.start(properties.getVersion() == QuoteClientProperties.HttpVersion.H2C);
+        requestFactory = QuoteClientConfiguration.requestFactory(properties);
+        restTemplate = new RestTemplateBuilder()
+                .rootUri(stub.baseUrl())
+                .requestFactory(() -> requestFactory)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        System.out.printf("%n%s: %d connections for %d requests%n", client, stub.connections(), stub.requests());
+        if (requestFactory instanceof DisposableBean) {
+            ((DisposableBean) requestFactory).destroy();
+        }
+        stub.close();
+    }
+
+    @Benchmark
+    public Quote randomQuote() {
+        return restTemplate.getForObject("/api/random", Quote.class);
+    }
+}
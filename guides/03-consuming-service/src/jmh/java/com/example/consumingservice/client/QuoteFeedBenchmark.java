@@ -0,0 +1,121 @@
+package com.example.consumingservice.client;
+
+import com.example.consumingservice.GeneratedQuoteFeed;
+import com.example.consumingservice.Quote;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches a feed of quotes from a local server through the request factories the application
+ * configures by default: the pooled client behind the circuit breaker and bulkhead, and the
+ * response cache in front (hedging is off, and the client does not retry). It binds the whole array with
+ * {@code getForObject(path, Quote[].class)} and streams it one quote at a time with
+ * {@link QuoteFeedClient}. The feed carries an {@code ETag}, so the cache would store it if it could.
+ * After each fetch it prints the peak heap while the fetch ran, summed over the heap pools.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class QuoteFeedBenchmark {
+
+    @Param({"1MB", "100MB", "1GB"})
+    private String size;
+
+    private HttpServer server;
+    private ClientHttpRequestFactory requestFactory;
+    private RestTemplate restTemplate;
+    private QuoteFeedClient feedClient;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Without a Boot context RestTemplate would log every request at DEBUG
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(null, LogLevel.INFO);
+
+        long bytes = DataSize.parse(size).toBytes();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api", exchange -> {
+            exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"feed-" + size + "\"");
+            exchange.sendResponseHeaders(200, 0);
+            try (InputStream feed = new GeneratedQuoteFeed(bytes); OutputStream body = exchange.getResponseBody()) {
+                feed.transferTo(body);
+            }
+        });
+        server.start();
+
+        QuoteClientProperties properties = new QuoteClientProperties();
+        properties.setVersion(QuoteClientProperties.HttpVersion.HTTP_1_1);
+        requestFactory = new QuoteClientConfiguration().quoteRequestFactory(properties, new SimpleMeterRegistry());
+        restTemplate = new RestTemplateBuilder()
+                .rootUri("http://localhost:" + server.getAddress().getPort())
+                .requestFactory(() -> requestFactory)
+                .build();
+        feedClient = new QuoteFeedClient(restTemplate, new ObjectMapper());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (requestFactory instanceof DisposableBean) {
+            ((DisposableBean) requestFactory).destroy();
+        }
+        server.stop(0);
+    }
+
+    @Benchmark
+    public Quote[] bind(Heap heap) {
+        return restTemplate.getForObject("/api", Quote[].class);
+    }
+
+    @Benchmark
+    public long stream(Heap heap, Blackhole blackhole) {
+        return feedClient.forEach("/api", blackhole::consume);
+    }
+
+    @State(Scope.Thread)
+    public static class Heap {
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void record() {
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            System.out.printf("%npeak heap %.0f MB%n", peak / 1048576.0);
+        }
+    }
+}
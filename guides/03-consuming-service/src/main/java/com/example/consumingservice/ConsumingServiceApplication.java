@@ -1,5 +1,6 @@
 package com.example.consumingservice;
 
+import com.example.consumingservice.client.QuoteClientProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
@@ -7,6 +8,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
@@ -15,8 +17,11 @@ public class ConsumingServiceApplication {
     private static final Logger logger = LoggerFactory.getLogger(ConsumingServiceApplication.class);
 
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    public RestTemplate restTemplate(RestTemplateBuilder builder, QuoteClientProperties properties,
+                                     ClientHttpRequestFactory quoteRequestFactory) {
+        return builder.rootUri(properties.getBaseUrl())
+                .requestFactory(() -> quoteRequestFactory)
+                .build();
     }
 
 
@@ -24,8 +29,7 @@ public class ConsumingServiceApplication {
     public CommandLineRunner run(RestTemplate restTemplate) throws Exception {
         return args -> {
             logger.info("Command runner starting to work...");
-            Quote quote = restTemplate.getForObject(
-                    "https://quoters.apps.pcfone.io/api/random", Quote.class);
+            Quote quote = restTemplate.getForObject("/api/random", Quote.class);
             logger.info("Command runner receives [{}]", quote.toString());
         };
     }
@@ -0,0 +1,215 @@
+package com.example.consumingservice.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A stored response and how long it may be served, following the response's {@code Cache-Control}.
+ */
+final class CacheEntry {
+
+    private static final List<String> VALIDATORS = List.of(HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED);
+
+    private final int status;
+    private final String statusText;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final long storedAt;
+    private final long freshFor;
+    private final long staleFor;
+    private final int weight;
+
+    private CacheEntry(int status, String statusText, HttpHeaders headers, byte[] body, long storedAt,
+                       long freshFor, long staleFor) {
+        this.status = status;
+        this.statusText = statusText;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body;
+        this.storedAt = storedAt;
+        this.freshFor = freshFor;
+        this.staleFor = staleFor;
+        int weight = body.length;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            weight += header.getKey().length() + header.getValue().stream().mapToInt(String::length).sum();
+        }
+        this.weight = weight;
+    }
+
+    /**
+     * Whether a response with these headers may be stored at all. Responses are stored when they
+     * are fresh for a while, or when they can at least be revalidated cheaply, and, for a request
+     * with credentials, only when they are {@code public}.
+     */
+    static boolean isCacheable(int status, HttpHeaders headers, boolean authorized, long now, Duration defaultMaxAge) {
+        if (status != HttpStatus.OK.value()) {
+            return false;
+        }
+        Map<String, Long> cacheControl = cacheControl(headers);
+        if (cacheControl.containsKey("no-store")) {
+            return false;
+        }
+        // An answer to one user's credentials is only shared when the upstream says it may be
+        if (authorized && !cacheControl.containsKey("public")) {
+            return false;
+        }
+        if (headers.getVary().contains("*")) {
+            return false;
+        }
+        return freshFor(headers, cacheControl, defaultMaxAge, now) > 0 || hasValidators(headers);
+    }
+
+    /**
+     * @return the request headers a response with these headers varies on, lower case and sorted
+     */
+    static List<String> vary(HttpHeaders headers) {
+        List<String> vary = headers.getVary();
+        if (vary.isEmpty()) {
+            return vary;
+        }
+        return vary.stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).distinct().sorted()
+                .collect(Collectors.toList());
+    }
+
+    static CacheEntry of(int status, String statusText, HttpHeaders headers, byte[] body, long now,
+                         Duration defaultMaxAge, Duration defaultStaleWhileRevalidate) {
+        Map<String, Long> cacheControl = cacheControl(headers);
+        long staleFor = cacheControl.containsKey("must-revalidate") || cacheControl.containsKey("no-cache") ? 0
+                : cacheControl.containsKey("stale-while-revalidate") ? cacheControl.get("stale-while-revalidate") * 1000
+                : defaultStaleWhileRevalidate.toMillis();
+        long age = parseSeconds(headers.getFirst(HttpHeaders.AGE)) * 1000;
+        return new CacheEntry(status, statusText, headers, body, now - age,
+                freshFor(headers, cacheControl, defaultMaxAge, now), staleFor);
+    }
+
+    /**
+     * Updates the entry with the headers of a {@code 304 Not Modified} answer to a revalidation.
+     */
+    CacheEntry revalidated(HttpHeaders notModified, long now, Duration defaultMaxAge,
+                           Duration defaultStaleWhileRevalidate) {
+        HttpHeaders merged = new HttpHeaders();
+        merged.putAll(headers);
+        notModified.forEach((name, values) -> {
+            if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+                merged.put(name, values);
+            }
+        });
+        return of(status, statusText, merged, body, now, defaultMaxAge, defaultStaleWhileRevalidate);
+    }
+
+    boolean isFresh(long now) {
+        return now - storedAt < freshFor;
+    }
+
+    /**
+     * Whether the entry may still be served while it is being revalidated.
+     */
+    boolean isServableStale(long now) {
+        return now - storedAt < freshFor + staleFor;
+    }
+
+    /**
+     * Makes {@code request} conditional on the entry having changed.
+     */
+    void addValidators(HttpHeaders request) {
+        if (headers.getETag() != null) {
+            request.setIfNoneMatch(headers.getETag());
+        }
+        if (headers.getLastModified() != -1) {
+            request.setIfModifiedSince(headers.getLastModified());
+        }
+    }
+
+    int weight() {
+        return weight;
+    }
+
+    ClientHttpResponse toResponse() {
+        return new ClientHttpResponse() {
+            @Override
+            public HttpStatus getStatusCode() {
+                return HttpStatus.valueOf(status);
+            }
+
+            @Override
+            public int getRawStatusCode() {
+                return status;
+            }
+
+            @Override
+            public String getStatusText() {
+                return statusText;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(body);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static boolean hasValidators(HttpHeaders headers) {
+        return VALIDATORS.stream().anyMatch(headers::containsKey);
+    }
+
+    private static long freshFor(HttpHeaders headers, Map<String, Long> cacheControl, Duration defaultMaxAge,
+                                 long now) {
+        if (cacheControl.containsKey("no-cache")) {
+            return 0;
+        }
+        if (cacheControl.containsKey("max-age")) {
+            return cacheControl.get("max-age") * 1000;
+        }
+        if (headers.getExpires() != -1) {
+            long date = headers.getDate() != -1 ? headers.getDate() : now;
+            return Math.max(0, headers.getExpires() - date);
+        }
+        return defaultMaxAge.toMillis();
+    }
+
+    /**
+     * @return the directives, mapped to their number of seconds or to 0 when they have none
+     */
+    private static Map<String, Long> cacheControl(HttpHeaders headers) {
+        Map<String, Long> directives = new HashMap<>();
+        for (String value : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+            for (String directive : StringUtils.tokenizeToStringArray(value, ",")) {
+                int equals = directive.indexOf('=');
+                String name = (equals == -1 ? directive : directive.substring(0, equals)).trim().toLowerCase(Locale.ROOT);
+                directives.put(name, equals == -1 ? 0 : parseSeconds(directive.substring(equals + 1)));
+            }
+        }
+        return directives;
+    }
+
+    private static long parseSeconds(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(StringUtils.trimTrailingCharacter(
+                    StringUtils.trimLeadingCharacter(value.trim(), '"'), '"')));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.example.consumingservice.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Keeps {@code GET} responses in memory for as long as their {@code Cache-Control} or
+ * {@code Expires} allows, and answers requests from there.
+ * <p>
+ * Once a response is stale it is still served for its {@code stale-while-revalidate} window
+ * while a background thread revalidates it, with {@code If-None-Match} or {@code If-Modified-Since}
+ * when the response came with validators. Concurrent requests for a URL that is not cached are
+ * coalesced into one call upstream. Entries are evicted least recently used first once their
+ * bodies and headers exceed the configured size.
+ * <p>
+ * Responses are keyed by URL and by the values of the request headers their {@code Vary} names.
+ * Responses to requests with an {@code Authorization} are only stored when they are {@code public}.
+ */
+public class CachingClientHttpRequestFactory implements ClientHttpRequestFactory, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingClientHttpRequestFactory.class);
+
+    private final ClientHttpRequestFactory delegate;
+    private final long maximumSize;
+    private final Duration defaultMaxAge;
+    private final Duration defaultStaleWhileRevalidate;
+    private final Clock clock;
+    private final Executor revalidations;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Entries in access order, guarded by {@code this}.
+     */
+    private final Map<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * The request headers the responses for a URL vary on, as of the last one stored, guarded by
+     * {@code this}. Only URLs with a cached response that varies are in there.
+     */
+    private final Map<String, List<String>> varyByUrl = new HashMap<>();
+
+    private final ConcurrentMap<String, CompletableFuture<CacheEntry>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter evictions;
+
+    public CachingClientHttpRequestFactory(ClientHttpRequestFactory delegate, QuoteClientProperties.Cache properties,
+                                           MeterRegistry meterRegistry) {
+        this(delegate, properties, meterRegistry, Clock.systemUTC(),
+                Executors.newFixedThreadPool(properties.getRevalidationThreads(), threadFactory()));
+    }
+
+    CachingClientHttpRequestFactory(ClientHttpRequestFactory delegate, QuoteClientProperties.Cache properties,
+                                    MeterRegistry meterRegistry, Clock clock, Executor revalidations) {
+        this.delegate = delegate;
+        this.maximumSize = properties.getMaximumSize().toBytes();
+        this.defaultMaxAge = properties.getDefaultMaxAge();
+        this.defaultStaleWhileRevalidate = properties.getDefaultStaleWhileRevalidate();
+        this.clock = clock;
+        this.revalidations = revalidations;
+        this.meterRegistry = meterRegistry;
+        this.hits = meterRegistry.counter("quote.cache.requests", "result", "hit");
+        this.staleHits = meterRegistry.counter("quote.cache.requests", "result", "stale");
+        this.misses = meterRegistry.counter("quote.cache.requests", "result", "miss");
+        this.coalesced = meterRegistry.counter("quote.cache.coalesced");
+        this.evictions = meterRegistry.counter("quote.cache.evictions");
+        Gauge.builder("quote.cache.hit.ratio", this, CachingClientHttpRequestFactory::hitRatio)
+                .description("Share of requests answered from the cache, fresh or stale")
+                .register(meterRegistry);
+        Gauge.builder("quote.cache.size", this, CachingClientHttpRequestFactory::size)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        if (httpMethod != HttpMethod.GET) {
+            return delegate.createRequest(uri, httpMethod);
+        }
+        return new CachingRequest(uri);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (revalidations instanceof ExecutorService) {
+            ((ExecutorService) revalidations).shutdownNow();
+        }
+        if (delegate instanceof DisposableBean) {
+            ((DisposableBean) delegate).destroy();
+        }
+    }
+
+    private ClientHttpResponse get(URI uri, HttpHeaders headers) throws IOException {
+        String url = uri.toString();
+        String key = key(url, varyOf(url), headers);
+        long now = clock.millis();
+        CacheEntry entry = lookup(key);
+        if (entry != null && entry.isFresh(now)) {
+            hits.increment();
+            return entry.toResponse();
+        }
+        if (entry != null && entry.isServableStale(now)) {
+            staleHits.increment();
+            revalidateInBackground(key, uri, headers, entry);
+            return entry.toResponse();
+        }
+
+        misses.increment();
+        CompletableFuture<CacheEntry> call = new CompletableFuture<>();
+        CompletableFuture<CacheEntry> leader = inFlight.putIfAbsent(key, call);
+        if (leader != null) {
+            coalesced.increment();
+            CacheEntry shared = await(leader);
+            // The leader's response could not be stored, so it could not be shared either, and if it
+            // varies on request headers it is only shared with requests that have the same ones
+            CacheEntry variant = shared != null ? lookup(key(url, varyOf(url), headers)) : null;
+            return variant != null ? variant.toResponse() : forward(uri, headers, new byte[0]);
+        }
+        try {
+            Fetched fetched = fetch(key, uri, headers, entry);
+            call.complete(fetched.entry);
+            return fetched.response;
+        } catch (IOException | RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private void revalidateInBackground(String key, URI uri, HttpHeaders headers, CacheEntry entry) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.putAll(headers);
+        try {
+            revalidations.execute(() -> {
+                try {
+                    fetch(key, uri, requestHeaders, entry).response.close();
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Failed to revalidate {}", uri, e);
+                } finally {
+                    revalidating.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            revalidating.remove(key);
+        }
+    }
+
+    /**
+     * Calls upstream, conditionally when {@code entry} has validators, and stores the response
+     * if it may be stored.
+     */
+    private Fetched fetch(String key, URI uri, HttpHeaders headers, CacheEntry entry) throws IOException {
+        ClientHttpRequest request = delegate.createRequest(uri, HttpMethod.GET);
+        request.getHeaders().putAll(headers);
+        if (entry != null) {
+            entry.addValidators(request.getHeaders());
+        }
+        long start = System.nanoTime();
+        ClientHttpResponse response;
+        try {
+            response = request.execute();
+        } catch (IOException | RuntimeException e) {
+            recordRevalidation(entry, "failed", start);
+            throw e;
+        }
+        long now = clock.millis();
+        int status = response.getRawStatusCode();
+        if (entry != null && status == HttpStatus.NOT_MODIFIED.value()) {
+            recordRevalidation(entry, "not-modified", start);
+            CacheEntry revalidated = entry.revalidated(response.getHeaders(), now, defaultMaxAge,
+                    defaultStaleWhileRevalidate);
+            response.close();
+            store(key, revalidated);
+            return new Fetched(revalidated, revalidated.toResponse());
+        }
+        recordRevalidation(entry, "modified", start);
+
+        boolean authorized = headers.containsKey(HttpHeaders.AUTHORIZATION);
+        if (!CacheEntry.isCacheable(status, response.getHeaders(), authorized, now, defaultMaxAge)) {
+            remove(key);
+            return new Fetched(null, response);
+        }
+        if (response.getHeaders().getContentLength() > maximumSize) {
+            // Too large to ever be stored, no need to read any of it first
+            remove(key);
+            return new Fetched(null, response);
+        }
+        InputStream body = response.getBody();
+        byte[] buffered = body.readNBytes((int) Math.min(maximumSize, Integer.MAX_VALUE - 8) + 1);
+        if (buffered.length > maximumSize) {
+            // Too large to ever be stored, hand over what was read and the rest of the stream
+            remove(key);
+            return new Fetched(null, new PrefixedResponse(response, buffered));
+        }
+        response.close();
+        CacheEntry stored = CacheEntry.of(status, response.getStatusText(), response.getHeaders(), buffered, now,
+                defaultMaxAge, defaultStaleWhileRevalidate);
+        String url = uri.toString();
+        List<String> vary = CacheEntry.vary(response.getHeaders());
+        String storedKey = key(url, vary, headers);
+        if (!storedKey.equals(key)) {
+            // Looked up before the response told what it varies on
+            remove(key);
+        }
+        store(url, vary, storedKey, stored);
+        return new Fetched(stored, stored.toResponse());
+    }
+
+    private ClientHttpResponse forward(URI uri, HttpHeaders headers, byte[] body) throws IOException {
+        ClientHttpRequest request = delegate.createRequest(uri, HttpMethod.GET);
+        request.getHeaders().putAll(headers);
+        if (body.length > 0) {
+            request.getBody().write(body);
+        }
+        return request.execute();
+    }
+
+    private void recordRevalidation(CacheEntry entry, String outcome, long start) {
+        if (entry != null) {
+            meterRegistry.timer("quote.cache.revalidation", "outcome", outcome)
+                    .record(Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    private synchronized CacheEntry lookup(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized List<String> varyOf(String url) {
+        return varyByUrl.getOrDefault(url, List.of());
+    }
+
+    private synchronized void store(String url, List<String> vary, String key, CacheEntry entry) {
+        if (vary.isEmpty()) {
+            varyByUrl.remove(url);
+        } else {
+            varyByUrl.put(url, vary);
+        }
+        store(key, entry);
+    }
+
+    private synchronized void store(String key, CacheEntry entry) {
+        CacheEntry previous = entries.put(key, entry);
+        size += entry.weight() - (previous != null ? previous.weight() : 0);
+        Iterator<Map.Entry<String, CacheEntry>> eldest = entries.entrySet().iterator();
+        while (size > maximumSize && eldest.hasNext()) {
+            Map.Entry<String, CacheEntry> evicted = eldest.next();
+            size -= evicted.getValue().weight();
+            eldest.remove();
+            forgetVary(evicted.getKey());
+            evictions.increment();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        CacheEntry previous = entries.remove(key);
+        if (previous != null) {
+            size -= previous.weight();
+            forgetVary(key);
+        }
+    }
+
+    /**
+     * Keeps {@link #varyByUrl} no larger than the entries. Other variants of the URL are looked up
+     * again once a response tells what it varies on.
+     */
+    private void forgetVary(String key) {
+        int end = key.indexOf('\n');
+        if (end != -1) {
+            varyByUrl.remove(key.substring(0, end));
+        }
+    }
+
+    /**
+     * The URL, followed by the name and values of every request header the response varies on.
+     * A URL never contains a line break.
+     */
+    private static String key(String url, List<String> vary, HttpHeaders headers) {
+        if (vary.isEmpty()) {
+            return url;
+        }
+        StringBuilder key = new StringBuilder(url);
+        for (String name : vary) {
+            key.append('\n').append(name).append(':').append(String.join(",", headers.getOrEmpty(name)));
+        }
+        return key.toString();
+    }
+
+    private synchronized long size() {
+        return size;
+    }
+
+    private double hitRatio() {
+        double cached = hits.count() + staleHits.count();
+        double total = cached + misses.count();
+        return total == 0 ? 0 : cached / total;
+    }
+
+    private static CacheEntry await(CompletableFuture<CacheEntry> leader) throws IOException {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a coalesced request");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private static CustomizableThreadFactory threadFactory() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("quote-cache-revalidation-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private static final class Fetched {
+
+        private final CacheEntry entry;
+        private final ClientHttpResponse response;
+
+        private Fetched(CacheEntry entry, ClientHttpResponse response) {
+            this.entry = entry;
+            this.response = response;
+        }
+    }
+
+    private final class CachingRequest extends AbstractClientHttpRequest {
+
+        private final URI uri;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(0);
+
+        private CachingRequest(URI uri) {
+            this.uri = uri;
+        }
+
+        @Override
+        public String getMethodValue() {
+            return HttpMethod.GET.name();
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        protected OutputStream getBodyInternal(HttpHeaders headers) {
+            return body;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+            String cacheControl = headers.getCacheControl();
+            if (body.size() > 0 || (cacheControl != null
+                    && (cacheControl.contains("no-cache") || cacheControl.contains("no-store")))) {
+                return forward(uri, headers, body.toByteArray());
+            }
+            return get(uri, headers);
+        }
+    }
+
+    /**
+     * A response whose body was partly read already.
+     */
+    private static final class PrefixedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+        private final byte[] prefix;
+        private InputStream body;
+
+        private PrefixedResponse(ClientHttpResponse response, byte[] prefix) {
+            this.response = response;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new SequenceInputStream(new ByteArrayInputStream(prefix), response.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
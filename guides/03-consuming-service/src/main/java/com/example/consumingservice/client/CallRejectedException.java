@@ -0,0 +1,15 @@
+package com.example.consumingservice.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling the quote service when the circuit is open or the bulkhead is full.
+ * Like any other I/O failure it reaches {@code RestTemplate} callers as a
+ * {@link org.springframework.web.client.ResourceAccessException}.
+ */
+public class CallRejectedException extends IOException {
+
+    public CallRejectedException(String message) {
+        super(message);
+    }
+}
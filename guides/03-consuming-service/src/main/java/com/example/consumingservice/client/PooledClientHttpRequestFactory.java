@@ -0,0 +1,78 @@
+package com.example.consumingservice.client;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends requests through an OkHttp client that keeps connections open per host and port, and
+ * multiplexes concurrent requests over a single connection when the server speaks HTTP/2.
+ * <p>
+ * OkHttp asks for gzip and unpacks the response transparently; with compression disabled the
+ * request says {@code identity} instead.
+ */
+public class PooledClientHttpRequestFactory extends OkHttp3ClientHttpRequestFactory {
+
+    private final OkHttpClient client;
+
+    public PooledClientHttpRequestFactory(QuoteClientProperties properties) {
+        this(createClient(properties));
+    }
+
+    private PooledClientHttpRequestFactory(OkHttpClient client) {
+        super(client);
+        this.client = client;
+    }
+
+    /**
+     * @return the number of open connections, idle or in use
+     */
+    public int connectionCount() {
+        return client.connectionPool().connectionCount();
+    }
+
+    /**
+     * @return the number of open connections no response is being read from
+     */
+    public int idleConnectionCount() {
+        return client.connectionPool().idleConnectionCount();
+    }
+
+    @Override
+    public void destroy() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    private static OkHttpClient createClient(QuoteClientProperties properties) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(properties.getMaxIdleConnections(),
+                        properties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS))
+                .connectTimeout(properties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .protocols(protocols(properties.getVersion()));
+        if (!properties.isCompression()) {
+            builder.addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                    .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+                    .build()));
+        }
+        return builder.build();
+    }
+
+    private static List<Protocol> protocols(QuoteClientProperties.HttpVersion version) {
+        switch (version) {
+            case HTTP_1_1:
+                return List.of(Protocol.HTTP_1_1);
+            case H2C:
+                return List.of(Protocol.H2_PRIOR_KNOWLEDGE);
+            default:
+                return List.of(Protocol.HTTP_2, Protocol.HTTP_1_1);
+        }
+    }
+}
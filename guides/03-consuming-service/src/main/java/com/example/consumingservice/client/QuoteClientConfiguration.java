@@ -0,0 +1,33 @@
+package com.example.consumingservice.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(QuoteClientProperties.class)
+public class QuoteClientConfiguration {
+
+    @Bean
+    public ClientHttpRequestFactory quoteRequestFactory(QuoteClientProperties properties, MeterRegistry meterRegistry) {
+        ClientHttpRequestFactory requestFactory =
+                new ResilientClientHttpRequestFactory(requestFactory(properties), properties, meterRegistry);
+        if (properties.getCache().isEnabled()) {
+            return new CachingClientHttpRequestFactory(requestFactory, properties.getCache(), meterRegistry);
+        }
+        return requestFactory;
+    }
+
+    public static ClientHttpRequestFactory requestFactory(QuoteClientProperties properties) {
+        if (properties.isPooled()) {
+            return new PooledClientHttpRequestFactory(properties);
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) properties.getConnectTimeout().toMillis());
+        requestFactory.setReadTimeout((int) properties.getReadTimeout().toMillis());
+        return requestFactory;
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.consumingservice.client;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings of the HTTP client the quote service is called with.
+ */
+@ConfigurationProperties("quote.client")
+public class QuoteClientProperties {
+
+    /**
+     * Base URL of the quote service.
+     */
+    private String baseUrl = "https://quoters.apps.pcfone.io";
+
+    /**
+     * Whether to keep connections open in a pool. When disabled, requests go through
+     * {@link java.net.HttpURLConnection} as they do with a default {@code RestTemplateBuilder}.
+     */
+    private boolean pooled = true;
+
+    /**
+     * Protocol spoken by the pooled client.
+     */
+    private HttpVersion version = HttpVersion.HTTP_2;
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Idle connections kept open over all hosts.
+     */
+    private int maxIdleConnections = 16;
+
+    /**
+     * How long an idle connection is kept open.
+     */
+    private Duration keepAlive = Duration.ofMinutes(5);
+
+    /**
+     * Whether to ask for gzip responses.
+     */
+    private boolean compression = true;
+
+    private final Cache cache = new Cache();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private final Bulkhead bulkhead = new Bulkhead();
+
+    private final Hedging hedging = new Hedging();
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    public void setPooled(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    public HttpVersion getVersion() {
+        return version;
+    }
+
+    public void setVersion(HttpVersion version) {
+        this.version = version;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(Duration keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public Hedging getHedging() {
+        return hedging;
+    }
+
+    public static class Cache {
+
+        /**
+         * Whether to keep responses as long as their Cache-Control allows.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Total size of the cached bodies and headers, beyond which the least recently used
+         * responses are evicted.
+         */
+        private DataSize maximumSize = DataSize.ofMegabytes(10);
+
+        /**
+         * Freshness of responses that come without max-age or Expires.
+         */
+        private Duration defaultMaxAge = Duration.ZERO;
+
+        /**
+         * How long a stale response is served while it is revalidated, for responses without
+         * a stale-while-revalidate directive.
+         */
+        private Duration defaultStaleWhileRevalidate = Duration.ZERO;
+
+        /**
+         * Threads revalidating stale responses in the background.
+         */
+        private int revalidationThreads = 2;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(DataSize maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getDefaultMaxAge() {
+            return defaultMaxAge;
+        }
+
+        public void setDefaultMaxAge(Duration defaultMaxAge) {
+            this.defaultMaxAge = defaultMaxAge;
+        }
+
+        public Duration getDefaultStaleWhileRevalidate() {
+            return defaultStaleWhileRevalidate;
+        }
+
+        public void setDefaultStaleWhileRevalidate(Duration defaultStaleWhileRevalidate) {
+            this.defaultStaleWhileRevalidate = defaultStaleWhileRevalidate;
+        }
+
+        public int getRevalidationThreads() {
+            return revalidationThreads;
+        }
+
+        public void setRevalidationThreads(int revalidationThreads) {
+            this.revalidationThreads = revalidationThreads;
+        }
+    }
+
+    public static class CircuitBreaker {
+
+        /**
+         * Whether to stop calling the quote service while too many calls fail.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of most recent calls the failure rate is computed over.
+         */
+        private int slidingWindowSize = 100;
+
+        /**
+         * Calls to record before the failure rate counts.
+         */
+        private int minimumCalls = 20;
+
+        /**
+         * Failure rate in percent at which the circuit opens.
+         */
+        private int failureRateThreshold = 50;
+
+        /**
+         * How long calls are rejected once the circuit opened.
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * Trial calls let through after that, all of which must succeed to close the circuit.
+         */
+        private int halfOpenCalls = 5;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public int getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public int getHalfOpenCalls() {
+            return halfOpenCalls;
+        }
+
+        public void setHalfOpenCalls(int halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+        }
+    }
+
+    public static class Bulkhead {
+
+        /**
+         * Whether to limit the calls in flight to the quote service.
+         */
+        private boolean enabled = true;
+
+        private int maxConcurrentCalls = 32;
+
+        /**
+         * How long a call waits for one of the others to finish before it is rejected.
+         */
+        private Duration maxWait = Duration.ZERO;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    public static class Hedging {
+
+        /**
+         * Whether to send a second GET when the first is slower than most.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Latency percentile of recent calls after which the second request is sent.
+         */
+        private double percentile = 0.95;
+
+        /**
+         * Lower bound of the delay, so that fast upstreams are not hedged on jitter.
+         */
+        private Duration minimumDelay = Duration.ofMillis(10);
+
+        /**
+         * Share of calls that may be hedged, which bounds the extra load on the upstream.
+         */
+        private double maxRatio = 0.1;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinimumDelay() {
+            return minimumDelay;
+        }
+
+        public void setMinimumDelay(Duration minimumDelay) {
+            this.minimumDelay = minimumDelay;
+        }
+
+        public double getMaxRatio() {
+            return maxRatio;
+        }
+
+        public void setMaxRatio(double maxRatio) {
+            this.maxRatio = maxRatio;
+        }
+    }
+
+    public enum HttpVersion {
+
+        /**
+         * One request at a time per connection.
+         */
+        HTTP_1_1,
+
+        /**
+         * HTTP/2 where the server offers it during the TLS handshake, HTTP/1.1 otherwise.
+         */
+        HTTP_2,
+
+        /**
+         * HTTP/2 over plain text, for servers known to speak it.
+         */
+        H2C
+    }
+}
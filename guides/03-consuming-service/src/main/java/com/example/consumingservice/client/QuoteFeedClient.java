@@ -0,0 +1,133 @@
+package com.example.consumingservice.client;
+
+import com.example.consumingservice.Quote;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads feeds of quotes without holding them in memory: the JSON array is parsed from the
+ * response stream one element at a time, and every {@link Quote} is handed to the caller as soon
+ * as it is bound, alone or in batches. Memory stays at one quote, or one batch, whatever the size
+ * of the feed. Feeds are requested with {@code Cache-Control: no-store}, so that a response cache
+ * passes them through rather than reading them in to store them.
+ */
+@Component
+public class QuoteFeedClient {
+
+    private final RestTemplate restTemplate;
+    private final ObjectReader reader;
+
+    public QuoteFeedClient(RestTemplate restTemplate, ObjectMapper objectMapper) {
+        this.restTemplate = restTemplate;
+        this.reader = objectMapper.readerFor(Quote.class);
+    }
+
+    /**
+     * Hands every quote of the feed at {@code path} to {@code action}. A single quote is treated as
+     * a feed of one.
+     *
+     * @return the number of quotes read
+     */
+    public long forEach(String path, Consumer<? super Quote> action) {
+        Long count = restTemplate.execute(path, HttpMethod.GET,
+                request -> {
+                    request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+                    // Storing the feed would mean holding it in memory, which is what streaming avoids
+                    request.getHeaders().setCacheControl(CacheControl.noStore());
+                },
+                response -> {
+                    try {
+                        return read(response.getBody(), reader, action);
+                    } catch (IOException e) {
+                        throw new RestClientException("Could not read quotes from " + path, e);
+                    }
+                });
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Hands the quotes of the feed at {@code path} to {@code action} in lists of {@code batchSize},
+     * the last one possibly shorter. Lists are not reused.
+     *
+     * @return the number of quotes read
+     */
+    public long forEachBatch(String path, int batchSize, Consumer<? super List<Quote>> action) {
+        Assert.isTrue(batchSize > 0, "batchSize must be positive");
+        Batcher batcher = new Batcher(batchSize, action);
+        long count = forEach(path, batcher);
+        batcher.flush();
+        return count;
+    }
+
+    /**
+     * Parses {@code body}, an array of quotes or a single one, and hands each to {@code action}.
+     */
+    static long read(InputStream body, ObjectReader reader, Consumer<? super Quote> action) throws IOException {
+        try (JsonParser parser = reader.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return 0;
+            }
+            if (token == JsonToken.START_OBJECT) {
+                action.accept(reader.readValue(parser));
+                return 1;
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected an array of quotes but got " + token);
+            }
+            long count = 0;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                action.accept(reader.readValue(parser));
+                count++;
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new JsonParseException(parser, "Expected a quote but got " + token);
+            }
+            return count;
+        }
+    }
+
+    private static final class Batcher implements Consumer<Quote> {
+
+        private final int batchSize;
+        private final Consumer<? super List<Quote>> action;
+        private List<Quote> batch;
+
+        private Batcher(int batchSize, Consumer<? super List<Quote>> action) {
+            this.batchSize = batchSize;
+            this.action = action;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void accept(Quote quote) {
+            batch.add(quote);
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!batch.isEmpty()) {
+                action.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.example.consumingservice.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Guards the calls to the quote service, so that a slow or failing upstream costs callers a
+ * quick {@link CallRejectedException} rather than a thread each.
+ * <ul>
+ * <li>A circuit breaker stops calling once too many of the recent calls failed with an I/O error
+ * or a 5xx response.</li>
+ * <li>A bulkhead bounds the calls in flight, up to the closing of their response.</li>
+ * <li>Optionally, a GET that is slower than the configured percentile of recent calls is sent a
+ * second time, and whichever response comes first is used. Hedges are limited to a share of the
+ * calls so that a slow upstream does not get twice the load, and take a bulkhead permit of their
+ * own, so they are only sent while one is free.</li>
+ * </ul>
+ */
+public class ResilientClientHttpRequestFactory implements ClientHttpRequestFactory, DisposableBean {
+
+    /**
+     * Calls to observe before hedging, so the percentile means something.
+     */
+    private static final int HEDGING_MINIMUM_SAMPLES = 20;
+
+    private final ClientHttpRequestFactory delegate;
+    private final SlidingWindowCircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final long bulkheadMaxWait;
+    private final QuoteClientProperties.Hedging hedging;
+    private final LatencyWindow latencies = new LatencyWindow(256);
+    private final ExecutorService hedgingExecutor;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final Counter circuitOpen;
+    private final Counter bulkheadFull;
+    private final Counter hedgesFired;
+    private final Counter hedgesWon;
+
+    public ResilientClientHttpRequestFactory(ClientHttpRequestFactory delegate, QuoteClientProperties properties,
+                                             MeterRegistry meterRegistry) {
+        this(delegate, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    ResilientClientHttpRequestFactory(ClientHttpRequestFactory delegate, QuoteClientProperties properties,
+                                      MeterRegistry meterRegistry, Clock clock) {
+        this.delegate = delegate;
+        this.circuitBreaker = properties.getCircuitBreaker().isEnabled()
+                ? new SlidingWindowCircuitBreaker(properties.getCircuitBreaker(), clock) : null;
+        this.bulkhead = properties.getBulkhead().isEnabled()
+                ? new Semaphore(properties.getBulkhead().getMaxConcurrentCalls()) : null;
+        this.bulkheadMaxWait = properties.getBulkhead().getMaxWait().toNanos();
+        this.hedging = properties.getHedging();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("quote-client-hedging-");
+        threadFactory.setDaemon(true);
+        this.hedgingExecutor = hedging.isEnabled() ? Executors.newCachedThreadPool(threadFactory) : null;
+
+        this.circuitOpen = meterRegistry.counter("quote.client.rejected", "reason", "circuit-open");
+        this.bulkheadFull = meterRegistry.counter("quote.client.rejected", "reason", "bulkhead-full");
+        this.hedgesFired = meterRegistry.counter("quote.client.hedges", "result", "fired");
+        this.hedgesWon = meterRegistry.counter("quote.client.hedges", "result", "won");
+        if (circuitBreaker != null) {
+            for (SlidingWindowCircuitBreaker.State state : SlidingWindowCircuitBreaker.State.values()) {
+                Gauge.builder("quote.client.circuit.state", circuitBreaker, breaker -> breaker.state() == state ? 1 : 0)
+                        .tag("state", state.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry);
+            }
+        }
+        if (hedging.isEnabled()) {
+            Gauge.builder("quote.client.hedge.delay", this, factory -> factory.hedgeDelay() / 1e6)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new ResilientRequest(uri, httpMethod);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (hedgingExecutor != null) {
+            hedgingExecutor.shutdownNow();
+        }
+        if (delegate instanceof DisposableBean) {
+            ((DisposableBean) delegate).destroy();
+        }
+    }
+
+    private ClientHttpResponse execute(URI uri, HttpMethod method, HttpHeaders headers, byte[] body)
+            throws IOException {
+        acquireBulkhead();
+        long admitted;
+        try {
+            admitted = circuitBreaker != null ? circuitBreaker.tryAcquire() : 0;
+        } catch (RuntimeException e) {
+            releaseBulkhead();
+            throw e;
+        }
+        if (admitted < 0) {
+            releaseBulkhead();
+            circuitOpen.increment();
+            throw new CallRejectedException("Circuit breaker for " + uri.getHost() + " is open");
+        }
+        ClientHttpResponse response;
+        try {
+            // From here on the permit belongs to the call, and is released with its response
+            response = hedging.isEnabled() && method == HttpMethod.GET
+                    ? hedged(uri, headers)
+                    : callHoldingPermit(uri, method, headers, body);
+        } catch (IOException | RuntimeException e) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onFailure(admitted);
+            }
+            throw e;
+        }
+        if (circuitBreaker != null) {
+            try {
+                if (response.getRawStatusCode() >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                    circuitBreaker.onFailure(admitted);
+                } else {
+                    circuitBreaker.onSuccess(admitted);
+                }
+            } catch (IOException e) {
+                circuitBreaker.onFailure(admitted);
+                response.close();
+                throw e;
+            }
+        }
+        return response;
+    }
+
+    private ClientHttpResponse call(URI uri, HttpMethod method, HttpHeaders headers, byte[] body)
+            throws IOException {
+        long start = System.nanoTime();
+        ClientHttpRequest request = delegate.createRequest(uri, method);
+        request.getHeaders().putAll(headers);
+        if (body.length > 0) {
+            request.getBody().write(body);
+        }
+        ClientHttpResponse response = request.execute();
+        latencies.record(System.nanoTime() - start);
+        return response;
+    }
+
+    /**
+     * Makes a call under a bulkhead permit acquired for it, which is released once its response
+     * is closed, or right away if it fails.
+     */
+    private ClientHttpResponse callHoldingPermit(URI uri, HttpMethod method, HttpHeaders headers, byte[] body)
+            throws IOException {
+        boolean handedOver = false;
+        try {
+            ClientHttpResponse response = new ReleasingResponse(call(uri, method, headers, body),
+                    this::releaseBulkhead);
+            handedOver = true;
+            return response;
+        } finally {
+            if (!handedOver) {
+                releaseBulkhead();
+            }
+        }
+    }
+
+    /**
+     * Sends the request, and again if the first has not answered within the hedge delay.
+     */
+    private ClientHttpResponse hedged(URI uri, HttpHeaders headers) throws IOException {
+        calls.incrementAndGet();
+        long delay = hedgeDelay();
+        if (delay == 0) {
+            return callHoldingPermit(uri, HttpMethod.GET, headers, new byte[0]);
+        }
+        CompletableFuture<ClientHttpResponse> primary = callAsync(uri, headers);
+        try {
+            return primary.get(delay, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // The hedge is a call in flight of its own, so it needs a permit of its own
+            if (hedges.get() < calls.get() * hedging.getMaxRatio() && tryAcquireHedgePermit()) {
+                hedges.incrementAndGet();
+                hedgesFired.increment();
+                return await(firstOf(primary, callAsync(uri, headers)));
+            }
+            return await(primary);
+        } catch (InterruptedException e) {
+            closeWhenDone(primary);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calling " + uri);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * @return nanoseconds after which a GET is hedged, 0 while there are too few calls to tell
+     */
+    private long hedgeDelay() {
+        if (latencies.count() < HEDGING_MINIMUM_SAMPLES) {
+            return 0;
+        }
+        return Math.max(latencies.percentile(hedging.getPercentile()), hedging.getMinimumDelay().toNanos());
+    }
+
+    /**
+     * Makes a call under a permit acquired for it on the hedging executor.
+     */
+    private CompletableFuture<ClientHttpResponse> callAsync(URI uri, HttpHeaders headers) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return callHoldingPermit(uri, HttpMethod.GET, headers, new byte[0]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, hedgingExecutor);
+        } catch (RejectedExecutionException e) {
+            releaseBulkhead();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the first successful response of the two, the other one is closed when it arrives
+     */
+    private CompletableFuture<ClientHttpResponse> firstOf(CompletableFuture<ClientHttpResponse> primary,
+                                                          CompletableFuture<ClientHttpResponse> hedge) {
+        CompletableFuture<ClientHttpResponse> first = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(2);
+        primary.whenComplete((response, failure) -> complete(first, response, failure, pending, false));
+        hedge.whenComplete((response, failure) -> complete(first, response, failure, pending, true));
+        return first;
+    }
+
+    private void complete(CompletableFuture<ClientHttpResponse> first, ClientHttpResponse response,
+                          Throwable failure, AtomicInteger pending, boolean hedge) {
+        if (failure == null) {
+            if (first.complete(response)) {
+                if (hedge) {
+                    hedgesWon.increment();
+                }
+            } else {
+                response.close();
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            first.completeExceptionally(failure);
+        }
+    }
+
+    private void acquireBulkhead() throws IOException {
+        if (bulkhead == null) {
+            return;
+        }
+        try {
+            if (!bulkhead.tryAcquire(bulkheadMaxWait, TimeUnit.NANOSECONDS)) {
+                bulkheadFull.increment();
+                throw new CallRejectedException("Too many calls in flight");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the bulkhead");
+        }
+    }
+
+    /**
+     * @return whether a permit for a hedge is free right now, hedges never wait for one
+     */
+    private boolean tryAcquireHedgePermit() {
+        return bulkhead == null || bulkhead.tryAcquire();
+    }
+
+    private void releaseBulkhead() {
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+    }
+
+    private static ClientHttpResponse await(CompletableFuture<ClientHttpResponse> response) throws IOException {
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            closeWhenDone(response);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Closes the response of a call nobody waits for anymore, which would hold its connection otherwise.
+     */
+    private static void closeWhenDone(CompletableFuture<ClientHttpResponse> response) {
+        response.thenAccept(ClientHttpResponse::close);
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof UncheckedIOException) {
+            return ((UncheckedIOException) cause).getCause();
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new IOException(cause);
+    }
+
+    private final class ResilientRequest extends AbstractClientHttpRequest {
+
+        private final URI uri;
+        private final HttpMethod method;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(0);
+
+        private ResilientRequest(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public String getMethodValue() {
+            return method.name();
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        protected OutputStream getBodyInternal(HttpHeaders headers) {
+            return body;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+            return ResilientClientHttpRequestFactory.this.execute(uri, method, headers, body.toByteArray());
+        }
+    }
+
+    /**
+     * Releases the bulkhead permit of a call once its response is closed.
+     */
+    private static final class ReleasingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+        private final Runnable release;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private ReleasingResponse(ClientHttpResponse response, Runnable release) {
+            this.response = response;
+            this.release = release;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return response.getBody();
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                try {
+                    response.close();
+                } finally {
+                    release.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * The latencies of the last calls, with their percentiles recomputed every few calls.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples;
+        private long count;
+        private long[] sorted = new long[0];
+
+        private LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long nanos) {
+            samples[(int) (count++ % samples.length)] = nanos;
+            if (count % 16 == 0 || count < samples.length) {
+                sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+                Arrays.sort(sorted);
+            }
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized long percentile(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+        }
+    }
+}
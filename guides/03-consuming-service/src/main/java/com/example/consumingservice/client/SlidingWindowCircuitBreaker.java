@@ -0,0 +1,133 @@
+package com.example.consumingservice.client;
+
+import java.time.Clock;
+
+/**
+ * Opens once the failure rate over the last calls reaches a threshold and rejects calls for a
+ * while. It then lets a few trial calls through: the circuit closes again if they all succeed
+ * and opens for another round as soon as one fails.
+ * <p>
+ * Every outcome is reported with the state the call was admitted under, and only counts if the
+ * breaker is still in that state: a slow call let through while closed must not pass for a trial
+ * call once the breaker went half open.
+ */
+class SlidingWindowCircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final Clock clock;
+
+    /**
+     * Outcomes of the last calls while closed, {@code true} for failures, as a ring.
+     */
+    private final boolean[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+
+    /**
+     * Grows with every change of state, so outcomes of calls admitted before it can be told apart.
+     */
+    private long transitions;
+    private long openedAt;
+    private int trialsLeft;
+    private int trialsSucceeded;
+
+    SlidingWindowCircuitBreaker(QuoteClientProperties.CircuitBreaker properties, Clock clock) {
+        this.window = new boolean[properties.getSlidingWindowSize()];
+        this.minimumCalls = Math.min(properties.getMinimumCalls(), window.length);
+        this.failureRateThreshold = properties.getFailureRateThreshold();
+        this.openMillis = properties.getOpenDuration().toMillis();
+        this.halfOpenCalls = properties.getHalfOpenCalls();
+        this.clock = clock;
+    }
+
+    /**
+     * @return the state the call is admitted under, to report its outcome with, or {@code -1} if
+     * it may not go ahead
+     */
+    synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.millis() - openedAt < openMillis) {
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+            trialsLeft = halfOpenCalls;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsLeft == 0) {
+                return -1;
+            }
+            trialsLeft--;
+        }
+        return transitions;
+    }
+
+    /**
+     * @param admitted what {@link #tryAcquire()} returned for the call
+     */
+    synchronized void onSuccess(long admitted) {
+        if (admitted != transitions) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded == halfOpenCalls) {
+                transition(State.CLOSED);
+                next = recorded = failures = 0;
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * @param admitted what {@link #tryAcquire()} returned for the call
+     */
+    synchronized void onFailure(long admitted) {
+        if (admitted != transitions) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            failures -= window[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        failures += failure ? 1 : 0;
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openedAt = clock.millis();
+    }
+
+    private void transition(State state) {
+        this.state = state;
+        transitions++;
+    }
+}
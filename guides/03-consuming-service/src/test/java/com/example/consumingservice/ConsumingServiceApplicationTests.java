@@ -1,13 +1,42 @@
 package com.example.consumingservice;
 
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 class ConsumingServiceApplicationTests {
 
+    private static final StubQuoteServer stub = startStub();
+
+    @DynamicPropertySource
+    static void quoteService(DynamicPropertyRegistry registry) {
+        registry.add("quote.client.base-url", stub::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() throws IOException {
+        stub.close();
+    }
+
     @Test
     void contextLoads() {
+        assertThat(stub.requests()).isEqualTo(1);
+    }
+
+    private static StubQuoteServer startStub() {
+        try {
+            return StubQuoteServer.start(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
 }
@@ -0,0 +1,67 @@
+package com.example.consumingservice;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A JSON array of quotes of roughly the requested size, generated as it is read so that even
+ * gigabyte feeds take no memory.
+ */
+public class GeneratedQuoteFeed extends InputStream {
+
+    private final long size;
+    private long written;
+    private long id;
+    private byte[] chunk = {'['};
+    private int position;
+    private boolean closed;
+
+    /**
+     * @param size bytes after which the array is closed, the feed ends with the record crossing it
+     */
+    public GeneratedQuoteFeed(long size) {
+        this.size = size;
+    }
+
+    @Override
+    public int read() {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < length) {
+            if (position == chunk.length && !next()) {
+                break;
+            }
+            int count = Math.min(length - read, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset + read, count);
+            position += count;
+            read += count;
+        }
+        written += read;
+        return read == 0 ? -1 : read;
+    }
+
+    private boolean next() {
+        if (closed) {
+            return false;
+        }
+        if (written >= size) {
+            chunk = new byte[]{']'};
+            closed = true;
+        } else {
+            id++;
+            String quote = StubQuoteServer.quote(id,
+                    StubQuoteServer.QUOTES.get((int) ((id - 1) % StubQuoteServer.QUOTES.size())));
+            chunk = ((id == 1 ? "" : ",") + quote).getBytes(StandardCharsets.UTF_8);
+        }
+        position = 0;
+        return true;
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.consumingservice;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import javax.net.ServerSocketFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves {@code /api/random}, {@code /api/{id}} and the array of all quotes {@code /api} like the
+ * quote service does, over HTTP/1.1 or plain-text HTTP/2, and counts the connections clients open.
+ * {@code /api?count=n} repeats the quotes into an array of n. Quotes and arrays carry an {@code ETag}
+ * and optionally a {@code Cache-Control} and a {@code Vary}. Faults can be injected: a share of the requests answered
+ * slowly, and another with {@code 503 Service Unavailable}, spread evenly so that runs repeat.
+ * <p>
+ * Run {@code main} with a port and optionally {@code h2c} to point the application at it with
+ * {@code --quote.client.base-url=http://localhost:<port>}. {@code --error-rate=0.1},
+ * {@code --slow-rate=0.05} and {@code --slow-delay=500} (milliseconds) inject faults.
+ */
+public class StubQuoteServer implements Closeable {
+
+    static final List<String> QUOTES = List.of(
+            "Working with Spring Boot is like pair-programming with the Spring developers.",
+            "With Boot you deploy everywhere you can find a JVM basically.",
+            "Spring has come quite a ways in addressing developer enjoyment and ease of use since the last time I built an application using it.",
+            "Previous to Spring Boot, I remember XML hell, confusing set up, and many hours of frustration.",
+            "Spring Boot solves this problem. It gets rid of XML and wires up common components for me, so I don't have to spend hours scratching my head just to figure out how it's all pieced together.",
+            "It embraces convention over configuration, providing an experience on par with frameworks that excel at early stage development, such as Ruby on Rails.",
+            "The real benefit of Boot, however, is that it's just Spring. That means any direction the code takes, regardless of complexity, I know it's a safe bet.",
+            "I don't worry about my code scaling. Boot allows the developer to peel back the layers and customize when it's appropriate while keeping the conventions that just work.",
+            "So easy it is to switch container in #springboot.",
+            "Really loving Spring Boot, makes stand alone Spring apps easy.",
+            "I have two hours today to build an app from scratch. @springboot to the rescue!");
+
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong gzipped = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private volatile Duration delay = Duration.ZERO;
+    private volatile String cacheControl;
+    private volatile String vary;
+    private volatile double errorRate;
+    private volatile double slowRate;
+    private volatile Duration slowDelay = Duration.ZERO;
+
+    private StubQuoteServer(boolean h2c) {
+        server.setServerSocketFactory(new NoDelayServerSocketFactory());
+        if (h2c) {
+            server.setProtocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        }
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                // MockWebServer keeps every request for takeRequest(), drop one per request served
+                server.takeRequest(0, TimeUnit.SECONDS);
+                return respond(request);
+            }
+        });
+    }
+
+    /**
+     * Starts a stub on a free port.
+     *
+     * @param h2c whether to speak HTTP/2 with prior knowledge instead of HTTP/1.1
+     */
+    public static StubQuoteServer start(boolean h2c) throws IOException {
+        return start(0, h2c);
+    }
+
+    public static StubQuoteServer start(int port, boolean h2c) throws IOException {
+        StubQuoteServer stub = new StubQuoteServer(h2c);
+        stub.server.start(port);
+        return stub;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 8090;
+        boolean h2c = false;
+        double errorRate = 0;
+        double slowRate = 0;
+        Duration slowDelay = Duration.ofMillis(500);
+        for (String arg : args) {
+            if (arg.equals("h2c")) {
+                h2c = true;
+            } else if (arg.startsWith("--error-rate=")) {
+                errorRate = Double.parseDouble(arg.substring("--error-rate=".length()));
+            } else if (arg.startsWith("--slow-rate=")) {
+                slowRate = Double.parseDouble(arg.substring("--slow-rate=".length()));
+            } else if (arg.startsWith("--slow-delay=")) {
+                slowDelay = Duration.ofMillis(Long.parseLong(arg.substring("--slow-delay=".length())));
+            } else {
+                port = Integer.parseInt(arg);
+            }
+        }
+        StubQuoteServer stub = start(port, h2c);
+        stub.setFaults(errorRate, slowRate, slowDelay);
+        System.out.println("Serving quotes on " + stub.baseUrl());
+        Thread.currentThread().join();
+    }
+
+    public String baseUrl() {
+        String url = server.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+
+    /**
+     * Delays every response by {@code delay}.
+     */
+    public void setDelay(Duration delay) {
+        this.delay = delay;
+    }
+
+    /**
+     * Sends {@code cacheControl} as the Cache-Control of every quote, none if {@code null}.
+     */
+    public void setCacheControl(String cacheControl) {
+        this.cacheControl = cacheControl;
+    }
+
+    /**
+     * Sends {@code vary} as the Vary of every quote, none if {@code null}.
+     */
+    public void setVary(String vary) {
+        this.vary = vary;
+    }
+
+    /**
+     * Answers {@code errorRate} of the requests with a 503 and delays {@code slowRate} of them by
+     * {@code slowDelay}, on top of any delay set. The affected requests are spread evenly: with a
+     * rate of 0.02, one in fifty.
+     */
+    public void setFaults(double errorRate, double slowRate, Duration slowDelay) {
+        this.errorRate = errorRate;
+        this.slowRate = slowRate;
+        this.slowDelay = slowDelay;
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of connections that carried at least one request
+     */
+    public long connections() {
+        return connections.get();
+    }
+
+    public long gzipped() {
+        return gzipped.get();
+    }
+
+    /**
+     * @return the number of conditional requests answered with {@code 304 Not Modified}
+     */
+    public long notModified() {
+        return notModified.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        long n = requests.incrementAndGet();
+        if (request.getSequenceNumber() == 0) {
+            connections.incrementAndGet();
+        }
+        if (hits(n, errorRate)) {
+            return new MockResponse().setResponseCode(503);
+        }
+        long delayMillis = delay.toMillis() + (hits(n, slowRate) ? slowDelay.toMillis() : 0);
+        String path = request.getPath();
+        if (path.equals("/api") || path.matches("/api\\?count=\\d{1,9}")) {
+            int count = path.equals("/api") ? QUOTES.size() : Integer.parseInt(path.substring("/api?count=".length()));
+            StringBuilder feed = new StringBuilder("[");
+            for (int i = 1; i <= count; i++) {
+                feed.append(i == 1 ? "" : ",").append(quote(i, QUOTES.get((i - 1) % QUOTES.size())));
+            }
+            return body(request, cacheable(new MockResponse(), "\"feed-" + count + "\""), feed.append(']').toString());
+        }
+        int id;
+        if (path.equals("/api/random")) {
+            id = ThreadLocalRandom.current().nextInt(QUOTES.size()) + 1;
+        } else if (path.matches("/api/\\d{1,9}")) {
+            id = Integer.parseInt(path.substring("/api/".length()));
+        } else {
+            return new MockResponse().setResponseCode(404);
+        }
+        String body = id <= QUOTES.size()
+                ? quote(id)
+                : "{\"type\":\"success\",\"value\":{\"id\":" + id + ",\"quote\":\"None\"}}";
+        // Quotes never change, so the id makes a strong validator
+        String eTag = "\"" + id + "\"";
+        MockResponse response = cacheable(new MockResponse(), eTag)
+                .setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+        if (eTag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            notModified.incrementAndGet();
+            return response.setResponseCode(304);
+        }
+        return body(request, response, body);
+    }
+
+    private MockResponse cacheable(MockResponse response, String eTag) {
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        if (cacheControl != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        if (vary != null) {
+            response.setHeader(HttpHeaders.VARY, vary);
+        }
+        return response;
+    }
+
+    private MockResponse body(RecordedRequest request, MockResponse response, String body) {
+        response.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            gzipped.incrementAndGet();
+            return response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip").setBody(gzip(body));
+        }
+        return response.setBody(body);
+    }
+
+    private static boolean hits(long n, double rate) {
+        return (long) (n * rate) != (long) ((n - 1) * rate);
+    }
+
+    static String quote(int id) {
+        return quote(id, QUOTES.get(id - 1));
+    }
+
+    static String quote(long id, String quote) {
+        return "{\"type\":\"success\",\"value\":{\"id\":" + id + ",\"quote\":\""
+                + quote.replace("\"", "\\\"") + "\"}}";
+    }
+
+    /**
+     * Turns Nagle's algorithm off on the accepted connections, which otherwise holds the body back
+     * until the client acknowledges the headers, up to the 40 ms of a delayed ACK.
+     */
+    private static final class NoDelayServerSocketFactory extends ServerSocketFactory {
+
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new ServerSocket() {
+                @Override
+                public Socket accept() throws IOException {
+                    Socket socket = super.accept();
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                }
+            };
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) throws IOException {
+            return createServerSocket(port, 50, null);
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+            return createServerSocket(port, backlog, null);
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog, InetAddress address) throws IOException {
+            ServerSocket serverSocket = createServerSocket();
+            serverSocket.bind(new InetSocketAddress(address, port), backlog);
+            return serverSocket;
+        }
+    }
+
+    private static Buffer gzip(String body) {
+        Buffer buffer = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(buffer))) {
+            sink.writeUtf8(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.consumingservice.client;
+
+import com.example.consumingservice.Quote;
+import com.example.consumingservice.StubQuoteServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingClientHttpRequestFactoryTests {
+
+    private final QuoteClientProperties properties = new QuoteClientProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TestClock clock = new TestClock();
+    private StubQuoteServer stub;
+    private CachingClientHttpRequestFactory requestFactory;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = StubQuoteServer.start(false);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        requestFactory.destroy();
+        stub.close();
+    }
+
+    @Test
+    void servesFreshResponsesFromTheCache() {
+        stub.setCacheControl("max-age=60");
+        createRestTemplate();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(quote(1).getValue().getId()).isEqualTo(1);
+        }
+
+        assertThat(stub.requests()).isEqualTo(1);
+        assertThat(count("hit")).isEqualTo(2);
+        assertThat(meterRegistry.get("quote.cache.hit.ratio").gauge().value()).isEqualTo(2 / 3.0);
+    }
+
+    @Test
+    void servesStaleResponsesWhileRevalidating() {
+        stub.setCacheControl("max-age=1, stale-while-revalidate=60");
+        createRestTemplate();
+        quote(1);
+        clock.advance(Duration.ofSeconds(2));
+
+        assertThat(quote(1).getValue().getId()).isEqualTo(1);
+
+        // Revalidations run on the calling thread here
+        assertThat(count("stale")).isEqualTo(1);
+        assertThat(stub.notModified()).isEqualTo(1);
+        assertThat(meterRegistry.get("quote.cache.revalidation").tag("outcome", "not-modified").timer().count())
+                .isEqualTo(1);
+
+        quote(1);
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(stub.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void revalidatesBeforeAnsweringOnceTheStaleWindowIsOver() {
+        stub.setCacheControl("max-age=1, stale-while-revalidate=1");
+        createRestTemplate();
+        quote(2);
+        clock.advance(Duration.ofSeconds(3));
+
+        assertThat(quote(2).getValue().getId()).isEqualTo(2);
+
+        assertThat(count("miss")).isEqualTo(2);
+        assertThat(stub.notModified()).isEqualTo(1);
+    }
+
+    @Test
+    void revalidatesNoCacheResponsesEveryTime() {
+        stub.setCacheControl("no-cache");
+        createRestTemplate();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(quote(3).getValue().getId()).isEqualTo(3);
+        }
+
+        assertThat(stub.requests()).isEqualTo(3);
+        assertThat(stub.notModified()).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotStoreNoStoreResponses() {
+        stub.setCacheControl("no-store");
+        createRestTemplate();
+
+        quote(4);
+        quote(4);
+
+        assertThat(stub.requests()).isEqualTo(2);
+        assertThat(stub.notModified()).isZero();
+    }
+
+    @Test
+    void usesTheDefaultMaxAgeWithoutCacheControl() {
+        properties.getCache().setDefaultMaxAge(Duration.ofSeconds(10));
+        createRestTemplate();
+
+        quote(5);
+        clock.advance(Duration.ofSeconds(5));
+        quote(5);
+        clock.advance(Duration.ofSeconds(6));
+        quote(5);
+
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(stub.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void coalescesConcurrentMisses() throws Exception {
+        stub.setCacheControl("max-age=60");
+        stub.setDelay(Duration.ofMillis(300));
+        createRestTemplate();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Quote>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(() -> quote(6));
+            }
+            for (Future<Quote> quote : executor.invokeAll(calls)) {
+                assertThat(quote.get().getValue().getId()).isEqualTo(6);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(stub.requests()).isEqualTo(1);
+        assertThat(meterRegistry.get("quote.cache.coalesced").counter().count()).isEqualTo(7);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedResponses() {
+        stub.setCacheControl("max-age=60");
+        // Room for about three quotes with their headers
+        properties.getCache().setMaximumSize(DataSize.ofBytes(600));
+        createRestTemplate();
+
+        quote(9);
+        quote(10);
+        quote(11);
+        quote(9);
+        quote(2);
+        quote(9);
+        quote(10);
+
+        assertThat(meterRegistry.get("quote.cache.evictions").counter().count()).isGreaterThan(0);
+        assertThat(meterRegistry.get("quote.cache.size").gauge().value()).isLessThanOrEqualTo(600);
+        // 9 was used last before the evictions and stayed, 10 had to be fetched again
+        assertThat(count("hit")).isEqualTo(2);
+        assertThat(stub.requests()).isEqualTo(5);
+    }
+
+    @Test
+    void keysResponsesByTheRequestHeadersTheyVaryOn() {
+        stub.setCacheControl("max-age=60");
+        stub.setVary("Accept-Language");
+        createRestTemplate();
+
+        quote(7, HttpHeaders.ACCEPT_LANGUAGE, "en");
+        quote(7, HttpHeaders.ACCEPT_LANGUAGE, "fr");
+        quote(7, HttpHeaders.ACCEPT_LANGUAGE, "en");
+        quote(7, HttpHeaders.ACCEPT_LANGUAGE, "fr");
+
+        assertThat(stub.requests()).isEqualTo(2);
+        assertThat(count("hit")).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotShareVaryingResponsesBetweenCoalescedRequests() throws Exception {
+        stub.setCacheControl("max-age=60");
+        stub.setVary("Accept-Language");
+        stub.setDelay(Duration.ofMillis(300));
+        createRestTemplate();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Quote> english = executor.submit(() -> quote(8, HttpHeaders.ACCEPT_LANGUAGE, "en"));
+            Future<Quote> french = executor.submit(() -> quote(8, HttpHeaders.ACCEPT_LANGUAGE, "fr"));
+            assertThat(english.get().getValue().getId()).isEqualTo(8);
+            assertThat(french.get().getValue().getId()).isEqualTo(8);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(stub.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void neverStoresVaryStar() {
+        stub.setCacheControl("max-age=60");
+        stub.setVary("*");
+        createRestTemplate();
+
+        quote(12);
+        quote(12);
+
+        assertThat(stub.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void storesAuthorizedResponsesOnlyWhenPublic() {
+        stub.setCacheControl("max-age=60");
+        createRestTemplate();
+
+        quote(13, HttpHeaders.AUTHORIZATION, "Bearer alice");
+        quote(13, HttpHeaders.AUTHORIZATION, "Bearer alice");
+        assertThat(stub.requests()).isEqualTo(2);
+
+        stub.setCacheControl("public, max-age=60");
+        quote(14, HttpHeaders.AUTHORIZATION, "Bearer alice");
+        quote(14, HttpHeaders.AUTHORIZATION, "Bearer bob");
+        assertThat(stub.requests()).isEqualTo(3);
+    }
+
+    private void createRestTemplate() {
+        requestFactory = new CachingClientHttpRequestFactory(new PooledClientHttpRequestFactory(properties),
+                properties.getCache(), meterRegistry, clock, Runnable::run);
+        restTemplate = new RestTemplateBuilder()
+                .rootUri(stub.baseUrl())
+                .requestFactory(() -> requestFactory)
+                .build();
+    }
+
+    private Quote quote(int id) {
+        return restTemplate.getForObject("/api/" + id, Quote.class);
+    }
+
+    private Quote quote(int id, String header, String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(header, value);
+        return restTemplate.exchange("/api/" + id, HttpMethod.GET, new HttpEntity<>(headers), Quote.class).getBody();
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("quote.cache.requests").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.consumingservice.client;
+
+import com.example.consumingservice.Quote;
+import com.example.consumingservice.StubQuoteServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PooledClientHttpRequestFactoryTests {
+
+    private final QuoteClientProperties properties = new QuoteClientProperties();
+    private StubQuoteServer stub;
+    private PooledClientHttpRequestFactory requestFactory;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        requestFactory.destroy();
+        stub.close();
+    }
+
+    @Test
+    void reusesTheConnection() throws Exception {
+        RestTemplate restTemplate = restTemplate(false);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(restTemplate.getForObject("/api/random", Quote.class).getType()).isEqualTo("success");
+        }
+
+        assertThat(stub.requests()).isEqualTo(50);
+        assertThat(stub.connections()).isEqualTo(1);
+    }
+
+    @Test
+    void multiplexesConcurrentRequestsOverOneH2cConnection() throws Exception {
+        properties.setVersion(QuoteClientProperties.HttpVersion.H2C);
+        RestTemplate restTemplate = restTemplate(true);
+        stub.setDelay(Duration.ofMillis(100));
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Callable<Quote>> calls = new ArrayList<>();
+            for (int i = 1; i <= 16; i++) {
+                String path = "/api/" + (i % 10 + 1);
+                calls.add(() -> restTemplate.getForObject(path, Quote.class));
+            }
+            long start = System.nanoTime();
+            for (Future<Quote> quote : executor.invokeAll(calls)) {
+                assertThat(quote.get().getValue().getQuote()).isNotEmpty();
+            }
+            // One connection, and the requests did not wait for each other
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1000));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(stub.connections()).isEqualTo(1);
+    }
+
+    @Test
+    void unpacksGzipResponses() throws Exception {
+        RestTemplate restTemplate = restTemplate(false);
+
+        Quote quote = restTemplate.getForObject("/api/1", Quote.class);
+
+        assertThat(quote.getValue().getQuote()).startsWith("Working with Spring Boot");
+        assertThat(stub.gzipped()).isEqualTo(1);
+    }
+
+    @Test
+    void readsUncompressedResponsesWhenCompressionIsOff() throws Exception {
+        properties.setCompression(false);
+        RestTemplate restTemplate = restTemplate(false);
+
+        String body = restTemplate.getForObject("/api/2", String.class);
+
+        assertThat(body).startsWith("{\"type\":\"success\"");
+        assertThat(stub.gzipped()).isZero();
+    }
+
+    @Test
+    void timesOutSlowResponses() throws Exception {
+        properties.setReadTimeout(Duration.ofMillis(200));
+        RestTemplate restTemplate = restTemplate(false);
+        stub.setDelay(Duration.ofSeconds(2));
+
+        assertThatThrownBy(() -> restTemplate.getForObject("/api/random", Quote.class))
+                .isInstanceOf(ResourceAccessException.class);
+    }
+
+    private RestTemplate restTemplate(boolean h2c) throws Exception {
+        stub = StubQuoteServer.start(h2c);
+        requestFactory = new PooledClientHttpRequestFactory(properties);
+        return new RestTemplateBuilder()
+                .rootUri(stub.baseUrl())
+                .requestFactory(() -> requestFactory)
+                .build();
+    }
+}
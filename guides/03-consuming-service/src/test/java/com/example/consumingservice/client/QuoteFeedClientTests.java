@@ -0,0 +1,119 @@
+package com.example.consumingservice.client;
+
+import com.example.consumingservice.GeneratedQuoteFeed;
+import com.example.consumingservice.Quote;
+import com.example.consumingservice.StubQuoteServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.RestClientException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuoteFeedClientTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StubQuoteServer stub;
+    private CachingClientHttpRequestFactory requestFactory;
+    private QuoteFeedClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = StubQuoteServer.start(false);
+        QuoteClientProperties properties = new QuoteClientProperties();
+        requestFactory = new CachingClientHttpRequestFactory(new PooledClientHttpRequestFactory(properties),
+                properties.getCache(), meterRegistry);
+        client = new QuoteFeedClient(new RestTemplateBuilder()
+                .rootUri(stub.baseUrl())
+                .requestFactory(() -> requestFactory)
+                .build(), objectMapper);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        requestFactory.destroy();
+        stub.close();
+    }
+
+    @Test
+    void readsEveryQuoteOfTheFeedInOrder() {
+        List<Long> ids = new ArrayList<>();
+
+        long count = client.forEach("/api?count=5000", quote -> ids.add(quote.getValue().getId()));
+
+        assertThat(count).isEqualTo(5000);
+        assertThat(ids).hasSize(5000).isSorted().startsWith(1L).endsWith(5000L);
+    }
+
+    @Test
+    void streamsCacheableFeedsPastTheCache() {
+        stub.setCacheControl("max-age=60");
+
+        assertThat(client.forEach("/api?count=5000", quote -> {
+        })).isEqualTo(5000);
+        assertThat(client.forEach("/api?count=5000", quote -> {
+        })).isEqualTo(5000);
+
+        assertThat(stub.requests()).isEqualTo(2);
+        assertThat(meterRegistry.get("quote.cache.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void handsOverBatches() {
+        List<Integer> sizes = new ArrayList<>();
+
+        long count = client.forEachBatch("/api?count=2500", 1000, batch -> sizes.add(batch.size()));
+
+        assertThat(count).isEqualTo(2500);
+        assertThat(sizes).containsExactly(1000, 1000, 500);
+    }
+
+    @Test
+    void treatsASingleQuoteAsAFeedOfOne() {
+        List<Quote> quotes = new ArrayList<>();
+
+        assertThat(client.forEach("/api/3", quotes::add)).isEqualTo(1);
+        assertThat(quotes).extracting(quote -> quote.getValue().getId()).containsExactly(3L);
+    }
+
+    @Test
+    void reportsMalformedFeeds() {
+        assertThatThrownBy(() -> read("[{\"type\":\"success\"}, 42]"))
+                .hasMessageContaining("Expected a quote but got VALUE_NUMBER_INT");
+        assertThatThrownBy(() -> read("\"quotes\""))
+                .hasMessageContaining("Expected an array of quotes");
+    }
+
+    @Test
+    void failsOnErrorResponses() {
+        assertThatThrownBy(() -> client.forEach("/unknown", quote -> {
+        })).isInstanceOf(RestClientException.class);
+    }
+
+    @Test
+    void readsLargeFeeds() throws Exception {
+        AtomicLong count = new AtomicLong();
+
+        QuoteFeedClient.read(new GeneratedQuoteFeed(64 * 1024 * 1024), objectMapper.readerFor(Quote.class),
+                quote -> count.incrementAndGet());
+
+        assertThat(count.get()).isGreaterThan(400_000);
+    }
+
+    private long read(String json) throws Exception {
+        return QuoteFeedClient.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                objectMapper.readerFor(Quote.class), quote -> {
+                });
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.consumingservice.client;
+
+import com.example.consumingservice.Quote;
+import com.example.consumingservice.StubQuoteServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientClientHttpRequestFactoryTests {
+
+    private final QuoteClientProperties properties = new QuoteClientProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TestClock clock = new TestClock();
+    private StubQuoteServer stub;
+    private PooledClientHttpRequestFactory pooledRequestFactory;
+    private ResilientClientHttpRequestFactory requestFactory;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = StubQuoteServer.start(false);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        requestFactory.destroy();
+        stub.close();
+    }
+
+    /**
+     * Compares wall clock percentiles, so it runs with {@code ./gradlew loadTest} rather than with the unit tests.
+     */
+    @Test
+    @Tag("load")
+    void hedgingCutsTheTailLatency() throws Exception {
+        // One request in twenty-five is slow
+        stub.setFaults(0, 0.04, Duration.ofMillis(300));
+
+        createRestTemplate();
+        long unhedged = p99(200);
+        requestFactory.destroy();
+
+        properties.getHedging().setEnabled(true);
+        createRestTemplate();
+        long hedged = p99(200);
+
+        System.out.printf("p99 unhedged %d ms, hedged %d ms%n", unhedged, hedged);
+        assertThat(unhedged).isGreaterThanOrEqualTo(300);
+        assertThat(hedged).isLessThan(150);
+        double fired = meterRegistry.get("quote.client.hedges").tag("result", "fired").counter().count();
+        assertThat(fired).isGreaterThan(0).isLessThanOrEqualTo(200 * properties.getHedging().getMaxRatio());
+        assertThat(meterRegistry.get("quote.client.hedges").tag("result", "won").counter().count()).isGreaterThan(0);
+        // The slow calls that lost to their hedge were closed when they came in
+        Thread.sleep(400);
+        assertThat(pooledRequestFactory.idleConnectionCount()).isEqualTo(pooledRequestFactory.connectionCount());
+    }
+
+    @Test
+    void closesTheResponsesOfAnInterruptedCall() throws Exception {
+        properties.getHedging().setEnabled(true);
+        createRestTemplate();
+        for (int i = 0; i < 20; i++) {
+            quote(1);
+        }
+        stub.setDelay(Duration.ofMillis(300));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Quote> quote = executor.submit(() -> quote(1));
+            Thread.sleep(100);
+            quote.cancel(true);
+            Thread.sleep(500);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(meterRegistry.get("quote.client.hedges").tag("result", "fired").counter().count()).isEqualTo(1);
+        assertThat(stub.requests()).isEqualTo(22);
+        assertThat(pooledRequestFactory.idleConnectionCount()).isEqualTo(pooledRequestFactory.connectionCount());
+    }
+
+    @Test
+    void opensTheCircuitOnFailuresAndClosesItOnceCallsSucceedAgain() {
+        properties.getCircuitBreaker().setSlidingWindowSize(10);
+        properties.getCircuitBreaker().setMinimumCalls(10);
+        properties.getCircuitBreaker().setHalfOpenCalls(2);
+        stub.setFaults(1, 0, Duration.ZERO);
+        createRestTemplate();
+
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> quote(1)).isInstanceOf(HttpServerErrorException.class);
+        }
+        assertThat(state("open")).isEqualTo(1);
+        assertThatThrownBy(() -> quote(1))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasCauseInstanceOf(CallRejectedException.class);
+        assertThat(stub.requests()).isEqualTo(10);
+        assertThat(meterRegistry.get("quote.client.rejected").tag("reason", "circuit-open").counter().count())
+                .isEqualTo(1);
+
+        stub.setFaults(0, 0, Duration.ZERO);
+        clock.advance(properties.getCircuitBreaker().getOpenDuration());
+        assertThat(quote(1).getValue().getId()).isEqualTo(1);
+        assertThat(state("half_open")).isEqualTo(1);
+        assertThat(quote(1).getValue().getId()).isEqualTo(1);
+        assertThat(state("closed")).isEqualTo(1);
+        assertThat(stub.requests()).isEqualTo(12);
+    }
+
+    @Test
+    void ignoresOutcomesOfCallsAdmittedBeforeTheCircuitChanged() {
+        properties.getCircuitBreaker().setSlidingWindowSize(10);
+        properties.getCircuitBreaker().setMinimumCalls(10);
+        properties.getCircuitBreaker().setHalfOpenCalls(1);
+        createRestTemplate();
+        SlidingWindowCircuitBreaker circuitBreaker = new SlidingWindowCircuitBreaker(properties.getCircuitBreaker(),
+                clock);
+
+        long slow = circuitBreaker.tryAcquire();
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+        }
+        assertThat(circuitBreaker.state()).isEqualTo(SlidingWindowCircuitBreaker.State.OPEN);
+        clock.advance(properties.getCircuitBreaker().getOpenDuration());
+        long trial = circuitBreaker.tryAcquire();
+        assertThat(circuitBreaker.state()).isEqualTo(SlidingWindowCircuitBreaker.State.HALF_OPEN);
+
+        // The call let through while closed is no trial, its success must not close the circuit
+        circuitBreaker.onSuccess(slow);
+        assertThat(circuitBreaker.state()).isEqualTo(SlidingWindowCircuitBreaker.State.HALF_OPEN);
+        circuitBreaker.onSuccess(trial);
+        assertThat(circuitBreaker.state()).isEqualTo(SlidingWindowCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void rejectsCallsBeyondTheBulkhead() throws Exception {
+        properties.getBulkhead().setMaxConcurrentCalls(2);
+        stub.setDelay(Duration.ofMillis(300));
+        createRestTemplate();
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        int rejected = 0;
+        try {
+            List<Callable<Quote>> calls = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                calls.add(() -> quote(7));
+            }
+            for (Future<Quote> quote : executor.invokeAll(calls)) {
+                try {
+                    assertThat(quote.get().getValue().getId()).isEqualTo(7);
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).hasCauseInstanceOf(CallRejectedException.class);
+                    rejected++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(rejected).isEqualTo(4);
+        assertThat(stub.requests()).isEqualTo(2);
+        assertThat(meterRegistry.get("quote.client.rejected").tag("reason", "bulkhead-full").counter().count())
+                .isEqualTo(4);
+        // Both permits came back with their responses
+        assertThat(quote(7).getValue().getId()).isEqualTo(7);
+    }
+
+    @Test
+    void hedgesOnlyWithAFreeBulkheadPermit() {
+        properties.getBulkhead().setMaxConcurrentCalls(1);
+        properties.getHedging().setEnabled(true);
+        createRestTemplate();
+        for (int i = 0; i < 20; i++) {
+            quote(1);
+        }
+        stub.setDelay(Duration.ofMillis(100));
+
+        assertThat(quote(1).getValue().getId()).isEqualTo(1);
+
+        // The only permit is held by the first call, so no second one is sent
+        assertThat(meterRegistry.get("quote.client.hedges").tag("result", "fired").counter().count()).isZero();
+        assertThat(stub.requests()).isEqualTo(21);
+        assertThat(quote(1).getValue().getId()).isEqualTo(1);
+    }
+
+    private void createRestTemplate() {
+        pooledRequestFactory = new PooledClientHttpRequestFactory(properties);
+        requestFactory = new ResilientClientHttpRequestFactory(pooledRequestFactory, properties, meterRegistry, clock);
+        restTemplate = new RestTemplateBuilder()
+                .rootUri(stub.baseUrl())
+                .requestFactory(() -> requestFactory)
+                .build();
+    }
+
+    private Quote quote(int id) {
+        return restTemplate.getForObject("/api/" + id, Quote.class);
+    }
+
+    /**
+     * @return the 99th percentile in milliseconds of {@code count} sequential calls
+     */
+    private long p99(int count) {
+        long[] millis = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            quote(i % 11 + 1);
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        return millis[(int) Math.ceil(count * 0.99) - 1];
+    }
+
+    private double state(String state) {
+        return meterRegistry.get("quote.client.circuit.state").tag("state", state).gauge().value();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the application's kinds of statements through a Hikari pool over an in-memory H2
+ * database, with and without a {@link StatementCachingDataSource} under the pool. H2 keeps the
+ * last parsed queries of every session itself, {@code QUERY_CACHE_SIZE} of them; with none, every
+ * prepare parses the SQL again, as a database across the network would at least pay a round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementCacheBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    @Param({"8", "0"})
+    private int queryCacheSize;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setUp() {
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(null, LogLevel.WARN);
+        DataSource driver = new DriverManagerDataSource(
+                "jdbc:h2:mem:customers;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=" + queryCacheSize);
+        dataSource = new HikariDataSource();
+        dataSource.setDataSource(cached
+                ? new StatementCachingDataSource(driver, new StatementCacheProperties(), new SimpleMeterRegistry())
+                : driver);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE customers IF EXISTS");
+        jdbcTemplate.execute("CREATE TABLE customers(id SERIAL PRIMARY KEY, first_name VARCHAR(255), last_name VARCHAR(255))");
+        List<Object[]> names = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            names.add(new Object[] { "First" + i % 1000, "Last" + i });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers(first_name, last_name) VALUES (?,?)", names);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public String findById() {
+        return jdbcTemplate.queryForObject("SELECT first_name FROM customers WHERE id = ?", String.class,
+                ThreadLocalRandom.current().nextInt(CUSTOMERS) + 1);
+    }
+
+    @Benchmark
+    public int insert() {
+        return jdbcTemplate.update("INSERT INTO customers(first_name, last_name) VALUES (?,?)", "Josh", "Long");
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.load;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Loads a file of {@code rows} customers into an in-memory H2 database, the way the application
+ * used to, reading every line into a list for one {@code batchUpdate}, and with
+ * {@link CustomerBulkLoader}, one batch at a time or several in parallel. Rows per second are
+ * {@code rows} divided by the time reported.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BulkLoadBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    @Param({"batch-update", "loader-serial", "loader-parallel"})
+    private String loader;
+
+    private Path file;
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private CustomerBulkLoader customerBulkLoader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(null, LogLevel.WARN);
+        file = Files.createTempFile("customers", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < rows; i++) {
+                writer.write("First" + i % 1000 + " Last" + i);
+                writer.newLine();
+            }
+        }
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:customers;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        CustomerLoadProperties properties = new CustomerLoadProperties();
+        properties.setParallelism(loader.equals("loader-parallel") ? 4 : 1);
+        customerBulkLoader = new CustomerBulkLoader(dataSource, properties);
+    }
+
+    @Setup(Level.Invocation)
+    public void createTable() {
+        jdbcTemplate.execute("DROP TABLE customers IF EXISTS");
+        jdbcTemplate.execute("CREATE TABLE customers(id SERIAL, first_name VARCHAR(255), last_name VARCHAR(255))");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataSource.close();
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public long load() throws IOException {
+        if (loader.equals("batch-update")) {
+            List<Object[]> splitUpNames = Files.readAllLines(file).stream()
+                    .map(name -> name.split(" "))
+                    .collect(Collectors.toList());
+            return jdbcTemplate.batchUpdate("INSERT INTO customers(first_name, last_name) VALUES (?,?)",
+                    splitUpNames).length;
+        }
+        return customerBulkLoader.load(file).getRows();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.query;
+
+import com.example.accessingrelationaldatausingjdbcwithspring.Customer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads 100k customers from an in-memory H2 database, mapping every row by column label as the
+ * application used to, by column index with {@link CustomerRowMapper}, and into
+ * {@link CustomerColumns} batches. Run with {@code -prof gc} to compare the allocation per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerMappingBenchmark {
+
+    private static final String SQL = "SELECT id, first_name, last_name FROM customers";
+
+    private static final RowMapper<Customer> BY_LABEL = (rs, rowNum) ->
+            new Customer(rs.getLong("id"), rs.getString("first_name"), rs.getString("last_name"));
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE customers(id SERIAL, first_name VARCHAR(255), last_name VARCHAR(255))");
+        List<Object[]> names = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            names.add(new Object[] { "First" + i % 1000, "Last" + i });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers(first_name, last_name) VALUES (?,?)", names);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public void labels(Blackhole blackhole) {
+        int[] row = new int[1];
+        jdbcTemplate.query(SQL, rs -> {
+            blackhole.consume(BY_LABEL.mapRow(rs, row[0]++));
+        });
+    }
+
+    @Benchmark
+    public void indexes(Blackhole blackhole) {
+        CustomerRowMapper byIndex = new CustomerRowMapper();
+        int[] row = new int[1];
+        jdbcTemplate.query(SQL, rs -> {
+            blackhole.consume(byIndex.mapRow(rs, row[0]++));
+        });
+    }
+
+    @Benchmark
+    public void columnar(Blackhole blackhole) {
+        CustomerRowMapper byIndex = new CustomerRowMapper();
+        CustomerColumns batch = new CustomerColumns(1024);
+        jdbcTemplate.query(SQL, rs -> {
+            byIndex.mapRow(rs, batch);
+            if (batch.isFull()) {
+                blackhole.consume(batch.ids());
+                batch.clear();
+            }
+        });
+        blackhole.consume(batch.size());
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.query;
+
+import com.example.accessingrelationaldatausingjdbcwithspring.Customer;
+import com.example.accessingrelationaldatausingjdbcwithspring.load.CustomerBulkLoader;
+import com.example.accessingrelationaldatausingjdbcwithspring.load.CustomerLoadProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads {@code rows} customers named Josh from an H2 database on disk, into a list the way the
+ * application used to and as a stream with {@link CustomerQueries}. After each read it prints the
+ * peak heap while the read ran, summed over the heap pools.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CustomerQueryBenchmark {
+
+    @Param({"100000", "1000000", "5000000"})
+    private int rows;
+
+    private Path directory;
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private CustomerQueries customerQueries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(null, LogLevel.WARN);
+        directory = Files.createTempDirectory("customers");
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:file:" + directory.resolve("customers") + ";LAZY_QUERY_EXECUTION=1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE customers(id SERIAL, first_name VARCHAR(255), last_name VARCHAR(255))");
+        CustomerBulkLoader loader = new CustomerBulkLoader(dataSource, new CustomerLoadProperties());
+        for (int loaded = 0; loaded < rows; loaded += 100_000) {
+            StringWriter names = new StringWriter();
+            for (int i = loaded; i < Math.min(rows, loaded + 100_000); i++) {
+                names.append("Josh Last").append(Integer.toString(i)).append('\n');
+            }
+            loader.load(new StringReader(names.toString()));
+        }
+        customerQueries = new CustomerQueries(dataSource, new CustomerQueryProperties());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataSource.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public List<Customer> list(Heap heap) {
+        return jdbcTemplate.query("SELECT id, first_name, last_name FROM customers WHERE first_name = ?",
+                new CustomerRowMapper(), "Josh");
+    }
+
+    @Benchmark
+    public long stream(Heap heap, Blackhole blackhole) {
+        return customerQueries.forEachByFirstName("Josh", blackhole::consume);
+    }
+
+    @State(Scope.Thread)
+    public static class Heap {
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void record() {
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            System.out.printf("%npeak heap %.0f MB%n", peak / 1048576.0);
+        }
+    }
+}
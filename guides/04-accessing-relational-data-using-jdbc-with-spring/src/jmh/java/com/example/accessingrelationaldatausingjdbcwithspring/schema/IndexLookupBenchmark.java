@@ -0,0 +1,110 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.schema;
+
+import com.example.accessingrelationaldatausingjdbcwithspring.Customer;
+import com.example.accessingrelationaldatausingjdbcwithspring.load.CustomerBulkLoader;
+import com.example.accessingrelationaldatausingjdbcwithspring.load.CustomerLoadProperties;
+import com.example.accessingrelationaldatausingjdbcwithspring.query.CustomerQueries;
+import com.example.accessingrelationaldatausingjdbcwithspring.query.CustomerQueryProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Looks customers up among {@code rows} of them in an H2 database on disk, with a cache of 256 MB,
+ * with and without the secondary indexes of {@link CustomerSchema}. There are 100 customers per
+ * first name at 10M rows, and a last name prefix one digit short of a whole name matches 11 of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class IndexLookupBenchmark {
+
+    private static final int FIRST_NAMES = 100_000;
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private Path directory;
+    private HikariDataSource dataSource;
+    private CustomerQueries customerQueries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(null, LogLevel.WARN);
+        directory = Files.createTempDirectory("customers");
+        dataSource = new HikariDataSource();
+        // The MVStore of H2 1.4.200 loses a chunk of its file building an index over 10M rows, and
+        // the page store locks the whole table per insert, so the loader threads wait their turn
+        dataSource.setJdbcUrl("jdbc:h2:file:" + directory.resolve("customers")
+                + ";MV_STORE=FALSE;CACHE_SIZE=262144;LOCK_TIMEOUT=60000");
+        CustomerSchemaProperties properties = new CustomerSchemaProperties();
+        properties.setIndexes(indexed);
+        CustomerSchema schema = new CustomerSchema(dataSource, properties);
+        schema.createTable();
+        CustomerBulkLoader loader = new CustomerBulkLoader(dataSource, new CustomerLoadProperties());
+        for (int loaded = 0; loaded < rows; loaded += 100_000) {
+            StringWriter names = new StringWriter();
+            for (int i = loaded; i < Math.min(rows, loaded + 100_000); i++) {
+                names.append("First").append(Integer.toString(i % FIRST_NAMES))
+                        .append(" Last").append(Integer.toString(i)).append('\n');
+            }
+            loader.load(new StringReader(names.toString()));
+        }
+        schema.createIndexes();
+        customerQueries = new CustomerQueries(dataSource, new CustomerQueryProperties());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataSource.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public long byFirstName() {
+        try (Stream<Customer> customers = customerQueries.streamByFirstName(randomFirstName())) {
+            return customers.count();
+        }
+    }
+
+    @Benchmark
+    public long byFirstNameIgnoreCase() {
+        try (Stream<Customer> customers = customerQueries.streamByFirstNameIgnoreCase(randomFirstName().toLowerCase())) {
+            return customers.count();
+        }
+    }
+
+    @Benchmark
+    public long firstPageByFirstName() {
+        return customerQueries.findByFirstName(randomFirstName()).getContent().size();
+    }
+
+    @Benchmark
+    public long byLastNamePrefixIgnoreCase() {
+        String prefix = "last" + ThreadLocalRandom.current().nextInt(rows / 100, rows / 10);
+        try (Stream<Customer> customers = customerQueries.streamByLastNameStartingWith(prefix, true)) {
+            return customers.count();
+        }
+    }
+
+    private static String randomFirstName() {
+        return "First" + ThreadLocalRandom.current().nextInt(FIRST_NAMES);
+    }
+}
@@ -1,16 +1,19 @@
 package com.example.accessingrelationaldatausingjdbcwithspring;
 
+import com.example.accessingrelationaldatausingjdbcwithspring.load.CustomerBulkLoader;
+import com.example.accessingrelationaldatausingjdbcwithspring.load.CustomerLoadProperties;
+import com.example.accessingrelationaldatausingjdbcwithspring.query.CustomerQueries;
+import com.example.accessingrelationaldatausingjdbcwithspring.schema.CustomerSchema;
+import com.example.accessingrelationaldatausingjdbcwithspring.schema.QueryPlanAdvisor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.jdbc.core.JdbcTemplate;
 
-import java.util.Arrays;
+import java.io.StringReader;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @SpringBootApplication
 public class AccessingRelationalDataUsingJdbcWithSpringApplication implements CommandLineRunner {
@@ -18,32 +21,42 @@ public class AccessingRelationalDataUsingJdbcWithSpringApplication implements Co
     private static final Logger logger = LoggerFactory.getLogger(AccessingRelationalDataUsingJdbcWithSpringApplication.class);
 
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private CustomerSchema customerSchema;
+
+    @Autowired
+    private CustomerBulkLoader customerBulkLoader;
+
+    @Autowired
+    private CustomerLoadProperties customerLoadProperties;
+
+    @Autowired
+    private CustomerQueries customerQueries;
+
+    @Autowired
+    private QueryPlanAdvisor queryPlanAdvisor;
 
     @Override
     public void run(String... args) throws Exception {
         logger.info("Creating tables...");
 
 
-        jdbcTemplate.execute("DROP TABLE customers IF EXISTS");
-        jdbcTemplate.execute("CREATE TABLE customers(" +
-                "id SERIAL, first_name VARCHAR(255), last_name VARCHAR(255))");
-        // Split up the array of whole names into an array of first/last names
-        List<Object[]> splitUpNames = Arrays.asList("John Woo", "Jeff Dean", "Josh Bloch", "Josh Long").stream()
-                .map(name -> name.split(" "))
-                .collect(Collectors.toList());
-
-        // Use a Java 8 stream to print out each tuple of the list
-        splitUpNames.forEach(name -> logger.info(String.format("Inserting customer record for %s %s", name[0], name[1])));
-
-        // Uses JdbcTemplate's batchUpdate operation to bulk load data
-        jdbcTemplate.batchUpdate("INSERT INTO customers(first_name, last_name) VALUES (?,?)", splitUpNames);
+        customerSchema.createTable();
+        if (customerLoadProperties.getFile() != null) {
+            // Streams the file in batches, so it may be as large as the database allows
+            logger.info("Loading customer records from " + customerLoadProperties.getFile());
+            customerBulkLoader.load(customerLoadProperties.getFile());
+        } else {
+            List<String> names = List.of("John Woo", "Jeff Dean", "Josh Bloch", "Josh Long");
+            names.forEach(name -> logger.info(String.format("Inserting customer record for %s", name)));
+            customerBulkLoader.load(new StringReader(String.join("\n", names)));
+        }
+        // Indexing once the rows are in is quicker than maintaining the indexes row by row
+        customerSchema.createIndexes();
+        queryPlanAdvisor.explainAll();
 
         logger.info("Querying for customer records where first_name = 'Josh':");
-        jdbcTemplate.query(
-                "SELECT id, first_name, last_name FROM customers WHERE first_name = ?", new Object[] { "Josh" },
-                (rs, rowNum) -> new Customer(rs.getLong("id"), rs.getString("first_name"), rs.getString("last_name"))
-        ).forEach(customer -> logger.info(customer.toString()));
+        // Streams the rows from the cursor rather than collecting them into a list first
+        customerQueries.forEachByFirstName("Josh", customer -> logger.info(customer.toString()));
     }
 
     public static void main(String[] args) {
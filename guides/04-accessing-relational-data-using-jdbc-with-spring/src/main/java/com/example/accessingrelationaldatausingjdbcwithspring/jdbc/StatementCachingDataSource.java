@@ -0,0 +1,499 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.jdbc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps the prepared statements of every connection open, up to {@code size} of them in least
+ * recently used order, and hands them out again when the same SQL is prepared on the same
+ * connection. Closing a statement puts it back, its parameters cleared, its result sets closed
+ * and its settings reset; a statement given a setting that cannot be read back, such as
+ * {@code closeOnCompletion()} or a cursor name, is closed instead. Closing the connection closes
+ * them for good.
+ * <p>
+ * The cache lives as long as the physical connection, so this data source belongs under the
+ * connection pool, which then closes statements rather than connections at the end of each use.
+ * <p>
+ * Whether cached or not, every statement execution is timed per SQL fingerprint, and the slow
+ * ones are logged: prepared and callable statements by the SQL they were prepared with, plain
+ * statements by the SQL passed to each {@code execute}, and a batch of them by its first SQL.
+ * {@code unwrap} hands out the proxies rather than the objects they wrap, for every interface
+ * they implement, so that callers cannot get past the cache.
+ */
+public class StatementCachingDataSource extends DelegatingDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementCachingDataSource.class);
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private static final Set<String> SETTINGS_METHODS = Set.of("setFetchSize", "setMaxRows", "setQueryTimeout",
+            "setFetchDirection", "setMaxFieldSize", "setPoolable");
+
+    /**
+     * Settings without a getter to read them back with, or none every driver implements.
+     */
+    private static final Set<String> UNRESETTABLE_METHODS = Set.of("setCursorName", "setEscapeProcessing",
+            "setLargeMaxRows", "closeOnCompletion");
+
+    private final int size;
+    private final StatementMetrics metrics;
+
+    public StatementCachingDataSource(DataSource targetDataSource, StatementCacheProperties properties,
+                                      MeterRegistry meterRegistry) {
+        super(targetDataSource);
+        Assert.isTrue(properties.getSize() >= 0, "jdbc.statement-cache.size must not be negative");
+        this.size = properties.getSize();
+        this.metrics = new StatementMetrics(meterRegistry, properties.getSlowQueryThreshold(),
+                properties.getMaxTaggedStatements());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        CachingConnection handler = new CachingConnection(connection);
+        handler.proxy = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Connection.class }, handler);
+        return handler.proxy;
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private final class CachingConnection implements InvocationHandler {
+
+        private final Connection connection;
+
+        /**
+         * Idle statements, those in use are taken out until they are closed.
+         */
+        private final LinkedHashMap<StatementKey, PreparedStatement> idle =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                        if (size() > size) {
+                            closeQuietly(eldest.getValue());
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+
+        private Connection proxy;
+
+        private CachingConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    StatementKey key = StatementKey.of(args);
+                    if (key != null) {
+                        return prepare(key, method, args);
+                    }
+                    return handOut(null, (PreparedStatement) StatementCachingDataSource.invoke(method, connection, args),
+                            metrics.forSql((String) args[0]));
+                case "createStatement":
+                case "prepareCall":
+                    Statement statement = (Statement) StatementCachingDataSource.invoke(method, connection, args);
+                    return Proxy.newProxyInstance(getClass().getClassLoader(),
+                            new Class<?>[] { method.getReturnType() },
+                            new MeteredStatement(this, statement, method.getName().equals("prepareCall")
+                                    ? metrics.forSql((String) args[0]) : null));
+                case "unwrap":
+                case "isWrapperFor":
+                    return unwrap(proxy, method, args, connection);
+                case "close":
+                    closeIdle();
+                    connection.close();
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Statement caching " + connection;
+                default:
+                    return StatementCachingDataSource.invoke(method, connection, args);
+            }
+        }
+
+        private PreparedStatement prepare(StatementKey key, Method method, Object[] args) throws Throwable {
+            StatementMetrics.Meters meters = metrics.forSql(key.sql);
+            PreparedStatement statement;
+            synchronized (idle) {
+                statement = idle.remove(key);
+            }
+            if (statement != null && !statement.isClosed()) {
+                meters.hit();
+            } else {
+                long start = System.nanoTime();
+                statement = (PreparedStatement) StatementCachingDataSource.invoke(method, connection, args);
+                meters.prepared(System.nanoTime() - start);
+            }
+            return handOut(key, statement, meters);
+        }
+
+        private PreparedStatement handOut(StatementKey key, PreparedStatement statement, StatementMetrics.Meters meters) {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, new CachedStatement(this, key, statement, meters));
+        }
+
+        /**
+         * @return whether the statement was kept for later
+         */
+        private boolean release(StatementKey key, PreparedStatement statement) throws SQLException {
+            if (key == null || size == 0 || connection.isClosed()) {
+                return false;
+            }
+            PreparedStatement replaced;
+            synchronized (idle) {
+                replaced = idle.put(key, statement);
+            }
+            if (replaced != null && replaced != statement) {
+                // The same SQL was prepared twice while the first was in use
+                closeQuietly(replaced);
+            }
+            return true;
+        }
+
+        private void closeIdle() {
+            synchronized (idle) {
+                idle.values().forEach(StatementCachingDataSource::closeQuietly);
+                idle.clear();
+            }
+        }
+    }
+
+    /**
+     * A statement handed out to one user at a time; closing it returns it to the cache.
+     */
+    private static final class CachedStatement implements InvocationHandler {
+
+        private final CachingConnection connection;
+        private final StatementKey key;
+        private final PreparedStatement statement;
+        private final StatementMetrics.Meters meters;
+        private final List<ResultSet> resultSets = new ArrayList<>(1);
+        private boolean batched;
+        private boolean unresettable;
+        private boolean closed;
+
+        /**
+         * The settings the statement was handed out with, read only once one of them is changed.
+         */
+        private Settings settings;
+
+        private CachedStatement(CachingConnection connection, StatementKey key, PreparedStatement statement,
+                                StatementMetrics.Meters meters) {
+            this.connection = connection;
+            this.key = key;
+            this.statement = statement;
+            this.meters = meters;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                close();
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return closed || statement.isClosed();
+            }
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            if (name.equals("getConnection")) {
+                return connection.proxy;
+            }
+            if (name.equals("unwrap") || name.equals("isWrapperFor")) {
+                return unwrap(proxy, method, args, statement);
+            }
+            if (SETTINGS_METHODS.contains(name) && settings == null) {
+                settings = new Settings(statement);
+            } else if (UNRESETTABLE_METHODS.contains(name)) {
+                unresettable = true;
+            } else if (name.equals("addBatch")) {
+                batched = true;
+            } else if (EXECUTE_METHODS.contains(name)) {
+                long start = System.nanoTime();
+                try {
+                    return track(StatementCachingDataSource.invoke(method, statement, args));
+                } finally {
+                    meters.executed(System.nanoTime() - start);
+                }
+            }
+            // getResultSet() and getGeneratedKeys() too
+            return track(StatementCachingDataSource.invoke(method, statement, args));
+        }
+
+        private Object track(Object result) {
+            if (result instanceof ResultSet) {
+                resultSets.add((ResultSet) result);
+            }
+            return result;
+        }
+
+        private void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean kept = false;
+            try {
+                for (ResultSet resultSet : resultSets) {
+                    resultSet.close();
+                }
+                if (key != null && !unresettable && !statement.isClosed()) {
+                    statement.clearParameters();
+                    if (batched) {
+                        statement.clearBatch();
+                    }
+                    if (settings != null) {
+                        settings.applyTo(statement);
+                    }
+                    kept = connection.release(key, statement);
+                }
+            } finally {
+                if (!kept) {
+                    statement.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * A statement that is not cached, from {@code createStatement} or {@code prepareCall}, timed
+     * like the cached ones.
+     */
+    private final class MeteredStatement implements InvocationHandler {
+
+        private final CachingConnection connection;
+        private final Statement statement;
+
+        /**
+         * The meters of the SQL a callable statement was prepared with, {@code null} for a plain
+         * statement, which gets its SQL with every execution.
+         */
+        private final StatementMetrics.Meters prepared;
+
+        /**
+         * The meters of the first SQL added to the batch of a plain statement.
+         */
+        private StatementMetrics.Meters batch;
+
+        private MeteredStatement(CachingConnection connection, Statement statement, StatementMetrics.Meters prepared) {
+            this.connection = connection;
+            this.statement = statement;
+            this.prepared = prepared;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getConnection":
+                    return connection.proxy;
+                case "unwrap":
+                case "isWrapperFor":
+                    return unwrap(proxy, method, args, statement);
+                case "addBatch":
+                    if (prepared == null && batch == null && args != null && args[0] instanceof String) {
+                        batch = metrics.forSql((String) args[0]);
+                    }
+                    break;
+                case "clearBatch":
+                    batch = null;
+                    break;
+                default:
+                    if (EXECUTE_METHODS.contains(name)) {
+                        return execute(method, args);
+                    }
+            }
+            return StatementCachingDataSource.invoke(method, statement, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            StatementMetrics.Meters meters;
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                meters = metrics.forSql((String) args[0]);
+            } else if (prepared == null) {
+                // executeBatch() empties the batch, whether it succeeds or not
+                meters = batch;
+                batch = null;
+            } else {
+                meters = prepared;
+            }
+            if (meters == null) {
+                return StatementCachingDataSource.invoke(method, statement, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return StatementCachingDataSource.invoke(method, statement, args);
+            } finally {
+                meters.executed(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Answers {@code unwrap} and {@code isWrapperFor} with {@code proxy} itself for the interfaces
+     * it implements, and asks {@code target} for any other, such as a driver's own.
+     */
+    private static Object unwrap(Object proxy, Method method, Object[] args, Object target) throws Throwable {
+        Class<?> iface = (Class<?>) args[0];
+        if (iface.isInstance(proxy)) {
+            return method.getName().equals("unwrap") ? proxy : Boolean.TRUE;
+        }
+        return invoke(method, target, args);
+    }
+
+    /**
+     * The settings of a statement that can be read and set again.
+     */
+    private static final class Settings {
+
+        private final int fetchSize;
+        private final int maxRows;
+        private final int queryTimeout;
+        private final int fetchDirection;
+        private final int maxFieldSize;
+        private final boolean poolable;
+
+        private Settings(Statement statement) throws SQLException {
+            this.fetchSize = statement.getFetchSize();
+            this.maxRows = statement.getMaxRows();
+            this.queryTimeout = statement.getQueryTimeout();
+            this.fetchDirection = statement.getFetchDirection();
+            this.maxFieldSize = statement.getMaxFieldSize();
+            this.poolable = statement.isPoolable();
+        }
+
+        private void applyTo(Statement statement) throws SQLException {
+            statement.setFetchSize(fetchSize);
+            statement.setMaxRows(maxRows);
+            statement.setQueryTimeout(queryTimeout);
+            statement.setFetchDirection(fetchDirection);
+            statement.setMaxFieldSize(maxFieldSize);
+            statement.setPoolable(poolable);
+        }
+    }
+
+    /**
+     * The SQL and the options a statement was prepared with, for the overloads taking no column list.
+     */
+    private static final class StatementKey {
+
+        private final String sql;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+        private final int resultSetHoldability;
+        private final int autoGeneratedKeys;
+
+        private StatementKey(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability,
+                             int autoGeneratedKeys) {
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.resultSetHoldability = resultSetHoldability;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        /**
+         * @return the key of {@code prepareStatement(args)}, {@code null} for the overloads taking
+         * column indexes or names, which are not cached
+         */
+        static StatementKey of(Object[] args) {
+            String sql = (String) args[0];
+            switch (args.length) {
+                case 1:
+                    return new StatementKey(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, -1,
+                            Statement.NO_GENERATED_KEYS);
+                case 2:
+                    return args[1] instanceof Integer
+                            ? new StatementKey(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, -1,
+                            (Integer) args[1])
+                            : null;
+                case 3:
+                    return new StatementKey(sql, (Integer) args[1], (Integer) args[2], -1, Statement.NO_GENERATED_KEYS);
+                default:
+                    return new StatementKey(sql, (Integer) args[1], (Integer) args[2], (Integer) args[3],
+                            Statement.NO_GENERATED_KEYS);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StatementKey)) {
+                return false;
+            }
+            StatementKey other = (StatementKey) o;
+            return resultSetType == other.resultSetType && resultSetConcurrency == other.resultSetConcurrency
+                    && resultSetHoldability == other.resultSetHoldability
+                    && autoGeneratedKeys == other.autoGeneratedKeys && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, resultSetType, resultSetConcurrency, resultSetHoldability, autoGeneratedKeys);
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.debug("Could not close a cached statement", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.jdbc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The meters of the statements run through a {@link StatementCachingDataSource}, tagged with the
+ * fingerprint of their SQL: lower case, whitespace collapsed, literals replaced by {@code ?}.
+ * Only the first {@code maxTagged} fingerprints get a tag of their own, so that SQL built from
+ * values the fingerprint misses, such as {@code IN} lists of varying length, cannot grow the
+ * registry without end; the others are counted under {@code sql=other}.
+ */
+class StatementMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementMetrics.class);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * SQL strings whose meters are remembered, more are looked up in the registry every time.
+     */
+    private static final int MAX_REMEMBERED = 1024;
+
+    static final String OTHER = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final long slowQueryNanos;
+    private final int maxTagged;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+    private final Set<String> tagged = ConcurrentHashMap.newKeySet();
+
+    StatementMetrics(MeterRegistry meterRegistry, Duration slowQueryThreshold, int maxTagged) {
+        Assert.isTrue(maxTagged >= 0, "jdbc.statement-cache.max-tagged-statements must not be negative");
+        this.meterRegistry = meterRegistry;
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+        this.maxTagged = maxTagged;
+    }
+
+    Meters forSql(String sql) {
+        Meters found = meters.get(sql);
+        if (found == null) {
+            String fingerprint = fingerprint(sql);
+            found = new Meters(fingerprint, tag(fingerprint));
+            if (meters.size() < MAX_REMEMBERED) {
+                meters.putIfAbsent(sql, found);
+            }
+        }
+        return found;
+    }
+
+    private String tag(String fingerprint) {
+        if (tagged.contains(fingerprint)) {
+            return fingerprint;
+        }
+        synchronized (tagged) {
+            if (tagged.size() < maxTagged) {
+                tagged.add(fingerprint);
+                return fingerprint;
+            }
+            return tagged.contains(fingerprint) ? fingerprint : OTHER;
+        }
+    }
+
+    static String fingerprint(String sql) {
+        String fingerprint = STRING_LITERAL.matcher(sql).replaceAll("?");
+        fingerprint = NUMBER_LITERAL.matcher(fingerprint).replaceAll("?");
+        return WHITESPACE.matcher(fingerprint).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    final class Meters {
+
+        private final String fingerprint;
+        private final Counter hits;
+        private final Counter misses;
+        private final Timer prepare;
+        private final Timer execute;
+
+        private Meters(String fingerprint, String tag) {
+            this.fingerprint = fingerprint;
+            this.hits = meterRegistry.counter("jdbc.statement.cache", "sql", tag, "result", "hit");
+            this.misses = meterRegistry.counter("jdbc.statement.cache", "sql", tag, "result", "miss");
+            this.prepare = Timer.builder("jdbc.statement.prepare")
+                    .tag("sql", tag)
+                    .register(meterRegistry);
+            this.execute = Timer.builder("jdbc.statement.execute")
+                    .tag("sql", tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        void hit() {
+            hits.increment();
+        }
+
+        void prepared(long nanos) {
+            misses.increment();
+            prepare.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        void executed(long nanos) {
+            execute.record(nanos, TimeUnit.NANOSECONDS);
+            if (nanos >= slowQueryNanos) {
+                logger.warn("Slow statement took {} ms: {}", TimeUnit.NANOSECONDS.toMillis(nanos), fingerprint);
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.load;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads customers from "first last" lines read one at a time, so that files of any size load in
+ * the memory of a few batches. Batches are inserted by {@code parallelism} threads, each over a
+ * connection of its own and in a transaction of its own, while the next ones are being read;
+ * reading waits when all of them are busy and two batches are queued per thread.
+ * <p>
+ * Where the database understands it, rows are inserted {@code rowsPerStatement} at a time with
+ * multi-row {@code VALUES}, as MySQL's {@code rewriteBatchedStatements} would, which saves a
+ * round trip and a statement execution per row.
+ * <p>
+ * Batches that were committed stay committed when a later one fails: the load is not atomic.
+ */
+public class CustomerBulkLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerBulkLoader.class);
+
+    private static final Set<String> MULTI_ROW_VALUES = Set.of("H2", "HSQL Database Engine", "MySQL", "MariaDB",
+            "PostgreSQL", "Microsoft SQL Server", "Apache Derby");
+
+    private final DataSource dataSource;
+    private final CustomerLoadProperties properties;
+    private final SQLExceptionTranslator exceptionTranslator;
+    private volatile Integer rowsPerStatement;
+
+    public CustomerBulkLoader(DataSource dataSource, CustomerLoadProperties properties) {
+        Assert.isTrue(properties.getBatchSize() > 0, "customers.load.batch-size must be positive");
+        Assert.isTrue(properties.getParallelism() > 0, "customers.load.parallelism must be positive");
+        Assert.isTrue(properties.getRowsPerStatement() > 0, "customers.load.rows-per-statement must be positive");
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.exceptionTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+    }
+
+    public LoadResult load(Path file) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file, e);
+        }
+    }
+
+    /**
+     * Loads every line of {@code input} but blank ones. The reader is not closed.
+     *
+     * @throws IllegalArgumentException if a line is not a first and a last name
+     */
+    public LoadResult load(Reader input) {
+        long start = System.nanoTime();
+        int batchSize = properties.getBatchSize();
+        int parallelism = properties.getParallelism();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                new CustomizableThreadFactory("customer-load-"));
+        Semaphore queued = new Semaphore(parallelism * 3);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        LongAdder rows = new LongAdder();
+        int batches = 0;
+        try {
+            BufferedReader reader = input instanceof BufferedReader
+                    ? (BufferedReader) input : new BufferedReader(input, 64 * 1024);
+            Batch batch = new Batch(batchSize);
+            long lineNumber = 0;
+            String line;
+            while (failure.get() == null && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                int space = line.indexOf(' ');
+                if (space <= 0 || space == line.length() - 1) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " is not a first and a last name: " + line);
+                }
+                batch.add(line.substring(0, space), line.substring(space + 1));
+                if (batch.size == batchSize) {
+                    submit(batch, executor, queued, rows, failure);
+                    batches++;
+                    batch = new Batch(batchSize);
+                }
+            }
+            if (batch.size > 0 && failure.get() == null) {
+                submit(batch, executor, queued, rows, failure);
+                batches++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read customers", e);
+        } finally {
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        LoadResult result = new LoadResult(rows.sum(), batches, Duration.ofNanos(System.nanoTime() - start));
+        logger.info("Loaded customers: {}", result);
+        return result;
+    }
+
+    private void submit(Batch batch, ExecutorService executor, Semaphore queued, LongAdder rows,
+                        AtomicReference<RuntimeException> failure) {
+        try {
+            queued.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading customers", e);
+        }
+        executor.execute(() -> {
+            try {
+                if (failure.get() == null) {
+                    insert(batch);
+                    rows.add(batch.size);
+                }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                queued.release();
+            }
+        });
+    }
+
+    private void insert(Batch batch) {
+        int rowsPerStatement = rowsPerStatement();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int multiRows = rowsPerStatement > 1 ? batch.size - batch.size % rowsPerStatement : 0;
+                if (multiRows > 0) {
+                    insert(connection, batch, 0, multiRows, rowsPerStatement);
+                }
+                if (multiRows < batch.size) {
+                    insert(connection, batch, multiRows, batch.size, 1);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            DataAccessException translated = exceptionTranslator.translate("Loading customers", insertSql(rowsPerStatement), e);
+            throw translated != null ? translated : new IllegalStateException(e);
+        }
+    }
+
+    private static void insert(Connection connection, Batch batch, int from, int to, int rowsPerStatement)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(insertSql(rowsPerStatement))) {
+            for (int row = from; row < to; row += rowsPerStatement) {
+                int parameter = 1;
+                for (int i = row; i < row + rowsPerStatement; i++) {
+                    statement.setString(parameter++, batch.firstNames[i]);
+                    statement.setString(parameter++, batch.lastNames[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO customers(first_name, last_name) VALUES (?,?)");
+        for (int i = 1; i < rows; i++) {
+            sql.append(",(?,?)");
+        }
+        return sql.toString();
+    }
+
+    private int rowsPerStatement() {
+        Integer rows = rowsPerStatement;
+        if (rows == null) {
+            rows = 1;
+            try (Connection connection = dataSource.getConnection()) {
+                String product = connection.getMetaData().getDatabaseProductName();
+                if (MULTI_ROW_VALUES.contains(product)) {
+                    rows = properties.getRowsPerStatement();
+                } else {
+                    logger.info("Inserting customers one row at a time, {} may not support multi-row VALUES", product);
+                }
+            } catch (SQLException e) {
+                logger.warn("Could not tell whether the database supports multi-row VALUES", e);
+            }
+            rowsPerStatement = rows;
+        }
+        return rows;
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("Waiting for the last batches of customers");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Batch {
+
+        private final String[] firstNames;
+        private final String[] lastNames;
+        private int size;
+
+        private Batch(int capacity) {
+            this.firstNames = new String[capacity];
+            this.lastNames = new String[capacity];
+        }
+
+        private void add(String firstName, String lastName) {
+            firstNames[size] = firstName;
+            lastNames[size] = lastName;
+            size++;
+        }
+    }
+}
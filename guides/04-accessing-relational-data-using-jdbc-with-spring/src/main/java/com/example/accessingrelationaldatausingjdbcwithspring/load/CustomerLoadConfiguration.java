@@ -0,0 +1,17 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.load;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(CustomerLoadProperties.class)
+public class CustomerLoadConfiguration {
+
+    @Bean
+    public CustomerBulkLoader customerBulkLoader(DataSource dataSource, CustomerLoadProperties properties) {
+        return new CustomerBulkLoader(dataSource, properties);
+    }
+}
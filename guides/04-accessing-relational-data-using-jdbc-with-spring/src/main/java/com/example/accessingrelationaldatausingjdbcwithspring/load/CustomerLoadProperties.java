@@ -0,0 +1,62 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.load;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@ConfigurationProperties("customers.load")
+public class CustomerLoadProperties {
+
+    /**
+     * File of customers to load at startup instead of the sample ones, one "first last" name a line.
+     */
+    private Path file;
+
+    /**
+     * Rows committed together, in one transaction on one connection.
+     */
+    private int batchSize = 5000;
+
+    /**
+     * Batches inserted at once, each over a connection of its own.
+     */
+    private int parallelism = 4;
+
+    /**
+     * Rows per multi-row INSERT where the database supports {@code VALUES (?,?),(?,?)}, 1 to insert
+     * them one at a time in a JDBC batch.
+     */
+    private int rowsPerStatement = 100;
+
+    public Path getFile() {
+        return file;
+    }
+
+    public void setFile(Path file) {
+        this.file = file;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getRowsPerStatement() {
+        return rowsPerStatement;
+    }
+
+    public void setRowsPerStatement(int rowsPerStatement) {
+        this.rowsPerStatement = rowsPerStatement;
+    }
+}
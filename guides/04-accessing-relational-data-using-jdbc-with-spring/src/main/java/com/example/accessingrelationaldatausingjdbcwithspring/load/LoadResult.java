@@ -0,0 +1,39 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.load;
+
+import java.time.Duration;
+
+public class LoadResult {
+
+    private final long rows;
+    private final int batches;
+    private final Duration elapsed;
+
+    LoadResult(long rows, int batches, Duration elapsed) {
+        this.rows = rows;
+        this.batches = batches;
+        this.elapsed = elapsed;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public long getRowsPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return (long) (rows * 1e9 / nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows in %d batches in %d ms, %d rows/s",
+                rows, batches, elapsed.toMillis(), getRowsPerSecond());
+    }
+}
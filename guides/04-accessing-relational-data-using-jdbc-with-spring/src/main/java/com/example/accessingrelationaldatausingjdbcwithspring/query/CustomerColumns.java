@@ -0,0 +1,85 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.query;
+
+/**
+ * A batch of customers stored column by column, for consumers that aggregate over a column and
+ * have no use for a {@link com.example.accessingrelationaldatausingjdbcwithspring.Customer} per row.
+ * Reading a batch allocates only the names the driver returns.
+ */
+public class CustomerColumns {
+
+    private final long[] ids;
+    private final String[] firstNames;
+    private final String[] lastNames;
+    private int size;
+
+    public CustomerColumns(int capacity) {
+        this.ids = new long[capacity];
+        this.firstNames = new String[capacity];
+        this.lastNames = new String[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    public long getId(int row) {
+        checkRow(row);
+        return ids[row];
+    }
+
+    public String getFirstName(int row) {
+        checkRow(row);
+        return firstNames[row];
+    }
+
+    public String getLastName(int row) {
+        checkRow(row);
+        return lastNames[row];
+    }
+
+    /**
+     * @return the ids column, valid up to {@link #size()}
+     */
+    public long[] ids() {
+        return ids;
+    }
+
+    /**
+     * @return the first names column, valid up to {@link #size()}
+     */
+    public String[] firstNames() {
+        return firstNames;
+    }
+
+    /**
+     * @return the last names column, valid up to {@link #size()}
+     */
+    public String[] lastNames() {
+        return lastNames;
+    }
+
+    void add(long id, String firstName, String lastName) {
+        ids[size] = id;
+        firstNames[size] = firstName;
+        lastNames[size] = lastName;
+        size++;
+    }
+
+    boolean isFull() {
+        return size == ids.length;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+}
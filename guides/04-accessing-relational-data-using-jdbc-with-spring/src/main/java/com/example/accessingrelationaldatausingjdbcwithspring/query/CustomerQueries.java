@@ -0,0 +1,197 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.query;
+
+import com.example.accessingrelationaldatausingjdbcwithspring.Customer;
+import com.example.accessingrelationaldatausingjdbcwithspring.schema.QueryPlanAdvisor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads customers without holding them all in memory: as a stream over a forward-only, read-only
+ * cursor that the driver fills {@code customers.query.fetch-size} rows at a time, or page by page
+ * after the last id read.
+ * <p>
+ * PostgreSQL only honours the fetch size inside a transaction; elsewhere it reads the whole
+ * result at once. H2 keeps large results on disk unless {@code LAZY_QUERY_EXECUTION=1}.
+ */
+public class CustomerQueries {
+
+    private static final String BY_FIRST_NAME =
+            "SELECT id, first_name, last_name FROM customers WHERE first_name = ?";
+
+    private static final String PAGE_BY_FIRST_NAME =
+            "SELECT id, first_name, last_name FROM customers WHERE first_name = ? AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String BY_FIRST_NAME_IGNORE_CASE =
+            "SELECT id, first_name, last_name FROM customers WHERE first_name_ci = UPPER(?)";
+
+    private static final String BY_LAST_NAME_PREFIX =
+            "SELECT id, first_name, last_name FROM customers WHERE last_name LIKE ? ESCAPE '\\'";
+
+    private static final String BY_LAST_NAME_PREFIX_IGNORE_CASE =
+            "SELECT id, first_name, last_name FROM customers WHERE last_name_ci LIKE UPPER(?) ESCAPE '\\'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerQueryProperties properties;
+
+    public CustomerQueries(DataSource dataSource, CustomerQueryProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getFetchSize());
+        this.properties = properties;
+    }
+
+    /**
+     * Streams the customers named {@code firstName}. The stream holds a connection, unless it runs
+     * in a transaction, until it is closed, which happens by itself once it has been read to the
+     * end or failed; close it in a try-with-resources block if it may be left before that.
+     */
+    public Stream<Customer> streamByFirstName(String firstName) {
+        return stream(cursor(BY_FIRST_NAME, firstName));
+    }
+
+    /**
+     * Streams the customers named {@code firstName} whatever its case, on the same terms as
+     * {@link #streamByFirstName(String)}.
+     */
+    public Stream<Customer> streamByFirstNameIgnoreCase(String firstName) {
+        return stream(cursor(BY_FIRST_NAME_IGNORE_CASE, firstName));
+    }
+
+    /**
+     * Streams the customers whose last name starts with {@code prefix}, on the same terms as
+     * {@link #streamByFirstName(String)}.
+     */
+    public Stream<Customer> streamByLastNameStartingWith(String prefix, boolean ignoreCase) {
+        return stream(cursor(ignoreCase ? BY_LAST_NAME_PREFIX_IGNORE_CASE : BY_LAST_NAME_PREFIX, likePrefix(prefix)));
+    }
+
+    /**
+     * Hands every customer named {@code firstName} to {@code action} and releases the cursor
+     * whatever happens.
+     *
+     * @return the number of customers read
+     */
+    public long forEachByFirstName(String firstName, Consumer<? super Customer> action) {
+        try (Stream<Customer> customers = streamByFirstName(firstName)) {
+            long[] count = new long[1];
+            customers.forEach(customer -> {
+                action.accept(customer);
+                count[0]++;
+            });
+            return count[0];
+        }
+    }
+
+    /**
+     * Hands the customers named {@code firstName} to {@code action} in columns of up to
+     * {@code batchSize} rows. The same {@link CustomerColumns} is refilled for every batch, so
+     * {@code action} must copy what it keeps.
+     *
+     * @return the number of customers read
+     */
+    public long forEachBatchByFirstName(String firstName, int batchSize, Consumer<? super CustomerColumns> action) {
+        Assert.isTrue(batchSize > 0, "batchSize must be positive");
+        Long count = jdbcTemplate.query(cursor(BY_FIRST_NAME, firstName), rs -> {
+            CustomerRowMapper rowMapper = new CustomerRowMapper();
+            CustomerColumns batch = new CustomerColumns(batchSize);
+            long rows = 0;
+            while (rs.next()) {
+                rowMapper.mapRow(rs, batch);
+                rows++;
+                if (batch.isFull()) {
+                    action.accept(batch);
+                    batch.clear();
+                }
+            }
+            if (batch.size() > 0) {
+                action.accept(batch);
+            }
+            return rows;
+        });
+        return count != null ? count : 0;
+    }
+
+    public KeysetPage<Customer> findByFirstName(String firstName) {
+        return findByFirstName(firstName, null, properties.getPageSize());
+    }
+
+    /**
+     * @param afterId the {@link KeysetPage#getNextKey() next key} of the previous page, {@code null}
+     * for the first one
+     */
+    public KeysetPage<Customer> findByFirstName(String firstName, Long afterId, int size) {
+        Assert.isTrue(size > 0, "size must be positive");
+        // One row more than asked tells whether there is a next page
+        List<Customer> customers = jdbcTemplate.query(PAGE_BY_FIRST_NAME, new CustomerRowMapper(),
+                firstName, afterId != null ? afterId : Long.MIN_VALUE, size + 1);
+        return KeysetPage.of(customers, size, Customer::getId);
+    }
+
+    /**
+     * Registers the queries above for {@code advisor} to EXPLAIN.
+     */
+    public void registerQueries(QueryPlanAdvisor advisor) {
+        advisor.register("customers by first name", BY_FIRST_NAME, "Josh");
+        advisor.register("customers by first name, keyset page", PAGE_BY_FIRST_NAME, "Josh", 0L, 100);
+        advisor.register("customers by first name ignoring case", BY_FIRST_NAME_IGNORE_CASE, "josh");
+        advisor.register("customers by last name prefix", BY_LAST_NAME_PREFIX, "Lo%");
+        advisor.register("customers by last name prefix ignoring case", BY_LAST_NAME_PREFIX_IGNORE_CASE, "lo%");
+    }
+
+    static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private static PreparedStatementCreator cursor(String sql, Object... args) {
+        return connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return statement;
+        };
+    }
+
+    private Stream<Customer> stream(PreparedStatementCreator statement) {
+        Stream<Customer> rows = jdbcTemplate.queryForStream(statement, new CustomerRowMapper());
+        return StreamSupport.stream(new ClosingSpliterator<>(rows), false).onClose(rows::close);
+    }
+
+    /**
+     * Closes the stream it reads from once that is exhausted or fails.
+     */
+    private static final class ClosingSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final Stream<T> stream;
+        private final Spliterator<T> spliterator;
+
+        private ClosingSpliterator(Stream<T> stream) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.stream = stream;
+            this.spliterator = stream.spliterator();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            boolean advanced = false;
+            try {
+                advanced = spliterator.tryAdvance(action);
+                return advanced;
+            } finally {
+                if (!advanced) {
+                    stream.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.query;
+
+import com.example.accessingrelationaldatausingjdbcwithspring.schema.QueryPlanAdvisor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(CustomerQueryProperties.class)
+public class CustomerQueryConfiguration {
+
+    @Bean
+    public CustomerQueries customerQueries(DataSource dataSource, CustomerQueryProperties properties,
+                                           QueryPlanAdvisor queryPlanAdvisor) {
+        CustomerQueries customerQueries = new CustomerQueries(dataSource, properties);
+        customerQueries.registerQueries(queryPlanAdvisor);
+        return customerQueries;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.query;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("customers.query")
+public class CustomerQueryProperties {
+
+    /**
+     * Rows the driver fetches per round trip while a stream of customers is read.
+     */
+    private int fetchSize = 1000;
+
+    /**
+     * Customers per page when none is given.
+     */
+    private int pageSize = 100;
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+}
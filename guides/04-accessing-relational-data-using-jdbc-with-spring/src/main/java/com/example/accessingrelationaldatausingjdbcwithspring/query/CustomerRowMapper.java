@@ -0,0 +1,43 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.query;
+
+import com.example.accessingrelationaldatausingjdbcwithspring.Customer;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps {@code id}, {@code first_name} and {@code last_name} to a {@link Customer} by column index.
+ * The indexes are looked up by label on the first row rather than for every row, so the columns
+ * may come in any order and among others.
+ * <p>
+ * Holds the indexes of one query: create one per query, and do not share it between threads.
+ */
+public class CustomerRowMapper implements RowMapper<Customer> {
+
+    private int id;
+    private int firstName;
+    private int lastName;
+
+    @Override
+    public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
+        resolve(rs);
+        return new Customer(rs.getLong(id), rs.getString(firstName), rs.getString(lastName));
+    }
+
+    /**
+     * Reads the current row into {@code batch}, which must have room left.
+     */
+    void mapRow(ResultSet rs, CustomerColumns batch) throws SQLException {
+        resolve(rs);
+        batch.add(rs.getLong(id), rs.getString(firstName), rs.getString(lastName));
+    }
+
+    private void resolve(ResultSet rs) throws SQLException {
+        if (id == 0) {
+            firstName = rs.findColumn("first_name");
+            lastName = rs.findColumn("last_name");
+            id = rs.findColumn("id");
+        }
+    }
+}
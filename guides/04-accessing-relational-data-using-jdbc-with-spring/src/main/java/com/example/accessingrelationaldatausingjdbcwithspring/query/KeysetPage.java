@@ -0,0 +1,47 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.query;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * A page of rows read after a key rather than at an offset, so that reading page n costs the
+ * same as reading the first one, and rows inserted meanwhile do not shift the pages.
+ *
+ * @param <T> the type of the rows
+ */
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final Long nextKey;
+
+    KeysetPage(List<T> content, Long nextKey) {
+        this.content = content;
+        this.nextKey = nextKey;
+    }
+
+    /**
+     * @param rows up to {@code size + 1} rows in key order, the extra one telling that a next page exists
+     */
+    static <T> KeysetPage<T> of(List<T> rows, int size, ToLongFunction<? super T> key) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new KeysetPage<>(content, key.applyAsLong(content.get(size - 1)));
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public boolean hasNext() {
+        return nextKey != null;
+    }
+
+    /**
+     * @return the key to read the next page after, {@code null} on the last page
+     */
+    public Long getNextKey() {
+        return nextKey;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.schema;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Creates the customers table and its secondary indexes. The id, a {@code BIGSERIAL}, is the
+ * primary key.
+ * <p>
+ * H2 cannot index an expression, so the upper case names the case-insensitive lookups compare are
+ * computed columns, indexed like the others. An index on a name also serves {@code LIKE 'prefix%'},
+ * which H2 turns into a range of the index. The first name index ends with the id so that pages
+ * of customers after a given id are a range of it too.
+ * <p>
+ * The indexes are meant to be created after the bulk load of a new table: maintaining them row by
+ * row is slower than building them once.
+ */
+public class CustomerSchema {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSchema.class);
+
+    public static final List<SecondaryIndex> INDEXES = List.of(
+            new SecondaryIndex("customers_first_name", "customers", "first_name", "id"),
+            new SecondaryIndex("customers_first_name_ci", "customers", "first_name_ci"),
+            new SecondaryIndex("customers_last_name", "customers", "last_name"),
+            new SecondaryIndex("customers_last_name_ci", "customers", "last_name_ci"));
+
+    private static final String CREATE_TABLE = "CREATE TABLE customers(" +
+            "id BIGSERIAL PRIMARY KEY, first_name VARCHAR(255), last_name VARCHAR(255), " +
+            "first_name_ci VARCHAR(255) AS UPPER(first_name), last_name_ci VARCHAR(255) AS UPPER(last_name))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerSchemaProperties properties;
+
+    public CustomerSchema(DataSource dataSource, CustomerSchemaProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.properties = properties;
+    }
+
+    /**
+     * Drops the customers table if there is one and creates it again, without its indexes.
+     */
+    public void createTable() {
+        jdbcTemplate.execute("DROP TABLE customers IF EXISTS");
+        jdbcTemplate.execute(CREATE_TABLE);
+    }
+
+    /**
+     * Creates the indexes missing, unless {@code customers.schema.indexes} is off.
+     */
+    public void createIndexes() {
+        if (!properties.isIndexes()) {
+            logger.info("Not indexing the customers table");
+            return;
+        }
+        for (SecondaryIndex index : INDEXES) {
+            long start = System.nanoTime();
+            jdbcTemplate.execute(index.getCreateSql());
+            logger.info("Created index {} in {} ms", index, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
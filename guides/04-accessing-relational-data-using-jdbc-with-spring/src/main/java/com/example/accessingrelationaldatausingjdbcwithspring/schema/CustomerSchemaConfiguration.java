@@ -0,0 +1,22 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.schema;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(CustomerSchemaProperties.class)
+public class CustomerSchemaConfiguration {
+
+    @Bean
+    public CustomerSchema customerSchema(DataSource dataSource, CustomerSchemaProperties properties) {
+        return new CustomerSchema(dataSource, properties);
+    }
+
+    @Bean
+    public QueryPlanAdvisor queryPlanAdvisor(DataSource dataSource, CustomerSchemaProperties properties) {
+        return new QueryPlanAdvisor(dataSource, properties);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.schema;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("customers.schema")
+public class CustomerSchemaProperties {
+
+    /**
+     * Whether to create the secondary indexes of the customers table.
+     */
+    private boolean indexes = true;
+
+    /**
+     * Whether to EXPLAIN the registered queries at startup and warn about those scanning a whole table.
+     */
+    private boolean explain = true;
+
+    /**
+     * Whether a query scanning a whole table fails the startup rather than logs a warning.
+     */
+    private boolean failOnFullScan = false;
+
+    public boolean isIndexes() {
+        return indexes;
+    }
+
+    public void setIndexes(boolean indexes) {
+        this.indexes = indexes;
+    }
+
+    public boolean isExplain() {
+        return explain;
+    }
+
+    public void setExplain(boolean explain) {
+        this.explain = explain;
+    }
+
+    public boolean isFailOnFullScan() {
+        return failOnFullScan;
+    }
+
+    public void setFailOnFullScan(boolean failOnFullScan) {
+        this.failOnFullScan = failOnFullScan;
+    }
+}
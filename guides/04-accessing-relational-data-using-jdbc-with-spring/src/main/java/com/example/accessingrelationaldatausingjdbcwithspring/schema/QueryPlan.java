@@ -0,0 +1,40 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.schema;
+
+public class QueryPlan {
+
+    private final String name;
+    private final String sql;
+    private final String plan;
+    private final boolean fullScan;
+
+    QueryPlan(String name, String sql, String plan, boolean fullScan) {
+        this.name = name;
+        this.sql = sql;
+        this.plan = plan;
+        this.fullScan = fullScan;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return what EXPLAIN printed, on one line
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    public boolean isFullScan() {
+        return fullScan;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + plan;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.schema;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * EXPLAINs the queries the application runs most, registered by name, and tells which of them
+ * would read a whole table: {@code tableScan} in the plans of H2, {@code Seq Scan} in those of
+ * PostgreSQL. Other databases word it differently, their plans are logged but never flagged.
+ */
+public class QueryPlanAdvisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanAdvisor.class);
+
+    private static final Pattern FULL_SCAN = Pattern.compile("\\.tableScan\\b|\\bSeq Scan\\b");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerSchemaProperties properties;
+    private final Map<String, Query> queries = new ConcurrentHashMap<>();
+
+    public QueryPlanAdvisor(DataSource dataSource, CustomerSchemaProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.properties = properties;
+    }
+
+    /**
+     * @param args values for the parameters of {@code sql}, for the databases that plan with them;
+     * H2 plans without
+     */
+    public void register(String name, String sql, Object... args) {
+        queries.put(name, new Query(sql, args));
+    }
+
+    /**
+     * EXPLAINs every registered query, logging a warning for those scanning a whole table, unless
+     * {@code customers.schema.explain} is off.
+     *
+     * @return the plans, in the order of the names
+     * @throws IllegalStateException if a query scans a whole table and
+     * {@code customers.schema.fail-on-full-scan} is on
+     */
+    public List<QueryPlan> explainAll() {
+        List<QueryPlan> plans = new ArrayList<>();
+        if (!properties.isExplain()) {
+            return plans;
+        }
+        queries.keySet().stream().sorted().forEach(name -> plans.add(explain(name, queries.get(name))));
+        List<String> fullScans = new ArrayList<>();
+        for (QueryPlan plan : plans) {
+            if (plan.isFullScan()) {
+                logger.warn("Query {} reads the whole table, it may lack an index: {}", plan.getName(), plan.getPlan());
+                fullScans.add(plan.getName());
+            } else {
+                logger.info("Query {}: {}", plan.getName(), plan.getPlan());
+            }
+        }
+        if (!fullScans.isEmpty() && properties.isFailOnFullScan()) {
+            throw new IllegalStateException("Queries reading a whole table: " + fullScans);
+        }
+        return plans;
+    }
+
+    private QueryPlan explain(String name, Query query) {
+        List<String> lines = jdbcTemplate.queryForList("EXPLAIN " + query.sql, String.class, query.args);
+        String plan = String.join(" ", lines).replaceAll("\\s+", " ").trim();
+        return new QueryPlan(name, query.sql, plan, FULL_SCAN.matcher(plan).find());
+    }
+
+    private static final class Query {
+
+        private final String sql;
+        private final Object[] args;
+
+        private Query(String sql, Object[] args) {
+            this.sql = sql;
+            this.args = args;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.schema;
+
+import java.util.List;
+
+/**
+ * An index on a table besides its primary key, created if it does not exist yet.
+ */
+public class SecondaryIndex {
+
+    private final String name;
+    private final String table;
+    private final List<String> columns;
+
+    public SecondaryIndex(String name, String table, String... columns) {
+        this.name = name;
+        this.table = table;
+        this.columns = List.of(columns);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public String getCreateSql() {
+        return "CREATE INDEX IF NOT EXISTS " + name + " ON " + table + "(" + String.join(", ", columns) + ")";
+    }
+
+    @Override
+    public String toString() {
+        return name + " ON " + table + columns;
+    }
+}
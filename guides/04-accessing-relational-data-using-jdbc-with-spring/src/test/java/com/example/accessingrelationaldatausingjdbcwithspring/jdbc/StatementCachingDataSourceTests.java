@@ -0,0 +1,250 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(OutputCaptureExtension.class)
+class StatementCachingDataSourceTests {
+
+    private static final String BY_FIRST_NAME = "SELECT COUNT(*) FROM customers WHERE first_name = ?";
+
+    private final StatementCacheProperties properties = new StatementCacheProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Test
+    void reusesStatementsAcrossUsesOfAPooledConnection() {
+        createDataSource();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(jdbcTemplate.queryForObject(BY_FIRST_NAME, Long.class, "Josh")).isEqualTo(2);
+        }
+
+        assertThat(count("hit")).isEqualTo(2);
+        assertThat(count("miss")).isEqualTo(1);
+        assertThat(meterRegistry.get("jdbc.statement.execute").tag("sql", fingerprint(BY_FIRST_NAME)).timer().count())
+                .isEqualTo(3);
+    }
+
+    @Test
+    void closesTheLeastRecentlyUsedStatements() {
+        properties.setSize(2);
+        createDataSource();
+
+        jdbcTemplate.queryForObject(BY_FIRST_NAME, Long.class, "Josh");
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customers WHERE last_name = ?", Long.class, "Long");
+        jdbcTemplate.queryForObject(BY_FIRST_NAME, Long.class, "John");
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customers WHERE id = ?", Long.class, 1);
+        // last_name was the least recently used one when id came in, first_name when last_name came back
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customers WHERE last_name = ?", Long.class, "Woo");
+        jdbcTemplate.queryForObject(BY_FIRST_NAME, Long.class, "Jeff");
+
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(2);
+        assertThat(meterRegistry.get("jdbc.statement.cache").tag("result", "miss").counters().stream()
+                .mapToDouble(Counter::count).sum()).isEqualTo(5);
+    }
+
+    @Test
+    void resetsStatementsBeforeReusingThem() {
+        createDataSource();
+        String all = "SELECT first_name FROM customers ORDER BY id";
+        JdbcTemplate limited = new JdbcTemplate(dataSource);
+        limited.setMaxRows(1);
+        limited.setFetchSize(1);
+
+        assertThat(limited.queryForList(all, String.class)).containsExactly("John");
+        assertThat(jdbcTemplate.queryForList(all, String.class)).containsExactly("John", "Jeff", "Josh", "Josh");
+    }
+
+    @Test
+    void resetsEverySettingBeforeReusingAStatement() throws SQLException {
+        // H2 ignores most of these settings, so a mock tells whether they were set back
+        PreparedStatement target = mock(PreparedStatement.class);
+        given(target.getFetchDirection()).willReturn(ResultSet.FETCH_FORWARD);
+        given(target.isPoolable()).willReturn(true);
+        Connection connection = mock(Connection.class);
+        given(connection.prepareStatement(BY_FIRST_NAME)).willReturn(target);
+        DataSource targetDataSource = mock(DataSource.class);
+        given(targetDataSource.getConnection()).willReturn(connection);
+
+        try (Connection caching = new StatementCachingDataSource(targetDataSource, properties, meterRegistry)
+                .getConnection()) {
+            try (PreparedStatement statement = caching.prepareStatement(BY_FIRST_NAME)) {
+                statement.setFetchDirection(ResultSet.FETCH_REVERSE);
+                statement.setMaxFieldSize(4);
+                statement.setPoolable(false);
+            }
+            verify(target).setFetchDirection(ResultSet.FETCH_FORWARD);
+            verify(target).setMaxFieldSize(0);
+            verify(target).setPoolable(true);
+            verify(target, never()).close();
+            caching.prepareStatement(BY_FIRST_NAME).close();
+        }
+        verify(connection).prepareStatement(BY_FIRST_NAME);
+        assertThat(count("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void closesStatementsWithSettingsItCannotReset() throws SQLException {
+        createDataSource();
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(BY_FIRST_NAME)) {
+                statement.closeOnCompletion();
+            }
+            connection.prepareStatement(BY_FIRST_NAME).close();
+        }
+        assertThat(count("miss")).isEqualTo(2);
+        assertThat(count("hit")).isZero();
+    }
+
+    @Test
+    void closesTheGeneratedKeysOfAStatementReturned() throws SQLException {
+        createDataSource();
+        String insert = "INSERT INTO customers(first_name, last_name) VALUES (?, ?)";
+        ResultSet keys;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
+            statement.setString(1, "Juergen");
+            statement.setString(2, "Hoeller");
+            statement.executeUpdate();
+            keys = statement.getGeneratedKeys();
+        }
+        assertThat(keys.isClosed()).isTrue();
+    }
+
+    @Test
+    void closesTheResultSetOfAStatementReturnedEarly() {
+        createDataSource();
+        String all = "SELECT first_name FROM customers ORDER BY id";
+
+        try (Stream<String> names = jdbcTemplate.queryForStream(all, (rs, rowNum) -> rs.getString(1))) {
+            assertThat(names.findFirst()).hasValue("John");
+        }
+
+        assertThat(jdbcTemplate.queryForList(all, String.class)).hasSize(4);
+    }
+
+    @Test
+    void logsSlowStatements(CapturedOutput output) {
+        properties.setSlowQueryThreshold(Duration.ZERO);
+        createDataSource();
+
+        jdbcTemplate.queryForObject(BY_FIRST_NAME, Long.class, "Josh");
+
+        assertThat(output).contains("Slow statement took", fingerprint(BY_FIRST_NAME));
+    }
+
+    @Test
+    void tagsABoundedNumberOfFingerprints() {
+        // The CREATE TABLE and INSERT of the test data take two of the tags
+        properties.setMaxTaggedStatements(4);
+        createDataSource();
+
+        for (int i = 1; i <= 20; i++) {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customers WHERE id IN ("
+                    + "?,".repeat(i - 1) + "?)", Long.class, Stream.generate(() -> 1).limit(i).toArray());
+        }
+
+        assertThat(meterRegistry.get("jdbc.statement.execute").timers()).hasSize(5);
+        assertThat(meterRegistry.get("jdbc.statement.execute").tag("sql", StatementMetrics.OTHER).timer().count())
+                .isEqualTo(18);
+    }
+
+    @Test
+    void timesPlainStatementsBySqlOfEachExecution() throws SQLException {
+        createDataSource();
+        String byId = "SELECT first_name FROM customers WHERE id = 1";
+        String byName = "UPDATE customers SET last_name = 'Hoeller' WHERE first_name = 'Jeff'";
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeQuery(byId).close();
+            statement.executeQuery(byId.replace("1", "2")).close();
+            statement.addBatch(byName);
+            statement.addBatch(byName);
+            statement.executeBatch();
+        }
+
+        assertThat(meterRegistry.get("jdbc.statement.execute").tag("sql", fingerprint(byId)).timer().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("jdbc.statement.execute").tag("sql", fingerprint(byName)).timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void unwrapsToTheProxies() throws SQLException {
+        createDataSource();
+        try (Connection connection = dataSource.getConnection()) {
+            Connection caching = connection.unwrap(Connection.class);
+            assertThat(caching.toString()).startsWith("Statement caching");
+            try (PreparedStatement statement = caching.prepareStatement(BY_FIRST_NAME)) {
+                assertThat(statement.isWrapperFor(PreparedStatement.class)).isTrue();
+                assertThat(statement.unwrap(PreparedStatement.class)).isSameAs(statement);
+            }
+            caching.prepareStatement(BY_FIRST_NAME).close();
+        }
+        assertThat(count("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void fingerprintsIgnoreLiteralsCaseAndWhitespace() {
+        assertThat(fingerprint("SELECT *\n  FROM customers WHERE id = 42 AND first_name = 'O''Brien'"))
+                .isEqualTo("select * from customers where id = ? and first_name = ?");
+        assertThat(fingerprint("insert into BOOKINGS(FIRST_NAME) values (?)"))
+                .isEqualTo("insert into bookings(first_name) values (?)");
+    }
+
+    private void createDataSource() {
+        dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(1);
+        dataSource.setDataSource(new StatementCachingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"),
+                properties, meterRegistry));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE customers(id SERIAL, first_name VARCHAR(255), last_name VARCHAR(255))");
+        jdbcTemplate.update("INSERT INTO customers(first_name, last_name) "
+                + "VALUES ('John', 'Woo'), ('Jeff', 'Dean'), ('Josh', 'Bloch'), ('Josh', 'Long')");
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("jdbc.statement.cache").tag("sql", fingerprint(BY_FIRST_NAME)).tag("result", result)
+                .counter().count();
+    }
+
+    private static String fingerprint(String sql) {
+        return StatementMetrics.fingerprint(sql);
+    }
+}
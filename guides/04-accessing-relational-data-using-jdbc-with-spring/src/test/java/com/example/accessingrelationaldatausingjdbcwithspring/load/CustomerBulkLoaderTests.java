@@ -0,0 +1,100 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.load;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerBulkLoaderTests {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+
+    private final CustomerLoadProperties properties = new CustomerLoadProperties();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE customers(id SERIAL, first_name VARCHAR(255), last_name VARCHAR(255))");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void loadsEveryLineInParallelBatches() {
+        properties.setBatchSize(1000);
+        properties.setRowsPerStatement(64);
+
+        LoadResult result = new CustomerBulkLoader(database, properties).load(new StringReader(names(10_500)));
+
+        assertThat(result.getRows()).isEqualTo(10_500);
+        assertThat(result.getBatches()).isEqualTo(11);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customers", Long.class)).isEqualTo(10_500);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT last_name) FROM customers", Long.class))
+                .isEqualTo(10_500);
+    }
+
+    @Test
+    void insertsTheRemainderOfABatchOneRowAtATime() {
+        properties.setBatchSize(10);
+        properties.setRowsPerStatement(4);
+
+        new CustomerBulkLoader(database, properties).load(new StringReader("John Woo\n\nJeff Dean\nJosh Bloch\n"
+                + "Josh Long\nAda Lovelace\nGrace Brewster Murray Hopper\n"));
+
+        List<Map<String, Object>> customers = jdbcTemplate.queryForList(
+                "SELECT first_name, last_name FROM customers ORDER BY id");
+        assertThat(customers).hasSize(6);
+        assertThat(customers.get(5)).containsEntry("FIRST_NAME", "Grace")
+                .containsEntry("LAST_NAME", "Brewster Murray Hopper");
+    }
+
+    @Test
+    void rejectsLinesThatAreNotAFirstAndALastName() {
+        assertThatThrownBy(() -> new CustomerBulkLoader(database, properties)
+                .load(new StringReader("John Woo\nPlato\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Line 2");
+    }
+
+    @Test
+    void reportsDatabaseErrors() {
+        jdbcTemplate.execute("DROP TABLE customers");
+
+        assertThatThrownBy(() -> new CustomerBulkLoader(database, properties).load(new StringReader(names(10))))
+                .isInstanceOf(DataAccessException.class);
+    }
+
+    @Test
+    void insertSqlHasOneGroupOfParametersPerRow() {
+        assertThat(CustomerBulkLoader.insertSql(1))
+                .isEqualTo("INSERT INTO customers(first_name, last_name) VALUES (?,?)");
+        assertThat(CustomerBulkLoader.insertSql(3))
+                .isEqualTo("INSERT INTO customers(first_name, last_name) VALUES (?,?),(?,?),(?,?)");
+    }
+
+    static String names(int count) {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            names.append("First").append(i % 100).append(" Last").append(i).append('\n');
+        }
+        return names.toString();
+    }
+}
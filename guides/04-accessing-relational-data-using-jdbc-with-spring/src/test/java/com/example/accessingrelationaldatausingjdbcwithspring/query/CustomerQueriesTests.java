@@ -0,0 +1,146 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.query;
+
+import com.example.accessingrelationaldatausingjdbcwithspring.Customer;
+import com.example.accessingrelationaldatausingjdbcwithspring.schema.CustomerSchema;
+import com.example.accessingrelationaldatausingjdbcwithspring.schema.CustomerSchemaProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerQueriesTests {
+
+    private final HikariDataSource dataSource = new HikariDataSource();
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    private final CustomerQueryProperties properties = new CustomerQueryProperties();
+
+    private CustomerQueries customerQueries;
+
+    @BeforeEach
+    void setUp() {
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID());
+        CustomerSchema schema = new CustomerSchema(dataSource, new CustomerSchemaProperties());
+        schema.createTable();
+        schema.createIndexes();
+        List<Object[]> names = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            names.add(new Object[] { i % 2 == 0 ? "Josh" : "John", "Last" + i });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers(first_name, last_name) VALUES (?,?)", names);
+        properties.setFetchSize(10);
+        customerQueries = new CustomerQueries(dataSource, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void streamsEveryMatchingCustomerAndReleasesTheConnectionAtTheEnd() {
+        List<Customer> customers = customerQueries.streamByFirstName("Josh").collect(Collectors.toList());
+
+        assertThat(customers).hasSize(125).allMatch(customer -> customer.getFirstName().equals("Josh"));
+        assertThat(activeConnections()).isZero();
+    }
+
+    @Test
+    void releasesTheConnectionOfAStreamClosedEarly() {
+        try (Stream<Customer> customers = customerQueries.streamByFirstName("Josh")) {
+            assertThat(customers.limit(3).count()).isEqualTo(3);
+            assertThat(activeConnections()).isEqualTo(1);
+        }
+        assertThat(activeConnections()).isZero();
+    }
+
+    @Test
+    void releasesTheConnectionWhenTheActionFails() {
+        assertThatThrownBy(() -> customerQueries.forEachByFirstName("John", customer -> {
+            throw new IllegalStateException("boom");
+        })).hasMessage("boom");
+
+        assertThat(activeConnections()).isZero();
+    }
+
+    @Test
+    void readsCustomersInColumnarBatches() {
+        List<Integer> sizes = new ArrayList<>();
+        List<String> lastNames = new ArrayList<>();
+
+        long count = customerQueries.forEachBatchByFirstName("John", 50, batch -> {
+            sizes.add(batch.size());
+            lastNames.addAll(Arrays.asList(batch.lastNames()).subList(0, batch.size()));
+        });
+
+        assertThat(count).isEqualTo(125);
+        assertThat(sizes).containsExactly(50, 50, 25);
+        assertThat(lastNames).hasSize(125).doesNotHaveDuplicates().allMatch(name -> name.startsWith("Last"));
+        assertThat(activeConnections()).isZero();
+    }
+
+    @Test
+    void pagesAfterTheLastIdRead() {
+        List<Customer> customers = new ArrayList<>();
+        int pages = 0;
+        KeysetPage<Customer> page = customerQueries.findByFirstName("John", null, 50);
+        while (true) {
+            pages++;
+            customers.addAll(page.getContent());
+            if (!page.hasNext()) {
+                break;
+            }
+            page = customerQueries.findByFirstName("John", page.getNextKey(), 50);
+        }
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(customers).hasSize(125);
+        assertThat(customers).extracting(Customer::getId).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void lastFullPageHasNoNextKey() {
+        KeysetPage<Customer> page = customerQueries.findByFirstName("Josh", null, 125);
+
+        assertThat(page.getContent()).hasSize(125);
+        assertThat(page.hasNext()).isFalse();
+        assertThat(customerQueries.findByFirstName("Nobody").getContent()).isEmpty();
+    }
+
+    @Test
+    void findsFirstNamesWhateverTheirCase() {
+        try (Stream<Customer> customers = customerQueries.streamByFirstNameIgnoreCase("jOSH")) {
+            assertThat(customers).hasSize(125).allMatch(customer -> customer.getFirstName().equals("Josh"));
+        }
+    }
+
+    @Test
+    void findsLastNamesByPrefix() {
+        jdbcTemplate.update("INSERT INTO customers(first_name, last_name) VALUES ('Jane', 'last_1%')");
+
+        try (Stream<Customer> customers = customerQueries.streamByLastNameStartingWith("Last24", false)) {
+            assertThat(customers).extracting(Customer::getLastName)
+                    .containsExactlyInAnyOrder("Last24", "Last240", "Last241", "Last242", "Last243", "Last244",
+                            "Last245", "Last246", "Last247", "Last248", "Last249");
+        }
+        try (Stream<Customer> customers = customerQueries.streamByLastNameStartingWith("LAST_1%", true)) {
+            assertThat(customers).extracting(Customer::getLastName).containsExactly("last_1%");
+        }
+    }
+
+    private int activeConnections() {
+        return dataSource.getHikariPoolMXBean().getActiveConnections();
+    }
+}
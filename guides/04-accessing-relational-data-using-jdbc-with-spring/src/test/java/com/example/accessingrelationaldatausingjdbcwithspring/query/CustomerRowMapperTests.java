@@ -0,0 +1,68 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.query;
+
+import com.example.accessingrelationaldatausingjdbcwithspring.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerRowMapperTests {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE customers(id SERIAL, first_name VARCHAR(255), last_name VARCHAR(255))");
+        jdbcTemplate.update("INSERT INTO customers(first_name, last_name) VALUES ('John', 'Woo'), ('Jeff', 'Dean')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void mapsColumnsInAnyOrder() {
+        List<Customer> customers = jdbcTemplate.query(
+                "SELECT id, first_name, last_name FROM customers ORDER BY id", new CustomerRowMapper());
+        List<Customer> reordered = jdbcTemplate.query(
+                "SELECT last_name, 42 AS other, first_name, id FROM customers ORDER BY id", new CustomerRowMapper());
+
+        assertThat(customers).hasSize(2);
+        assertThat(reordered).hasSize(2);
+        for (int i = 0; i < 2; i++) {
+            assertThat(reordered.get(i).toString()).isEqualTo(customers.get(i).toString());
+        }
+        assertThat(customers.get(1).getFirstName()).isEqualTo("Jeff");
+        assertThat(customers.get(1).getLastName()).isEqualTo("Dean");
+    }
+
+    @Test
+    void fillsColumnarBatches() {
+        CustomerRowMapper rowMapper = new CustomerRowMapper();
+        CustomerColumns batch = new CustomerColumns(4);
+
+        jdbcTemplate.query("SELECT first_name, last_name, id FROM customers ORDER BY id",
+                (RowCallbackHandler) rs -> rowMapper.mapRow(rs, batch));
+
+        assertThat(batch.size()).isEqualTo(2);
+        assertThat(batch.getFirstName(0)).isEqualTo("John");
+        assertThat(batch.getLastName(1)).isEqualTo("Dean");
+        assertThat(batch.getId(1)).isGreaterThan(batch.getId(0));
+        assertThatThrownBy(() -> batch.getId(2)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.accessingrelationaldatausingjdbcwithspring.schema;
+
+import com.example.accessingrelationaldatausingjdbcwithspring.query.CustomerQueries;
+import com.example.accessingrelationaldatausingjdbcwithspring.query.CustomerQueryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryPlanAdvisorTests {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+
+    private final CustomerSchemaProperties properties = new CustomerSchemaProperties();
+
+    private final CustomerSchema schema = new CustomerSchema(database, properties);
+
+    private final QueryPlanAdvisor advisor = new QueryPlanAdvisor(database, properties);
+
+    @BeforeEach
+    void setUp() {
+        schema.createTable();
+        new CustomerQueries(database, new CustomerQueryProperties()).registerQueries(advisor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void flagsTheCustomerQueriesByNameWithoutIndexes() {
+        List<QueryPlan> plans = advisor.explainAll();
+
+        // Pages after an id read the primary key from that id on
+        assertThat(plans).filteredOn(QueryPlan::isFullScan).extracting(QueryPlan::getName).containsExactly(
+                "customers by first name", "customers by first name ignoring case",
+                "customers by last name prefix", "customers by last name prefix ignoring case");
+    }
+
+    @Test
+    void idIsThePrimaryKey() throws SQLException {
+        try (Connection connection = database.getConnection();
+             ResultSet keys = connection.getMetaData().getPrimaryKeys(null, null, "CUSTOMERS")) {
+            assertThat(keys.next()).isTrue();
+            assertThat(keys.getString("COLUMN_NAME")).isEqualTo("ID");
+            assertThat(keys.next()).isFalse();
+        }
+    }
+
+    @Test
+    void customerQueriesUseTheSecondaryIndexes() {
+        schema.createIndexes();
+
+        List<QueryPlan> plans = advisor.explainAll();
+
+        assertThat(plans).hasSize(5).noneMatch(QueryPlan::isFullScan);
+        assertThat(plans).extracting(QueryPlan::getPlan).allMatch(plan -> plan.contains("CUSTOMERS_"));
+    }
+
+    @Test
+    void failsOnAFullScanWhenAskedTo() {
+        schema.createIndexes();
+        advisor.register("customers by upper case last name",
+                "SELECT id FROM customers WHERE UPPER(last_name) = ?", "LONG");
+        properties.setFailOnFullScan(true);
+
+        assertThatThrownBy(advisor::explainAll)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("customers by upper case last name");
+    }
+
+    @Test
+    void indexesCanBeLeftOut() {
+        properties.setIndexes(false);
+        schema.createIndexes();
+
+        assertThat(advisor.explainAll()).filteredOn(QueryPlan::isFullScan).hasSize(4);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.uploadingfiles;
+
+import com.example.uploadingfiles.storage.StorageService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads a stored file from the application running on embedded Tomcat, through
+ * {@link FileUploadController#serveFile} and {@link FileSender} with Tomcat's sendfile on
+ * ({@code sendfile}) and off ({@code stream}, where the file is written to the response output
+ * stream), and through the {@code UrlResource} download of the original guide ({@code url-resource}).
+ * Every operation downloads the whole file over loopback, so MB/s is {@code ops/s * fileSizeMb};
+ * the CPU time of the process per GB, client included, is printed after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FileDownloadBenchmark {
+
+    private static final String FILENAME = "download.bin";
+
+    @Param({"sendfile", "stream", "url-resource"})
+    private String path;
+
+    @Param({"1", "64"})
+    private int fileSizeMb;
+
+    private final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    private Path location;
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+    private long cpuStart;
+    private long bytesReceived;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        location = Files.createTempDirectory("download-benchmark");
+        context = new SpringApplicationBuilder(UploadingFilesApplication.class, LegacyDownload.class)
+                .properties("server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn",
+                        "storage.location=" + location.resolve("files"),
+                        "storage.index-location=" + location.resolve("index"),
+                        "storage.parts-location=" + location.resolve("parts"),
+                        "benchmark.sendfile=" + !path.equals("stream"))
+                .run();
+
+        Path file = location.resolve("source.bin");
+        byte[] block = new byte[1024 * 1024];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < fileSizeMb; i++) {
+                out.write(block);
+            }
+        }
+        context.getBean(StorageService.class).store(file, FILENAME);
+
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        String prefix = path.equals("url-resource") ? "/legacy/" : "/files/";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + prefix + FILENAME)).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        FileSystemUtils.deleteRecursively(location.toFile());
+    }
+
+    @Setup(Level.Iteration)
+    public void startCpuClock() {
+        cpuStart = os.getProcessCpuTime();
+        bytesReceived = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportCpuPerGb() {
+        long cpu = os.getProcessCpuTime() - cpuStart;
+        System.out.printf("%n  process cpu per GB: %.1f ms%n", cpu / 1e6 / (bytesReceived / (double) (1L << 30)));
+    }
+
+    @Benchmark
+    public long download() throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Download failed with " + response.statusCode());
+        }
+        long length = response.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH).orElse(0);
+        bytesReceived += length;
+        return length;
+    }
+
+    /**
+     * Not a {@code @Configuration}, so that the application's component scan leaves it to this benchmark.
+     */
+    static class LegacyDownload {
+
+        /**
+         * Turns sendfile on or off for the connector, it is on by default.
+         */
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> sendfile(
+                @Value("${benchmark.sendfile:true}") boolean sendfile) {
+            return factory -> factory.addConnectorCustomizers(
+                    connector -> connector.setProperty("useSendfile", String.valueOf(sendfile)));
+        }
+
+        @Bean
+        LegacyDownloadController legacyDownloadController(StorageService storageService) {
+            return new LegacyDownloadController(storageService);
+        }
+    }
+
+    /**
+     * The download of the original guide, which copies the file through a {@code UrlResource} stream.
+     */
+    @RequestMapping("/legacy")
+    static class LegacyDownloadController {
+
+        private final StorageService storageService;
+
+        LegacyDownloadController(StorageService storageService) {
+            this.storageService = storageService;
+        }
+
+        @GetMapping("/{filename:.+}")
+        public ResponseEntity<Resource> serveFile(@PathVariable String filename) {
+            Resource file = storageService.loadAsResource(filename);
+            return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + file.getFilename() + "\"").body(file);
+        }
+    }
+}
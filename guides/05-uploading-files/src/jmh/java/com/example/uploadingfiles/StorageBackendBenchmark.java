@@ -0,0 +1,107 @@
+package com.example.uploadingfiles;
+
+import com.example.uploadingfiles.storage.ContentAddressedStorageService;
+import com.example.uploadingfiles.storage.FileSystemStorageService;
+import com.example.uploadingfiles.storage.StorageProperties;
+import com.example.uploadingfiles.storage.StorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Stores uploads drawn from a small pool of distinct contents, as happens when the same artifacts
+ * are uploaded over and over, with both storage backends. Disk usage and bytes written are
+ * printed after each iteration next to the bytes offered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StorageBackendBenchmark {
+
+    @Param({"filesystem", "content-addressed"})
+    private String backend;
+
+    /**
+     * Number of distinct contents the uploads are drawn from.
+     */
+    @Param({"16"})
+    private int distinctContents;
+
+    @Param({"262144"})
+    private int fileSize;
+
+    private final Random random = new Random(42);
+
+    private MockMultipartFile[] uploads;
+    private Path location;
+    private SimpleMeterRegistry meterRegistry;
+    private StorageService storageService;
+    private AutoCloseable closer;
+    private long bytesOffered;
+
+    @Setup(Level.Trial)
+    public void createContents() {
+        uploads = new MockMultipartFile[distinctContents * 64];
+        byte[][] contents = new byte[distinctContents][fileSize];
+        for (byte[] content : contents) {
+            random.nextBytes(content);
+        }
+        for (int i = 0; i < uploads.length; i++) {
+            uploads[i] = new MockMultipartFile("file", "artifact-" + i + ".bin",
+                    "application/octet-stream", contents[i % distinctContents]);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createStorage() throws IOException {
+        location = Files.createTempDirectory("storage-benchmark");
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(location.resolve("files").toString());
+        properties.setIndexLocation(location.resolve("index").toString());
+        meterRegistry = new SimpleMeterRegistry();
+        if (backend.equals("filesystem")) {
+            FileSystemStorageService service = new FileSystemStorageService(properties);
+            storageService = service;
+            closer = service::close;
+        } else {
+            ContentAddressedStorageService service = new ContentAddressedStorageService(properties, meterRegistry);
+            storageService = service;
+            closer = service::close;
+        }
+        storageService.init();
+        bytesOffered = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportSavings() throws Exception {
+        closer.close();
+        long written = backend.equals("filesystem")
+                ? bytesOffered
+                : (long) meterRegistry.counter("storage.cas.bytes.written").count();
+        long onDisk;
+        try (Stream<Path> files = Files.walk(location)) {
+            onDisk = files.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+        System.out.printf("%n  offered %d MB, written %d MB, on disk %d MB%n",
+                bytesOffered >> 20, written >> 20, onDisk >> 20);
+        FileSystemUtils.deleteRecursively(location);
+    }
+
+    @Benchmark
+    public void store() {
+        MockMultipartFile upload = uploads[random.nextInt(uploads.length)];
+        storageService.store(upload);
+        bytesOffered += upload.getSize();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.uploadingfiles;
+
+import com.example.uploadingfiles.storage.ChunkedUpload;
+import com.example.uploadingfiles.storage.ChunkedUploadCompletedException;
+import com.example.uploadingfiles.storage.ChunkedUploadService;
+import com.example.uploadingfiles.storage.ChunkedUploadTooLargeException;
+import com.example.uploadingfiles.storage.InvalidChunkException;
+import com.example.uploadingfiles.storage.StorageNotFoundException;
+import com.example.uploadingfiles.storage.TooManyChunkedUploadsException;
+import com.example.uploadingfiles.storage.UnreadableBodyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Resumable upload API for files too large for a single multipart request.
+ * <p>
+ * A client starts an upload with {@code POST /uploads}, sends every chunk with
+ * {@code PUT /uploads/{id}?offset=N} together with the hex CRC32C of the chunk in
+ * {@code X-Chunk-Checksum}, and finishes with {@code POST /uploads/{id}/complete}.
+ * After a disconnect, {@code GET /uploads/{id}} lists the offsets still missing.
+ */
+@RestController
+@RequestMapping("/uploads")
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    public ChunkedUploadController(ChunkedUploadService chunkedUploadService) {
+        this.chunkedUploadService = chunkedUploadService;
+    }
+
+    @PostMapping
+    public ChunkedUpload start(@RequestParam String filename, @RequestParam long size) {
+        return chunkedUploadService.start(filename, size);
+    }
+
+    @GetMapping("/{id}")
+    public ChunkedUpload status(@PathVariable String id) {
+        return chunkedUploadService.get(id);
+    }
+
+    @PutMapping("/{id}")
+    public ChunkedUpload writeChunk(@PathVariable String id, @RequestParam long offset,
+                                    @RequestHeader("X-Chunk-Checksum") String checksum,
+                                    HttpServletRequest request) throws IOException {
+        return chunkedUploadService.writeChunk(id, offset, parseChecksum(checksum), request.getInputStream());
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<Void> complete(@PathVariable String id) {
+        chunkedUploadService.complete(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abort(@PathVariable String id) {
+        chunkedUploadService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static long parseChecksum(String checksum) {
+        try {
+            return Long.parseLong(checksum, 16);
+        } catch (NumberFormatException e) {
+            throw new InvalidChunkException("Malformed chunk checksum: " + checksum);
+        }
+    }
+
+    @ExceptionHandler(InvalidChunkException.class)
+    public ResponseEntity<String> handleInvalidChunk(InvalidChunkException exc) {
+        return ResponseEntity.badRequest().body(exc.getMessage());
+    }
+
+    /**
+     * The client went away or sent a short body, the chunk can be sent again.
+     */
+    @ExceptionHandler(UnreadableBodyException.class)
+    public ResponseEntity<String> handleUnreadableBody(UnreadableBodyException exc) {
+        return ResponseEntity.badRequest().body(exc.getMessage());
+    }
+
+    @ExceptionHandler(ChunkedUploadCompletedException.class)
+    public ResponseEntity<String> handleUploadCompleted(ChunkedUploadCompletedException exc) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(exc.getMessage());
+    }
+
+    @ExceptionHandler(ChunkedUploadTooLargeException.class)
+    public ResponseEntity<String> handleUploadTooLarge(ChunkedUploadTooLargeException exc) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(exc.getMessage());
+    }
+
+    @ExceptionHandler(TooManyChunkedUploadsException.class)
+    public ResponseEntity<String> handleTooManyUploads(TooManyChunkedUploadsException exc) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(exc.getMessage());
+    }
+
+    @ExceptionHandler(StorageNotFoundException.class)
+    public ResponseEntity<?> handleUploadNotFound(StorageNotFoundException exc) {
+        return ResponseEntity.notFound().build();
+    }
+}
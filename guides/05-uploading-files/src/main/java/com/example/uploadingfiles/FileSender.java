@@ -0,0 +1,197 @@
+package com.example.uploadingfiles;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a stored file to the response with HTTP conditional and range request support.
+ * <p>
+ * Validators are derived from file metadata only, so a 304 is answered without opening the file.
+ * Bodies of at least 48KB are handed to Tomcat's sendfile when the connector supports it, so the
+ * kernel copies the file straight to the socket. Otherwise they are written to the response output
+ * stream, which copies them through Tomcat's buffers like any other body; {@link FileChannel#transferTo}
+ * only spares the extra stream and buffer a {@code Resource} copy would take.
+ */
+@Component
+public class FileSender {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Below this size a plain write is cheaper than handing the file to the poller.
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    public void send(Path file, String filename, HttpServletRequest request,
+                     HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String eTag = "\"" + Long.toHexString(length) + "-"
+                + Long.toHexString(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)) + "\"";
+
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) {
+            return;
+        }
+
+        MediaType contentType = MediaTypeFactory.getMediaType(filename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+        List<HttpRange> ranges = isRangeApplicable(request, eTag, lastModified) ? parseRanges(request) : List.of();
+        try {
+            checkSatisfiable(ranges, length);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+        boolean head = HttpMethod.HEAD.matches(request.getMethod());
+
+        if (ranges.isEmpty()) {
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            if (!head) {
+                transfer(file, 0, length, request, response);
+            }
+        } else if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                transfer(file, start, end - start + 1, request, response);
+            }
+        } else {
+            String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType("multipart/byteranges; boundary=" + boundary);
+            if (!head) {
+                sendMultipart(file, length, ranges, contentType, boundary, response);
+            }
+        }
+    }
+
+    private static boolean isRangeApplicable(HttpServletRequest request, String eTag, long lastModified) {
+        if (request.getHeader(HttpHeaders.RANGE) == null) {
+            return false;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Only a strong match counts, so a weak validator never does
+            return ifRange.equals(eTag);
+        }
+        try {
+            long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return ifRangeDate != -1 && lastModified / 1000 == ifRangeDate / 1000;
+        } catch (IllegalArgumentException e) {
+            // Neither a validator nor a date, so the range cannot be known to be current
+            return false;
+        }
+    }
+
+    /**
+     * Parses the Range header, ignoring it when malformed as RFC 7233 asks, so the whole file is
+     * sent instead.
+     */
+    private static List<HttpRange> parseRanges(HttpServletRequest request) {
+        try {
+            return HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE));
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Rejects ranges beyond the end of the file, and multi-range requests whose parts add up to
+     * the whole file or more, which only serve to amplify the response.
+     */
+    private static void checkSatisfiable(List<HttpRange> ranges, long length) {
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start >= length || start > end) {
+                throw new IllegalArgumentException("Range " + range + " is outside of the file");
+            }
+            total += end - start + 1;
+        }
+        if (ranges.size() > 1 && total >= length) {
+            throw new IllegalArgumentException("The sum of all ranges should be less than the file length");
+        }
+    }
+
+    private static void transfer(Path file, long position, long count, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, position);
+            request.setAttribute(SENDFILE_END, position + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, position, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private static void transfer(FileChannel channel, long position, long count,
+                                 WritableByteChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("File shrank while being sent");
+            }
+            position += transferred;
+        }
+    }
+
+    private static void sendMultipart(Path file, long length, List<HttpRange> ranges, MediaType contentType,
+                                      String boundary, HttpServletResponse response) throws IOException {
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (HttpRange range : ranges) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                out.write(("\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                transfer(channel, start, end - start + 1, target);
+            }
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+}
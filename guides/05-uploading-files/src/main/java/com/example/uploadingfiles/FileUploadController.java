@@ -1,56 +1,126 @@
 package com.example.uploadingfiles;
 
+import com.example.uploadingfiles.storage.FilePage;
+import com.example.uploadingfiles.storage.FileSort;
+import com.example.uploadingfiles.storage.InvalidCursorException;
+import com.example.uploadingfiles.storage.InvalidFilenameException;
 import com.example.uploadingfiles.storage.StorageNotFoundException;
 import com.example.uploadingfiles.storage.StorageService;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartException;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.MvcUriComponentsBuilder;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.util.UriUtils;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Controller
 public class FileUploadController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final StorageService storageService;
 
+    private final FileSender fileSender;
+
+    private final UploadPipeline uploadPipeline;
 
-    public FileUploadController(StorageService storageService) {
+
+    public FileUploadController(StorageService storageService, FileSender fileSender,
+                                UploadPipeline uploadPipeline) {
         this.storageService = storageService;
+        this.fileSender = fileSender;
+        this.uploadPipeline = uploadPipeline;
     }
 
     @GetMapping("/")
-    public String listUploadedFiles(Model model) {
-        model.addAttribute("files", storageService.loadAll().map(
-                path ->
-                        MvcUriComponentsBuilder.fromMethodName(
-                                FileUploadController.class,
-                                "serveFile",
-                                path.getFileName().toString()).build().toUri().toString())
+    public String listUploadedFiles(@RequestParam(defaultValue = "") String prefix,
+                                    @RequestParam(defaultValue = "NAME") FileSort sort,
+                                    @RequestParam(defaultValue = "false") boolean descending,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(defaultValue = "100") int size,
+                                    Model model) {
+        FilePage page = storageService.list(prefix, sort, descending, cursor, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        // Resolve the download URI prefix once per page instead of once per file
+        String filesUri = MvcUriComponentsBuilder.fromController(FileUploadController.class)
+                .path("/files/").build().toUriString();
+        model.addAttribute("files", page.getEntries().stream()
+                .map(entry -> filesUri + UriUtils.encodePathSegment(entry.getName(), StandardCharsets.UTF_8))
                 .collect(Collectors.toList()));
+        model.addAttribute("nextCursor", page.getNextCursor());
         return "uploadForm";
     }
 
     @GetMapping("/files/{filename:.+}")
-    @ResponseBody
-    public ResponseEntity<Resource> serveFile(@PathVariable String filename) {
+    public void serveFile(@PathVariable String filename, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
         Resource file = storageService.loadAsResource(filename);
-        return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,
-                "attachment; filename=\"" + file.getFilename() + "\"").body(file);
+        fileSender.send(file.getFile().toPath(), filename, request, response);
     }
 
+    /**
+     * Multipart requests are resolved lazily, so the body is read from the network by the
+     * pipeline thread that calls {@code getFile}, not by the request thread.
+     */
     @PostMapping("/")
-    public String handleFileUpload(@RequestParam("file")MultipartFile file,
-                                   RedirectAttributes redirectAttributes) {
-        storageService.store(file);
-        redirectAttributes.addFlashAttribute("message", "You successfully upload "
-        + file.getOriginalFilename() + "!");
-        return "redirct:/";
+    public CompletableFuture<String> handleFileUpload(MultipartHttpServletRequest request,
+                                                      RedirectAttributes redirectAttributes) {
+        return uploadPipeline.submit(request.getRemoteAddr(), () -> {
+            MultipartFile file = request.getFile("file");
+            if (file == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Required part 'file' is not present");
+            }
+            storageService.store(file);
+            redirectAttributes.addFlashAttribute("message", "You successfully upload "
+            + file.getOriginalFilename() + "!");
+            return "redirect:/";
+        });
+    }
+
+    @ExceptionHandler(UploadRejectedException.class)
+    public ResponseEntity<?> handleUploadRejected(UploadRejectedException exc) {
+        return ResponseEntity.status(exc.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exc.getRetryAfter()))
+                .build();
+    }
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<?> handleMaxUploadSizeExceeded(MaxUploadSizeExceededException exc) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+    }
+
+    /**
+     * The multipart body could not be parsed, mostly because the client went away or sent less
+     * than it announced. Failures to store a file that was read remain server errors.
+     */
+    @ExceptionHandler(MultipartException.class)
+    public ResponseEntity<?> handleUnreadableUpload(MultipartException exc) {
+        return ResponseEntity.badRequest().build();
+    }
+
+    @ExceptionHandler(InvalidFilenameException.class)
+    public ResponseEntity<String> handleInvalidFilename(InvalidFilenameException exc) {
+        return ResponseEntity.badRequest().body(exc.getMessage());
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<?> handleInvalidCursor(InvalidCursorException exc) {
+        return ResponseEntity.badRequest().build();
     }
 
     @ExceptionHandler(StorageNotFoundException.class)
@@ -0,0 +1,78 @@
+package com.example.uploadingfiles;
+
+import com.example.uploadingfiles.storage.StorageProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs storage writes on a dedicated, bounded executor so that slow uploads hold an I/O thread
+ * rather than a request thread, which stays free to serve listings and downloads.
+ * <p>
+ * Admission is decided up front: a client over its share of in-flight uploads gets a 429, and once
+ * every writer is busy and the queue is full, everybody gets a 503, both with a Retry-After.
+ */
+@Component
+public class UploadPipeline implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+    private final int perClientLimit;
+    private final int retryAfter;
+    private final Map<String, Integer> inFlightPerClient = new ConcurrentHashMap<>();
+
+    private final Counter rejectedSaturated;
+    private final Counter rejectedClientLimit;
+
+    public UploadPipeline(StorageProperties properties, MeterRegistry meterRegistry) {
+        StorageProperties.Upload upload = properties.getUpload();
+        this.executor = new ThreadPoolExecutor(upload.getThreads(), upload.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(upload.getQueueCapacity()), new CustomizableThreadFactory("upload-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.perClientLimit = upload.getPerClientLimit();
+        this.retryAfter = upload.getRetryAfter();
+        this.rejectedSaturated = meterRegistry.counter("uploads.rejected", "reason", "saturated");
+        this.rejectedClientLimit = meterRegistry.counter("uploads.rejected", "reason", "client-limit");
+        meterRegistry.gauge("uploads.queued", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("uploads.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    public <T> CompletableFuture<T> submit(String client, Supplier<T> write) {
+        if (inFlightPerClient.merge(client, 1, Integer::sum) > perClientLimit) {
+            release(client);
+            rejectedClientLimit.increment();
+            throw new UploadRejectedException("Too many uploads in progress for " + client,
+                    HttpStatus.TOO_MANY_REQUESTS, retryAfter);
+        }
+        try {
+            return CompletableFuture.supplyAsync(write, executor)
+                    .whenComplete((result, exc) -> release(client));
+        } catch (RejectedExecutionException e) {
+            release(client);
+            rejectedSaturated.increment();
+            throw new UploadRejectedException("Upload pipeline is saturated",
+                    HttpStatus.SERVICE_UNAVAILABLE, retryAfter);
+        }
+    }
+
+    private void release(String client) {
+        inFlightPerClient.computeIfPresent(client, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
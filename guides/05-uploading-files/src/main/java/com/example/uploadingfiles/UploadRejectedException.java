@@ -0,0 +1,27 @@
+package com.example.uploadingfiles;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when the upload pipeline turns an upload away instead of queueing it.
+ */
+public class UploadRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    private final int retryAfter;
+
+    public UploadRejectedException(String message, HttpStatus status, int retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+}
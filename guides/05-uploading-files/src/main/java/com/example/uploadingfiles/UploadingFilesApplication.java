@@ -1,5 +1,6 @@
 package com.example.uploadingfiles;
 
+import com.example.uploadingfiles.storage.ChunkedUploadService;
 import com.example.uploadingfiles.storage.StorageProperties;
 import com.example.uploadingfiles.storage.StorageService;
 import org.springframework.boot.CommandLineRunner;
@@ -19,10 +20,14 @@ public class UploadingFilesApplication {
 
 
     @Bean
-    CommandLineRunner init(StorageService storageService){
+    CommandLineRunner init(StorageService storageService, ChunkedUploadService chunkedUploadService,
+                           StorageProperties properties){
         return (args) -> {
-            storageService.deleteAll();
+            if (properties.isDeleteAllOnStartup()) {
+                storageService.deleteAll();
+            }
             storageService.init();
+            chunkedUploadService.init();
         };
     }
 }
@@ -0,0 +1,203 @@
+package com.example.uploadingfiles.storage;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * State of one chunked upload: the pre-allocated part file and the chunks received so far.
+ */
+public class ChunkedUpload {
+
+    private final String id;
+    private final String filename;
+    private final long size;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final Path partFile;
+    private final FileChannel channel;
+    private final BitSet received;
+    private final BitSet writing;
+
+    /**
+     * Guarded by {@code this}, like the chunks being written and the time of the last activity,
+     * which is what an idle upload expires by.
+     */
+    private State state = State.OPEN;
+    private int writers;
+    private long lastActivity;
+
+    ChunkedUpload(String id, String filename, long size, int chunkSize, Path partFile, FileChannel channel,
+                  long now) {
+        this.id = id;
+        this.filename = filename;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = Math.toIntExact(chunkCount(size, chunkSize));
+        this.partFile = partFile;
+        this.channel = channel;
+        this.received = new BitSet(chunkCount);
+        this.writing = new BitSet(chunkCount);
+        this.lastActivity = now;
+    }
+
+    /**
+     * Number of chunks {@code size} bytes are sent in, computed without overflowing near {@link Long#MAX_VALUE}.
+     */
+    static long chunkCount(long size, int chunkSize) {
+        return size / chunkSize + (size % chunkSize == 0 ? 0 : 1);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public synchronized int getReceivedChunks() {
+        return received.cardinality();
+    }
+
+    /**
+     * Offsets of the chunks that still have to be sent, which is what a client resumes from.
+     */
+    public synchronized List<Long> getMissingOffsets() {
+        List<Long> missing = new ArrayList<>();
+        for (int i = received.nextClearBit(0); i < chunkCount; i = received.nextClearBit(i + 1)) {
+            missing.add((long) i * chunkSize);
+        }
+        return missing;
+    }
+
+    public synchronized boolean isComplete() {
+        return received.cardinality() == chunkCount;
+    }
+
+    Path getPartFile() {
+        return partFile;
+    }
+
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    long chunkLength(int index) {
+        return Math.min(chunkSize, size - (long) index * chunkSize);
+    }
+
+    /**
+     * Claims chunk {@code index} for one writer.
+     *
+     * @return whether it was free, {@code false} if another request is writing it
+     */
+    synchronized boolean claimChunk(int index) {
+        if (writing.get(index)) {
+            return false;
+        }
+        writing.set(index);
+        return true;
+    }
+
+    /**
+     * Forgets that chunk {@code index} was received, before its bytes are overwritten, unless
+     * the upload was closed already.
+     *
+     * @return the state of the upload, the chunk may only be written if it is {@link State#OPEN}
+     */
+    synchronized State overwriteChunk(int index) {
+        if (state == State.OPEN) {
+            received.clear(index);
+        }
+        return state;
+    }
+
+    /**
+     * Releases chunk {@code index}, recording it as received if its bytes were verified.
+     */
+    synchronized void releaseChunk(int index, boolean verified) {
+        writing.clear(index);
+        if (verified) {
+            received.set(index);
+        }
+    }
+
+    /**
+     * Registers a chunk about to be written, unless the upload was closed already.
+     *
+     * @return the state of the upload, the chunk may only be written if it is {@link State#OPEN}
+     */
+    synchronized State beginWrite(long now) {
+        if (state == State.OPEN) {
+            writers++;
+            lastActivity = now;
+        }
+        return state;
+    }
+
+    synchronized void endWrite(long now) {
+        writers--;
+        lastActivity = now;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Completes the upload if every chunk was received, in one step so that no chunk can be
+     * overwritten in between.
+     *
+     * @return whether the upload was open and complete, and is now {@link State#COMPLETED}
+     */
+    synchronized boolean complete() {
+        return isComplete() && close(State.COMPLETED);
+    }
+
+    /**
+     * @return whether the upload was still open, and is now {@code state}
+     */
+    synchronized boolean close(State state) {
+        if (this.state != State.OPEN) {
+            return false;
+        }
+        this.state = state;
+        return true;
+    }
+
+    /**
+     * Discards the upload if no chunk is being written and none was since {@code deadline}.
+     *
+     * @return whether the upload was discarded
+     */
+    synchronized boolean expire(long deadline) {
+        return writers == 0 && lastActivity < deadline && close(State.DISCARDED);
+    }
+
+    enum State {
+
+        OPEN,
+
+        COMPLETED,
+
+        /**
+         * Aborted by the client, or expired after being left idle.
+         */
+        DISCARDED
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.uploadingfiles.storage;
+
+/**
+ * Thrown for a chunk sent to an upload that was completed in the meantime.
+ */
+public class ChunkedUploadCompletedException extends StorageException {
+
+    public ChunkedUploadCompletedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.uploadingfiles.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+
+/**
+ * Receives large files as independently sent chunks, so that a dropped connection only costs
+ * the chunk in flight. Each chunk is streamed from the request body straight into the
+ * pre-allocated part file at its offset; chunks of one upload may arrive in any order and in parallel.
+ * <p>
+ * An upload no chunk was sent to for {@code storage.chunked-upload-idle-timeout} is discarded
+ * along with its part file, so abandoned uploads do not hold open files forever. Since every
+ * upload reserves disk space and holds a file open until then, both the size of an upload and
+ * the number of uploads in progress are capped.
+ */
+@Service
+public class ChunkedUploadService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StorageService storageService;
+    private final Path partsLocation;
+    private final int chunkSize;
+    private final long idleTimeoutMillis;
+    private final long maxSize;
+    private final int maxActive;
+    private final Clock clock;
+    private final Map<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * Uploads started and not yet removed from {@link #uploads}, reserved before the part file is
+     * allocated so that concurrent starts cannot exceed the maximum.
+     */
+    private final AtomicInteger activeUploads = new AtomicInteger();
+
+    private final AtomicInteger inFlightChunks = new AtomicInteger();
+    private final Counter receivedBytes;
+    private final Counter expiredUploads;
+    private final Timer chunkTimer;
+
+    private final ScheduledExecutorService sweeper;
+
+    @Autowired
+    public ChunkedUploadService(StorageService storageService, StorageProperties properties,
+                                MeterRegistry meterRegistry) {
+        this(storageService, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    ChunkedUploadService(StorageService storageService, StorageProperties properties,
+                         MeterRegistry meterRegistry, Clock clock) {
+        this.storageService = storageService;
+        this.partsLocation = Paths.get(properties.getPartsLocation());
+        this.chunkSize = properties.getChunkSize();
+        this.idleTimeoutMillis = properties.getChunkedUploadIdleTimeout().toMillis();
+        this.maxSize = properties.getChunkedUploadMaxSize().toBytes();
+        this.maxActive = properties.getChunkedUploadMaxActive();
+        this.clock = clock;
+        this.receivedBytes = meterRegistry.counter("uploads.chunked.bytes");
+        this.expiredUploads = meterRegistry.counter("uploads.chunked.expired");
+        this.chunkTimer = meterRegistry.timer("uploads.chunked.chunk.duration");
+        meterRegistry.gauge("uploads.chunked.inflight", inFlightChunks);
+        meterRegistry.gaugeMapSize("uploads.chunked.active", null, uploads);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("upload-sweeper-");
+        threadFactory.setDaemon(true);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        // An upload is discarded at most a quarter of the timeout late
+        long sweepInterval = Math.max(1, idleTimeoutMillis / 4);
+        sweeper.scheduleWithFixedDelay(this::scheduledSweep, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void init() {
+        try {
+            FileSystemUtils.deleteRecursively(partsLocation);
+            Files.createDirectories(partsLocation);
+        } catch (IOException e) {
+            throw new StorageException("Could not initialize chunked upload storage", e);
+        }
+    }
+
+    public ChunkedUpload start(String filename, long size) {
+        if (size <= 0) {
+            throw new InvalidChunkException("Failed to store empty file.");
+        }
+        if (size > maxSize || ChunkedUpload.chunkCount(size, chunkSize) > Integer.MAX_VALUE) {
+            throw new ChunkedUploadTooLargeException("Upload of " + size + " bytes exceeds the maximum of "
+                    + maxSize + " bytes");
+        }
+        checkFilename(filename);
+        reserveSlot();
+        boolean started = false;
+        try {
+            ChunkedUpload upload = open(filename, size);
+            uploads.put(upload.getId(), upload);
+            started = true;
+            return upload;
+        } finally {
+            if (!started) {
+                activeUploads.decrementAndGet();
+            }
+        }
+    }
+
+    private void reserveSlot() {
+        int active;
+        do {
+            active = activeUploads.get();
+            if (active >= maxActive) {
+                throw new TooManyChunkedUploadsException(active + " chunked uploads are in progress already");
+            }
+        } while (!activeUploads.compareAndSet(active, active + 1));
+    }
+
+    private ChunkedUpload open(String filename, long size) {
+        String id = UUID.randomUUID().toString();
+        Path partFile = partsLocation.resolve(id + ".part");
+        try (RandomAccessFile file = new RandomAccessFile(partFile.toFile(), "rw")) {
+            // Reserve the whole file up front so parallel chunks never extend it concurrently
+            file.setLength(size);
+        } catch (IOException e) {
+            deletePartFile(partFile);
+            throw new StorageException("Could not allocate upload " + filename, e);
+        }
+        try {
+            FileChannel channel = FileChannel.open(partFile, StandardOpenOption.WRITE);
+            return new ChunkedUpload(id, filename, size, chunkSize, partFile, channel, clock.millis());
+        } catch (IOException e) {
+            deletePartFile(partFile);
+            throw new StorageException("Could not open upload " + filename, e);
+        }
+    }
+
+    /**
+     * Forgets {@code upload}, freeing its slot.
+     *
+     * @return whether it was still known
+     */
+    private boolean remove(ChunkedUpload upload) {
+        if (uploads.remove(upload.getId(), upload)) {
+            activeUploads.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public ChunkedUpload get(String id) {
+        ChunkedUpload upload = uploads.get(id);
+        if (upload == null) {
+            throw new StorageNotFoundException("Unknown upload: " + id);
+        }
+        return upload;
+    }
+
+    /**
+     * Writes one chunk read from {@code body} at {@code offset}. The chunk is only recorded as
+     * received once all of its bytes were written and their CRC32C matches {@code checksum}; a
+     * chunk sent again is no longer received from its first byte written on, so that a failed
+     * resend leaves it missing rather than corrupt.
+     */
+    public ChunkedUpload writeChunk(String id, long offset, long checksum, InputStream body) {
+        ChunkedUpload upload = get(id);
+        if (offset < 0 || offset >= upload.getSize() || offset % upload.getChunkSize() != 0) {
+            throw new InvalidChunkException("Offset " + offset + " is not a chunk boundary");
+        }
+        int index = (int) (offset / upload.getChunkSize());
+        long expected = upload.chunkLength(index);
+
+        ChunkedUpload.State state = upload.beginWrite(clock.millis());
+        if (state != ChunkedUpload.State.OPEN) {
+            throw closed(upload, state);
+        }
+        inFlightChunks.incrementAndGet();
+        long start = System.nanoTime();
+        boolean claimed = false;
+        boolean verified = false;
+        try {
+            claimed = upload.claimChunk(index);
+            if (!claimed) {
+                throw new InvalidChunkException("Chunk at offset " + offset + " is being written already");
+            }
+            CRC32C crc = new CRC32C();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            FileChannel channel = upload.getChannel();
+            long written = 0;
+            int read;
+            while ((read = read(body, buffer, offset)) != -1) {
+                if (written + read > expected) {
+                    throw new InvalidChunkException("Chunk at offset " + offset + " exceeds " + expected + " bytes");
+                }
+                crc.update(buffer, 0, read);
+                if (written == 0) {
+                    state = upload.overwriteChunk(index);
+                    if (state != ChunkedUpload.State.OPEN) {
+                        throw closed(upload, state);
+                    }
+                }
+                byteBuffer.clear().limit(read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer, offset + written + byteBuffer.position());
+                }
+                written += read;
+                receivedBytes.increment(read);
+            }
+            if (written != expected) {
+                throw new InvalidChunkException("Chunk at offset " + offset + " has " + written
+                        + " bytes, expected " + expected);
+            }
+            if (crc.getValue() != checksum) {
+                throw new InvalidChunkException("Checksum mismatch for chunk at offset " + offset);
+            }
+            verified = true;
+            return upload;
+        } catch (ClosedChannelException e) {
+            // Completed or aborted while this chunk was being written
+            throw closed(upload, upload.getState());
+        } catch (IOException e) {
+            throw new StorageException("Failed to store chunk at offset " + offset, e);
+        } finally {
+            if (claimed) {
+                upload.releaseChunk(index, verified);
+            }
+            upload.endWrite(clock.millis());
+            chunkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            inFlightChunks.decrementAndGet();
+        }
+    }
+
+    /**
+     * Tells a failure to read the request body apart from one to write the part file.
+     */
+    private static int read(InputStream body, byte[] buffer, long offset) {
+        try {
+            return body.read(buffer);
+        } catch (IOException e) {
+            throw new UnreadableBodyException("Failed to read chunk at offset " + offset, e);
+        }
+    }
+
+    private static StorageException closed(ChunkedUpload upload, ChunkedUpload.State state) {
+        if (state == ChunkedUpload.State.COMPLETED) {
+            return new ChunkedUploadCompletedException("Upload " + upload.getId() + " is already complete");
+        }
+        return new StorageNotFoundException("Unknown upload: " + upload.getId());
+    }
+
+    public void complete(String id) {
+        ChunkedUpload upload = get(id);
+        if (!upload.complete()) {
+            ChunkedUpload.State state = upload.getState();
+            if (state != ChunkedUpload.State.OPEN) {
+                throw closed(upload, state);
+            }
+            throw new InvalidChunkException("Upload " + id + " is missing "
+                    + (upload.getChunkCount() - upload.getReceivedChunks()) + " chunks");
+        }
+        remove(upload);
+        try {
+            try {
+                upload.getChannel().force(false);
+                upload.getChannel().close();
+            } catch (IOException e) {
+                throw new StorageException("Failed to flush upload " + id, e);
+            }
+            storageService.store(upload.getPartFile(), upload.getFilename());
+        } catch (RuntimeException e) {
+            deletePartFile(upload);
+            throw e;
+        }
+    }
+
+    public void abort(String id) {
+        ChunkedUpload upload = get(id);
+        if (!upload.close(ChunkedUpload.State.DISCARDED)) {
+            throw closed(upload, upload.getState());
+        }
+        remove(upload);
+        try {
+            upload.getChannel().close();
+            Files.deleteIfExists(upload.getPartFile());
+        } catch (IOException e) {
+            throw new StorageException("Failed to discard upload " + id, e);
+        }
+    }
+
+    /**
+     * Discards the uploads no chunk was sent to for the idle timeout, other than those with a
+     * chunk being written right now.
+     *
+     * @return how many were discarded
+     */
+    int expireIdle() {
+        long deadline = clock.millis() - idleTimeoutMillis;
+        int expired = 0;
+        for (ChunkedUpload upload : uploads.values()) {
+            if (upload.expire(deadline)) {
+                remove(upload);
+                try {
+                    upload.getChannel().close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close expired upload {}", upload.getId(), e);
+                }
+                deletePartFile(upload);
+                expiredUploads.increment();
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private void scheduledSweep() {
+        try {
+            expireIdle();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to expire idle uploads", e);
+        }
+    }
+
+    private static void deletePartFile(ChunkedUpload upload) {
+        deletePartFile(upload.getPartFile());
+    }
+
+    private static void deletePartFile(Path partFile) {
+        try {
+            Files.deleteIfExists(partFile);
+        } catch (IOException e) {
+            logger.warn("Failed to delete part file {}", partFile, e);
+        }
+    }
+
+    /**
+     * Turns away names that storing would reject, before any chunk is sent rather than after
+     * the last one.
+     */
+    private static void checkFilename(String filename) {
+        boolean valid;
+        try {
+            Path path = Paths.get(filename);
+            valid = path.getNameCount() == 1 && !filename.isEmpty() && path.normalize().toString().equals(filename)
+                    && !filename.equals(".") && !filename.equals("..");
+        } catch (InvalidPathException e) {
+            valid = false;
+        }
+        if (!valid) {
+            throw new InvalidChunkException("Invalid file name: " + filename);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+}
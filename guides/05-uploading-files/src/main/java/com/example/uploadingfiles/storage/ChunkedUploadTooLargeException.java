@@ -0,0 +1,11 @@
+package com.example.uploadingfiles.storage;
+
+/**
+ * Thrown for a chunked upload larger than {@code storage.chunked-upload-max-size}.
+ */
+public class ChunkedUploadTooLargeException extends StorageException {
+
+    public ChunkedUploadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.uploadingfiles.storage;
+
+import org.springframework.context.annotation.Conditional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Registers the annotated {@link StorageService} only when {@code storage.backend} selects it.
+ * The property is bound to {@link StorageProperties.Backend} as the properties class binds it, so
+ * {@code content-addressed}, {@code content_addressed} and {@code CONTENT_ADDRESSED} all match.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Conditional(OnStorageBackendCondition.class)
+@interface ConditionalOnStorageBackend {
+
+    StorageProperties.Backend value();
+}
@@ -0,0 +1,263 @@
+package com.example.uploadingfiles.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Stores every distinct content once, as a blob named after its SHA-256 digest.
+ * <p>
+ * Blobs live in {@code blobs/ab/cd/abcd...} below the storage location, so no directory grows
+ * beyond a few thousand entries. File names are mapped to digests by a journaled {@link FileIndex},
+ * and a blob is deleted once no name refers to it anymore. An upload is hashed before anything is
+ * written, from the part the container has already spooled, and only content that is not stored yet
+ * is transferred into a blob, so a duplicate costs a read but no write.
+ */
+@Service
+@ConditionalOnStorageBackend(StorageProperties.Backend.CONTENT_ADDRESSED)
+public class ContentAddressedStorageService implements StorageService {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private final Path rootLocation;
+    private final Path blobs;
+    private final Path incoming;
+    private final FileIndex index;
+
+    /**
+     * Number of names referring to each blob, rebuilt from the index on {@link #init()}.
+     * A blob exists exactly as long as it has an entry here.
+     */
+    private final Map<String, Integer> references = new HashMap<>();
+
+    private final Counter bytesWritten;
+    private final Counter bytesDeduplicated;
+
+    public ContentAddressedStorageService(StorageProperties storageProperties, MeterRegistry meterRegistry) {
+        this.rootLocation = Paths.get(storageProperties.getLocation());
+        this.blobs = rootLocation.resolve("blobs");
+        this.incoming = rootLocation.resolve("incoming");
+        this.index = new FileIndex(rootLocation.resolve("names"));
+        this.bytesWritten = meterRegistry.counter("storage.cas.bytes.written");
+        this.bytesDeduplicated = meterRegistry.counter("storage.cas.bytes.deduplicated");
+    }
+
+    @Override
+    public synchronized void init() {
+        try {
+            Files.createDirectories(blobs);
+            Files.createDirectories(incoming);
+            index.open();
+            references.clear();
+            index.entries().forEach(entry -> references.merge(entry.getDigest(), 1, Integer::sum));
+        } catch (IOException e) {
+            throw new StorageException("Could not initialize storage", e);
+        }
+    }
+
+    @Override
+    public void store(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new StorageException("Failed to store empty file.");
+        }
+        String filename = checkFilename(file.getOriginalFilename());
+        try {
+            String digest;
+            try (InputStream inputStream = file.getInputStream()) {
+                digest = digest(inputStream);
+            }
+            if (linkExisting(filename, file.getSize(), digest)) {
+                return;
+            }
+            Path temp = Files.createTempFile(incoming, null, null);
+            try {
+                // A part spooled to disk by the container is renamed rather than copied here
+                file.transferTo(temp.toAbsolutePath().toFile());
+                if (linkNew(filename, file.getSize(), digest, temp)) {
+                    bytesWritten.increment(file.getSize());
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file.", e);
+        }
+    }
+
+    @Override
+    public void store(Path source, String filename) {
+        filename = checkFilename(filename);
+        try {
+            String digest;
+            try (InputStream inputStream = Files.newInputStream(source)) {
+                digest = digest(inputStream);
+            }
+            long size = Files.size(source);
+            if (!linkExisting(filename, size, digest)) {
+                // The source is already on disk, adopting it as the blob costs no write
+                linkNew(filename, size, digest, source);
+            }
+            Files.deleteIfExists(source);
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file.", e);
+        }
+    }
+
+    @Override
+    public Stream<Path> loadAll() {
+        return index.entries().map(entry -> Paths.get(entry.getName()));
+    }
+
+    @Override
+    public FilePage list(String prefix, FileSort sort, boolean descending, String cursor, int limit) {
+        return index.page(prefix, sort, descending, cursor, limit);
+    }
+
+    @Override
+    public Path load(String filename) {
+        FileEntry entry = index.get(filename);
+        if (entry == null) {
+            throw new StorageNotFoundException("Could not read file: " + filename);
+        }
+        return blobPath(entry.getDigest());
+    }
+
+    @Override
+    public Resource loadAsResource(String filename) {
+        try {
+            Resource resource = new UrlResource(load(filename).toUri());
+            if (resource.exists() || resource.isReadable()) {
+                return resource;
+            }
+            throw new StorageNotFoundException("Could not read file: " + filename);
+        } catch (MalformedURLException e) {
+            throw new StorageNotFoundException("Could not read file: " + filename, e);
+        }
+    }
+
+    @Override
+    public synchronized void deleteAll() {
+        index.clear();
+        references.clear();
+        FileSystemUtils.deleteRecursively(rootLocation.toFile());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        index.close();
+    }
+
+    /**
+     * Points {@code filename} at the blob for {@code digest} if that blob is already stored.
+     */
+    private synchronized boolean linkExisting(String filename, long size, String digest) throws IOException {
+        if (!references.containsKey(digest)) {
+            return false;
+        }
+        bytesDeduplicated.increment(size);
+        link(filename, size, digest);
+        return true;
+    }
+
+    /**
+     * Moves a verified {@code file} into place as the blob for {@code digest}, unless a concurrent
+     * store of the same content got there first, and points {@code filename} at it.
+     *
+     * @return whether {@code file} became the blob
+     */
+    private synchronized boolean linkNew(String filename, long size, String digest, Path file) throws IOException {
+        boolean created = !references.containsKey(digest);
+        if (!created) {
+            bytesDeduplicated.increment(size);
+        } else {
+            Path blob = blobPath(digest);
+            Files.createDirectories(blob.getParent());
+            try {
+                Files.move(file, blob, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(file, blob, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        link(filename, size, digest);
+        return created;
+    }
+
+    /**
+     * Points {@code filename} at the blob and releases the blob it referred to before.
+     */
+    private void link(String filename, long size, String digest) throws IOException {
+        references.merge(digest, 1, Integer::sum);
+        FileEntry previous = index.put(new FileEntry(filename, size, System.currentTimeMillis(), digest));
+        if (previous != null) {
+            release(previous.getDigest());
+        }
+    }
+
+    private void release(String digest) throws IOException {
+        if (references.merge(digest, -1, Integer::sum) <= 0) {
+            references.remove(digest);
+            Files.deleteIfExists(blobPath(digest));
+        }
+    }
+
+    private Path blobPath(String digest) {
+        return blobs.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+    }
+
+    private static String digest(InputStream inputStream) throws IOException {
+        MessageDigest digest = messageDigest();
+        byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest messageDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static String checkFilename(String filename) {
+        boolean valid;
+        try {
+            valid = filename != null && !filename.isEmpty()
+                    && Paths.get(filename).normalize().toString().equals(filename)
+                    && Paths.get(filename).getNameCount() == 1
+                    && !filename.equals(".") && !filename.equals("..");
+        } catch (InvalidPathException e) {
+            valid = false;
+        }
+        if (!valid) {
+            // Names are only index keys here, but keep the same rules as the file system backend
+            throw new InvalidFilenameException("Cannot store file outside current directory.");
+        }
+        return filename;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.uploadingfiles.storage;
+
+public class FileEntry {
+
+    private final String name;
+    private final long size;
+    private final long lastModified;
+    private final String digest;
+
+    public FileEntry(String name, long size, long lastModified) {
+        this(name, size, lastModified, null);
+    }
+
+    public FileEntry(String name, long size, long lastModified, String digest) {
+        this.name = name;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.digest = digest;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Hex digest of the content, for backends that address files by content, otherwise {@code null}.
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    @Override
+    public String toString() {
+        return "FileEntry{" +
+                "name='" + name + '\'' +
+                ", size=" + size +
+                ", lastModified=" + lastModified +
+                ", digest='" + digest + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.uploadingfiles.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of stored files, kept sorted in every {@link FileSort} order so that a page of
+ * entries costs the size of the page rather than the number of files.
+ * <p>
+ * Changes are appended to a journal, so the index is available right after a restart. When it
+ * {@link #watch(Path) watches} a directory, a background thread then reconciles it with the
+ * directory and keeps following changes made behind the service's back through a {@link WatchService}.
+ */
+class FileIndex implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileIndex.class);
+
+    private final Path journal;
+    private final Map<String, FileEntry> byName = new ConcurrentHashMap<>();
+    private final Map<FileSort, NavigableSet<FileEntry>> sorted = new EnumMap<>(FileSort.class);
+
+    private Writer journalWriter;
+    private int journalRecords;
+    private WatchService watchService;
+
+    FileIndex(Path journal) {
+        this.journal = journal;
+        for (FileSort sort : FileSort.values()) {
+            sorted.put(sort, new ConcurrentSkipListSet<>(sort.comparator()));
+        }
+    }
+
+    /**
+     * Loads the journal.
+     */
+    synchronized void open() throws IOException {
+        close();
+        if (Files.exists(journal)) {
+            try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    replay(line);
+                }
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Keeps the index in sync with the files directly inside {@code root}, which must exist.
+     */
+    synchronized void watch(Path root) throws IOException {
+        watchService = root.getFileSystem().newWatchService();
+        root.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        WatchService service = watchService;
+        Thread watcher = new Thread(() -> watch(root, service), "file-index-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    FileEntry get(String name) {
+        return byName.get(name);
+    }
+
+    Stream<FileEntry> entries() {
+        return sorted.get(FileSort.NAME).stream();
+    }
+
+    FilePage page(String prefix, FileSort sort, boolean descending, String cursor, int limit) {
+        if (!prefix.isEmpty() && sort != FileSort.NAME) {
+            return pageByPrefix(prefix, sort, descending, cursor, limit);
+        }
+        NavigableSet<FileEntry> view = descending ? sorted.get(sort).descendingSet() : sorted.get(sort);
+        boolean byName = sort == FileSort.NAME && !prefix.isEmpty();
+        if (cursor != null) {
+            view = view.tailSet(decodeCursor(cursor), false);
+        } else if (byName) {
+            // Jump straight to where the names with this prefix start
+            view = view.tailSet(new FileEntry(descending ? prefix + Character.MAX_VALUE : prefix, 0, 0), true);
+        }
+
+        List<FileEntry> entries = new ArrayList<>(limit);
+        boolean more = false;
+        for (FileEntry entry : view) {
+            if (!entry.getName().startsWith(prefix)) {
+                if (byName && (descending ? entry.getName().compareTo(prefix) < 0 : entry.getName().compareTo(prefix) > 0)) {
+                    break;
+                }
+                continue;
+            }
+            if (entries.size() == limit) {
+                more = true;
+                break;
+            }
+            entries.add(entry);
+        }
+        return new FilePage(entries, more ? encodeCursor(entries.get(entries.size() - 1)) : null);
+    }
+
+    /**
+     * Pages the files with a name prefix in an order other than by name. Only the names with the
+     * prefix are visited, found through the name order, keeping the first {@code limit} of them in
+     * a bounded heap, so the cost follows the number of matches rather than of all files.
+     */
+    private FilePage pageByPrefix(String prefix, FileSort sort, boolean descending, String cursor, int limit) {
+        Comparator<FileEntry> order = descending ? sort.comparator().reversed() : sort.comparator();
+        FileEntry after = cursor != null ? decodeCursor(cursor) : null;
+        // Holds one entry more than the page, which only tells whether there is a next page
+        PriorityQueue<FileEntry> first = new PriorityQueue<>(limit + 1, order.reversed());
+        for (FileEntry entry : sorted.get(FileSort.NAME).tailSet(new FileEntry(prefix, 0, 0), true)) {
+            if (!entry.getName().startsWith(prefix)) {
+                break;
+            }
+            if (after != null && order.compare(entry, after) <= 0) {
+                continue;
+            }
+            first.add(entry);
+            if (first.size() > limit + 1) {
+                first.poll();
+            }
+        }
+        List<FileEntry> entries = new ArrayList<>(first);
+        entries.sort(order);
+        if (entries.size() <= limit) {
+            return new FilePage(entries, null);
+        }
+        entries = new ArrayList<>(entries.subList(0, limit));
+        return new FilePage(entries, encodeCursor(entries.get(limit - 1)));
+    }
+
+    void update(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.isRegularFile()) {
+                put(new FileEntry(name, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                return;
+            }
+        } catch (IOException e) {
+            // gone already, fall through to removal
+        }
+        remove(name);
+    }
+
+    synchronized void clear() {
+        byName.clear();
+        sorted.values().forEach(Set::clear);
+        try {
+            close();
+            Files.deleteIfExists(journal);
+        } catch (IOException e) {
+            throw new StorageException("Failed to clear file index", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+        if (journalWriter != null) {
+            journalWriter.close();
+            journalWriter = null;
+        }
+    }
+
+    /**
+     * Adds or replaces the entry with the same name.
+     *
+     * @return the replaced entry, or {@code null}
+     */
+    synchronized FileEntry put(FileEntry entry) {
+        FileEntry previous = byName.get(entry.getName());
+        if (previous != null && previous.getSize() == entry.getSize()
+                && previous.getLastModified() == entry.getLastModified()
+                && Objects.equals(previous.getDigest(), entry.getDigest())) {
+            return previous;
+        }
+        index(entry);
+        append(record(entry));
+        return previous;
+    }
+
+    /**
+     * @return the removed entry, or {@code null}
+     */
+    synchronized FileEntry remove(String name) {
+        FileEntry previous = unindex(name);
+        if (previous != null) {
+            append("-\t" + encodeName(name));
+        }
+        return previous;
+    }
+
+    private void index(FileEntry entry) {
+        FileEntry previous = byName.put(entry.getName(), entry);
+        for (NavigableSet<FileEntry> set : sorted.values()) {
+            if (previous != null) {
+                set.remove(previous);
+            }
+            set.add(entry);
+        }
+    }
+
+    private FileEntry unindex(String name) {
+        FileEntry previous = byName.remove(name);
+        if (previous != null) {
+            sorted.values().forEach(set -> set.remove(previous));
+        }
+        return previous;
+    }
+
+    private static String record(FileEntry entry) {
+        String record = "+\t" + entry.getSize() + "\t" + entry.getLastModified() + "\t" + encodeName(entry.getName());
+        return entry.getDigest() == null ? record : record + "\t" + entry.getDigest();
+    }
+
+    private void replay(String line) {
+        String[] fields = line.split("\t");
+        if (fields[0].equals("+") && (fields.length == 4 || fields.length == 5)) {
+            index(new FileEntry(decodeName(fields[3]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                    fields.length == 5 ? fields[4] : null));
+        } else if (fields[0].equals("-") && fields.length == 2) {
+            unindex(decodeName(fields[1]));
+        }
+    }
+
+    private void append(String record) {
+        try {
+            if (journalWriter == null) {
+                journalWriter = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            journalWriter.write(record);
+            journalWriter.write('\n');
+            journalWriter.flush();
+            if (++journalRecords > 2 * byName.size() + 1024) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to write file index journal " + journal, e);
+        }
+    }
+
+    /**
+     * Rewrites the journal as one record per indexed file.
+     */
+    private synchronized void compact() throws IOException {
+        if (journalWriter != null) {
+            journalWriter.close();
+            journalWriter = null;
+        }
+        Path snapshot = journal.resolveSibling(journal.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(snapshot, StandardCharsets.UTF_8)) {
+            for (FileEntry entry : sorted.get(FileSort.NAME)) {
+                writer.write(record(entry) + "\n");
+            }
+        }
+        Files.move(snapshot, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalRecords = byName.size();
+    }
+
+    /**
+     * Applies a change seen by a watcher, unless the index stopped watching in the meantime and
+     * must not be written to by it anymore.
+     */
+    private synchronized void update(Path file, WatchService watcher) {
+        if (watchService == watcher) {
+            update(file);
+        }
+    }
+
+    private void reconcile(Path root, WatchService watcher) {
+        Set<String> seen = new HashSet<>();
+        try (Stream<Path> files = Files.list(root)) {
+            files.forEach(file -> {
+                seen.add(file.getFileName().toString());
+                update(file, watcher);
+            });
+        } catch (IOException | UncheckedIOException | StorageException e) {
+            logger.warn("Failed to reconcile file index with {}", root, e);
+            return;
+        }
+        for (String name : byName.keySet()) {
+            if (!seen.contains(name)) {
+                // Stored after the listing, or really gone
+                update(root.resolve(name), watcher);
+            }
+        }
+    }
+
+    private void watch(Path root, WatchService watchService) {
+        reconcile(root, watchService);
+        try {
+            WatchKey key;
+            do {
+                key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        reconcile(root, watchService);
+                    } else {
+                        try {
+                            update(root.resolve((Path) event.context()), watchService);
+                        } catch (StorageException e) {
+                            logger.warn("Failed to index {}", event.context(), e);
+                        }
+                    }
+                }
+            } while (key.reset());
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // index closed
+        }
+    }
+
+    private static String encodeName(String name) {
+        return URLEncoder.encode(name, StandardCharsets.UTF_8);
+    }
+
+    private static String decodeName(String name) {
+        return URLDecoder.decode(name, StandardCharsets.UTF_8);
+    }
+
+    private static String encodeCursor(FileEntry entry) {
+        String cursor = entry.getSize() + "/" + entry.getLastModified() + "/" + entry.getName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static FileEntry decodeCursor(String cursor) {
+        try {
+            String[] fields = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("/", 3);
+            return new FileEntry(fields[2], Long.parseLong(fields[0]), Long.parseLong(fields[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Malformed cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.uploadingfiles.storage;
+
+import java.util.List;
+
+public class FilePage {
+
+    private final List<FileEntry> entries;
+    private final String nextCursor;
+
+    public FilePage(List<FileEntry> entries, String nextCursor) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<FileEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Cursor to pass to get the following page, or {@code null} on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
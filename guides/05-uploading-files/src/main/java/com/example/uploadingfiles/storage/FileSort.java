@@ -0,0 +1,26 @@
+package com.example.uploadingfiles.storage;
+
+import java.util.Comparator;
+
+/**
+ * Orders in which stored files can be listed. Every order falls back to the name, so the
+ * position of an entry, and therefore a pagination cursor, is always unambiguous.
+ */
+public enum FileSort {
+
+    NAME(Comparator.comparing(FileEntry::getName)),
+
+    SIZE(Comparator.comparingLong(FileEntry::getSize).thenComparing(FileEntry::getName)),
+
+    LAST_MODIFIED(Comparator.comparingLong(FileEntry::getLastModified).thenComparing(FileEntry::getName));
+
+    private final Comparator<FileEntry> comparator;
+
+    FileSort(Comparator<FileEntry> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<FileEntry> comparator() {
+        return comparator;
+    }
+}
@@ -7,24 +7,31 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.FileSystemUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.stream.Stream;
 
 @Service
+@ConditionalOnStorageBackend(StorageProperties.Backend.FILESYSTEM)
 public class FileSystemStorageService implements StorageService {
 
     private final Path rootLocation;
 
+    private final FileIndex index;
+
     @Autowired
     public FileSystemStorageService(StorageProperties storageProperties) {
         this.rootLocation = Paths.get(storageProperties.getLocation());
+        this.index = new FileIndex(Paths.get(storageProperties.getIndexLocation()));
     }
 
 
@@ -32,6 +39,8 @@ public class FileSystemStorageService implements StorageService {
     public void init() {
         try {
             Files.createDirectories(rootLocation);
+            index.open();
+            index.watch(rootLocation);
         } catch (IOException e) {
             throw new StorageException("Could not initialize storage", e);
         }
@@ -43,18 +52,12 @@ public class FileSystemStorageService implements StorageService {
             if (file.isEmpty()) {
                 throw new StorageException("Failed to store empty file.");
             }
-            Path destinationFile = this.rootLocation.resolve(
-                    Paths.get(file.getOriginalFilename()))
-                    .normalize().toAbsolutePath();
-            if (!destinationFile.getParent().equals(this.rootLocation.toAbsolutePath())) {
-                // This is a security check
-                throw new StorageException(
-                        "Cannot store file outside current directory.");
-            }
+            Path destinationFile = resolveDestination(file.getOriginalFilename());
             try (InputStream inputStream = file.getInputStream()) {
                 Files.copy(inputStream, destinationFile,
                         StandardCopyOption.REPLACE_EXISTING);
             }
+            index.update(destinationFile);
         }
         catch (IOException e) {
             throw new StorageException("Failed to store file.", e);
@@ -62,14 +65,46 @@ public class FileSystemStorageService implements StorageService {
     }
 
     @Override
-    public Stream<Path> loadAll() {
+    public void store(Path source, String filename) {
+        Path destinationFile = resolveDestination(filename);
         try {
-            return Files.walk(this.rootLocation, 1)
-                    .filter(path -> !path.equals(this.rootLocation))
-                    .map(this.rootLocation::relativize);
-        } catch (IOException e) {
-           throw new StorageNotFoundException("Failed to read stored files",e);
+            try {
+                Files.move(source, destinationFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, destinationFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            index.update(destinationFile);
+        }
+        catch (IOException e) {
+            throw new StorageException("Failed to store file.", e);
+        }
+    }
+
+    private Path resolveDestination(String filename) {
+        Path destinationFile;
+        try {
+            destinationFile = this.rootLocation.resolve(
+                    Paths.get(filename))
+                    .normalize().toAbsolutePath();
+        } catch (InvalidPathException e) {
+            throw new InvalidFilenameException("Invalid file name: " + filename);
+        }
+        if (!this.rootLocation.toAbsolutePath().equals(destinationFile.getParent())) {
+            // This is a security check
+            throw new InvalidFilenameException(
+                    "Cannot store file outside current directory.");
         }
+        return destinationFile;
+    }
+
+    @Override
+    public Stream<Path> loadAll() {
+        return index.entries().map(entry -> Paths.get(entry.getName()));
+    }
+
+    @Override
+    public FilePage list(String prefix, FileSort sort, boolean descending, String cursor, int limit) {
+        return index.page(prefix, sort, descending, cursor, limit);
     }
 
     @Override
@@ -98,6 +133,12 @@ public class FileSystemStorageService implements StorageService {
 
     @Override
     public void deleteAll() {
+        index.clear();
         FileSystemUtils.deleteRecursively(rootLocation.toFile());
     }
+
+    @PreDestroy
+    public void close() throws IOException {
+        index.close();
+    }
 }
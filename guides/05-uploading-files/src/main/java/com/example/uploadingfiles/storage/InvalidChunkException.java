@@ -0,0 +1,8 @@
+package com.example.uploadingfiles.storage;
+
+public class InvalidChunkException extends StorageException {
+
+    public InvalidChunkException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.uploadingfiles.storage;
+
+public class InvalidCursorException extends StorageException {
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.uploadingfiles.storage;
+
+public class InvalidFilenameException extends StorageException {
+
+    public InvalidFilenameException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.uploadingfiles.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Matches the {@link ConditionalOnStorageBackend} backend against the bound {@code storage.backend}.
+ */
+class OnStorageBackendCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        StorageProperties.Backend required = (StorageProperties.Backend) metadata
+                .getAnnotationAttributes(ConditionalOnStorageBackend.class.getName()).get("value");
+        StorageProperties.Backend backend = Binder.get(context.getEnvironment())
+                .bind("storage.backend", StorageProperties.Backend.class)
+                .orElse(StorageProperties.Backend.FILESYSTEM);
+        if (backend == required) {
+            return ConditionOutcome.match("storage.backend is " + backend);
+        }
+        return ConditionOutcome.noMatch("storage.backend is " + backend + ", not " + required);
+    }
+}
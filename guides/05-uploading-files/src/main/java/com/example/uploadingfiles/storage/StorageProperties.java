@@ -1,12 +1,58 @@
 package com.example.uploadingfiles.storage;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
 
 @ConfigurationProperties("storage")
 public class StorageProperties {
 
     private String location = "upload-dir";
 
+    /**
+     * Storage implementation, either {@code filesystem} or {@code content-addressed}.
+     */
+    private Backend backend = Backend.FILESYSTEM;
+
+    /**
+     * Directory holding the partially written files of chunked uploads.
+     */
+    private String partsLocation = "upload-parts";
+
+    /**
+     * Journal file persisting the index of stored files across restarts.
+     */
+    private String indexLocation = "upload-index";
+
+    /**
+     * Size in bytes of every chunk of a chunked upload, except the last one.
+     */
+    private int chunkSize = 4 * 1024 * 1024;
+
+    /**
+     * How long a chunked upload may go without a chunk before it is discarded.
+     */
+    private Duration chunkedUploadIdleTimeout = Duration.ofHours(1);
+
+    /**
+     * Largest file a chunked upload may announce, larger ones are refused with a 413.
+     */
+    private DataSize chunkedUploadMaxSize = DataSize.ofGigabytes(16);
+
+    /**
+     * Chunked uploads that may be in progress at once, each holding an open part file, before
+     * new ones are refused with a 429.
+     */
+    private int chunkedUploadMaxActive = 64;
+
+    /**
+     * Whether to delete every stored file, and the index, when the application starts.
+     */
+    private boolean deleteAllOnStartup = false;
+
+    private final Upload upload = new Upload();
+
     public String getLocation() {
         return location;
     }
@@ -14,4 +60,146 @@ public class StorageProperties {
     public void setLocation(String location) {
         this.location = location;
     }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+
+    public String getPartsLocation() {
+        return partsLocation;
+    }
+
+    public void setPartsLocation(String partsLocation) {
+        this.partsLocation = partsLocation;
+    }
+
+    public String getIndexLocation() {
+        return indexLocation;
+    }
+
+    public void setIndexLocation(String indexLocation) {
+        this.indexLocation = indexLocation;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive, was " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public Duration getChunkedUploadIdleTimeout() {
+        return chunkedUploadIdleTimeout;
+    }
+
+    public void setChunkedUploadIdleTimeout(Duration chunkedUploadIdleTimeout) {
+        this.chunkedUploadIdleTimeout = chunkedUploadIdleTimeout;
+    }
+
+    public DataSize getChunkedUploadMaxSize() {
+        return chunkedUploadMaxSize;
+    }
+
+    public void setChunkedUploadMaxSize(DataSize chunkedUploadMaxSize) {
+        this.chunkedUploadMaxSize = chunkedUploadMaxSize;
+    }
+
+    public int getChunkedUploadMaxActive() {
+        return chunkedUploadMaxActive;
+    }
+
+    public void setChunkedUploadMaxActive(int chunkedUploadMaxActive) {
+        this.chunkedUploadMaxActive = chunkedUploadMaxActive;
+    }
+
+    public boolean isDeleteAllOnStartup() {
+        return deleteAllOnStartup;
+    }
+
+    public void setDeleteAllOnStartup(boolean deleteAllOnStartup) {
+        this.deleteAllOnStartup = deleteAllOnStartup;
+    }
+
+    public Upload getUpload() {
+        return upload;
+    }
+
+    public enum Backend {
+
+        /**
+         * Every file is stored as-is under its original name.
+         */
+        FILESYSTEM,
+
+        /**
+         * Identical contents are stored once, see {@link ContentAddressedStorageService}.
+         */
+        CONTENT_ADDRESSED
+    }
+
+    /**
+     * Limits of the pipeline that writes multipart uploads off the request threads.
+     */
+    public static class Upload {
+
+        /**
+         * Number of threads writing uploads to storage.
+         */
+        private int threads = 8;
+
+        /**
+         * Uploads waiting for a writer thread before new ones are turned away with a 503.
+         */
+        private int queueCapacity = 64;
+
+        /**
+         * Uploads a single client may have in the pipeline at once before getting a 429.
+         */
+        private int perClientLimit = 4;
+
+        /**
+         * Seconds a turned away client is asked to wait before retrying.
+         */
+        private int retryAfter = 5;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getPerClientLimit() {
+            return perClientLimit;
+        }
+
+        public void setPerClientLimit(int perClientLimit) {
+            this.perClientLimit = perClientLimit;
+        }
+
+        public int getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(int retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+    }
 }
@@ -13,8 +13,20 @@ public interface StorageService {
 
     void store(MultipartFile file);
 
+    /**
+     * Stores an already written file under the given name, taking ownership of {@code source}.
+     */
+    void store(Path source, String filename);
+
     Stream<Path> loadAll();
 
+    /**
+     * Lists one page of stored files whose name starts with {@code prefix}.
+     *
+     * @param cursor the {@link FilePage#getNextCursor() cursor} of the previous page, or {@code null} for the first page
+     */
+    FilePage list(String prefix, FileSort sort, boolean descending, String cursor, int limit);
+
     Path load(String filename);
 
     Resource loadAsResource(String filename);
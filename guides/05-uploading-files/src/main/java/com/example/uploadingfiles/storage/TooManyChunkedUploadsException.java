@@ -0,0 +1,11 @@
+package com.example.uploadingfiles.storage;
+
+/**
+ * Thrown when {@code storage.chunked-upload-max-active} uploads are in progress already.
+ */
+public class TooManyChunkedUploadsException extends StorageException {
+
+    public TooManyChunkedUploadsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.uploadingfiles.storage;
+
+/**
+ * Thrown when the body of an upload cannot be read from the client, which went away or sent less
+ * than it announced. Nothing is wrong with the storage.
+ */
+public class UnreadableBodyException extends StorageException {
+
+    public UnreadableBodyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
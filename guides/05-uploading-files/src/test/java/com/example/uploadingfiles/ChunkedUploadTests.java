@@ -0,0 +1,126 @@
+package com.example.uploadingfiles;
+
+import com.example.uploadingfiles.storage.StorageService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest
+@TestPropertySource(properties = {"storage.chunk-size=4"})
+public class ChunkedUploadTests {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void shouldAssembleChunksSentOutOfOrder() throws Exception {
+        String id = startUpload("chunked.txt");
+
+        putChunk(id, 8).andExpect(status().isOk());
+        putChunk(id, 0).andExpect(status().isOk());
+
+        this.mvc.perform(get("/uploads/" + id)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.receivedChunks").value(2))
+                .andExpect(jsonPath("$.missingOffsets", contains(4)));
+        this.mvc.perform(post("/uploads/" + id + "/complete")).andExpect(status().isBadRequest());
+
+        putChunk(id, 4).andExpect(status().isOk());
+        this.mvc.perform(post("/uploads/" + id + "/complete")).andExpect(status().isNoContent());
+
+        assertThat(Files.readAllBytes(storageService.load("chunked.txt"))).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void shouldRejectChunkWithWrongChecksum() throws Exception {
+        String id = startUpload("corrupt.txt");
+
+        this.mvc.perform(put("/uploads/" + id).param("offset", "0")
+                        .header("X-Chunk-Checksum", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(Arrays.copyOfRange(CONTENT, 0, 4)))
+                .andExpect(status().isBadRequest());
+
+        this.mvc.perform(get("/uploads/" + id))
+                .andExpect(jsonPath("$.receivedChunks").value(0));
+    }
+
+    @Test
+    public void shouldForgetUploadOnceComplete() throws Exception {
+        String id = startUpload("done.txt");
+        putChunk(id, 0).andExpect(status().isOk());
+        putChunk(id, 4).andExpect(status().isOk());
+        putChunk(id, 8).andExpect(status().isOk());
+        this.mvc.perform(post("/uploads/" + id + "/complete")).andExpect(status().isNoContent());
+
+        putChunk(id, 0).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldRejectInvalidFilenameAtStart() throws Exception {
+        this.mvc.perform(post("/uploads")
+                        .param("filename", "../escape.txt")
+                        .param("size", String.valueOf(CONTENT.length)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldRejectTooLargeUploadAtStart() throws Exception {
+        this.mvc.perform(post("/uploads")
+                        .param("filename", "huge.bin")
+                        .param("size", String.valueOf(Long.MAX_VALUE)))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    public void should404WhenUploadIsUnknown() throws Exception {
+        this.mvc.perform(get("/uploads/missing")).andExpect(status().isNotFound());
+    }
+
+    private String startUpload(String filename) throws Exception {
+        String body = this.mvc.perform(post("/uploads")
+                        .param("filename", filename)
+                        .param("size", String.valueOf(CONTENT.length)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode upload = objectMapper.readTree(body);
+        assertThat(upload.get("chunkCount").asInt()).isEqualTo(3);
+        return upload.get("id").asText();
+    }
+
+    private ResultActions putChunk(String id, int offset) throws Exception {
+        byte[] chunk = Arrays.copyOfRange(CONTENT, offset, Math.min(offset + 4, CONTENT.length));
+        CRC32C crc = new CRC32C();
+        crc.update(chunk);
+        return this.mvc.perform(put("/uploads/" + id).param("offset", String.valueOf(offset))
+                .header("X-Chunk-Checksum", Long.toHexString(crc.getValue()))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(chunk));
+    }
+}
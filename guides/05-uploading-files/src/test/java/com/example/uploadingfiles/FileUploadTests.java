@@ -1,21 +1,32 @@
 package com.example.uploadingfiles;
 
+import com.example.uploadingfiles.storage.FileEntry;
+import com.example.uploadingfiles.storage.FilePage;
+import com.example.uploadingfiles.storage.FileSort;
+import com.example.uploadingfiles.storage.InvalidFilenameException;
 import com.example.uploadingfiles.storage.StorageNotFoundException;
 import com.example.uploadingfiles.storage.StorageService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.UrlResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
-import java.nio.file.Paths;
-import java.util.stream.Stream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,8 +43,9 @@ public class FileUploadTests {
 
     @Test
     public void shouldListAllFiles() throws Exception {
-        given(this.storageService.loadAll())
-                .willReturn(Stream.of(Paths.get("first.txt"), Paths.get("second.txt")));
+        given(this.storageService.list("", FileSort.NAME, false, null, 100))
+                .willReturn(new FilePage(List.of(new FileEntry("first.txt", 1, 0),
+                        new FileEntry("second.txt", 2, 0)), null));
 
         this.mvc.perform(get("/")).andExpect(status().isOk())
                 .andExpect(model().attribute("files",
@@ -41,6 +53,118 @@ public class FileUploadTests {
                                 "http://localhost/files/second.txt")));
     }
 
+    @Test
+    public void shouldPassPagingParameters() throws Exception {
+        given(this.storageService.list("img", FileSort.SIZE, true, "abc", 10))
+                .willReturn(new FilePage(List.of(new FileEntry("img 1.png", 5, 0)), "def"));
+
+        this.mvc.perform(get("/").param("prefix", "img").param("sort", "SIZE")
+                        .param("descending", "true").param("cursor", "abc").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("files", Matchers.contains("http://localhost/files/img%201.png")))
+                .andExpect(model().attribute("nextCursor", "def"));
+    }
+
+    @Test
+    public void shouldServeRequestedRange(@TempDir Path dir) throws Exception {
+        givenStoredFile(dir, "range.txt", "0123456789");
+
+        this.mvc.perform(get("/files/range.txt").header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+    }
+
+    @Test
+    public void shouldServeMultipleRanges(@TempDir Path dir) throws Exception {
+        givenStoredFile(dir, "ranges.txt", "0123456789");
+
+        this.mvc.perform(get("/files/ranges.txt").header(HttpHeaders.RANGE, "bytes=0-1,8-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, Matchers.startsWith("multipart/byteranges")))
+                .andExpect(content().string(Matchers.containsString("Content-Range: bytes 8-9/10\r\n\r\n89")));
+    }
+
+    @Test
+    public void should416WhenRangeIsUnsatisfiable(@TempDir Path dir) throws Exception {
+        givenStoredFile(dir, "short.txt", "0123456789");
+
+        this.mvc.perform(get("/files/short.txt").header(HttpHeaders.RANGE, "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    public void shouldIgnoreMalformedRange(@TempDir Path dir) throws Exception {
+        givenStoredFile(dir, "malformed.txt", "0123456789");
+
+        for (String range : new String[]{"bytes=5-2", "bytes=abc", "items=0-1"}) {
+            this.mvc.perform(get("/files/malformed.txt").header(HttpHeaders.RANGE, range))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                    .andExpect(content().string("0123456789"));
+        }
+    }
+
+    @Test
+    public void shouldIgnoreRangeWhenIfRangeIsWeakOrNotADate(@TempDir Path dir) throws Exception {
+        givenStoredFile(dir, "if-range.txt", "0123456789");
+
+        for (String ifRange : new String[]{"W/\"abc\"", "yesterday"}) {
+            this.mvc.perform(get("/files/if-range.txt")
+                            .header(HttpHeaders.RANGE, "bytes=2-5")
+                            .header(HttpHeaders.IF_RANGE, ifRange))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("0123456789"));
+        }
+    }
+
+    @Test
+    public void should304WhenETagMatches(@TempDir Path dir) throws Exception {
+        givenStoredFile(dir, "cached.txt", "0123456789");
+
+        String eTag = this.mvc.perform(get("/files/cached.txt"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mvc.perform(get("/files/cached.txt").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    private void givenStoredFile(Path dir, String filename, String content) throws Exception {
+        Path file = Files.writeString(dir.resolve(filename), content);
+        given(this.storageService.loadAsResource(filename)).willReturn(new UrlResource(file.toUri()));
+    }
+
+    @Test
+    public void shouldSaveUploadedFile() throws Exception {
+        MockMultipartFile multipartFile = new MockMultipartFile("file", "test.txt",
+                "text/plain", "Spring Framework".getBytes());
+        MvcResult result = this.mvc.perform(multipart("/").file(multipartFile))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mvc.perform(asyncDispatch(result)).andExpect(status().isFound())
+                .andExpect(header().string("Location", "/"));
+
+        then(this.storageService).should().store(multipartFile);
+    }
+
+    @Test
+    public void should400WhenFilenameIsInvalid() throws Exception {
+        MockMultipartFile multipartFile = new MockMultipartFile("file", "../test.txt",
+                "text/plain", "Spring Framework".getBytes());
+        willThrow(new InvalidFilenameException("Cannot store file outside current directory."))
+                .given(this.storageService).store(multipartFile);
+        MvcResult result = this.mvc.perform(multipart("/").file(multipartFile))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void should404WhenMissingFile() throws Exception {
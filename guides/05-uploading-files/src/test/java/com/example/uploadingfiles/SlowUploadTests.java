@@ -0,0 +1,117 @@
+package com.example.uploadingfiles;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends uploads whose body stalls half way, as a slow client's would, to a server with as many
+ * request threads as uploads.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=2",
+        "storage.upload.threads=2"})
+public class SlowUploadTests {
+
+    private static final int UPLOADS = 2;
+    private static final String BOUNDARY = "slow-upload-boundary";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Socket> sockets = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void shouldReadUploadBodiesOnThePipeline() throws Exception {
+        String head = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"slow.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\nfirst half, ";
+        String tail = "second half\r\n--" + BOUNDARY + "--\r\n";
+        for (int i = 0; i < UPLOADS; i++) {
+            Socket socket = new Socket("localhost", port);
+            socket.setSoTimeout(10_000);
+            sockets.add(socket);
+            write(socket, "POST / HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Type: multipart/form-data; boundary=" + BOUNDARY + "\r\n"
+                    + "Content-Length: " + (head.length() + tail.length()) + "\r\n\r\n" + head);
+        }
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (meterRegistry.get("uploads.active").gauge().value() < UPLOADS && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.get("uploads.active").gauge().value()).isEqualTo(UPLOADS);
+
+        // Both request threads are free while the pipeline waits for the rest of the bodies
+        HttpResponse<Void> listing = HttpClient.newHttpClient().send(HttpRequest.newBuilder(uri("/"))
+                .timeout(Duration.ofSeconds(5)).build(), HttpResponse.BodyHandlers.discarding());
+        assertThat(listing.statusCode()).isEqualTo(200);
+
+        for (Socket socket : sockets) {
+            write(socket, tail);
+            String status = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII)).readLine();
+            assertThat(status).startsWith("HTTP/1.1 302");
+        }
+    }
+
+    @Test
+    public void should400WhenTheBodyEndsEarly() throws Exception {
+        String head = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"cut.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\nfirst half, ";
+        Socket socket = new Socket("localhost", port);
+        socket.setSoTimeout(10_000);
+        sockets.add(socket);
+        write(socket, "POST / HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Type: multipart/form-data; boundary=" + BOUNDARY + "\r\n"
+                + "Content-Length: " + (head.length() + 100) + "\r\n\r\n" + head);
+        socket.shutdownOutput();
+
+        // The connector may also drop the connection of a client that stopped sending, but never blames the server
+        String status = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.US_ASCII)).readLine();
+        if (status != null) {
+            assertThat(status).startsWith("HTTP/1.1 400");
+        }
+    }
+
+    private static void write(Socket socket, String data) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(data.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.uploadingfiles;
+
+import com.example.uploadingfiles.storage.FilePage;
+import com.example.uploadingfiles.storage.FileSort;
+import com.example.uploadingfiles.storage.FileSystemStorageService;
+import com.example.uploadingfiles.storage.StorageService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mixes slow uploads, sent by slow clients to a slow disk, with downloads against a server with
+ * few request threads and reports the latency of each. Run with {@code ./gradlew loadTest}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=8",
+        "storage.upload.threads=4",
+        "storage.upload.queue-capacity=16",
+        "storage.upload.per-client-limit=1000"})
+public class UploadLoadTest {
+
+    private static final Duration WRITE_DELAY = Duration.ofMillis(200);
+    private static final Duration SEND_PAUSE = Duration.ofMillis(25);
+    private static final int SEND_PIECES = 4;
+    private static final Duration TEST_DURATION = Duration.ofSeconds(10);
+    private static final int UPLOADERS = 32;
+    private static final int DOWNLOADERS = 8;
+    private static final String BOUNDARY = "load-test-boundary";
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Test
+    public void reportLatencyOfMixedUploadsAndDownloads() throws Exception {
+        send(upload("download.bin"));
+
+        List<Long> uploadLatencies = Collections.synchronizedList(new ArrayList<>());
+        List<Long> downloadLatencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long deadline = System.nanoTime() + TEST_DURATION.toNanos();
+
+        ExecutorService workers = Executors.newFixedThreadPool(UPLOADERS + DOWNLOADERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < UPLOADERS; i++) {
+            int uploader = i;
+            futures.add(workers.submit(() -> {
+                for (int n = 0; System.nanoTime() < deadline; n++) {
+                    long start = System.nanoTime();
+                    int status = send(upload("upload-" + uploader + "-" + n + ".bin"));
+                    if (status == 302) {
+                        uploadLatencies.add(System.nanoTime() - start);
+                    } else if (status == 503 || status == 429) {
+                        rejected.incrementAndGet();
+                        Thread.sleep(WRITE_DELAY.toMillis());
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < DOWNLOADERS; i++) {
+            futures.add(workers.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    if (send(HttpRequest.newBuilder(uri("/files/download.bin")).build()) == 200) {
+                        downloadLatencies.add(System.nanoTime() - start);
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        workers.shutdown();
+
+        System.out.printf("uploads:   %6d ok, %5d rejected, p50 %6.1f ms, p99 %6.1f ms%n", uploadLatencies.size(),
+                rejected.get(), percentile(uploadLatencies, 50), percentile(uploadLatencies, 99));
+        System.out.printf("downloads: %6d ok, %5s          p50 %6.1f ms, p99 %6.1f ms%n", downloadLatencies.size(),
+                "", percentile(downloadLatencies, 50), percentile(downloadLatencies, 99));
+
+        assertThat(failed.get()).isZero();
+        // Downloads must not queue behind the slow writes for a request thread
+        assertThat(percentile(downloadLatencies, 99)).isLessThan(percentile(uploadLatencies, 50));
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest upload(String filename) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.write(new byte[64 * 1024]);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        byte[] bytes = body.toByteArray();
+        return HttpRequest.newBuilder(uri("/"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.fromPublisher(
+                        HttpRequest.BodyPublishers.ofInputStream(() -> new TricklingInputStream(bytes)), bytes.length))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static double percentile(List<Long> latencies, int percentile) {
+        if (latencies.isEmpty()) {
+            return Double.NaN;
+        }
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return sorted.get((int) Math.ceil(percentile / 100.0 * sorted.size()) - 1) / 1e6;
+    }
+
+    /**
+     * Hands out its bytes in {@link #SEND_PIECES} pieces with a pause before each, like a client on
+     * a slow network, the case where reading multipart bodies used to hold the request threads.
+     */
+    private static final class TricklingInputStream extends ByteArrayInputStream {
+
+        private final int piece;
+
+        private TricklingInputStream(byte[] bytes) {
+            super(bytes);
+            this.piece = (bytes.length + SEND_PIECES - 1) / SEND_PIECES;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            if (available() > 0) {
+                try {
+                    Thread.sleep(SEND_PAUSE.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.read(b, off, Math.min(len, piece));
+        }
+    }
+
+    @TestConfiguration
+    static class SlowStorageConfiguration {
+
+        /**
+         * Simulates a slow disk, the case where writes used to exhaust the request threads.
+         */
+        @Bean
+        @Primary
+        StorageService slowStorageService(FileSystemStorageService delegate) {
+            return new StorageService() {
+
+                @Override
+                public void init() {
+                    delegate.init();
+                }
+
+                @Override
+                public void store(MultipartFile file) {
+                    try {
+                        Thread.sleep(WRITE_DELAY.toMillis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    delegate.store(file);
+                }
+
+                @Override
+                public void store(Path source, String filename) {
+                    delegate.store(source, filename);
+                }
+
+                @Override
+                public Stream<Path> loadAll() {
+                    return delegate.loadAll();
+                }
+
+                @Override
+                public FilePage list(String prefix, FileSort sort, boolean descending, String cursor, int limit) {
+                    return delegate.list(prefix, sort, descending, cursor, limit);
+                }
+
+                @Override
+                public Path load(String filename) {
+                    return delegate.load(filename);
+                }
+
+                @Override
+                public Resource loadAsResource(String filename) {
+                    return delegate.loadAsResource(filename);
+                }
+
+                @Override
+                public void deleteAll() {
+                    delegate.deleteAll();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.uploadingfiles;
+
+import com.example.uploadingfiles.storage.StorageProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class UploadPipelineTests {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private UploadPipeline pipeline;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        release.countDown();
+        pipeline.destroy();
+    }
+
+    @Test
+    public void shouldLimitUploadsPerClient() {
+        pipeline = newPipeline(4, 4, 2);
+        pipeline.submit("alice", this::blockedWrite);
+        pipeline.submit("alice", this::blockedWrite);
+
+        assertThatThrownBy(() -> pipeline.submit("alice", this::blockedWrite))
+                .isInstanceOfSatisfying(UploadRejectedException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+        pipeline.submit("bob", this::blockedWrite);
+    }
+
+    @Test
+    public void shouldRejectWhenSaturated() {
+        pipeline = newPipeline(1, 1, 10);
+        pipeline.submit("alice", this::blockedWrite);
+        pipeline.submit("bob", this::blockedWrite);
+
+        assertThatThrownBy(() -> pipeline.submit("carol", this::blockedWrite))
+                .isInstanceOfSatisfying(UploadRejectedException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(e.getRetryAfter()).isEqualTo(5);
+                });
+    }
+
+    @Test
+    public void shouldAdmitClientAgainOnceUploadsFinish() throws Exception {
+        pipeline = newPipeline(1, 1, 1);
+        CompletableFuture<String> first = pipeline.submit("alice", () -> "done");
+        assertThat(first.get()).isEqualTo("done");
+
+        assertThat(pipeline.submit("alice", () -> "again").get()).isEqualTo("again");
+    }
+
+    private UploadPipeline newPipeline(int threads, int queueCapacity, int perClientLimit) {
+        StorageProperties properties = new StorageProperties();
+        properties.getUpload().setThreads(threads);
+        properties.getUpload().setQueueCapacity(queueCapacity);
+        properties.getUpload().setPerClientLimit(perClientLimit);
+        return new UploadPipeline(properties, new SimpleMeterRegistry());
+    }
+
+    private String blockedWrite() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+}
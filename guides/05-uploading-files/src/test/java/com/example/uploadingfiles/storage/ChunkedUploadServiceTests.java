@@ -0,0 +1,249 @@
+package com.example.uploadingfiles.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ChunkedUploadServiceTests {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    private final TestClock clock = new TestClock();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final StorageService storageService = mock(StorageService.class);
+
+    private ChunkedUploadService service;
+
+    @BeforeEach
+    public void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setPartsLocation(dir.toString());
+        properties.setChunkSize(4);
+        properties.setChunkedUploadIdleTimeout(Duration.ofMinutes(10));
+        properties.setChunkedUploadMaxSize(DataSize.ofBytes(100));
+        properties.setChunkedUploadMaxActive(2);
+        service = new ChunkedUploadService(storageService, properties, meterRegistry, clock);
+        service.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    public void shouldExpireIdleUploads() {
+        ChunkedUpload idle = service.start("idle.txt", CONTENT.length);
+        ChunkedUpload active = service.start("active.txt", CONTENT.length);
+
+        clock.advance(Duration.ofMinutes(6));
+        writeChunk(active, 0);
+        clock.advance(Duration.ofMinutes(6));
+
+        assertThat(service.expireIdle()).isEqualTo(1);
+        assertThat(Files.exists(idle.getPartFile())).isFalse();
+        assertThat(idle.getChannel().isOpen()).isFalse();
+        assertThatThrownBy(() -> service.get(idle.getId())).isInstanceOf(StorageNotFoundException.class);
+        assertThat(service.get(active.getId())).isSameAs(active);
+        assertThat(meterRegistry.counter("uploads.chunked.expired").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotExpireUploadWhileChunkIsWritten() {
+        ChunkedUpload upload = service.start("slow.txt", CONTENT.length);
+        clock.advance(Duration.ofMinutes(11));
+
+        InputStream body = new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, 0, 4)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                assertThat(service.expireIdle()).isZero();
+                return super.read(b, off, len);
+            }
+        };
+        service.writeChunk(upload.getId(), 0, checksum(0), body);
+
+        assertThat(service.get(upload.getId()).getReceivedChunks()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRejectInvalidFilenames() throws Exception {
+        for (String filename : new String[]{"", ".", "..", "../a.txt", "a/b.txt", "a\0.txt"}) {
+            assertThatThrownBy(() -> service.start(filename, CONTENT.length))
+                    .as(filename).isInstanceOf(InvalidChunkException.class);
+        }
+        try (Stream<Path> parts = Files.list(dir)) {
+            assertThat(parts).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldRejectUploadsLargerThanMaximum() throws Exception {
+        assertThatThrownBy(() -> service.start("big.bin", 101))
+                .isInstanceOf(ChunkedUploadTooLargeException.class);
+        assertThatThrownBy(() -> service.start("huge.bin", Long.MAX_VALUE))
+                .isInstanceOf(ChunkedUploadTooLargeException.class);
+        try (Stream<Path> parts = Files.list(dir)) {
+            assertThat(parts).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldLimitActiveUploads() {
+        ChunkedUpload first = service.start("first.txt", CONTENT.length);
+        service.start("second.txt", CONTENT.length);
+
+        assertThatThrownBy(() -> service.start("third.txt", CONTENT.length))
+                .isInstanceOf(TooManyChunkedUploadsException.class);
+
+        service.abort(first.getId());
+        assertThat(service.start("third.txt", CONTENT.length).getChunkCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldRejectChunkSizeOfZero() {
+        assertThatThrownBy(() -> new StorageProperties().setChunkSize(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldForgetReceivedChunkWhenResendFails() throws Exception {
+        ChunkedUpload upload = writeAll(service.start("resent.txt", CONTENT.length));
+
+        assertThatThrownBy(() -> service.writeChunk(upload.getId(), 4, checksum(4),
+                new ByteArrayInputStream("XXXX".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(InvalidChunkException.class);
+        assertThat(upload.getMissingOffsets()).containsExactly(4L);
+        assertThatThrownBy(() -> service.complete(upload.getId()))
+                .isInstanceOf(InvalidChunkException.class);
+
+        writeChunk(upload, 4);
+        service.complete(upload.getId());
+        verify(storageService).store(eq(upload.getPartFile()), eq("resent.txt"));
+        assertThat(Files.readAllBytes(upload.getPartFile())).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void shouldRejectChunkBeingWrittenAlready() {
+        ChunkedUpload upload = service.start("twice.txt", CONTENT.length);
+
+        InputStream body = new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, 0, 4)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos == 0) {
+                    assertThatThrownBy(() -> writeChunk(upload, 0)).isInstanceOf(InvalidChunkException.class);
+                }
+                return super.read(b, off, len);
+            }
+        };
+        service.writeChunk(upload.getId(), 0, checksum(0), body);
+
+        assertThat(upload.getMissingOffsets()).containsExactly(4L, 8L);
+    }
+
+    @Test
+    public void shouldTellAnUnreadableBodyFromAStorageFault() {
+        ChunkedUpload upload = service.start("cut.txt", CONTENT.length);
+        InputStream body = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new EOFException("Client went away");
+            }
+        };
+
+        assertThatThrownBy(() -> service.writeChunk(upload.getId(), 0, checksum(0), body))
+                .isInstanceOf(UnreadableBodyException.class);
+        assertThat(upload.getMissingOffsets()).containsExactly(0L, 4L, 8L);
+    }
+
+    @Test
+    public void shouldDeletePartFileWhenStoreFails() {
+        doThrow(new StorageException("disk full")).when(storageService).store(any(Path.class), anyString());
+        ChunkedUpload upload = writeAll(service.start("full.txt", CONTENT.length));
+
+        assertThatThrownBy(() -> service.complete(upload.getId())).hasMessage("disk full");
+        assertThat(Files.exists(upload.getPartFile())).isFalse();
+    }
+
+    @Test
+    public void shouldReportConflictForChunkRacingComplete() {
+        ChunkedUpload upload = writeAll(service.start("race.txt", CONTENT.length));
+
+        InputStream body = new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, 0, 4)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos == 0) {
+                    service.complete(upload.getId());
+                }
+                return super.read(b, off, len);
+            }
+        };
+
+        assertThatThrownBy(() -> service.writeChunk(upload.getId(), 0, checksum(0), body))
+                .isInstanceOf(ChunkedUploadCompletedException.class);
+    }
+
+    @Test
+    public void shouldReportNotFoundForChunkRacingAbort() {
+        ChunkedUpload upload = service.start("race.txt", CONTENT.length);
+
+        InputStream body = new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, 0, 4)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos == 0) {
+                    service.abort(upload.getId());
+                }
+                return super.read(b, off, len);
+            }
+        };
+
+        assertThatThrownBy(() -> service.writeChunk(upload.getId(), 0, checksum(0), body))
+                .isInstanceOf(StorageNotFoundException.class);
+    }
+
+    private ChunkedUpload writeAll(ChunkedUpload upload) {
+        for (int offset = 0; offset < CONTENT.length; offset += 4) {
+            writeChunk(upload, offset);
+        }
+        return upload;
+    }
+
+    private void writeChunk(ChunkedUpload upload, int offset) {
+        byte[] chunk = Arrays.copyOfRange(CONTENT, offset, Math.min(offset + 4, CONTENT.length));
+        service.writeChunk(upload.getId(), offset, checksum(offset), new ByteArrayInputStream(chunk));
+    }
+
+    private static long checksum(int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(CONTENT, offset, Math.min(4, CONTENT.length - offset));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.uploadingfiles.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ContentAddressedStorageServiceTests {
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ContentAddressedStorageService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = newService();
+        service.init();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        service.close();
+    }
+
+    @Test
+    public void shouldStoreDuplicateContentOnce() throws Exception {
+        service.store(file("first.txt", "same"));
+        service.store(file("second.txt", "same"));
+        service.store(file("third.txt", "other"));
+
+        assertThat(service.load("first.txt")).isEqualTo(service.load("second.txt"));
+        assertThat(Files.readString(service.load("second.txt"))).isEqualTo("same");
+        assertThat(blobCount()).isEqualTo(2);
+        // The duplicate is hashed, but never written
+        assertThat(meterRegistry.counter("storage.cas.bytes.written").count()).isEqualTo(9);
+        assertThat(dir.resolve("store").resolve("incoming")).isEmptyDirectory();
+        assertThat(meterRegistry.counter("storage.cas.bytes.deduplicated").count()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldDeleteBlobWhenLastNameIsReplaced() throws Exception {
+        service.store(file("first.txt", "old"));
+        service.store(file("second.txt", "old"));
+        Path oldBlob = service.load("first.txt");
+
+        service.store(file("first.txt", "new"));
+        assertThat(oldBlob).exists();
+
+        service.store(file("second.txt", "new"));
+        assertThat(oldBlob).doesNotExist();
+        assertThat(blobCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRestoreNamesAndReferencesAfterRestart() throws Exception {
+        service.store(file("first.txt", "kept"));
+        service.store(file("second.txt", "kept"));
+        service.close();
+
+        service = newService();
+        service.init();
+        assertThat(service.loadAll().map(Path::toString).collect(Collectors.toList()))
+                .containsExactly("first.txt", "second.txt");
+
+        service.store(file("first.txt", "changed"));
+        assertThat(Files.readString(service.load("second.txt"))).isEqualTo("kept");
+    }
+
+    @Test
+    public void shouldAdoptCompletedFileAsBlob() throws Exception {
+        Path part = Files.writeString(dir.resolve("upload.part"), "chunked");
+
+        service.store(part, "big.bin");
+
+        assertThat(part).doesNotExist();
+        assertThat(Files.readString(service.load("big.bin"))).isEqualTo("chunked");
+        assertThat(meterRegistry.counter("storage.cas.bytes.written").count()).isZero();
+    }
+
+    @Test
+    public void shouldRejectNamesOutsideStorage() {
+        assertThatThrownBy(() -> service.store(file("../escape.txt", "x")))
+                .isInstanceOf(InvalidFilenameException.class);
+    }
+
+    @Test
+    public void shouldRejectNamesThatAreNoPaths() {
+        assertThatThrownBy(() -> service.store(file("nul\0.txt", "x")))
+                .isInstanceOf(InvalidFilenameException.class);
+        assertThatThrownBy(() -> service.store(file("", "x")))
+                .isInstanceOf(InvalidFilenameException.class);
+        assertThatThrownBy(() -> service.store(file("..", "x")))
+                .isInstanceOf(InvalidFilenameException.class);
+        assertThatThrownBy(() -> service.store(file(".", "x")))
+                .isInstanceOf(InvalidFilenameException.class);
+    }
+
+    private ContentAddressedStorageService newService() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(dir.resolve("store").toString());
+        return new ContentAddressedStorageService(properties, meterRegistry);
+    }
+
+    private static MockMultipartFile file(String name, String content) {
+        return new MockMultipartFile("file", name, "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long blobCount() throws Exception {
+        try (Stream<Path> files = Files.walk(dir.resolve("store").resolve("blobs"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.uploadingfiles.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FileIndexTests {
+
+    @TempDir
+    Path dir;
+
+    private Path root;
+
+    private FileIndex index;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        root = Files.createDirectory(dir.resolve("files"));
+        index = new FileIndex(dir.resolve("index"));
+        index.open();
+        index.watch(root);
+        store("b.txt", 30, 3);
+        store("a.txt", 10, 1);
+        store("c.log", 20, 2);
+        store("a.log", 40, 4);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Test
+    public void shouldPageWithCursor() {
+        FilePage first = index.page("", FileSort.NAME, false, null, 3);
+        assertThat(names(first)).isEqualTo("a.log,a.txt,b.txt");
+
+        FilePage second = index.page("", FileSort.NAME, false, first.getNextCursor(), 3);
+        assertThat(names(second)).isEqualTo("c.log");
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void shouldFilterByPrefixAndSort() {
+        assertThat(names(index.page("a.", FileSort.NAME, false, null, 10))).isEqualTo("a.log,a.txt");
+        assertThat(names(index.page("a.", FileSort.NAME, true, null, 10))).isEqualTo("a.txt,a.log");
+        assertThat(names(index.page("", FileSort.SIZE, false, null, 10))).isEqualTo("a.txt,c.log,b.txt,a.log");
+
+        FilePage newest = index.page("", FileSort.LAST_MODIFIED, true, null, 2);
+        assertThat(names(newest)).isEqualTo("a.log,b.txt");
+        assertThat(names(index.page("", FileSort.LAST_MODIFIED, true, newest.getNextCursor(), 2))).isEqualTo("c.log,a.txt");
+    }
+
+    @Test
+    public void shouldPagePrefixInOtherOrders() {
+        FilePage first = index.page("a.", FileSort.SIZE, false, null, 1);
+        assertThat(names(first)).isEqualTo("a.txt");
+        FilePage second = index.page("a.", FileSort.SIZE, false, first.getNextCursor(), 1);
+        assertThat(names(second)).isEqualTo("a.log");
+        assertThat(second.getNextCursor()).isNull();
+
+        assertThat(names(index.page("a.", FileSort.LAST_MODIFIED, true, null, 10))).isEqualTo("a.log,a.txt");
+        assertThat(names(index.page("c", FileSort.SIZE, true, null, 10))).isEqualTo("c.log");
+        assertThat(names(index.page("z", FileSort.SIZE, false, null, 10))).isEmpty();
+    }
+
+    @Test
+    public void shouldReloadFromJournal() throws Exception {
+        index.close();
+        Files.delete(root.resolve("b.txt"));
+
+        FileIndex reopened = new FileIndex(dir.resolve("index"));
+        reopened.open();
+        try {
+            // Served from the journal until it is reconciled with the directory
+            assertThat(reopened.entries().count()).isEqualTo(4);
+            reopened.update(root.resolve("b.txt"));
+            assertThat(reopened.entries().map(FileEntry::getName).collect(Collectors.joining(",")))
+                    .isEqualTo("a.log,a.txt,c.log");
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> index.page("", FileSort.NAME, false, "not a cursor", 10))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private void store(String name, int size, long lastModified) throws Exception {
+        Path file = Files.write(root.resolve(name), new byte[size]);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified * 1000));
+        index.update(file);
+    }
+
+    private static String names(FilePage page) {
+        return page.getEntries().stream().map(FileEntry::getName).collect(Collectors.joining(","));
+    }
+}
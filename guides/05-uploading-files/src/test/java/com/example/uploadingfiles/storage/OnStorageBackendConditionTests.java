@@ -0,0 +1,47 @@
+package com.example.uploadingfiles.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OnStorageBackendConditionTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(FileSystemBackend.class, ContentAddressedBackend.class);
+
+    @Test
+    public void shouldDefaultToFileSystem() {
+        contextRunner.run(context -> {
+            assertThat(context).hasSingleBean(FileSystemBackend.class);
+            assertThat(context).doesNotHaveBean(ContentAddressedBackend.class);
+        });
+    }
+
+    @Test
+    public void shouldBindBackendInAnyForm() {
+        for (String value : new String[]{"content-addressed", "content_addressed", "CONTENT_ADDRESSED"}) {
+            contextRunner.withPropertyValues("storage.backend=" + value).run(context -> {
+                assertThat(context).as(value).hasSingleBean(ContentAddressedBackend.class);
+                assertThat(context).as(value).doesNotHaveBean(FileSystemBackend.class);
+            });
+        }
+    }
+
+    @Test
+    public void shouldFailOnUnknownBackend() {
+        contextRunner.withPropertyValues("storage.backend=tape")
+                .run(context -> assertThat(context).hasFailed());
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnStorageBackend(StorageProperties.Backend.FILESYSTEM)
+    static class FileSystemBackend {
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnStorageBackend(StorageProperties.Backend.CONTENT_ADDRESSED)
+    static class ContentAddressedBackend {
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.authenticatingwithldap.auth;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldif.LDIFException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ldap.core.DirContextAdapter;
+import org.springframework.ldap.support.LdapUtils;
+import org.springframework.security.ldap.DefaultSpringSecurityContextSource;
+import org.springframework.security.ldap.userdetails.NestedLdapAuthoritiesPopulator;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the roles of a user who is in {@code chains} groups, each nested {@code depth} deep,
+ * among 1000 other groups in an embedded LDAP server: with a search per group and level, as
+ * {@link NestedLdapAuthoritiesPopulator} does, and from a {@link GroupGraph} in memory. Reloading
+ * the whole graph is timed as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class GroupResolutionBenchmark {
+
+    private static final String BASE = "dc=example,dc=org";
+    private static final String USER = "uid=user,ou=people";
+    private static final int CHAINS = 10;
+    private static final int OTHER_GROUPS = 1000;
+
+    @Param({"1", "10", "50"})
+    private int depth;
+
+    private InMemoryDirectoryServer server;
+    private DirContextAdapter user;
+    private NestedLdapAuthoritiesPopulator searches;
+    private GroupGraphAuthoritiesPopulator graph;
+
+    @Setup(Level.Trial)
+    public void setUp() throws LDAPException, LDIFException {
+        InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(BASE);
+        config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", 0));
+        server = new InMemoryDirectoryServer(config);
+        server.add("dn: " + BASE, "objectClass: domain", "dc: example");
+        server.add("dn: ou=people," + BASE, "objectClass: organizationalUnit", "ou: people");
+        server.add("dn: ou=groups," + BASE, "objectClass: organizationalUnit", "ou: groups");
+        server.add("dn: " + USER + "," + BASE, "objectClass: inetOrgPerson", "uid: user", "cn: User", "sn: User");
+        for (int chain = 0; chain < CHAINS; chain++) {
+            String member = USER + "," + BASE;
+            for (int level = 0; level < depth; level++) {
+                String name = "chain" + chain + "-level" + level;
+                server.add("dn: cn=" + name + ",ou=groups," + BASE, "objectClass: groupOfUniqueNames",
+                        "cn: " + name, "uniqueMember: " + member);
+                member = "cn=" + name + ",ou=groups," + BASE;
+            }
+        }
+        for (int i = 0; i < OTHER_GROUPS; i++) {
+            server.add("dn: cn=other" + i + ",ou=groups," + BASE, "objectClass: groupOfUniqueNames",
+                    "cn: other" + i, "uniqueMember: uid=someone" + i + ",ou=people," + BASE);
+        }
+        server.startListening();
+
+        DefaultSpringSecurityContextSource contextSource =
+                new DefaultSpringSecurityContextSource("ldap://localhost:" + server.getListenPort() + "/" + BASE);
+        contextSource.afterPropertiesSet();
+        user = new DirContextAdapter(null, LdapUtils.newLdapName(USER), LdapUtils.newLdapName(BASE));
+
+        searches = new NestedLdapAuthoritiesPopulator(contextSource, "ou=groups");
+        searches.setGroupSearchFilter("(uniqueMember={0})");
+        searches.setSearchSubtree(true);
+        searches.setMaxSearchDepth(depth + 1);
+
+        LdapAuthenticationProperties.Groups properties = new LdapAuthenticationProperties.Groups();
+        properties.setRefreshInterval(Duration.ZERO);
+        graph = new GroupGraphAuthoritiesPopulator(contextSource, "ou=groups", properties, new SimpleMeterRegistry());
+        check(searches.getGrantedAuthorities(user, "user").size());
+        check(graph.getGrantedAuthorities(user, "user").size());
+    }
+
+    private void check(int authorities) {
+        if (authorities != CHAINS * depth) {
+            throw new IllegalStateException(authorities + " roles instead of " + CHAINS * depth);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graph.destroy();
+        server.shutDown(true);
+    }
+
+    @Benchmark
+    public int nestedSearches() {
+        return searches.getGrantedAuthorities(user, "user").size();
+    }
+
+    @Benchmark
+    public int groupGraph() {
+        return graph.getGrantedAuthorities(user, "user").size();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int fullRefresh() {
+        return graph.fullRefresh().size();
+    }
+}
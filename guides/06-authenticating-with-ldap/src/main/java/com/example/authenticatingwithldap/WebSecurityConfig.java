@@ -1,14 +1,36 @@
 package com.example.authenticatingwithldap;
 
+import com.example.authenticatingwithldap.token.TokenAuthenticationFilter;
+import com.example.authenticatingwithldap.token.TokenCookies;
+import com.example.authenticatingwithldap.token.TokenLoginSuccessHandler;
+import com.example.authenticatingwithldap.token.TokenProperties;
+import com.example.authenticatingwithldap.token.TokenService;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.savedrequest.CookieRequestCache;
+import org.springframework.security.web.savedrequest.RequestCache;
 
 @Configuration
 public class WebSecurityConfig  extends WebSecurityConfigurerAdapter {
 
+    private final AuthenticationProvider ldapAuthenticationProvider;
+    private final TokenProperties tokenProperties;
+    private final ObjectProvider<TokenService> tokenService;
+
+    public WebSecurityConfig(AuthenticationProvider ldapAuthenticationProvider, TokenProperties tokenProperties,
+                             ObjectProvider<TokenService> tokenService) {
+        this.ldapAuthenticationProvider = ldapAuthenticationProvider;
+        this.tokenProperties = tokenProperties;
+        this.tokenService = tokenService;
+    }
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http
@@ -16,19 +38,30 @@ public class WebSecurityConfig  extends WebSecurityConfigurerAdapter {
                 .anyRequest().fullyAuthenticated()
                 .and()
                 .formLogin();
+        if (tokenProperties.isEnabled()) {
+            statelessTokens(http, tokenService.getObject(), new TokenCookies(tokenProperties));
+        }
+    }
+
+    /**
+     * Keeps nothing in the HTTP session: the login goes in a token cookie, and the page asked for
+     * before the login and the CSRF token in cookies of their own.
+     */
+    private static void statelessTokens(HttpSecurity http, TokenService tokenService, TokenCookies cookies)
+            throws Exception {
+        RequestCache requestCache = new CookieRequestCache();
+        http
+                .sessionManagement((session) -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .requestCache((cache) -> cache.requestCache(requestCache))
+                .csrf((csrf) -> csrf.csrfTokenRepository(new CookieCsrfTokenRepository()))
+                .formLogin((form) -> form.successHandler(new TokenLoginSuccessHandler(tokenService, cookies, requestCache)))
+                .logout((logout) -> logout.deleteCookies(cookies.getName()))
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService, cookies),
+                        UsernamePasswordAuthenticationFilter.class);
     }
 
     @Override
     public void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth
-                .ldapAuthentication()
-                .userDnPatterns("uid={0},ou=people")
-                .groupSearchBase("ou=groups")
-                .contextSource()
-                .url("ldap://localhost:8389/dc=springframework,dc=org")
-                .and()
-                .passwordCompare()
-                .passwordEncoder(new BCryptPasswordEncoder())
-                .passwordAttribute("userPassword");
+        auth.authenticationProvider(ldapAuthenticationProvider);
     }
 }
@@ -0,0 +1,130 @@
+package com.example.authenticatingwithldap.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Remembers the users who logged in successfully for {@code ldap.auth.cache.ttl}, and lets them
+ * log in again with the same password without asking {@code delegate}, which saves an LDAP round
+ * trip and a BCrypt hash per login.
+ * <p>
+ * Only an HMAC of the name and password is kept, under a key generated at startup that never
+ * leaves the memory of the process. A failed login forgets the user, so the next one with the
+ * right password asks {@code delegate} again.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final AuthenticationProvider delegate;
+    private final ExpiringCache<String, Login> logins;
+    private final SecretKey key;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate,
+                                         LdapAuthenticationProperties.Cache properties, MeterRegistry meterRegistry) {
+        this(delegate, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    CachingAuthenticationProvider(AuthenticationProvider delegate, LdapAuthenticationProperties.Cache properties,
+                                  MeterRegistry meterRegistry, Clock clock) {
+        this.delegate = delegate;
+        this.logins = new ExpiringCache<>(properties.getTtl(), properties.getMaximumSize(), clock);
+        try {
+            this.key = KeyGenerator.getInstance(HMAC).generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " is not available", e);
+        }
+        this.hits = meterRegistry.counter("ldap.auth.cache", "result", "hit");
+        this.misses = meterRegistry.counter("ldap.auth.cache", "result", "miss");
+        this.invalidations = meterRegistry.counter("ldap.auth.cache.invalidations");
+        meterRegistry.gauge("ldap.auth.cache.size", logins, ExpiringCache::size);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (!(authentication instanceof UsernamePasswordAuthenticationToken) || authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+        String username = authentication.getName();
+        byte[] digest = digest(username, authentication.getCredentials().toString());
+        Login login = logins.get(username);
+        if (login != null && MessageDigest.isEqual(login.digest, digest)) {
+            hits.increment();
+            return login.authenticate(authentication);
+        }
+        misses.increment();
+        Authentication result;
+        try {
+            result = delegate.authenticate(authentication);
+        } catch (AuthenticationException e) {
+            if (login != null) {
+                logins.remove(username);
+                invalidations.increment();
+            }
+            throw e;
+        }
+        if (result != null && result.isAuthenticated()) {
+            logins.put(username, new Login(digest, result.getPrincipal(), List.copyOf(result.getAuthorities())));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    private byte[] digest(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " is not available", e);
+        }
+    }
+
+    private static final class Login {
+
+        private final byte[] digest;
+        private final Object principal;
+        private final Collection<? extends GrantedAuthority> authorities;
+
+        private Login(byte[] digest, Object principal, Collection<? extends GrantedAuthority> authorities) {
+            this.digest = digest;
+            this.principal = principal;
+            this.authorities = authorities;
+        }
+
+        /**
+         * A new token every time, since the caller erases the credentials of the one it gets.
+         */
+        private Authentication authenticate(Authentication request) {
+            UsernamePasswordAuthenticationToken result =
+                    new UsernamePasswordAuthenticationToken(principal, request.getCredentials(), authorities);
+            result.setDetails(request.getDetails());
+            return result;
+        }
+    }
+}
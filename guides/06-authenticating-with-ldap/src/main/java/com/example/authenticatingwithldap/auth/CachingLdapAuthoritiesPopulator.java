@@ -0,0 +1,50 @@
+package com.example.authenticatingwithldap.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.ldap.userdetails.LdapAuthoritiesPopulator;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Remembers the authorities {@code delegate} found for a user for {@code ldap.auth.cache.ttl}, so
+ * that the group searches run once per user and period rather than once per login.
+ */
+public class CachingLdapAuthoritiesPopulator implements LdapAuthoritiesPopulator {
+
+    private final LdapAuthoritiesPopulator delegate;
+    private final ExpiringCache<String, Collection<? extends GrantedAuthority>> authorities;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public CachingLdapAuthoritiesPopulator(LdapAuthoritiesPopulator delegate,
+                                           LdapAuthenticationProperties.Cache properties, MeterRegistry meterRegistry) {
+        this(delegate, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    CachingLdapAuthoritiesPopulator(LdapAuthoritiesPopulator delegate, LdapAuthenticationProperties.Cache properties,
+                                    MeterRegistry meterRegistry, Clock clock) {
+        this.delegate = delegate;
+        this.authorities = new ExpiringCache<>(properties.getTtl(), properties.getMaximumSize(), clock);
+        this.hits = meterRegistry.counter("ldap.groups.cache", "result", "hit");
+        this.misses = meterRegistry.counter("ldap.groups.cache", "result", "miss");
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getGrantedAuthorities(DirContextOperations userData, String username) {
+        Collection<? extends GrantedAuthority> found = authorities.get(username);
+        if (found != null) {
+            hits.increment();
+            return found;
+        }
+        misses.increment();
+        found = List.copyOf(delegate.getGrantedAuthorities(userData, username));
+        authorities.put(username, found);
+        return found;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.authenticatingwithldap.auth;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Values that expire {@code ttl} after they were put, at most {@code maximumSize} of them, the
+ * least recently used evicted first.
+ */
+class ExpiringCache<K, V> {
+
+    private final long ttlMillis;
+    private final Clock clock;
+
+    /**
+     * Entries in access order, guarded by {@code this}.
+     */
+    private final Map<K, Entry<V>> entries;
+
+    ExpiringCache(Duration ttl, int maximumSize, Clock clock) {
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * @return the value of {@code key}, {@code null} if there is none or it has expired
+     */
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.millis() >= entry.expiresAt) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, clock.millis() + ttlMillis));
+    }
+
+    synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.authenticatingwithldap.auth;
+
+import javax.naming.ldap.LdapName;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The groups found in LDAP, each with its direct members, users and groups alike, and the inverse:
+ * the groups every member is directly in. Never changed once built; a refresh builds another.
+ * <p>
+ * {@link LdapName} keys compare DNs the way LDAP does, whatever their case and spacing.
+ */
+final class GroupGraph {
+
+    static final GroupGraph EMPTY = new GroupGraph(Map.of());
+
+    private final Map<LdapName, Group> groups;
+    private final Map<LdapName, List<Group>> parents;
+
+    private GroupGraph(Map<LdapName, Group> groups) {
+        this.groups = groups;
+        this.parents = new HashMap<>();
+        for (Group group : groups.values()) {
+            for (LdapName member : group.members) {
+                parents.computeIfAbsent(member, dn -> new ArrayList<>()).add(group);
+            }
+        }
+    }
+
+    static GroupGraph of(Collection<Group> groups) {
+        return EMPTY.with(groups);
+    }
+
+    /**
+     * @return a graph with {@code changed} groups added, or replacing those of the same DN
+     */
+    GroupGraph with(Collection<Group> changed) {
+        Map<LdapName, Group> groups = new HashMap<>(this.groups);
+        for (Group group : changed) {
+            groups.put(group.dn, group);
+        }
+        return new GroupGraph(groups);
+    }
+
+    /**
+     * @return the names of the groups {@code member} is in, directly or through other groups, the
+     * direct ones first; a cycle of groups is followed once
+     */
+    Set<String> groupsOf(LdapName member) {
+        Set<LdapName> seen = new HashSet<>();
+        Set<String> names = new LinkedHashSet<>();
+        Deque<LdapName> pending = new ArrayDeque<>();
+        pending.add(member);
+        while (!pending.isEmpty()) {
+            for (Group group : parents.getOrDefault(pending.poll(), List.of())) {
+                if (seen.add(group.dn)) {
+                    names.add(group.name);
+                    pending.add(group.dn);
+                }
+            }
+        }
+        return names;
+    }
+
+    int size() {
+        return groups.size();
+    }
+
+    static final class Group {
+
+        private final LdapName dn;
+        private final String name;
+        private final Set<LdapName> members;
+
+        Group(LdapName dn, String name, Set<LdapName> members) {
+            this.dn = dn;
+            this.name = name;
+            this.members = members;
+        }
+    }
+}
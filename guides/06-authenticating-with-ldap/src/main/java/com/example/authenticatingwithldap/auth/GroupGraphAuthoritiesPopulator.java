@@ -0,0 +1,242 @@
+package com.example.authenticatingwithldap.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DirContextAdapter;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.query.LdapQuery;
+import org.springframework.ldap.query.SearchScope;
+import org.springframework.ldap.support.LdapUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.ldap.userdetails.LdapAuthoritiesPopulator;
+
+import javax.naming.ldap.LdapName;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.ldap.query.LdapQueryBuilder.query;
+
+/**
+ * Gives users the roles of the groups they are in, directly or through nested groups, from a
+ * {@link GroupGraph} of all the groups under {@code groupSearchBase} rather than from searches
+ * at every login, which take one per level of nesting.
+ * <p>
+ * The graph is loaded at the first login and then refreshed every
+ * {@code ldap.auth.groups.refresh-interval}, reading only the groups whose
+ * {@code modifyTimestamp} is not older than the newest one seen. Deleted groups leave no
+ * timestamp behind, so all groups are read again every
+ * {@code ldap.auth.groups.full-refresh-interval}, or at every refresh from a server that keeps
+ * no {@code modifyTimestamp}.
+ */
+public class GroupGraphAuthoritiesPopulator implements LdapAuthoritiesPopulator, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupGraphAuthoritiesPopulator.class);
+
+    private static final String GROUPS = "(|(objectClass=groupOfUniqueNames)(objectClass=groupOfNames))";
+    private static final String[] ATTRIBUTES = { "cn", "uniqueMember", "member", "modifyTimestamp" };
+
+    /**
+     * The LDAP generalized time, like {@code 20211018170512.345Z}.
+     */
+    private static final DateTimeFormatter GENERALIZED_TIME = new DateTimeFormatterBuilder()
+            .appendPattern("uuuuMMddHHmmss")
+            .optionalStart().appendFraction(ChronoField.NANO_OF_SECOND, 1, 9, true).optionalEnd()
+            .appendOffset("+HHmm", "Z")
+            .toFormatter(Locale.ROOT);
+
+    private final LdapTemplate ldapTemplate;
+    private final String groupSearchBase;
+    private final long fullRefreshIntervalMillis;
+    private final Clock clock;
+
+    private final Timer fullRefreshes;
+    private final Timer incrementalRefreshes;
+    private final Counter changedGroups;
+
+    private final ScheduledExecutorService refreshes;
+
+    /**
+     * {@code null} until the first login or refresh.
+     */
+    private volatile GroupGraph graph;
+
+    /**
+     * The newest {@code modifyTimestamp} read, as the server wrote it, and when it is; guarded by
+     * {@code this}, like the time of the last full refresh.
+     */
+    private String newestTimestamp;
+    private Instant newest;
+    private long lastFullRefresh;
+
+    public GroupGraphAuthoritiesPopulator(ContextSource contextSource, String groupSearchBase,
+                                          LdapAuthenticationProperties.Groups properties, MeterRegistry meterRegistry) {
+        this(contextSource, groupSearchBase, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    GroupGraphAuthoritiesPopulator(ContextSource contextSource, String groupSearchBase,
+                                   LdapAuthenticationProperties.Groups properties, MeterRegistry meterRegistry,
+                                   Clock clock) {
+        this.ldapTemplate = new LdapTemplate(contextSource);
+        this.groupSearchBase = groupSearchBase;
+        this.fullRefreshIntervalMillis = properties.getFullRefreshInterval().toMillis();
+        this.clock = clock;
+        this.fullRefreshes = Timer.builder("ldap.groups.refresh").tag("type", "full").register(meterRegistry);
+        this.incrementalRefreshes = Timer.builder("ldap.groups.refresh").tag("type", "incremental")
+                .register(meterRegistry);
+        this.changedGroups = meterRegistry.counter("ldap.groups.changed");
+        meterRegistry.gauge("ldap.groups.size", this, populator -> {
+            GroupGraph graph = populator.graph;
+            return graph != null ? graph.size() : 0;
+        });
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("group-refresh-");
+        threadFactory.setDaemon(true);
+        this.refreshes = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long interval = properties.getRefreshInterval().toMillis();
+        if (interval > 0) {
+            refreshes.scheduleWithFixedDelay(this::scheduledRefresh, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getGrantedAuthorities(DirContextOperations userData, String username) {
+        GroupGraph graph = this.graph;
+        if (graph == null) {
+            graph = initialLoad();
+        }
+        Set<String> names = graph.groupsOf(LdapUtils.newLdapName(userData.getNameInNamespace()));
+        List<GrantedAuthority> authorities = new ArrayList<>(names.size());
+        for (String name : names) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + name.toUpperCase(Locale.ROOT)));
+        }
+        return authorities;
+    }
+
+    /**
+     * Loads the graph for the first login, unless a login that waited for the lock before this
+     * one did already, so that a burst of first logins costs one search rather than one each.
+     *
+     * @return the loaded graph
+     */
+    synchronized GroupGraph initialLoad() {
+        GroupGraph current = this.graph;
+        return current != null ? current : fullRefresh();
+    }
+
+    /**
+     * Reads the groups modified since the last refresh, or all of them when the graph is yet to
+     * be loaded or it is time for a full refresh.
+     *
+     * @return the refreshed graph
+     */
+    synchronized GroupGraph refresh() {
+        GroupGraph current = this.graph;
+        if (current == null || newestTimestamp == null
+                || clock.millis() - lastFullRefresh >= fullRefreshIntervalMillis) {
+            return fullRefresh();
+        }
+        long start = System.nanoTime();
+        // Groups modified in the same instant as the newest one seen may have been missed
+        List<GroupGraph.Group> changed = search("(&" + GROUPS + "(modifyTimestamp>=" + newestTimestamp + "))");
+        current = current.with(changed);
+        this.graph = current;
+        changedGroups.increment(changed.size());
+        incrementalRefreshes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return current;
+    }
+
+    /**
+     * Reads all the groups again.
+     *
+     * @return the new graph
+     */
+    synchronized GroupGraph fullRefresh() {
+        long start = System.nanoTime();
+        lastFullRefresh = clock.millis();
+        newestTimestamp = null;
+        newest = null;
+        GroupGraph graph = GroupGraph.of(search(GROUPS));
+        this.graph = graph;
+        fullRefreshes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return graph;
+    }
+
+    private void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            GroupGraph graph = this.graph;
+            logger.warn("Could not refresh the LDAP groups, keeping the {} known ones",
+                    graph != null ? graph.size() : 0, e);
+        }
+    }
+
+    private List<GroupGraph.Group> search(String filter) {
+        LdapQuery query = query()
+                .base(groupSearchBase)
+                .searchScope(SearchScope.SUBTREE)
+                .attributes(ATTRIBUTES)
+                .filter(filter);
+        return ldapTemplate.search(query, (Object context) -> toGroup((DirContextAdapter) context));
+    }
+
+    private GroupGraph.Group toGroup(DirContextAdapter context) {
+        Set<LdapName> members = new LinkedHashSet<>();
+        for (String attribute : new String[] { "uniqueMember", "member" }) {
+            String[] values = context.getStringAttributes(attribute);
+            if (values != null) {
+                for (String value : values) {
+                    members.add(LdapUtils.newLdapName(value));
+                }
+            }
+        }
+        advance(context.getStringAttribute("modifyTimestamp"));
+        return new GroupGraph.Group(LdapUtils.newLdapName(context.getNameInNamespace()),
+                context.getStringAttribute("cn"), members);
+    }
+
+    /**
+     * Keeps {@code timestamp} if it is newer than the newest one seen.
+     */
+    private void advance(String timestamp) {
+        if (timestamp == null) {
+            return;
+        }
+        try {
+            Instant instant = OffsetDateTime.parse(timestamp, GENERALIZED_TIME).toInstant();
+            if (newest == null || instant.isAfter(newest)) {
+                newest = instant;
+                newestTimestamp = timestamp;
+            }
+        } catch (DateTimeParseException e) {
+            logger.debug("Ignoring modifyTimestamp {}", timestamp, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        refreshes.shutdownNow();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.authenticatingwithldap.auth;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.ldap.pool2.factory.PoolConfig;
+import org.springframework.ldap.pool2.factory.PooledContextSource;
+import org.springframework.ldap.pool2.validation.DefaultDirContextValidator;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.ldap.DefaultSpringSecurityContextSource;
+import org.springframework.security.ldap.authentication.LdapAuthenticationProvider;
+import org.springframework.security.ldap.authentication.PasswordComparisonAuthenticator;
+import org.springframework.security.ldap.userdetails.DefaultLdapAuthoritiesPopulator;
+import org.springframework.security.ldap.userdetails.LdapAuthoritiesPopulator;
+
+/**
+ * Authenticates users by comparing their BCrypt password in LDAP, over a pool of connections
+ * rather than a new one per login, and remembers the successful logins for a while unless
+ * {@code ldap.auth.cache.enabled} is off. The groups of users are resolved from a
+ * {@link GroupGraph} kept in memory, or searched and cached per user with
+ * {@code ldap.auth.groups.graph} off.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(LdapAuthenticationProperties.class)
+public class LdapAuthenticationConfiguration {
+
+    /**
+     * Primary over the context source of the embedded server, so that the health check borrows
+     * its connections from the pool as well.
+     */
+    @Bean
+    @Primary
+    public PooledContextSource pooledLdapContextSource(LdapAuthenticationProperties properties, MeterRegistry meterRegistry) {
+        DefaultSpringSecurityContextSource contextSource = new DefaultSpringSecurityContextSource(properties.getUrl());
+        // Pooled below, not by JNDI
+        contextSource.setPooled(false);
+        contextSource.afterPropertiesSet();
+
+        LdapAuthenticationProperties.Pool pool = properties.getPool();
+        PoolConfig poolConfig = new PoolConfig();
+        poolConfig.setMaxTotal(pool.getMaxTotal());
+        poolConfig.setMaxTotalPerKey(pool.getMaxTotal());
+        poolConfig.setMaxIdlePerKey(pool.getMaxIdle());
+        poolConfig.setMaxWaitMillis(pool.getMaxWait().toMillis());
+        poolConfig.setTestWhileIdle(true);
+        poolConfig.setTimeBetweenEvictionRunsMillis(pool.getValidationInterval().toMillis());
+        PooledContextSource pooled = new PooledContextSource(poolConfig);
+        pooled.setContextSource(contextSource);
+        pooled.setDirContextValidator(new DefaultDirContextValidator());
+
+        Gauge.builder("ldap.pool.active", pooled, PooledContextSource::getNumActive).register(meterRegistry);
+        Gauge.builder("ldap.pool.idle", pooled, PooledContextSource::getNumIdle).register(meterRegistry);
+        return pooled;
+    }
+
+    @Bean
+    public LdapAuthoritiesPopulator ldapAuthoritiesPopulator(PooledContextSource pooledLdapContextSource,
+                                                             LdapAuthenticationProperties properties,
+                                                             MeterRegistry meterRegistry) {
+        TimedContextSource contextSource = new TimedContextSource(pooledLdapContextSource, meterRegistry);
+        if (properties.getGroups().isGraph()) {
+            return new GroupGraphAuthoritiesPopulator(contextSource, properties.getGroupSearchBase(),
+                    properties.getGroups(), meterRegistry);
+        }
+        DefaultLdapAuthoritiesPopulator groups = new DefaultLdapAuthoritiesPopulator(contextSource,
+                properties.getGroupSearchBase());
+        // What ldapAuthentication() searched for
+        groups.setGroupSearchFilter("(uniqueMember={0})");
+        if (!properties.getCache().isEnabled()) {
+            return groups;
+        }
+        return new CachingLdapAuthoritiesPopulator(groups, properties.getCache(), meterRegistry);
+    }
+
+    @Bean
+    public AuthenticationProvider ldapAuthenticationProvider(PooledContextSource pooledLdapContextSource,
+                                                             LdapAuthoritiesPopulator ldapAuthoritiesPopulator,
+                                                             LdapAuthenticationProperties properties,
+                                                             MeterRegistry meterRegistry) {
+        TimedContextSource contextSource = new TimedContextSource(pooledLdapContextSource, meterRegistry);
+
+        PasswordComparisonAuthenticator authenticator = new PasswordComparisonAuthenticator(contextSource);
+        authenticator.setUserDnPatterns(new String[] { properties.getUserDnPattern() });
+        authenticator.setPasswordEncoder(new BCryptPasswordEncoder());
+        authenticator.setPasswordAttributeName("userPassword");
+
+        LdapAuthenticationProvider provider = new LdapAuthenticationProvider(authenticator, ldapAuthoritiesPopulator);
+        if (!properties.getCache().isEnabled()) {
+            return provider;
+        }
+        return new CachingAuthenticationProvider(provider, properties.getCache(), meterRegistry);
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.authenticatingwithldap.auth;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("ldap.auth")
+public class LdapAuthenticationProperties {
+
+    /**
+     * The LDAP server and the base DN the patterns below are relative to.
+     */
+    private String url = "ldap://localhost:8389/dc=springframework,dc=org";
+
+    /**
+     * The DN of a user, {0} standing for the login name.
+     */
+    private String userDnPattern = "uid={0},ou=people";
+
+    /**
+     * Where the groups that users are members of are searched.
+     */
+    private String groupSearchBase = "ou=groups";
+
+    private final Pool pool = new Pool();
+
+    private final Cache cache = new Cache();
+
+    private final Groups groups = new Groups();
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUserDnPattern() {
+        return userDnPattern;
+    }
+
+    public void setUserDnPattern(String userDnPattern) {
+        this.userDnPattern = userDnPattern;
+    }
+
+    public String getGroupSearchBase() {
+        return groupSearchBase;
+    }
+
+    public void setGroupSearchBase(String groupSearchBase) {
+        this.groupSearchBase = groupSearchBase;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Groups getGroups() {
+        return groups;
+    }
+
+    public static class Pool {
+
+        /**
+         * Connections open at most, in use or idle.
+         */
+        private int maxTotal = 8;
+
+        /**
+         * Idle connections kept open at most.
+         */
+        private int maxIdle = 8;
+
+        /**
+         * How long a login waits for a connection when all are in use before it fails.
+         */
+        private Duration maxWait = Duration.ofSeconds(2);
+
+        /**
+         * How often idle connections are checked and those the server dropped closed.
+         */
+        private Duration validationInterval = Duration.ofMinutes(1);
+
+        public int getMaxTotal() {
+            return maxTotal;
+        }
+
+        public void setMaxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+        }
+
+        public int getMaxIdle() {
+            return maxIdle;
+        }
+
+        public void setMaxIdle(int maxIdle) {
+            this.maxIdle = maxIdle;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public Duration getValidationInterval() {
+            return validationInterval;
+        }
+
+        public void setValidationInterval(Duration validationInterval) {
+            this.validationInterval = validationInterval;
+        }
+    }
+
+    public static class Cache {
+
+        /**
+         * Whether successful logins and group lookups are remembered for a while.
+         */
+        private boolean enabled = true;
+
+        /**
+         * How long a successful login or group lookup is remembered; a password changed or a group
+         * left in LDAP goes unnoticed for as long.
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * Users remembered at most, the least recently used ones forgotten first.
+         */
+        private int maximumSize = 10_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public int getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+
+    public static class Groups {
+
+        /**
+         * Whether all the groups are kept in memory, and the nested groups of a user resolved
+         * there, rather than searched in LDAP at every login, one search per level of nesting.
+         */
+        private boolean graph = true;
+
+        /**
+         * How often the groups modified in LDAP since the last refresh are read again; a group
+         * joined or left goes unnoticed for as long.
+         */
+        private Duration refreshInterval = Duration.ofMinutes(1);
+
+        /**
+         * How often all the groups are read again, which is when deleted groups are noticed.
+         */
+        private Duration fullRefreshInterval = Duration.ofHours(1);
+
+        public boolean isGraph() {
+            return graph;
+        }
+
+        public void setGraph(boolean graph) {
+            this.graph = graph;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        public Duration getFullRefreshInterval() {
+            return fullRefreshInterval;
+        }
+
+        public void setFullRefreshInterval(Duration fullRefreshInterval) {
+            this.fullRefreshInterval = fullRefreshInterval;
+        }
+    }
+}
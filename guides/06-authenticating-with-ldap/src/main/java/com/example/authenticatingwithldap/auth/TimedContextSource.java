@@ -0,0 +1,122 @@
+package com.example.authenticatingwithldap.auth;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.support.BaseLdapPathContextSource;
+import org.springframework.ldap.core.support.DelegatingBaseLdapPathContextSourceSupport;
+import org.springframework.util.ClassUtils;
+
+import javax.naming.directory.DirContext;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the LDAP operations run on the contexts of {@code target}, as {@code ldap.operation}
+ * tagged with the name of the operation, and how long getting a context took, as
+ * {@code ldap.context.acquire}; from a pool, that is the wait for a connection.
+ * <p>
+ * A search is timed until its first results are in, not until they have all been read.
+ */
+public class TimedContextSource extends DelegatingBaseLdapPathContextSourceSupport
+        implements BaseLdapPathContextSource {
+
+    private static final Set<String> OPERATIONS = Set.of("search", "lookup", "getAttributes", "list",
+            "listBindings", "modifyAttributes", "bind", "rebind", "unbind", "rename", "createSubcontext",
+            "destroySubcontext");
+
+    private final ContextSource target;
+    private final MeterRegistry meterRegistry;
+    private final Timer acquire;
+    private final Map<String, Timer> operations = new ConcurrentHashMap<>();
+
+    /**
+     * @param target a {@link ContextSource} that also knows its base LDAP path, like a
+     *               {@link BaseLdapPathContextSource} or a pool of one
+     */
+    public TimedContextSource(ContextSource target, MeterRegistry meterRegistry) {
+        this.target = target;
+        this.meterRegistry = meterRegistry;
+        this.acquire = Timer.builder("ldap.context.acquire")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected ContextSource getTarget() {
+        return target;
+    }
+
+    @Override
+    public DirContext getReadOnlyContext() {
+        long start = System.nanoTime();
+        DirContext context = target.getReadOnlyContext();
+        acquire.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return timed(context);
+    }
+
+    @Override
+    public DirContext getReadWriteContext() {
+        long start = System.nanoTime();
+        DirContext context = target.getReadWriteContext();
+        acquire.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return timed(context);
+    }
+
+    @Override
+    public DirContext getContext(String principal, String credentials) {
+        long start = System.nanoTime();
+        DirContext context = target.getContext(principal, credentials);
+        // A bind with the user's credentials, a round trip of its own
+        timer("bind").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return timed(context);
+    }
+
+    private DirContext timed(DirContext context) {
+        return (DirContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                ClassUtils.getAllInterfaces(context), new TimedContext(context));
+    }
+
+    private Timer timer(String operation) {
+        return operations.computeIfAbsent(operation, name -> Timer.builder("ldap.operation")
+                .tag("operation", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private final class TimedContext implements InvocationHandler {
+
+        private final DirContext target;
+
+        private TimedContext(DirContext target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!OPERATIONS.contains(method.getName())) {
+                return invoke(method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(method, args);
+            } finally {
+                timer(method.getName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Object invoke(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.authenticatingwithldap.token;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+/**
+ * Sets and clears the cookie the token travels in, out of reach of scripts and not sent along
+ * with requests from other sites.
+ */
+public class TokenCookies {
+
+    private final String name;
+    private final Duration maxAge;
+
+    public TokenCookies(TokenProperties properties) {
+        this.name = properties.getCookieName();
+        this.maxAge = properties.getTtl();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void set(HttpServletRequest request, HttpServletResponse response, String token) {
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie(request, token, maxAge).toString());
+    }
+
+    public void clear(HttpServletRequest request, HttpServletResponse response) {
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie(request, "", Duration.ZERO).toString());
+    }
+
+    private ResponseCookie cookie(HttpServletRequest request, String value, Duration maxAge) {
+        String path = request.getContextPath();
+        return ResponseCookie.from(name, value)
+                .path(StringUtils.hasLength(path) ? path : "/")
+                .maxAge(maxAge)
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Lax")
+                .build();
+    }
+}
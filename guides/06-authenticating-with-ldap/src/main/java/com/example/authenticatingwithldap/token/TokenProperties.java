@@ -0,0 +1,81 @@
+package com.example.authenticatingwithldap.token;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@ConfigurationProperties("security.token")
+public class TokenProperties {
+
+    /**
+     * Whether a login issues a signed token in a cookie, verified at every request, instead of
+     * keeping the user in an HTTP session.
+     */
+    private boolean enabled = false;
+
+    /**
+     * How long a token is valid after the login. A token cannot be revoked, signing out only
+     * drops its cookie, so keep it short.
+     */
+    private Duration ttl = Duration.ofMinutes(30);
+
+    /**
+     * The cookie the token is sent in.
+     */
+    private String cookieName = "AUTH-TOKEN";
+
+    /**
+     * Signing keys by id, base64 encoded, 32 bytes or more. Tokens are signed with
+     * {@code signing-key} and verified with whichever key their id names, so a key is rotated by
+     * adding the new one, signing with it, and removing the old one once its tokens have expired.
+     * Without any, a random key is generated at startup, which no other instance knows.
+     */
+    private Map<String, String> keys = new LinkedHashMap<>();
+
+    /**
+     * The id of the key new tokens are signed with, required when there are several {@code keys}.
+     */
+    private String signingKey;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public String getCookieName() {
+        return cookieName;
+    }
+
+    public void setCookieName(String cookieName) {
+        this.cookieName = cookieName;
+    }
+
+    public Map<String, String> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(Map<String, String> keys) {
+        this.keys = keys;
+    }
+
+    public String getSigningKey() {
+        return signingKey;
+    }
+
+    public void setSigningKey(String signingKey) {
+        this.signingKey = signingKey;
+    }
+}
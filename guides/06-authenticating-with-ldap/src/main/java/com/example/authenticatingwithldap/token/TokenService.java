@@ -0,0 +1,160 @@
+package com.example.authenticatingwithldap.token;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.Assert;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Issues and verifies the tokens that stand for a login: {@code keyId.claims.signature}, where the
+ * claims are the expiry, the user name and the authorities, and the signature is an HMAC-SHA256
+ * of the rest with the key of that id, all base64url encoded. Verifying one takes no session and
+ * no call to any backend, just a hash of a few hundred bytes.
+ * <p>
+ * The claims are separated by line breaks, so a user name or an authority with one is refused.
+ */
+public class TokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String HMAC = "HmacSHA256";
+    private static final int MINIMUM_KEY_LENGTH = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, SigningKey> keys = new HashMap<>();
+    private final SigningKey signingKey;
+    private final Duration ttl;
+    private final Clock clock;
+
+    public TokenService(TokenProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    TokenService(TokenProperties properties, Clock clock) {
+        this.ttl = properties.getTtl();
+        this.clock = clock;
+        if (properties.getKeys().isEmpty()) {
+            byte[] secret = new byte[MINIMUM_KEY_LENGTH];
+            new SecureRandom().nextBytes(secret);
+            keys.put("generated", new SigningKey("generated", secret));
+            logger.warn("No security.token.keys, signing tokens with a random key that no other instance knows "
+                    + "and that is lost on restart");
+        }
+        properties.getKeys().forEach((id, secret) -> {
+            Assert.isTrue(id.indexOf('.') < 0, () -> "Token key id " + id + " has a dot");
+            byte[] bytes = Base64.getDecoder().decode(secret);
+            Assert.isTrue(bytes.length >= MINIMUM_KEY_LENGTH,
+                    () -> "Token key " + id + " is shorter than " + MINIMUM_KEY_LENGTH + " bytes");
+            keys.put(id, new SigningKey(id, bytes));
+        });
+        // The keys come in no particular order, so which one signs must not be left to chance
+        Assert.isTrue(properties.getSigningKey() != null || keys.size() == 1,
+                "security.token.signing-key must name the key to sign with when there are several");
+        String signingKeyId = properties.getSigningKey() != null
+                ? properties.getSigningKey() : keys.keySet().iterator().next();
+        this.signingKey = keys.get(signingKeyId);
+        Assert.notNull(signingKey, () -> "No token key " + signingKeyId + " to sign with");
+    }
+
+    /**
+     * @return a token that stands for {@code authentication} until the ttl has passed
+     */
+    public String issue(Authentication authentication) {
+        String username = authentication.getName();
+        Assert.isTrue(username.indexOf('\n') < 0, "A user name with a line break cannot be put in a token");
+        StringBuilder claims = new StringBuilder()
+                .append(clock.instant().plus(ttl).getEpochSecond())
+                .append('\n').append(username);
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name != null) {
+                // A line break would end the authority there and make the rest another one
+                Assert.isTrue(name.indexOf('\n') < 0, "An authority with a line break cannot be put in a token");
+                claims.append('\n').append(name);
+            }
+        }
+        String unsigned = signingKey.id + '.' + ENCODER.encodeToString(claims.toString().getBytes(StandardCharsets.UTF_8));
+        return unsigned + '.' + ENCODER.encodeToString(signingKey.sign(unsigned));
+    }
+
+    /**
+     * @return the authenticated user {@code token} stands for, {@code null} if it is malformed,
+     * signed with an unknown key, tampered with or expired
+     */
+    public Authentication verify(String token) {
+        int claimsStart = token.indexOf('.');
+        int signatureStart = token.lastIndexOf('.');
+        if (claimsStart <= 0 || signatureStart <= claimsStart) {
+            return null;
+        }
+        SigningKey key = keys.get(token.substring(0, claimsStart));
+        if (key == null) {
+            return null;
+        }
+        try {
+            byte[] signature = DECODER.decode(token.substring(signatureStart + 1));
+            if (!MessageDigest.isEqual(key.sign(token.substring(0, signatureStart)), signature)) {
+                return null;
+            }
+            String[] claims = new String(DECODER.decode(token.substring(claimsStart + 1, signatureStart)),
+                    StandardCharsets.UTF_8).split("\n");
+            if (claims.length < 2 || clock.instant().getEpochSecond() >= Long.parseLong(claims[0])) {
+                return null;
+            }
+            List<GrantedAuthority> authorities = new ArrayList<>(claims.length - 2);
+            for (int i = 2; i < claims.length; i++) {
+                authorities.add(new SimpleGrantedAuthority(claims[i]));
+            }
+            return new UsernamePasswordAuthenticationToken(claims[1], null, authorities);
+        } catch (IllegalArgumentException e) {
+            // Not base64, or no number for the expiry
+            return null;
+        }
+    }
+
+    private static final class SigningKey {
+
+        private final String id;
+
+        /**
+         * A {@link Mac} per thread, since getting one from the provider costs more than a hash.
+         */
+        private final ThreadLocal<Mac> macs;
+
+        private SigningKey(String id, byte[] secret) {
+            this.id = id;
+            SecretKeySpec key = new SecretKeySpec(secret, HMAC);
+            this.macs = ThreadLocal.withInitial(() -> {
+                try {
+                    Mac mac = Mac.getInstance(HMAC);
+                    mac.init(key);
+                    return mac;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(HMAC + " is not available", e);
+                }
+            });
+        }
+
+        private byte[] sign(String data) {
+            return macs.get().doFinal(data.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
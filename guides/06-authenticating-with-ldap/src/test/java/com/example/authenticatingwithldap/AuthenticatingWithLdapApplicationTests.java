@@ -1,13 +1,51 @@
 package com.example.authenticatingwithldap;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 class AuthenticatingWithLdapApplicationTests {
 
+    @Autowired
+    private AuthenticationProvider ldapAuthenticationProvider;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void authenticatesAgainFromTheCache() {
+        Authentication first = ldapAuthenticationProvider.authenticate(
+                new UsernamePasswordAuthenticationToken("ben", "benspassword"));
+        double hits = meterRegistry.get("ldap.auth.cache").tag("result", "hit").counter().count();
+        Authentication second = ldapAuthenticationProvider.authenticate(
+                new UsernamePasswordAuthenticationToken("ben", "benspassword"));
+
+        assertThat(AuthorityUtils.authorityListToSet(first.getAuthorities()))
+                .contains("ROLE_DEVELOPERS", "ROLE_MANAGERS");
+        assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+        assertThat(meterRegistry.get("ldap.auth.cache").tag("result", "hit").counter().count()).isEqualTo(hits + 1);
+        assertThat(meterRegistry.get("ldap.operation").tag("operation", "search").timer().count()).isPositive();
+        assertThat(meterRegistry.get("ldap.pool.idle").gauge().value()).isPositive();
+    }
+
+    @Test
+    void rejectsAWrongPassword() {
+        assertThatThrownBy(() -> ldapAuthenticationProvider.authenticate(
+                new UsernamePasswordAuthenticationToken("ben", "guess")))
+                .isInstanceOf(BadCredentialsException.class);
+    }
 }
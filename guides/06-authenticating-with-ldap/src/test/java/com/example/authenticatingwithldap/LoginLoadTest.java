@@ -0,0 +1,105 @@
+package com.example.authenticatingwithldap;
+
+import com.example.authenticatingwithldap.auth.LdapAuthenticationConfiguration;
+import com.example.authenticatingwithldap.auth.LdapAuthenticationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.ldap.pool2.factory.PooledContextSource;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Logs the same users in over and over from many threads, first straight against LDAP and then
+ * through the caches, and reports the latency of each. Run with {@code ./gradlew loadTest}.
+ */
+@Tag("load")
+@SpringBootTest
+public class LoginLoadTest {
+
+    private static final Duration TEST_DURATION = Duration.ofSeconds(10);
+    private static final int CLIENTS = 16;
+
+    @Autowired
+    private PooledContextSource pooledLdapContextSource;
+
+    @Autowired
+    private LdapAuthenticationProperties properties;
+
+    @Test
+    public void reportLatencyOfRepeatedLogins() throws Exception {
+        LdapAuthenticationProperties uncached = new LdapAuthenticationProperties();
+        uncached.setUrl(properties.getUrl());
+        uncached.getCache().setEnabled(false);
+        uncached.getGroups().setGraph(false);
+
+        MeterRegistry direct = new SimpleMeterRegistry();
+        MeterRegistry cached = new SimpleMeterRegistry();
+        report("direct", direct, storm(provider(uncached, direct)));
+        report("cached", cached, storm(provider(properties, cached)));
+    }
+
+    private AuthenticationProvider provider(LdapAuthenticationProperties properties, MeterRegistry meterRegistry) {
+        LdapAuthenticationConfiguration configuration = new LdapAuthenticationConfiguration();
+        return configuration.ldapAuthenticationProvider(pooledLdapContextSource,
+                configuration.ldapAuthoritiesPopulator(pooledLdapContextSource, properties, meterRegistry),
+                properties, meterRegistry);
+    }
+
+    private List<Long> storm(AuthenticationProvider provider) throws Exception {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long deadline = System.nanoTime() + TEST_DURATION.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            futures.add(clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    // Only ben has a BCrypt password in test-server.ldif
+                    assertThat(provider.authenticate(new UsernamePasswordAuthenticationToken("ben", "benspassword"))
+                            .isAuthenticated()).isTrue();
+                    latencies.add(System.nanoTime() - start);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        clients.shutdown();
+        return latencies;
+    }
+
+    private static void report(String name, MeterRegistry meterRegistry, List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        double ldapMillis = meterRegistry.find("ldap.operation").timers().stream()
+                .mapToDouble(timer -> timer.totalTime(TimeUnit.MILLISECONDS))
+                .sum();
+        Timer acquire = meterRegistry.get("ldap.context.acquire").timer();
+        System.out.printf("%s: %d logins in %ds (%.0f/s), p50 %.2f ms, p99 %.2f ms, max %.2f ms, "
+                        + "%d connections taken from the pool, %.0f ms in LDAP operations%n",
+                name, sorted.size(), TEST_DURATION.toSeconds(), sorted.size() / (double) TEST_DURATION.toSeconds(),
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted.get(sorted.size() - 1) / 1e6,
+                acquire.count(), ldapMillis);
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.round(percentile * sorted.size()))) / 1e6;
+    }
+}
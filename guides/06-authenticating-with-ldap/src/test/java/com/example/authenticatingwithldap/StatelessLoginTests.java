@@ -0,0 +1,58 @@
+package com.example.authenticatingwithldap;
+
+import com.example.authenticatingwithldap.token.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.servlet.http.Cookie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A server of its own, the one of the other tests is still listening
+@SpringBootTest(properties = {
+        "security.token.enabled=true",
+        "spring.ldap.embedded.port=8390",
+        "ldap.auth.url=ldap://localhost:8390/dc=springframework,dc=org" })
+@AutoConfigureMockMvc
+class StatelessLoginTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Test
+    void logsInWithATokenInsteadOfASession() throws Exception {
+        MvcResult login = mvc.perform(post("/login").with(csrf()).param("username", "ben").param("password", "benspassword"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(cookie().httpOnly("AUTH-TOKEN", true))
+                .andReturn();
+        assertThat(login.getRequest().getSession(false)).isNull();
+        Cookie token = login.getResponse().getCookie("AUTH-TOKEN");
+        assertThat(AuthorityUtils.authorityListToSet(tokenService.verify(token.getValue()).getAuthorities()))
+                .contains("ROLE_DEVELOPERS", "ROLE_MANAGERS");
+
+        mvc.perform(get("/").cookie(token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void sendsRequestsWithoutAValidTokenToTheLoginPage() throws Exception {
+        mvc.perform(get("/").cookie(new Cookie("AUTH-TOKEN", "generated.e30.AAAA")))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("http://localhost/login"))
+                .andExpect(cookie().maxAge("AUTH-TOKEN", 0));
+    }
+}
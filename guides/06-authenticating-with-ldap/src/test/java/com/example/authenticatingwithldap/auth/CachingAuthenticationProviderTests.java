@@ -0,0 +1,133 @@
+package com.example.authenticatingwithldap.auth;
+
+import com.example.authenticatingwithldap.TestClock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingAuthenticationProviderTests {
+
+    private final LdapAuthenticationProperties.Cache properties = new LdapAuthenticationProperties.Cache();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TestClock clock = new TestClock();
+    private final StubProvider delegate = new StubProvider();
+    private final CachingAuthenticationProvider provider =
+            new CachingAuthenticationProvider(delegate, properties, meterRegistry, clock);
+
+    @Test
+    void authenticatesAgainWithoutTheDelegate() {
+        delegate.passwords.put("ben", "benspassword");
+
+        Authentication first = provider.authenticate(login("ben", "benspassword"));
+        Authentication second = provider.authenticate(login("ben", "benspassword"));
+
+        assertThat(delegate.calls).isEqualTo(1);
+        assertThat(second.isAuthenticated()).isTrue();
+        assertThat(second.getPrincipal()).isEqualTo(first.getPrincipal());
+        assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(1);
+        assertThat(meterRegistry.get("ldap.auth.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void asksTheDelegateForAnotherPassword() {
+        delegate.passwords.put("ben", "benspassword");
+        provider.authenticate(login("ben", "benspassword"));
+
+        assertThatThrownBy(() -> provider.authenticate(login("ben", "guess")))
+                .isInstanceOf(BadCredentialsException.class);
+
+        // The failure forgets ben, so the right password goes to the delegate again
+        provider.authenticate(login("ben", "benspassword"));
+        assertThat(delegate.calls).isEqualTo(3);
+        assertThat(meterRegistry.get("ldap.auth.cache.invalidations").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void asksTheDelegateAgainOnceTheLoginExpired() {
+        delegate.passwords.put("ben", "benspassword");
+        provider.authenticate(login("ben", "benspassword"));
+
+        clock.advance(properties.getTtl());
+        provider.authenticate(login("ben", "benspassword"));
+
+        assertThat(delegate.calls).isEqualTo(2);
+        assertThat(count("hit")).isZero();
+    }
+
+    @Test
+    void noticesAPasswordChangedInTheDirectoryAfterTheTtl() {
+        delegate.passwords.put("ben", "benspassword");
+        provider.authenticate(login("ben", "benspassword"));
+        delegate.passwords.put("ben", "newpassword");
+
+        // Until the login expires the old password is still accepted
+        provider.authenticate(login("ben", "benspassword"));
+        clock.advance(properties.getTtl());
+
+        assertThatThrownBy(() -> provider.authenticate(login("ben", "benspassword")))
+                .isInstanceOf(BadCredentialsException.class);
+        assertThat(provider.authenticate(login("ben", "newpassword")).isAuthenticated()).isTrue();
+    }
+
+    @Test
+    void forgetsTheLeastRecentlyUsedUsers() {
+        properties.setMaximumSize(2);
+        CachingAuthenticationProvider provider =
+                new CachingAuthenticationProvider(delegate, properties, meterRegistry, clock);
+        delegate.passwords.put("ben", "benspassword");
+        delegate.passwords.put("bob", "bobspassword");
+        delegate.passwords.put("joe", "joespassword");
+
+        provider.authenticate(login("ben", "benspassword"));
+        provider.authenticate(login("bob", "bobspassword"));
+        provider.authenticate(login("ben", "benspassword"));
+        provider.authenticate(login("joe", "joespassword"));
+        provider.authenticate(login("ben", "benspassword"));
+        provider.authenticate(login("bob", "bobspassword"));
+
+        assertThat(delegate.calls).isEqualTo(4);
+    }
+
+    private static Authentication login(String username, String password) {
+        return new UsernamePasswordAuthenticationToken(username, password);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("ldap.auth.cache").tag("result", result).counter().count();
+    }
+
+    private static final class StubProvider implements AuthenticationProvider {
+
+        private final Map<String, String> passwords = new HashMap<>();
+        private int calls;
+
+        @Override
+        public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+            calls++;
+            if (!authentication.getCredentials().equals(passwords.get(authentication.getName()))) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+            return new UsernamePasswordAuthenticationToken(authentication.getName(), authentication.getCredentials(),
+                    AuthorityUtils.createAuthorityList("ROLE_DEVELOPERS"));
+        }
+
+        @Override
+        public boolean supports(Class<?> authentication) {
+            return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.authenticatingwithldap.auth;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.ldap.core.DirContextAdapter;
+import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.pool2.factory.PooledContextSource;
+import org.springframework.ldap.support.LdapUtils;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import javax.naming.Name;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class GroupGraphAuthoritiesPopulatorTests {
+
+    private static final DirContextAdapter BEN =
+            new DirContextAdapter(LdapUtils.newLdapName("uid=ben,ou=people,dc=springframework,dc=org"));
+
+    @Autowired
+    private GroupGraphAuthoritiesPopulator populator;
+
+    @Autowired
+    private PooledContextSource pooledLdapContextSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LdapAuthenticationProperties properties;
+
+    @Test
+    void findsGroupsInSubtreesAndThroughNestedGroups() {
+        LdapTemplate ldapTemplate = new LdapTemplate(pooledLdapContextSource);
+        Name leads = LdapUtils.newLdapName("cn=leads,ou=groups");
+        ldapTemplate.bind(group(leads, "cn=submanagers,ou=subgroups,ou=groups,dc=springframework,dc=org"));
+        try {
+            populator.fullRefresh();
+
+            assertThat(authoritiesOfBen())
+                    .contains("ROLE_DEVELOPERS", "ROLE_MANAGERS", "ROLE_SUBMANAGERS", "ROLE_LEADS");
+        } finally {
+            ldapTemplate.unbind(leads);
+            populator.fullRefresh();
+        }
+    }
+
+    @Test
+    void readsOnlyChangedGroupsBetweenFullRefreshes() {
+        LdapTemplate ldapTemplate = new LdapTemplate(pooledLdapContextSource);
+        populator.fullRefresh();
+        long incremental = meterRegistry.get("ldap.groups.refresh").tag("type", "incremental").timer().count();
+        int size = (int) meterRegistry.get("ldap.groups.size").gauge().value();
+
+        Name testers = LdapUtils.newLdapName("cn=testers,ou=groups");
+        ldapTemplate.bind(group(testers, "uid=ben,ou=people,dc=springframework,dc=org"));
+        try {
+            populator.refresh();
+
+            assertThat(authoritiesOfBen()).contains("ROLE_TESTERS");
+            assertThat(meterRegistry.get("ldap.groups.refresh").tag("type", "incremental").timer().count())
+                    .isEqualTo(incremental + 1);
+            assertThat(meterRegistry.get("ldap.groups.size").gauge().value()).isEqualTo(size + 1);
+        } finally {
+            ldapTemplate.unbind(testers);
+            populator.fullRefresh();
+        }
+        assertThat(authoritiesOfBen()).doesNotContain("ROLE_TESTERS");
+    }
+
+    @Test
+    void loadsTheGraphOnceForConcurrentFirstLogins() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GroupGraphAuthoritiesPopulator fresh = new GroupGraphAuthoritiesPopulator(pooledLdapContextSource,
+                properties.getGroupSearchBase(), properties.getGroups(), registry);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Set<String>>> logins = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                logins.add(() -> AuthorityUtils.authorityListToSet(fresh.getGrantedAuthorities(BEN, "ben")));
+            }
+            for (Future<Set<String>> authorities : executor.invokeAll(logins)) {
+                assertThat(authorities.get()).contains("ROLE_DEVELOPERS");
+            }
+        } finally {
+            executor.shutdownNow();
+            fresh.destroy();
+        }
+
+        assertThat(registry.get("ldap.groups.refresh").tag("type", "full").timer().count()).isEqualTo(1);
+        assertThat(registry.get("ldap.groups.refresh").tag("type", "incremental").timer().count()).isZero();
+    }
+
+    private Set<String> authoritiesOfBen() {
+        return AuthorityUtils.authorityListToSet(populator.getGrantedAuthorities(BEN, "ben"));
+    }
+
+    private static DirContextAdapter group(Name dn, String member) {
+        DirContextAdapter group = new DirContextAdapter(dn);
+        group.setAttributeValues("objectClass", new String[] { "top", "groupOfUniqueNames" });
+        group.setAttributeValue("cn", dn.get(dn.size() - 1).substring("cn=".length()));
+        group.setAttributeValue("uniqueMember", member);
+        return group;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.authenticatingwithldap.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ldap.support.LdapUtils;
+
+import javax.naming.ldap.LdapName;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GroupGraphTests {
+
+    private static final String BEN = "uid=ben,ou=people,dc=springframework,dc=org";
+
+    @Test
+    void resolvesNestedGroupsDirectOnesFirst() {
+        GroupGraph graph = GroupGraph.of(List.of(
+                group("developers", BEN),
+                group("engineering", dn("developers")),
+                group("staff", dn("engineering"), dn("developers")),
+                group("managers", "uid=bob,ou=people,dc=springframework,dc=org")));
+
+        assertThat(graph.groupsOf(LdapUtils.newLdapName(BEN)))
+                .startsWith("developers")
+                .containsExactlyInAnyOrder("developers", "engineering", "staff");
+    }
+
+    @Test
+    void comparesDnsTheLdapWay() {
+        GroupGraph graph = GroupGraph.of(List.of(group("developers", "UID=Ben, OU=People,DC=springframework,DC=org")));
+
+        assertThat(graph.groupsOf(LdapUtils.newLdapName(BEN))).containsExactly("developers");
+    }
+
+    @Test
+    void followsACycleOnce() {
+        GroupGraph graph = GroupGraph.of(List.of(
+                group("a", BEN, dn("c")),
+                group("b", dn("a")),
+                group("c", dn("b"))));
+
+        assertThat(graph.groupsOf(LdapUtils.newLdapName(BEN))).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void replacesChangedGroups() {
+        GroupGraph graph = GroupGraph.of(List.of(group("developers", BEN), group("staff", dn("developers"))));
+
+        GroupGraph changed = graph.with(List.of(group("staff"), group("contractors", BEN)));
+
+        assertThat(changed.groupsOf(LdapUtils.newLdapName(BEN))).containsExactlyInAnyOrder("developers", "contractors");
+        assertThat(changed.size()).isEqualTo(3);
+        assertThat(graph.groupsOf(LdapUtils.newLdapName(BEN))).containsExactly("developers", "staff");
+    }
+
+    private static GroupGraph.Group group(String name, String... members) {
+        LinkedHashSet<LdapName> dns = new LinkedHashSet<>();
+        Arrays.stream(members).map(LdapUtils::newLdapName).forEach(dns::add);
+        return new GroupGraph.Group(LdapUtils.newLdapName(dn(name)), name, dns);
+    }
+
+    private static String dn(String group) {
+        return "cn=" + group + ",ou=groups,dc=springframework,dc=org";
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.restfulwebservicewithactuator;
+
+/**
+ * Hands out the ids of greetings.
+ */
+public interface IdGenerator {
+
+    /**
+     * @return a positive id no other call returned before
+     */
+    long nextId();
+}
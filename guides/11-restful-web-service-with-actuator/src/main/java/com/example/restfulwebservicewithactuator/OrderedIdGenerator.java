@@ -0,0 +1,17 @@
+package com.example.restfulwebservicewithactuator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out 1, 2, 3... in the order calls arrive, at the price of one counter every thread
+ * has to update.
+ */
+public class OrderedIdGenerator implements IdGenerator {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    @Override
+    public long nextId() {
+        return counter.incrementAndGet();
+    }
+}
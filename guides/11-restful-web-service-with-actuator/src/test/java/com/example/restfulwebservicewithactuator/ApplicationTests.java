@@ -37,6 +37,19 @@ class ApplicationTests {
         then(entity.getStatusCode()).isEqualTo(OK);
     }
 
+    @Test
+    public void shouldHandOutIdsInRequestOrder(){
+        long first = helloWorldId();
+        long second = helloWorldId();
+        then(second).isEqualTo(first + 1);
+    }
+
+    private long helloWorldId() {
+        @SuppressWarnings("rawtypes")
+        Map body = this.testRestTemplate.getForObject("http://localhost:" + this.port + "/hello-world", Map.class);
+        return ((Number) body.get("id")).longValue();
+    }
+
     @Test
     public void shouldReturn200WhenSendingRequestToManagementEndpoint(){
         @SuppressWarnings("rawtypes")
@@ -0,0 +1,133 @@
+package com.example.springsecurity.authorization;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Authorizes a request against 1000 ant patterns and a last {@code anyRequest()}, with the
+ * matchers of {@code authorizeHttpRequests()} tried in turn and with a {@link PathTrie}, for a
+ * request matching the first rule, one in the middle, the last pattern, or none of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class AuthorizationMatchingBenchmark {
+
+    private static final int RULES = 1000;
+
+    @Param({"first", "middle", "last", "none"})
+    private String target;
+
+    private RequestMatcherDelegatingAuthorizationManager chain;
+    private PathTrieAuthorizationManager trie;
+    private MockHttpServletRequest request;
+    private RequestAuthorizationContext context;
+    private Supplier<Authentication> user;
+
+    @Setup
+    public void setUp() {
+        RequestMatcherDelegatingAuthorizationManager.Builder chain = RequestMatcherDelegatingAuthorizationManager.builder();
+        PathTrieAuthorizationManager.Builder trie = PathTrieAuthorizationManager.builder();
+        for (int i = 0; i < RULES; i++) {
+            String pattern = pattern(i);
+            AuthorizationManager<RequestAuthorizationContext> rule = new Rule(i);
+            chain.add(new AntPathRequestMatcher(pattern), rule);
+            trie.access(rule, pattern);
+        }
+        chain.add(AnyRequestMatcher.INSTANCE, new Rule(RULES));
+        trie.anyRequest(new Rule(RULES));
+        this.chain = chain.build();
+        this.trie = trie.build();
+
+        String path;
+        switch (target) {
+            case "first":
+                path = "/app0/items/42";
+                break;
+            case "middle":
+                path = "/app501/admin/users/42";
+                break;
+            case "last":
+                path = "/app999/files/report.txt";
+                break;
+            default:
+                path = "/elsewhere/page";
+        }
+        request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        context = new RequestAuthorizationContext(request);
+        Authentication authentication = new TestingAuthenticationToken("user", null, "ROLE_USER");
+        user = () -> authentication;
+
+        int expected = target.equals("first") ? 0 : target.equals("middle") ? 501 : target.equals("last") ? 999 : RULES;
+        check(this.chain.check(user, request), expected);
+        check(this.trie.check(user, context), expected);
+    }
+
+    private static String pattern(int i) {
+        switch (i % 4) {
+            case 0:
+                return "/app" + i + "/items/*";
+            case 1:
+                return "/app" + i + "/admin/**";
+            case 2:
+                return "/app" + i + "/{id}/view";
+            default:
+                return "/app" + i + "/files/*.txt";
+        }
+    }
+
+    private static void check(AuthorizationDecision decision, int expected) {
+        if (((RuleDecision) decision).rule != expected) {
+            throw new IllegalStateException("Rule " + ((RuleDecision) decision).rule + " instead of " + expected);
+        }
+    }
+
+    @Benchmark
+    public AuthorizationDecision requestMatchers() {
+        return chain.check(user, request);
+    }
+
+    @Benchmark
+    public AuthorizationDecision pathTrie() {
+        return trie.check(user, context);
+    }
+
+    private static final class Rule implements AuthorizationManager<RequestAuthorizationContext> {
+
+        private final RuleDecision decision;
+
+        private Rule(int index) {
+            this.decision = new RuleDecision(index);
+        }
+
+        @Override
+        public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+            return decision;
+        }
+    }
+
+    private static final class RuleDecision extends AuthorizationDecision {
+
+        private final int rule;
+
+        private RuleDecision(int rule) {
+            super(true);
+            this.rule = rule;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.springsecurity.token;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues and verifies tokens of a user with {@code roles} roles, the verification being what
+ * every request pays in place of a session lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class TokenBenchmark {
+
+    @Param({"1", "20"})
+    private int roles;
+
+    private TokenService tokenService;
+    private Authentication user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        TokenProperties properties = new TokenProperties();
+        properties.getKeys().put("2022", Base64.getEncoder().encodeToString(new byte[32]));
+        properties.getKeys().put("2021", Base64.getEncoder().encodeToString(new byte[48]));
+        properties.setSigningKey("2022");
+        tokenService = new TokenService(properties);
+        String[] authorities = new String[roles];
+        for (int i = 0; i < roles; i++) {
+            authorities[i] = "ROLE_GROUP_" + i;
+        }
+        user = new UsernamePasswordAuthenticationToken("user", null, AuthorityUtils.createAuthorityList(authorities));
+        token = tokenService.issue(user);
+    }
+
+    @Benchmark
+    public Authentication verify() {
+        return tokenService.verify(token);
+    }
+
+    @Benchmark
+    public String issue() {
+        return tokenService.issue(user);
+    }
+}
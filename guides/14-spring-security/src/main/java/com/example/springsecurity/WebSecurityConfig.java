@@ -1,36 +1,72 @@
 package com.example.springsecurity;
 
+import com.example.springsecurity.authorization.PathTrieAuthorizationManager;
+import com.example.springsecurity.token.TokenAuthenticationFilter;
+import com.example.springsecurity.token.TokenCookies;
+import com.example.springsecurity.token.TokenLoginSuccessHandler;
+import com.example.springsecurity.token.TokenProperties;
+import com.example.springsecurity.token.TokenService;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.LogoutConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.savedrequest.CookieRequestCache;
+import org.springframework.security.web.savedrequest.RequestCache;
 
 @Configuration
 @EnableWebSecurity
 public class WebSecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, TokenProperties tokenProperties,
+                                                   ObjectProvider<TokenService> tokenService) throws Exception {
         http
                 .authorizeHttpRequests((requests) -> requests
-                        .antMatchers("/", "/home").permitAll()
-                        .anyRequest().authenticated()
+                        .anyRequest().access(PathTrieAuthorizationManager.builder()
+                                .permitAll("/", "/home")
+                                .anyRequest(AuthenticatedAuthorizationManager.authenticated())
+                                .build())
                 )
                 .formLogin((form) -> form
                         .loginPage("/login")
                         .permitAll()
                 )
                 .logout((logout) -> logout.permitAll());
+        if (tokenProperties.isEnabled()) {
+            statelessTokens(http, tokenService.getObject(), new TokenCookies(tokenProperties));
+        }
 
         return http.build();
     }
 
+    /**
+     * Keeps nothing in the HTTP session: the login goes in a token cookie, and the page asked for
+     * before the login and the CSRF token in cookies of their own.
+     */
+    private static void statelessTokens(HttpSecurity http, TokenService tokenService, TokenCookies cookies)
+            throws Exception {
+        RequestCache requestCache = new CookieRequestCache();
+        http
+                .sessionManagement((session) -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .requestCache((cache) -> cache.requestCache(requestCache))
+                .csrf((csrf) -> csrf.csrfTokenRepository(new CookieCsrfTokenRepository()))
+                .formLogin((form) -> form.successHandler(new TokenLoginSuccessHandler(tokenService, cookies, requestCache)))
+                .logout((logout) -> logout.deleteCookies(cookies.getName()))
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService, cookies),
+                        UsernamePasswordAuthenticationFilter.class);
+    }
+
 
     @Bean
     public UserDetailsService userDetailsService() {
@@ -0,0 +1,211 @@
+package com.example.springsecurity.authorization;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ant-style path patterns, as {@code AntPathRequestMatcher} understands them, compiled into a tree
+ * of path segments: literal segments are looked up by name, {@code *}, {@code ?} and
+ * {@code {variable}} segments are matched one by one, and {@code **} loops on any number of
+ * segments. Finding the first pattern a path matches walks its segments once, through every branch
+ * of the tree that matches so far, whatever the number of patterns.
+ * <p>
+ * Patterns are ranked in the order they were added, and the first one a request matches wins, as
+ * in {@code authorizeHttpRequests()}.
+ */
+final class PathTrie<T> {
+
+    private static final String DOUBLE_STAR = "**";
+    private static final AntPathMatcher SEGMENTS = new AntPathMatcher();
+
+    private final Node root = new Node(false);
+    private final List<Rule<T>> rules = new ArrayList<>();
+
+    /**
+     * The rules of {@code /**}, which match any path, even one without a leading slash.
+     */
+    private final List<Integer> matchAll = new ArrayList<>();
+
+    void add(HttpMethod method, String pattern, T value) {
+        int index = rules.size();
+        rules.add(new Rule<>(method, value));
+        if (pattern.equals("/**") || pattern.equals(DOUBLE_STAR)) {
+            matchAll.add(index);
+            return;
+        }
+        Assert.isTrue(pattern.startsWith("/"), () -> "Pattern " + pattern + " does not start with /");
+        String[] segments = StringUtils.tokenizeToStringArray(pattern, "/", false, true);
+        Node node = root;
+        boolean doubleStar = false;
+        for (String segment : segments) {
+            node = node.child(segment);
+            doubleStar |= segment.equals(DOUBLE_STAR);
+        }
+        // Like AntPathMatcher, which only compares the trailing slashes of patterns without **
+        node.terminals.add(new Terminal(index, doubleStar ? null : pattern.endsWith("/")));
+    }
+
+    /**
+     * @return the value of the first rule {@code path} matches, {@code null} if none does
+     */
+    T match(String method, String path) {
+        int best = Integer.MAX_VALUE;
+        for (int index : matchAll) {
+            if (rules.get(index).allows(method)) {
+                best = index;
+                break;
+            }
+        }
+        if (path.startsWith("/")) {
+            best = walk(method, path, best);
+        }
+        return best < Integer.MAX_VALUE ? rules.get(best).value : null;
+    }
+
+    private int walk(String method, String path, int best) {
+        List<Node> states = new ArrayList<>();
+        root.enter(states);
+        int start = 1;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            // Empty segments are skipped, as by AntPathMatcher
+            if (end > start) {
+                String segment = path.substring(start, end);
+                List<Node> next = new ArrayList<>();
+                for (Node state : states) {
+                    state.step(segment, next);
+                }
+                if (next.isEmpty()) {
+                    return best;
+                }
+                states = next;
+            }
+            start = end + 1;
+        }
+        boolean slash = path.endsWith("/");
+        for (Node state : states) {
+            best = state.end(method, slash, best);
+        }
+        return best;
+    }
+
+    private static final class Rule<T> {
+
+        private final HttpMethod method;
+        private final T value;
+
+        private Rule(HttpMethod method, T value) {
+            this.method = method;
+            this.value = value;
+        }
+
+        private boolean allows(String method) {
+            return this.method == null || this.method.matches(method);
+        }
+    }
+
+    /**
+     * A rule whose pattern ends at a node, and whether it ends with a slash, {@code null} if that
+     * does not matter.
+     */
+    private static final class Terminal {
+
+        private final int rule;
+        private final Boolean slash;
+
+        private Terminal(int rule, Boolean slash) {
+            this.rule = rule;
+            this.slash = slash;
+        }
+    }
+
+    private final class Node {
+
+        /**
+         * Whether this node stands for {@code **}, and takes any segment without moving on.
+         */
+        private final boolean loops;
+
+        private final Map<String, Node> literals = new HashMap<>();
+        private final Map<String, Node> wildcards = new HashMap<>();
+        private Node doubleStar;
+        private final List<Terminal> terminals = new ArrayList<>();
+
+        private Node(boolean loops) {
+            this.loops = loops;
+        }
+
+        private Node child(String segment) {
+            if (segment.equals(DOUBLE_STAR)) {
+                if (doubleStar == null) {
+                    doubleStar = new Node(true);
+                }
+                return doubleStar;
+            }
+            boolean wildcard = segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0;
+            return (wildcard ? wildcards : literals).computeIfAbsent(segment, key -> new Node(false));
+        }
+
+        /**
+         * Adds this node to {@code states}, and the {@code **} after it, which may match no segment.
+         */
+        private void enter(List<Node> states) {
+            if (!states.contains(this)) {
+                states.add(this);
+                if (doubleStar != null) {
+                    doubleStar.enter(states);
+                }
+            }
+        }
+
+        private void step(String segment, List<Node> next) {
+            if (loops) {
+                enter(next);
+            }
+            Node literal = literals.get(segment);
+            if (literal != null) {
+                literal.enter(next);
+            }
+            if (!wildcards.isEmpty()) {
+                wildcards.forEach((pattern, node) -> {
+                    if (pattern.equals("*") || SEGMENTS.match(pattern, segment)) {
+                        node.enter(next);
+                    }
+                });
+            }
+        }
+
+        /**
+         * @return the first rule among {@code best} and those matching a path that ends here
+         */
+        private int end(String method, boolean slash, int best) {
+            best = first(terminals, method, slash, best);
+            // AntPathMatcher lets a last * match the empty segment after a trailing slash
+            Node star = wildcards.get("*");
+            if (slash && star != null) {
+                best = first(star.terminals, method, null, best);
+            }
+            return best;
+        }
+
+        private int first(List<Terminal> terminals, String method, Boolean slash, int best) {
+            for (Terminal terminal : terminals) {
+                if (terminal.rule < best && (slash == null || terminal.slash == null || terminal.slash == slash)
+                        && rules.get(terminal.rule).allows(method)) {
+                    best = terminal.rule;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.springsecurity.login;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+/**
+ * Being the only {@code AuthenticationProvider} bean, the throttling provider is the one Spring
+ * Security logs users in with, in place of the {@link DaoAuthenticationProvider} it would build
+ * around the {@link UserDetailsService} itself.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(LoginProperties.class)
+public class LoginConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "security.login.enabled", havingValue = "true", matchIfMissing = true)
+    public ThrottlingAuthenticationProvider throttlingAuthenticationProvider(UserDetailsService userDetailsService,
+                                                                             LoginProperties properties,
+                                                                             MeterRegistry meterRegistry) {
+        DaoAuthenticationProvider passwords = new DaoAuthenticationProvider();
+        passwords.setUserDetailsService(userDetailsService);
+        return new ThrottlingAuthenticationProvider(passwords, properties, meterRegistry);
+    }
+}
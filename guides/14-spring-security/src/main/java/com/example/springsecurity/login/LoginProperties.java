@@ -0,0 +1,145 @@
+package com.example.springsecurity.login;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("security.login")
+public class LoginProperties {
+
+    /**
+     * Whether logins are rate limited and their passwords hashed on threads of their own, rather
+     * than on the request threads, as many at a time as there are requests.
+     */
+    private boolean enabled = true;
+
+    private final Hashing hashing = new Hashing();
+
+    /**
+     * Logins per user name, whether the password is right or not. Someone guessing the password
+     * of a user holds that user back as well, for no longer than it takes to earn a login again.
+     */
+    private final RateLimit perUser = new RateLimit(5, Duration.ofSeconds(30));
+
+    /**
+     * Logins per client address, for someone trying many user names.
+     */
+    private final RateLimit perIp = new RateLimit(20, Duration.ofSeconds(1));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Hashing getHashing() {
+        return hashing;
+    }
+
+    public RateLimit getPerUser() {
+        return perUser;
+    }
+
+    public RateLimit getPerIp() {
+        return perIp;
+    }
+
+    public static class Hashing {
+
+        /**
+         * How many passwords are hashed at the same time; the CPU left over serves the pages.
+         */
+        private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        /**
+         * How many logins wait for a thread before the next ones are refused.
+         */
+        private int queueCapacity = 50;
+
+        /**
+         * How long a login waits for its password to be hashed before it is refused.
+         */
+        private Duration timeout = Duration.ofSeconds(10);
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * A token bucket: {@code capacity} logins in a burst, then one more every
+     * {@code refill-interval}.
+     */
+    public static class RateLimit {
+
+        /**
+         * How many logins are allowed in a row.
+         */
+        private int capacity;
+
+        /**
+         * How long it takes to earn one more login, up to {@code capacity}.
+         */
+        private Duration refillInterval;
+
+        /**
+         * How many keys are tracked at most. Those back at full capacity are dropped first, then
+         * the least recently used.
+         */
+        private int maximumSize = 10_000;
+
+        public RateLimit() {
+        }
+
+        RateLimit(int capacity, Duration refillInterval) {
+            this.capacity = capacity;
+            this.refillInterval = refillInterval;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public Duration getRefillInterval() {
+            return refillInterval;
+        }
+
+        public void setRefillInterval(Duration refillInterval) {
+            this.refillInterval = refillInterval;
+        }
+
+        public int getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.springsecurity.login;
+
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Thrown when a login is refused before its password is even checked, because there were too many
+ * of them for the same user or from the same address.
+ */
+public class LoginThrottledException extends AuthenticationException {
+
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+}
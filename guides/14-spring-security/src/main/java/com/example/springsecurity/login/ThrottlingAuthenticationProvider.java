@@ -0,0 +1,140 @@
+package com.example.springsecurity.login;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+import java.time.Clock;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks passwords with {@code delegate} on a dedicated, bounded executor, so that a burst of
+ * logins hashes no more passwords at a time than {@code security.login.hashing.threads}, and the
+ * rest of the CPU keeps serving pages.
+ * <p>
+ * Admission is decided before any hashing: a client address or a user name out of logins in its
+ * token bucket gets a {@link LoginThrottledException}, and once every thread is busy and the queue
+ * is full, or a login waited longer than {@code security.login.hashing.timeout}, everybody gets an
+ * {@link AuthenticationServiceException}. Either way the login page shows an error.
+ */
+public class ThrottlingAuthenticationProvider implements AuthenticationProvider, DisposableBean {
+
+    private final AuthenticationProvider delegate;
+    private final TokenBuckets perUser;
+    private final TokenBuckets perIp;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    private final Timer hashes;
+    private final Timer waits;
+    private final Counter throttledUser;
+    private final Counter throttledIp;
+    private final Counter rejectedSaturated;
+    private final Counter rejectedTimeout;
+
+    public ThrottlingAuthenticationProvider(AuthenticationProvider delegate, LoginProperties properties,
+                                            MeterRegistry meterRegistry) {
+        this(delegate, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    ThrottlingAuthenticationProvider(AuthenticationProvider delegate, LoginProperties properties,
+                                     MeterRegistry meterRegistry, Clock clock) {
+        this.delegate = delegate;
+        this.perUser = new TokenBuckets(properties.getPerUser(), clock);
+        this.perIp = new TokenBuckets(properties.getPerIp(), clock);
+        LoginProperties.Hashing hashing = properties.getHashing();
+        BlockingQueue<Runnable> queue = hashing.getQueueCapacity() > 0
+                ? new ArrayBlockingQueue<>(hashing.getQueueCapacity()) : new SynchronousQueue<>();
+        this.executor = new ThreadPoolExecutor(hashing.getThreads(), hashing.getThreads(), 0, TimeUnit.MILLISECONDS,
+                queue, new CustomizableThreadFactory("login-hash-"), new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = hashing.getTimeout().toMillis();
+
+        this.hashes = meterRegistry.timer("login.hash");
+        this.waits = meterRegistry.timer("login.hash.wait");
+        this.throttledUser = meterRegistry.counter("login.throttled", "limit", "user");
+        this.throttledIp = meterRegistry.counter("login.throttled", "limit", "ip");
+        this.rejectedSaturated = meterRegistry.counter("login.rejected", "reason", "saturated");
+        this.rejectedTimeout = meterRegistry.counter("login.rejected", "reason", "timeout");
+        meterRegistry.gauge("login.hash.queued", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("login.hash.active", executor, ThreadPoolExecutor::getActiveCount);
+        meterRegistry.gauge("login.throttle.keys", this, provider -> provider.perUser.size() + provider.perIp.size());
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        // The address first, so that guessing many user names does not use up their logins
+        String address = remoteAddress(authentication);
+        if (address != null && !perIp.tryAcquire(address)) {
+            throttledIp.increment();
+            throw new LoginThrottledException("Too many logins from " + address);
+        }
+        if (!perUser.tryAcquire(authentication.getName())) {
+            throttledUser.increment();
+            throw new LoginThrottledException("Too many logins for " + authentication.getName());
+        }
+
+        long submitted = System.nanoTime();
+        Future<Authentication> result;
+        try {
+            result = executor.submit(() -> {
+                long start = System.nanoTime();
+                waits.record(start - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return delegate.authenticate(authentication);
+                } finally {
+                    hashes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedSaturated.increment();
+            throw new AuthenticationServiceException("Too many logins in progress", e);
+        }
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejectedTimeout.increment();
+            throw new AuthenticationServiceException("Login timed out", e);
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Login interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new AuthenticationServiceException("Login failed", e.getCause());
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    private static String remoteAddress(Authentication authentication) {
+        return authentication.getDetails() instanceof WebAuthenticationDetails
+                ? ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress() : null;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.springsecurity.login;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A token bucket per key. A key missing from the map has a full bucket, so once there are
+ * {@code maximum-size} buckets those back at full capacity are dropped. If more than half of them
+ * are still in use, as under a flood of distinct user names, the least recently used go too, down
+ * to half, so that the map never grows past {@code maximum-size}, give or take the calls in
+ * progress.
+ */
+final class TokenBuckets {
+
+    private final int capacity;
+    private final double refillMillis;
+    private final int maximumSize;
+    private final Clock clock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    TokenBuckets(LoginProperties.RateLimit properties, Clock clock) {
+        this.capacity = properties.getCapacity();
+        this.refillMillis = properties.getRefillInterval().toMillis();
+        this.maximumSize = properties.getMaximumSize();
+        this.clock = clock;
+    }
+
+    /**
+     * @return whether {@code key} had a token left, which it no longer has
+     */
+    boolean tryAcquire(String key) {
+        long now = clock.millis();
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maximumSize) {
+                sweep(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private synchronized void sweep(long now) {
+        if (buckets.size() < maximumSize) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        int excess = buckets.size() - maximumSize / 2;
+        if (excess > 0) {
+            // Sorted copies of the times, since buckets go on being used while the sweep runs
+            long[] used = buckets.values().stream().mapToLong(Bucket::lastUsed).sorted().toArray();
+            long cutoff = used[Math.min(excess, used.length) - 1];
+            buckets.values().removeIf(bucket -> bucket.lastUsed() <= cutoff);
+        }
+    }
+
+    private final class Bucket {
+
+        private double tokens = capacity;
+        private long updated;
+
+        /**
+         * When a token was last asked for, which a refill does not move.
+         */
+        private long lastUsed;
+
+        private Bucket(long now) {
+            this.updated = now;
+        }
+
+        private synchronized boolean tryAcquire(long now) {
+            lastUsed = now;
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        private synchronized long lastUsed() {
+            return lastUsed;
+        }
+
+        private synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            if (now > updated) {
+                tokens = Math.min(capacity, tokens + (now - updated) / refillMillis);
+                updated = now;
+            }
+        }
+    }
+}
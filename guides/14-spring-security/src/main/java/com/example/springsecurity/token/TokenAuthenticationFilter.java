@@ -0,0 +1,46 @@
+package com.example.springsecurity.token;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Authenticates a request by the token in its cookie, if it has a valid one, and drops the cookie
+ * of an expired or otherwise invalid token.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private final TokenService tokenService;
+    private final TokenCookies cookies;
+
+    public TokenAuthenticationFilter(TokenService tokenService, TokenCookies cookies) {
+        this.tokenService = tokenService;
+        this.cookies = cookies;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Cookie cookie = WebUtils.getCookie(request, cookies.getName());
+        if (cookie != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            Authentication authentication = tokenService.verify(cookie.getValue());
+            if (authentication != null) {
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(authentication);
+                SecurityContextHolder.setContext(context);
+            } else {
+                cookies.clear(request, response);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
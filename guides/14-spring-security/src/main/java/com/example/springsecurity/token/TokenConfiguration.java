@@ -0,0 +1,17 @@
+package com.example.springsecurity.token;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(TokenProperties.class)
+public class TokenConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "security.token.enabled", havingValue = "true")
+    public TokenService tokenService(TokenProperties properties) {
+        return new TokenService(properties);
+    }
+}
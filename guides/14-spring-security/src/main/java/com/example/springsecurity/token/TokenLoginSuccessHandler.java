@@ -0,0 +1,36 @@
+package com.example.springsecurity.token;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.SavedRequestAwareAuthenticationSuccessHandler;
+import org.springframework.security.web.savedrequest.RequestCache;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Hands the user who just logged in a token, then sends them where they were going before the
+ * login page, as remembered by {@code requestCache}.
+ */
+public class TokenLoginSuccessHandler implements AuthenticationSuccessHandler {
+
+    private final TokenService tokenService;
+    private final TokenCookies cookies;
+    private final SavedRequestAwareAuthenticationSuccessHandler redirect =
+            new SavedRequestAwareAuthenticationSuccessHandler();
+
+    public TokenLoginSuccessHandler(TokenService tokenService, TokenCookies cookies, RequestCache requestCache) {
+        this.tokenService = tokenService;
+        this.cookies = cookies;
+        this.redirect.setRequestCache(requestCache);
+    }
+
+    @Override
+    public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
+                                        Authentication authentication) throws IOException, ServletException {
+        cookies.set(request, response, tokenService.issue(authentication));
+        redirect.onAuthenticationSuccess(request, response, authentication);
+    }
+}
@@ -1,13 +1,50 @@
 package com.example.springsecurity;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 class ApplicationTests {
 
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void letsAnybodySeeTheHomePageOnly() throws Exception {
+        mvc.perform(get("/home"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/hello"))
+                .andExpect(redirectedUrl("http://localhost/login"));
+    }
+
+    @Test
+    void hashesEveryPasswordOnceOnTheHashingThreads() throws Exception {
+        long hashes = meterRegistry.get("login.hash").timer().count();
+
+        mvc.perform(post("/login").with(csrf()).param("username", "user").param("password", "password"))
+                .andExpect(redirectedUrl("/"));
+        mvc.perform(post("/login").with(csrf()).param("username", "user").param("password", "guess"))
+                .andExpect(redirectedUrl("/login?error"));
+
+        assertThat(meterRegistry.get("login.hash").timer().count()).isEqualTo(hashes + 2);
+    }
 }
@@ -0,0 +1,116 @@
+package com.example.springsecurity;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Floods the login form with wrong passwords from many clients while a few others load the home
+ * page, and reports the latency of the page. Run with {@code ./gradlew loadTest}, and again with
+ * {@code -Dsecurity.login.enabled=false} to hash the passwords on the request threads.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class LoginFloodLoadTest {
+
+    private static final Duration TEST_DURATION = Duration.ofSeconds(10);
+    private static final int ATTACKERS = 32;
+    private static final int READERS = 4;
+    private static final Pattern CSRF = Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void reportPageLatencyDuringALoginFlood() throws Exception {
+        long deadline = System.nanoTime() + TEST_DURATION.toNanos();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger logins = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(ATTACKERS + READERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ATTACKERS; i++) {
+            futures.add(clients.submit(() -> {
+                HttpClient client = HttpClient.newBuilder().cookieHandler(new CookieManager()).build();
+                Matcher csrf = CSRF.matcher(client.send(HttpRequest.newBuilder(uri("/login")).build(),
+                        HttpResponse.BodyHandlers.ofString()).body());
+                assertThat(csrf.find()).isTrue();
+                HttpRequest login = HttpRequest.newBuilder(uri("/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString("username=user&password=guess&_csrf=" + csrf.group(1)))
+                        .build();
+                while (System.nanoTime() < deadline) {
+                    HttpResponse<Void> response = client.send(login, HttpResponse.BodyHandlers.discarding());
+                    assertThat(response.headers().firstValue("Location")).hasValueSatisfying(
+                            location -> assertThat(location).endsWith("/login?error"));
+                    logins.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < READERS; i++) {
+            futures.add(clients.submit(() -> {
+                HttpClient client = HttpClient.newHttpClient();
+                HttpRequest home = HttpRequest.newBuilder(uri("/home")).build();
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    assertThat(client.send(home, HttpResponse.BodyHandlers.discarding()).statusCode()).isEqualTo(200);
+                    latencies.add(System.nanoTime() - start);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        clients.shutdown();
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("%d failed logins, %d passwords hashed, %.0f logins throttled, %.0f refused; "
+                        + "%d home pages in %ds, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                logins.get(), count(meterRegistry.find("login.hash")), sum(meterRegistry.find("login.throttled")),
+                sum(meterRegistry.find("login.rejected")), sorted.size(), TEST_DURATION.toSeconds(),
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted.get(sorted.size() - 1) / 1e6);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static long count(Search timers) {
+        return timers.timer() != null ? timers.timer().count() : -1;
+    }
+
+    private static double sum(Search counters) {
+        return counters.counters().stream().mapToDouble(counter -> counter.count()).sum();
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.round(percentile * sorted.size()))) / 1e6;
+    }
+}
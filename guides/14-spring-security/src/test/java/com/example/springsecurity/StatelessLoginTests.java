@@ -0,0 +1,57 @@
+package com.example.springsecurity;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.servlet.http.Cookie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "security.token.enabled=true")
+@AutoConfigureMockMvc
+class StatelessLoginTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void logsInWithATokenInsteadOfASession() throws Exception {
+        MvcResult login = mvc.perform(post("/login").with(csrf()).param("username", "user").param("password", "password"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(cookie().httpOnly("AUTH-TOKEN", true))
+                .andReturn();
+        assertThat(login.getRequest().getSession(false)).isNull();
+        Cookie token = login.getResponse().getCookie("AUTH-TOKEN");
+
+        mvc.perform(get("/hello").cookie(token))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Hello user!")));
+    }
+
+    @Test
+    void sendsRequestsWithoutAValidTokenToTheLoginPage() throws Exception {
+        mvc.perform(get("/hello").cookie(new Cookie("AUTH-TOKEN", "generated.e30.AAAA")))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("http://localhost/login"))
+                .andExpect(cookie().maxAge("AUTH-TOKEN", 0));
+    }
+
+    @Test
+    void logoutDropsTheCookie() throws Exception {
+        mvc.perform(post("/logout").with(csrf()))
+                .andExpect(redirectedUrl("/login?logout"))
+                .andExpect(cookie().maxAge("AUTH-TOKEN", 0));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.springsecurity.authorization;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PathTrieTests {
+
+    private static final List<String> PATTERNS = List.of(
+            "/", "/home", "/home/", "/*", "/home/*", "/home/*/", "/admin/**", "/**/edit", "/a/**/b", "/a/**/b/**",
+            "/files/*.txt", "/files/?.md", "/users/{id}", "/users/{id:[0-9]+}/orders", "/api/v?/items/**",
+            "/**/static/**", "/x/*/y/*", "/**");
+
+    private static final List<String> PATHS = List.of(
+            "/", "", "/home", "/home/", "/home/x", "/home/x/", "/home/x/y", "/admin", "/admin/", "/admin/users/1",
+            "/adminx", "/edit", "/users/1/edit", "/a/b", "/a/b/", "/a/x/y/b", "/a/b/c", "/a/x/b/y", "/files/a.txt",
+            "/files/a.md", "/files/ab.md", "/users/42", "/users/ben", "/users/42/orders", "/users/ben/orders",
+            "/api/v1/items", "/api/v2/items/9", "/api/v10/items", "/css/static/x.css", "/static", "/x/1/y/2",
+            "/x/1/y/", "//home", "/home//x");
+
+    @Test
+    void matchesEachPatternLikeAntPathRequestMatcher() {
+        for (String pattern : PATTERNS) {
+            PathTrie<String> trie = new PathTrie<>();
+            trie.add(null, pattern, pattern);
+            AntPathRequestMatcher matcher = new AntPathRequestMatcher(pattern);
+            for (String path : PATHS) {
+                assertThat(trie.match("GET", path))
+                        .as("%s against %s", pattern, path)
+                        .isEqualTo(matcher.matches(request("GET", path)) ? pattern : null);
+            }
+        }
+    }
+
+    @Test
+    void picksTheFirstRuleThatMatches() {
+        PathTrie<String> trie = new PathTrie<>();
+        trie.add(null, "/admin/public/**", "public");
+        trie.add(HttpMethod.POST, "/admin/**", "post");
+        trie.add(null, "/admin/*", "admin");
+        trie.add(null, "/**", "any");
+
+        assertThat(trie.match("GET", "/admin/public/page")).isEqualTo("public");
+        assertThat(trie.match("POST", "/admin/users")).isEqualTo("post");
+        assertThat(trie.match("GET", "/admin/users")).isEqualTo("admin");
+        assertThat(trie.match("GET", "/admin/users/1")).isEqualTo("any");
+        assertThat(trie.match("GET", "/elsewhere")).isEqualTo("any");
+    }
+
+    @Test
+    void matchesNothingWithoutACatchAll() {
+        PathTrie<String> trie = new PathTrie<>();
+        trie.add(null, "/home", "home");
+
+        assertThat(trie.match("GET", "/hello")).isNull();
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+}
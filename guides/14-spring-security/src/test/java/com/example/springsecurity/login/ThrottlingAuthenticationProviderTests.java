@@ -0,0 +1,151 @@
+package com.example.springsecurity.login;
+
+import com.example.springsecurity.TestClock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ThrottlingAuthenticationProviderTests {
+
+    private final LoginProperties properties = new LoginProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TestClock clock = new TestClock();
+    private final StubProvider delegate = new StubProvider();
+    private ThrottlingAuthenticationProvider provider;
+
+    @AfterEach
+    void shutDown() throws Exception {
+        delegate.release.countDown();
+        if (provider != null) {
+            provider.destroy();
+        }
+    }
+
+    @Test
+    void throttlesAUserAfterABurst() {
+        provider = provider();
+        for (int i = 0; i < properties.getPerUser().getCapacity(); i++) {
+            assertThat(provider.authenticate(login("user", "password", "10.0.0." + i)).isAuthenticated()).isTrue();
+        }
+
+        assertThatThrownBy(() -> provider.authenticate(login("user", "password", "10.0.0.99")))
+                .isInstanceOf(LoginThrottledException.class);
+        assertThat(delegate.calls).hasValue(properties.getPerUser().getCapacity());
+        assertThat(meterRegistry.get("login.throttled").tag("limit", "user").counter().count()).isEqualTo(1);
+
+        clock.advance(properties.getPerUser().getRefillInterval());
+        assertThat(provider.authenticate(login("user", "password", "10.0.0.99")).isAuthenticated()).isTrue();
+    }
+
+    @Test
+    void throttlesAnAddressTryingManyUsers() {
+        provider = provider();
+        for (int i = 0; i < properties.getPerIp().getCapacity(); i++) {
+            int user = i;
+            assertThatThrownBy(() -> provider.authenticate(login("user" + user, "guess", "10.0.0.1")))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+
+        assertThatThrownBy(() -> provider.authenticate(login("user", "password", "10.0.0.1")))
+                .isInstanceOf(LoginThrottledException.class);
+        assertThat(provider.authenticate(login("user", "password", "10.0.0.2")).isAuthenticated()).isTrue();
+        assertThat(meterRegistry.get("login.throttled").tag("limit", "ip").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("login.hash").timer().count()).isEqualTo(properties.getPerIp().getCapacity() + 1);
+    }
+
+    @Test
+    void refusesLoginsOnceEveryThreadIsBusyAndTheQueueIsFull() throws Exception {
+        properties.getHashing().setThreads(1);
+        properties.getHashing().setQueueCapacity(1);
+        provider = provider();
+        delegate.blocking = true;
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<Authentication> hashing = clients.submit(() -> provider.authenticate(login("user", "password", "10.0.0.1")));
+            Future<Authentication> queued = clients.submit(() -> provider.authenticate(login("user", "password", "10.0.0.2")));
+            while (meterRegistry.get("login.hash.queued").gauge().value() < 1) {
+                Thread.sleep(10);
+            }
+            assertThat(meterRegistry.get("login.hash.active").gauge().value()).isEqualTo(1);
+
+            assertThatThrownBy(() -> provider.authenticate(login("user", "password", "10.0.0.3")))
+                    .isInstanceOf(AuthenticationServiceException.class);
+            assertThat(meterRegistry.get("login.rejected").tag("reason", "saturated").counter().count()).isEqualTo(1);
+
+            delegate.release.countDown();
+            assertThat(hashing.get().isAuthenticated()).isTrue();
+            assertThat(queued.get().isAuthenticated()).isTrue();
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void givesUpOnALoginWaitingTooLong() {
+        properties.getHashing().setTimeout(Duration.ofMillis(50));
+        provider = provider();
+        delegate.blocking = true;
+
+        assertThatThrownBy(() -> provider.authenticate(login("user", "password", "10.0.0.1")))
+                .isInstanceOf(AuthenticationServiceException.class);
+        assertThat(meterRegistry.get("login.rejected").tag("reason", "timeout").counter().count()).isEqualTo(1);
+    }
+
+    private ThrottlingAuthenticationProvider provider() {
+        return new ThrottlingAuthenticationProvider(delegate, properties, meterRegistry, clock);
+    }
+
+    private static Authentication login(String username, String password, String address) {
+        UsernamePasswordAuthenticationToken login = new UsernamePasswordAuthenticationToken(username, password);
+        login.setDetails(new WebAuthenticationDetails(address, null));
+        return login;
+    }
+
+    private static final class StubProvider implements AuthenticationProvider {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blocking;
+
+        @Override
+        public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+            calls.incrementAndGet();
+            if (blocking) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (!"password".equals(authentication.getCredentials())) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+            return new UsernamePasswordAuthenticationToken(authentication.getName(), null,
+                    AuthorityUtils.createAuthorityList("ROLE_USER"));
+        }
+
+        @Override
+        public boolean supports(Class<?> authentication) {
+            return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.springsecurity.login;
+
+import com.example.springsecurity.TestClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketsTests {
+
+    private final LoginProperties.RateLimit properties = new LoginProperties.RateLimit(2, Duration.ofSeconds(10));
+    private final TestClock clock = new TestClock();
+
+    @Test
+    void earnsTokensBackOverTime() {
+        TokenBuckets buckets = new TokenBuckets(properties, clock);
+        assertThat(buckets.tryAcquire("user")).isTrue();
+        assertThat(buckets.tryAcquire("user")).isTrue();
+        assertThat(buckets.tryAcquire("user")).isFalse();
+
+        clock.advance(Duration.ofSeconds(5));
+        assertThat(buckets.tryAcquire("user")).isFalse();
+        clock.advance(Duration.ofSeconds(5));
+        assertThat(buckets.tryAcquire("user")).isTrue();
+        assertThat(buckets.tryAcquire("user")).isFalse();
+    }
+
+    @Test
+    void dropsFullBucketsPastTheMaximumSize() {
+        properties.setMaximumSize(2);
+        TokenBuckets buckets = new TokenBuckets(properties, clock);
+        buckets.tryAcquire("a");
+        clock.advance(properties.getRefillInterval());
+        buckets.tryAcquire("b");
+
+        // a is full again, so it goes, while b still has a login to earn back
+        buckets.tryAcquire("c");
+        assertThat(buckets.size()).isEqualTo(2);
+        assertThat(buckets.tryAcquire("b")).isTrue();
+        assertThat(buckets.tryAcquire("b")).isFalse();
+    }
+
+    @Test
+    void staysWithinTheMaximumSizeUnderAFloodOfKeys() {
+        properties.setMaximumSize(100);
+        TokenBuckets buckets = new TokenBuckets(properties, clock);
+        buckets.tryAcquire("user");
+        buckets.tryAcquire("user");
+
+        for (int i = 0; i < 10_000; i++) {
+            clock.advance(Duration.ofMillis(1));
+            // Every flooding key keeps a login to earn back, so none is ever full
+            assertThat(buckets.tryAcquire("flood-" + i)).isTrue();
+            if (i % 10 == 0) {
+                assertThat(buckets.tryAcquire("user")).isFalse();
+            }
+            assertThat(buckets.size()).isLessThanOrEqualTo(100);
+        }
+    }
+}
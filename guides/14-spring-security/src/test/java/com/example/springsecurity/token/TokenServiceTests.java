@@ -0,0 +1,113 @@
+package com.example.springsecurity.token;
+
+import com.example.springsecurity.TestClock;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class TokenServiceTests {
+
+    private static final Authentication USER = new UsernamePasswordAuthenticationToken("user", "password",
+            AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN"));
+
+    private final TestClock clock = new TestClock();
+
+    @Test
+    void verifiesTheTokensItIssued() {
+        TokenService tokenService = new TokenService(properties("2021", "2021"), clock);
+
+        Authentication verified = tokenService.verify(tokenService.issue(USER));
+
+        assertThat(verified.isAuthenticated()).isTrue();
+        assertThat(verified.getName()).isEqualTo("user");
+        assertThat(AuthorityUtils.authorityListToSet(verified.getAuthorities()))
+                .containsExactly("ROLE_USER", "ROLE_ADMIN");
+    }
+
+    @Test
+    void rejectsTamperedTokens() {
+        TokenService tokenService = new TokenService(properties("2021", "2021"), clock);
+        String token = tokenService.issue(USER);
+        String[] parts = token.split("\\.");
+        String admin = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ("9999999999\nadmin\nROLE_ADMIN").getBytes());
+
+        assertThat(tokenService.verify(parts[0] + "." + admin + "." + parts[2])).isNull();
+        assertThat(tokenService.verify(token.substring(0, token.length() - 2))).isNull();
+        assertThat(tokenService.verify("other." + parts[1] + "." + parts[2])).isNull();
+        assertThat(tokenService.verify("garbage")).isNull();
+        assertThat(tokenService.verify("2021.!!.??")).isNull();
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        TokenService tokenService = new TokenService(properties("2021", "2021"), clock);
+        String token = tokenService.issue(USER);
+
+        clock.advance(Duration.ofMinutes(29));
+        assertThat(tokenService.verify(token)).isNotNull();
+        clock.advance(Duration.ofMinutes(1));
+        assertThat(tokenService.verify(token)).isNull();
+    }
+
+    @Test
+    void verifiesTokensOfTheOldKeyAfterARotation() {
+        String old = new TokenService(properties("2021", "2021"), clock).issue(USER);
+
+        TokenService rotated = new TokenService(properties("2022", "2021", "2022"), clock);
+        String current = rotated.issue(USER);
+
+        assertThat(rotated.verify(old).getName()).isEqualTo("user");
+        assertThat(current).startsWith("2022.");
+        assertThat(rotated.verify(current).getName()).isEqualTo("user");
+        assertThat(new TokenService(properties("2022", "2022"), clock).verify(old)).isNull();
+    }
+
+    @Test
+    void refusesAuthoritiesWithLineBreaks() {
+        TokenService tokenService = new TokenService(properties("2021", "2021"), clock);
+        Authentication user = new UsernamePasswordAuthenticationToken("user", "password",
+                AuthorityUtils.createAuthorityList("ROLE_USER", "GROUP_X\nROLE_ADMIN"));
+
+        assertThatIllegalArgumentException().isThrownBy(() -> tokenService.issue(user));
+    }
+
+    @Test
+    void refusesShortKeys() {
+        TokenProperties properties = new TokenProperties();
+        properties.getKeys().put("short", Base64.getEncoder().encodeToString(new byte[16]));
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new TokenService(properties, clock));
+    }
+
+    @Test
+    void refusesSeveralKeysWithoutASigningKey() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new TokenService(properties(null, "2021", "2022"), clock));
+        assertThat(new TokenService(properties(null, "2021"), clock).issue(USER)).startsWith("2021.");
+    }
+
+    @Test
+    void refusesASigningKeyThatIsNotConfigured() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new TokenService(properties("2023", "2021", "2022"), clock));
+    }
+
+    private static TokenProperties properties(String signingKey, String... keyIds) {
+        TokenProperties properties = new TokenProperties();
+        for (String id : keyIds) {
+            byte[] secret = new byte[32];
+            secret[0] = (byte) id.hashCode();
+            properties.getKeys().put(id, Base64.getEncoder().encodeToString(secret));
+        }
+        properties.setSigningKey(signingKey);
+        return properties;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.managingtransactions.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts a {@link StatementCachingDataSource} between the Hikari pool Spring Boot would configure
+ * and the driver. {@code spring.datasource.*} and {@code spring.datasource.hikari.*} apply as usual.
+ * <p>
+ * The statement meters are added to the meter registry once it exists: the registry binds the pool
+ * metrics of this data source while it is created, so it cannot be injected into it.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties({DataSourceProperties.class, StatementCacheProperties.class})
+@ConditionalOnProperty(name = "jdbc.statement-cache.enabled", matchIfMissing = true)
+public class StatementCacheConfiguration {
+
+    private final CompositeMeterRegistry statementMeters = new CompositeMeterRegistry();
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties, StatementCacheProperties properties) {
+        DataSource driver = dataSourceProperties.initializeDataSourceBuilder()
+                .type(SimpleDriverDataSource.class)
+                .build();
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setDataSource(new StatementCachingDataSource(driver, properties, statementMeters));
+        if (dataSourceProperties.getName() != null) {
+            dataSource.setPoolName(dataSourceProperties.getName());
+        }
+        return dataSource;
+    }
+
+    @Bean
+    public MeterBinder statementCacheMetrics() {
+        return statementMeters::add;
+    }
+}
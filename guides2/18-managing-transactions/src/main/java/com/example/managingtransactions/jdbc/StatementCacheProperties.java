@@ -0,0 +1,58 @@
+package com.example.managingtransactions.jdbc;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("jdbc.statement-cache")
+public class StatementCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Prepared statements kept open per connection, the least recently used ones closed first.
+     */
+    private int size = 64;
+
+    /**
+     * Executions taking longer are logged with their SQL.
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(200);
+
+    /**
+     * SQL fingerprints given their own {@code sql} tag, the statements beyond share {@code sql=other}.
+     */
+    private int maxTaggedStatements = 200;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public Duration getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public void setSlowQueryThreshold(Duration slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    public int getMaxTaggedStatements() {
+        return maxTaggedStatements;
+    }
+
+    public void setMaxTaggedStatements(int maxTaggedStatements) {
+        this.maxTaggedStatements = maxTaggedStatements;
+    }
+}
@@ -1,13 +1,36 @@
 package com.example.managingtransactions;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 class ApplicationTests {
 
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void bookingsInOneTransactionReuseTheirStatement() {
+        double hits = meterRegistry.get("jdbc.statement.cache")
+                .tags("sql", "insert into bookings(first_name) values (?)", "result", "hit")
+                .counter().count();
+
+        bookingService.book("Dave", "Erin");
+
+        assertThat(meterRegistry.get("jdbc.statement.cache")
+                .tags("sql", "insert into bookings(first_name) values (?)", "result", "hit")
+                .counter().count()).isGreaterThan(hits);
+    }
+
 }